@@ -0,0 +1,135 @@
+package kr.ac.kaist.team888.bezier;
+
+import org.apache.commons.math3.geometry.euclidean.twod.Vector2D;
+
+/**
+ * Affine transformation of the plane, mapping a point (x, y) to
+ * (scaleX * x + shearX * y + translateX, shearY * x + scaleY * y + translateY).
+ *
+ * <p>Transformations are immutable. A sequence of transformations is composed into a single one
+ * by {@link #then(AffineTransform2D)}, so that points are transformed once.
+ */
+public final class AffineTransform2D {
+  /**
+   * The identity transformation.
+   */
+  public static final AffineTransform2D IDENTITY = new AffineTransform2D(1, 0, 0, 0, 1, 0);
+
+  private final double scaleX;
+  private final double shearX;
+  private final double translateX;
+  private final double shearY;
+  private final double scaleY;
+  private final double translateY;
+
+  /**
+   * Creates a new transformation of the coefficients.
+   *
+   * @param scaleX coefficient of x in the new x
+   * @param shearX coefficient of y in the new x
+   * @param translateX constant of the new x
+   * @param shearY coefficient of x in the new y
+   * @param scaleY coefficient of y in the new y
+   * @param translateY constant of the new y
+   */
+  public AffineTransform2D(double scaleX, double shearX, double translateX,
+                           double shearY, double scaleY, double translateY) {
+    this.scaleX = scaleX;
+    this.shearX = shearX;
+    this.translateX = translateX;
+    this.shearY = shearY;
+    this.scaleY = scaleY;
+    this.translateY = translateY;
+  }
+
+  /**
+   * Returns a transformation scaling each axis and then translating.
+   *
+   * @param scaleX horizontal scale
+   * @param scaleY vertical scale
+   * @param translateX horizontal translation after the scaling
+   * @param translateY vertical translation after the scaling
+   * @return the transformation
+   */
+  public static AffineTransform2D scaling(double scaleX, double scaleY, double translateX,
+                                          double translateY) {
+    return new AffineTransform2D(scaleX, 0, translateX, 0, scaleY, translateY);
+  }
+
+  /**
+   * Returns a transformation shearing horizontally, which moves each point by the distance of
+   * its y-coordinate from the base line times the factor.
+   *
+   * @param factor horizontal distance per vertical distance
+   * @param baseY y-coordinate of the line kept in place
+   * @return the transformation
+   */
+  public static AffineTransform2D shearing(double factor, double baseY) {
+    return new AffineTransform2D(1, factor, -factor * baseY, 0, 1, 0);
+  }
+
+  /**
+   * Returns the transformation applying this transformation followed by the other.
+   *
+   * @param next transformation applied after this
+   * @return the composed transformation
+   */
+  public AffineTransform2D then(AffineTransform2D next) {
+    return new AffineTransform2D(
+        next.scaleX * scaleX + next.shearX * shearY,
+        next.scaleX * shearX + next.shearX * scaleY,
+        next.scaleX * translateX + next.shearX * translateY + next.translateX,
+        next.shearY * scaleX + next.scaleY * shearY,
+        next.shearY * shearX + next.scaleY * scaleY,
+        next.shearY * translateX + next.scaleY * translateY + next.translateY);
+  }
+
+  /**
+   * Returns whether the transformation keeps every point in place.
+   *
+   * @return whether the transformation is the identity
+   */
+  public boolean isIdentity() {
+    return scaleX == 1 && shearX == 0 && translateX == 0
+        && shearY == 0 && scaleY == 1 && translateY == 0;
+  }
+
+  /**
+   * Returns the x-coordinate of the transformed point.
+   *
+   * @param x x-coordinate of the point
+   * @param y y-coordinate of the point
+   * @return the transformed x-coordinate
+   */
+  public double transformX(double x, double y) {
+    return scaleX * x + shearX * y + translateX;
+  }
+
+  /**
+   * Returns the y-coordinate of the transformed point.
+   *
+   * @param x x-coordinate of the point
+   * @param y y-coordinate of the point
+   * @return the transformed y-coordinate
+   */
+  public double transformY(double x, double y) {
+    return shearY * x + scaleY * y + translateY;
+  }
+
+  /**
+   * Returns the transformed point.
+   *
+   * @param point point to transform
+   * @return the transformed point
+   */
+  public Vector2D transform(Vector2D point) {
+    return new Vector2D(transformX(point.getX(), point.getY()),
+        transformY(point.getX(), point.getY()));
+  }
+
+  @Override
+  public String toString() {
+    return String.format("[%f, %f, %f; %f, %f, %f]", scaleX, shearX, translateX,
+        shearY, scaleY, translateY);
+  }
+}
@@ -9,6 +9,7 @@ import org.apache.commons.math3.exception.OutOfRangeException;
 import org.apache.commons.math3.geometry.euclidean.twod.Vector2D;
 import org.apache.commons.math3.util.MathUtils;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 
 /**
@@ -194,6 +195,30 @@ public class BezierCurve extends ParametricPolynomialCurve {
     return new Vector2D(1, points[index]);
   }
 
+  /**
+   * Returns the x-coordinate of the controlling point at given index.
+   *
+   * <p>Unlike {@link #getPoint(int)}, this does not copy the point.
+   *
+   * @param index index of the target controlling point
+   * @return the x-coordinate of the controlling point
+   */
+  public double getX(int index) {
+    return points[index].getX();
+  }
+
+  /**
+   * Returns the y-coordinate of the controlling point at given index.
+   *
+   * <p>Unlike {@link #getPoint(int)}, this does not copy the point.
+   *
+   * @param index index of the target controlling point
+   * @return the y-coordinate of the controlling point
+   */
+  public double getY(int index) {
+    return points[index].getY();
+  }
+
   /**
    * Sets a point at given position with given point.
    *
@@ -247,6 +272,28 @@ public class BezierCurve extends ParametricPolynomialCurve {
     this.polynomials[1] = new PolynomialFunction(coefficients[1]);
   }
 
+  /**
+   * Transforms the points of the curve in place.
+   *
+   * <p>Unlike {@link #setPoints(Vector2D[])}, this does not copy the points given, and
+   * the coefficients are calculated once for all points.
+   *
+   * @param transform transformation of the points
+   */
+  public void transform(AffineTransform2D transform) {
+    for (int i = 0; i <= order; i++) {
+      points[i] = transform.transform(points[i]);
+    }
+    updatePolynomials();
+  }
+
+  private void updatePolynomials() {
+    double[][] coefficients = calculateCoefficients(points);
+    this.polynomials = new PolynomialFunction[2];
+    this.polynomials[0] = new PolynomialFunction(coefficients[0]);
+    this.polynomials[1] = new PolynomialFunction(coefficients[1]);
+  }
+
   /**
    * Gets the start point.
    *
@@ -307,6 +354,24 @@ public class BezierCurve extends ParametricPolynomialCurve {
     return order;
   }
 
+  /**
+   * Returns the default offset method of the Bezier curve.
+   *
+   * @return the default offset method
+   */
+  public BezierCurveOffsetMethodType getOffsetMethod() {
+    return offsetMethod;
+  }
+
+  /**
+   * Sets the default offset method of the Bezier curve.
+   *
+   * @param offsetMethod the default offset method
+   */
+  public void setOffsetMethod(BezierCurveOffsetMethodType offsetMethod) {
+    this.offsetMethod = offsetMethod;
+  }
+
   /**
    * Returns the offset vector of the Bezier curve.
    *
@@ -470,8 +535,8 @@ public class BezierCurve extends ParametricPolynomialCurve {
       points[1][i] = beta[order - i][i];
     }
     BezierCurve[] curves = new BezierCurve[] {
-        new BezierCurve(points[0]),
-        new BezierCurve(points[1])
+        new BezierCurve(points[0], offsetMethod),
+        new BezierCurve(points[1], offsetMethod)
     };
     for (BezierCurve curve : curves) {
       curve.setOffsetVector(offsetVector);
@@ -484,6 +549,9 @@ public class BezierCurve extends ParametricPolynomialCurve {
    * with using given offset method.
    *
    * <p>This methods gives a new object of Bezier curve and does not modify the original.
+   * The adaptive method may need several curves to stay within its tolerance, thus it falls
+   * back to the Tiller-Hanson method here;
+   * use {@link #offsetCurves(double, double, BezierCurveOffsetMethodType)} instead.
    *
    * @param delta distance to offset
    * @param offsetMethod offset method to apply
@@ -493,12 +561,54 @@ public class BezierCurve extends ParametricPolynomialCurve {
                             BezierCurveOffsetMethodType offsetMethod) {
     switch (offsetMethod) {
       case TillerHanson:
+      case Adaptive:
         return OffsetTillerHanson.offset(this, delta, contrast);
       default:
         return null;
     }
   }
 
+  /**
+   * Returns an offset of the original Bezier curve by given distance with using given offset
+   * method, as the form of a sequence of Bezier curves.
+   *
+   * <p>Unlike {@link #offset(double, double, BezierCurveOffsetMethodType)}, this keeps every
+   * piece of the adaptive method. The other methods give a single curve.
+   *
+   * @param delta distance to offset
+   * @param offsetMethod offset method to apply
+   * @return a sequence of new offset Bezier curves
+   */
+  public ArrayList<BezierCurve> offsetCurves(double delta, double contrast,
+                                             BezierCurveOffsetMethodType offsetMethod) {
+    return offsetCurves(delta, contrast, offsetMethod, PenType.Ellipse.getPen());
+  }
+
+  /**
+   * Returns an offset of the original Bezier curve by given distance with using given offset
+   * method and given pen, as the form of a sequence of Bezier curves.
+   *
+   * <p>The pen applies to the adaptive method only, as the Tiller-Hanson offset of a single
+   * curve is always elliptical.
+   *
+   * @param delta distance to offset
+   * @param offsetMethod offset method to apply
+   * @param pen pen to draw the curve
+   * @return a sequence of new offset Bezier curves
+   */
+  public ArrayList<BezierCurve> offsetCurves(double delta, double contrast,
+                                             BezierCurveOffsetMethodType offsetMethod,
+                                             PenModel pen) {
+    switch (offsetMethod) {
+      case Adaptive:
+        return OffsetAdaptive.offset(this, delta, contrast, pen);
+      default:
+        ArrayList<BezierCurve> curves = new ArrayList<>();
+        curves.add(offset(delta, contrast, offsetMethod));
+        return curves;
+    }
+  }
+
   /**
    * Returns an offset Bezier curve of the original Bezier curve by given distance
    * with using a default offset method.
@@ -525,7 +635,7 @@ public class BezierCurve extends ParametricPolynomialCurve {
   public BezierCurve reverse() {
     Vector2D[] points = getPoints();
     ArrayUtils.reverse(points);
-    BezierCurve curve = new BezierCurve(points);
+    BezierCurve curve = new BezierCurve(points, offsetMethod);
     curve.setOffsetVector(offsetVector);
     return curve;
   }
@@ -549,6 +659,7 @@ public class BezierCurve extends ParametricPolynomialCurve {
 
   public static class Builder {
     private Vector2D[] points;
+    private BezierCurveOffsetMethodType offsetMethod = DEFAULT_OFFSET_METHOD;
     private Vector2D offsetVector;
     private Vector2D endOffsetVector;
     private int cutoffStart;
@@ -567,6 +678,17 @@ public class BezierCurve extends ParametricPolynomialCurve {
       return this;
     }
 
+    /**
+     * Sets the default offset method.
+     *
+     * @param offsetMethod default offset method
+     * @return this builder, useful for chaining
+     */
+    public Builder setOffsetMethod(BezierCurveOffsetMethodType offsetMethod) {
+      this.offsetMethod = offsetMethod;
+      return this;
+    }
+
     /**
      * Sets the offset vector.
      *
@@ -639,7 +761,7 @@ public class BezierCurve extends ParametricPolynomialCurve {
      * @return the newly constructed {@link BezierCurve} object
      */
     public BezierCurve build() {
-      BezierCurve curve = new BezierCurve(points);
+      BezierCurve curve = new BezierCurve(points, offsetMethod);
       curve.offsetVector = offsetVector;
       curve.endOffsetVector = endOffsetVector;
       curve.cutoffStart = cutoffStart;
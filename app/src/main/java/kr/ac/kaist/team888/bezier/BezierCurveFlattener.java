@@ -0,0 +1,301 @@
+package kr.ac.kaist.team888.bezier;
+
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+import org.apache.commons.math3.exception.OutOfRangeException;
+
+import java.util.ArrayList;
+
+/**
+ * Flattens sequences of Bezier curves into polylines within a bounded error.
+ *
+ * <p>Every emitted polyline stays within the tolerance, in the units of the curves
+ * (font units for {@link kr.ac.kaist.team888.locator.Locator#getContour()}), from
+ * the original curves. Lines are emitted as is. Quadratic curves have a constant second
+ * derivative, so the smallest number of uniform pieces satisfying the tolerance is computed
+ * directly. Cubic curves are subdivided by
+ * <a href="https://en.wikipedia.org/wiki/De_Casteljau's_algorithm">De Casteljau's algorithm</a>
+ * until each piece is flat enough, so that only the parts which bend strongly are refined.
+ * Curves of higher orders are divided into uniform pieces, as many as the largest second
+ * difference of their controlling points requires.
+ *
+ * <p>Curves can also be given by arrays of coordinates, which is how the rasterizers flatten
+ * curves already mapped to pixels, and {@link #isFlat(int, double[], double[])} tells whether
+ * a curve is within the tolerance of its chord, which is how the contour union stops
+ * subdividing.
+ *
+ * <p>This class does not allocate while flattening curves of the orders it has already
+ * flattened; points are streamed into a {@link PolylineBuffer} which can be reused among
+ * calls. It is not thread-safe.
+ */
+public class BezierCurveFlattener {
+  /**
+   * A default tolerance in font units.
+   */
+  public static final double DEFAULT_TOLERANCE = .25;
+
+  private static final int MAX_ORDER = 3;
+  private static final int MAX_DEPTH = 16;
+  private static final int MAX_SEGMENTS = 1 << MAX_DEPTH;
+
+  private final double tolerance;
+  private final double cubicFlatness;
+  private double[] scratchXs = new double[MAX_ORDER + 1];
+  private double[] scratchYs = new double[MAX_ORDER + 1];
+
+  /**
+   * Creates a new flattener with a default tolerance.
+   */
+  public BezierCurveFlattener() {
+    this(DEFAULT_TOLERANCE);
+  }
+
+  /**
+   * Creates a new flattener with given tolerance.
+   *
+   * @param tolerance maximum distance between a curve and its polyline
+   * @throws NotStrictlyPositiveException if tolerance is not positive
+   */
+  public BezierCurveFlattener(double tolerance) throws NotStrictlyPositiveException {
+    if (!(tolerance > 0)) {
+      throw new NotStrictlyPositiveException(tolerance);
+    }
+    this.tolerance = tolerance;
+    this.cubicFlatness = 16 * tolerance * tolerance;
+  }
+
+  /**
+   * Returns the tolerance of the flattener.
+   *
+   * @return the tolerance
+   */
+  public double getTolerance() {
+    return tolerance;
+  }
+
+  /**
+   * Flattens every contour into the buffer, one polyline per contour.
+   *
+   * <p>The buffer is not cleared. The number of points emitted for the i-th contour can be
+   * read by {@link PolylineBuffer#getContourPointCount(int)}.
+   *
+   * @param contours contours in the form of
+   *     {@link kr.ac.kaist.team888.locator.Locator#getContour()}
+   * @param buffer buffer to append polylines
+   * @return the number of points emitted
+   */
+  public int flatten(ArrayList<ArrayList<BezierCurve>> contours, PolylineBuffer buffer) {
+    int count = 0;
+    for (ArrayList<BezierCurve> contour : contours) {
+      count += flattenContour(contour, buffer);
+    }
+    return count;
+  }
+
+  /**
+   * Flattens a single contour into a new polyline of the buffer.
+   *
+   * <p>The closing point is omitted if it coincides with the starting point, since polylines
+   * of {@link PolylineBuffer} are implicitly closed.
+   *
+   * @param contour a sequence of connected Bezier curves
+   * @param buffer buffer to append a polyline
+   * @return the number of points emitted
+   * @throws OutOfRangeException if the order of some curve is bigger than 3
+   */
+  public int flattenContour(ArrayList<BezierCurve> contour, PolylineBuffer buffer)
+      throws OutOfRangeException {
+    buffer.beginContour();
+    int start = buffer.getPointCount();
+    if (!contour.isEmpty()) {
+      BezierCurve first = contour.get(0);
+      buffer.addPoint(first.getX(0), first.getY(0));
+      for (BezierCurve curve : contour) {
+        flatten(curve, buffer);
+      }
+      int last = buffer.getPointCount() - 1;
+      if (last > start && buffer.getX(last) == buffer.getX(start)
+          && buffer.getY(last) == buffer.getY(start)) {
+        buffer.removeLastPoint();
+      }
+    }
+    buffer.endContour();
+    return buffer.getPointCount() - start;
+  }
+
+  /**
+   * Appends the flattened points of the curve to the current polyline of the buffer.
+   *
+   * <p>The start point of the curve is not emitted; it is assumed to be the last point
+   * of the polyline. Points coinciding with the previous one are skipped.
+   *
+   * @param curve a Bezier curve of order 1 to 3
+   * @param buffer buffer to append points
+   * @throws OutOfRangeException if the order of the curve is bigger than 3
+   */
+  public void flatten(BezierCurve curve, PolylineBuffer buffer) throws OutOfRangeException {
+    switch (curve.getOrder()) {
+      case 1:
+        emit(buffer, curve.getX(1), curve.getY(1));
+        break;
+      case 2:
+        flattenQuadratic(buffer, curve.getX(0), curve.getY(0), curve.getX(1), curve.getY(1),
+            curve.getX(2), curve.getY(2));
+        break;
+      case 3:
+        flattenCubic(buffer, curve.getX(0), curve.getY(0), curve.getX(1), curve.getY(1),
+            curve.getX(2), curve.getY(2), curve.getX(3), curve.getY(3), 0);
+        break;
+      default:
+        throw new OutOfRangeException(curve.getOrder(), 1, MAX_ORDER);
+    }
+  }
+
+  /**
+   * Appends the flattened points of the curve given by its controlling points to the current
+   * polyline of the buffer, like {@link #flatten(BezierCurve, PolylineBuffer)}.
+   *
+   * @param order order of the curve, at least 1
+   * @param xs x-coordinates of the controlling points
+   * @param ys y-coordinates of the controlling points
+   * @param buffer buffer to append points
+   * @throws OutOfRangeException if the order is not positive
+   */
+  public void flatten(int order, double[] xs, double[] ys, PolylineBuffer buffer)
+      throws OutOfRangeException {
+    switch (order) {
+      case 1:
+        emit(buffer, xs[1], ys[1]);
+        break;
+      case 2:
+        flattenQuadratic(buffer, xs[0], ys[0], xs[1], ys[1], xs[2], ys[2]);
+        break;
+      case 3:
+        flattenCubic(buffer, xs[0], ys[0], xs[1], ys[1], xs[2], ys[2], xs[3], ys[3], 0);
+        break;
+      default:
+        if (order < 1) {
+          throw new OutOfRangeException(order, 1, Integer.MAX_VALUE);
+        }
+        flattenUniform(buffer, order, xs, ys);
+        break;
+    }
+  }
+
+  /**
+   * Returns whether every controlling point of the curve is within the tolerance from
+   * the chord, in which case so is the curve.
+   *
+   * @param order order of the curve, at least 1
+   * @param xs x-coordinates of the controlling points
+   * @param ys y-coordinates of the controlling points
+   * @return whether the curve can be taken as its chord
+   */
+  public boolean isFlat(int order, double[] xs, double[] ys) {
+    // Squared distances are compared, since the union tests flatness at every subdivision.
+    double dx = xs[order] - xs[0];
+    double dy = ys[order] - ys[0];
+    double squaredLength = dx * dx + dy * dy;
+    double squaredTolerance = tolerance * tolerance;
+    for (int i = 1; i < order; i++) {
+      double offsetX = xs[i] - xs[0];
+      double offsetY = ys[i] - ys[0];
+      if (squaredLength == 0) {
+        if (offsetX * offsetX + offsetY * offsetY > squaredTolerance) {
+          return false;
+        }
+      } else {
+        double cross = offsetX * dy - offsetY * dx;
+        if (cross * cross > squaredTolerance * squaredLength) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private void flattenQuadratic(PolylineBuffer buffer, double x0, double y0,
+                                double x1, double y1, double x2, double y2) {
+    // The distance from the chord is at most |p0 - 2p1 + p2| / 4n^2 for n uniform pieces.
+    double ddx = x0 - 2 * x1 + x2;
+    double ddy = y0 - 2 * y1 + y2;
+    double deviation = Math.sqrt(ddx * ddx + ddy * ddy) / 4;
+    int segments = (int) Math.min(MAX_SEGMENTS, Math.ceil(Math.sqrt(deviation / tolerance)));
+    for (int i = 1; i < segments; i++) {
+      double time = i / (double) segments;
+      double inverse = 1 - time;
+      double a = inverse * inverse;
+      double b = 2 * inverse * time;
+      double c = time * time;
+      emit(buffer, a * x0 + b * x1 + c * x2, a * y0 + b * y1 + c * y2);
+    }
+    emit(buffer, x2, y2);
+  }
+
+  private void flattenCubic(PolylineBuffer buffer, double x0, double y0, double x1, double y1,
+                            double x2, double y2, double x3, double y3, int depth) {
+    // Flatness criterion of Roger Willcocks, which bounds the distance to the chord.
+    double ux = 3 * x1 - 2 * x0 - x3;
+    double uy = 3 * y1 - 2 * y0 - y3;
+    double vx = 3 * x2 - 2 * x3 - x0;
+    double vy = 3 * y2 - 2 * y3 - y0;
+    double flatness = Math.max(ux * ux, vx * vx) + Math.max(uy * uy, vy * vy);
+    if (flatness <= cubicFlatness || depth >= MAX_DEPTH) {
+      emit(buffer, x3, y3);
+      return;
+    }
+
+    double x01 = (x0 + x1) / 2;
+    double y01 = (y0 + y1) / 2;
+    double x12 = (x1 + x2) / 2;
+    double y12 = (y1 + y2) / 2;
+    double x23 = (x2 + x3) / 2;
+    double y23 = (y2 + y3) / 2;
+    double x012 = (x01 + x12) / 2;
+    double y012 = (y01 + y12) / 2;
+    double x123 = (x12 + x23) / 2;
+    double y123 = (y12 + y23) / 2;
+    double xm = (x012 + x123) / 2;
+    double ym = (y012 + y123) / 2;
+    flattenCubic(buffer, x0, y0, x01, y01, x012, y012, xm, ym, depth + 1);
+    flattenCubic(buffer, xm, ym, x123, y123, x23, y23, x3, y3, depth + 1);
+  }
+
+  private void flattenUniform(PolylineBuffer buffer, int order, double[] xs, double[] ys) {
+    // A curve of order n deviates from its control polygon by at most n(n-1)/8 times
+    // the largest second difference of its points, and subdividing into m pieces divides
+    // the deviation by m squared.
+    double secondDifference = 0;
+    for (int k = 0; k + 2 <= order; k++) {
+      double ddx = xs[k] - 2 * xs[k + 1] + xs[k + 2];
+      double ddy = ys[k] - 2 * ys[k + 1] + ys[k + 2];
+      secondDifference = Math.max(secondDifference, ddx * ddx + ddy * ddy);
+    }
+    double deviation = order * (order - 1) / 8. * Math.sqrt(secondDifference);
+    int segments = (int) Math.min(MAX_SEGMENTS, Math.ceil(Math.sqrt(deviation / tolerance)));
+    if (scratchXs.length <= order) {
+      scratchXs = new double[order + 1];
+      scratchYs = new double[order + 1];
+    }
+    for (int i = 1; i < segments; i++) {
+      double time = i / (double) segments;
+      System.arraycopy(xs, 0, scratchXs, 0, order + 1);
+      System.arraycopy(ys, 0, scratchYs, 0, order + 1);
+      for (int level = order; level > 0; level--) {
+        for (int k = 0; k < level; k++) {
+          scratchXs[k] += time * (scratchXs[k + 1] - scratchXs[k]);
+          scratchYs[k] += time * (scratchYs[k + 1] - scratchYs[k]);
+        }
+      }
+      emit(buffer, scratchXs[0], scratchYs[0]);
+    }
+    emit(buffer, xs[order], ys[order]);
+  }
+
+  private static void emit(PolylineBuffer buffer, double x, double y) {
+    int last = buffer.getPointCount() - 1;
+    if (last >= 0 && buffer.getX(last) == x && buffer.getY(last) == y) {
+      return;
+    }
+    buffer.addPoint(x, y);
+  }
+}
@@ -11,5 +11,11 @@ public enum BezierCurveOffsetMethodType {
    * "Offsets of Two-Dimensional Profiles."
    * IEEE Computer Graphics and Applications 4.9 (1984): 36-46.</a>
    */
-  TillerHanson
+  TillerHanson,
+
+  /**
+   * Error-bounded adaptive method. The offset is sampled and approximated by quadratic curves,
+   * which are subdivided only where the deviation exceeds a tolerance.
+   */
+  Adaptive
 }
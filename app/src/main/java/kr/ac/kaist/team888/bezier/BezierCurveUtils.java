@@ -2,6 +2,8 @@ package kr.ac.kaist.team888.bezier;
 
 import org.apache.commons.math3.analysis.UnivariateFunction;
 import org.apache.commons.math3.analysis.integration.RombergIntegrator;
+import org.apache.commons.math3.exception.MathIllegalArgumentException;
+import org.apache.commons.math3.exception.util.LocalizedFormats;
 import org.apache.commons.math3.geometry.euclidean.twod.Vector2D;
 
 import java.util.ArrayList;
@@ -13,8 +15,10 @@ import java.util.Collections;
 public class BezierCurveUtils {
   private static final BezierCurveOffsetMethodType DEFAULT_OFFSET_METHOD =
       BezierCurveOffsetMethodType.TillerHanson;
+  private static final PenModel DEFAULT_PEN = PenType.Ellipse.getPen();
 
   private static final int INTEGRATION_MAX_EVAL = 100000;
+  private static final int NEWTON_ITERATIONS = 4;
 
   /**
    * Strokes the sequence of Bezier curves by given distance with the Tiller-Hanson algorithm.
@@ -48,11 +52,106 @@ public class BezierCurveUtils {
     switch (offsetMethod) {
       case TillerHanson:
         return OffsetTillerHanson.stroke(curves, delta, roundness, contrast);
+      case Adaptive:
+        ContourBuffer contour = new ContourBuffer(1, 1);
+        OffsetTillerHanson.stroke(curves, delta, roundness, contrast, DEFAULT_PEN, true, contour);
+        return contour.toBezierCurves(0);
       default:
         return null;
     }
   }
 
+  /**
+   * Strokes the sequence of Bezier curves by given distance with the Tiller-Hanson algorithm
+   * and the elliptical pen, and appends the stroked contour into the buffer.
+   *
+   * @param curves sequence of Bezier curves to stroke
+   * @param delta distance to stroke
+   * @param contour buffer to append a stroked contour
+   */
+  public static void stroke(ArrayList<BezierCurve> curves,
+                            double delta, double roundness, double contrast,
+                            ContourBuffer contour) {
+    stroke(curves, DEFAULT_OFFSET_METHOD, delta, roundness, contrast, DEFAULT_PEN, contour);
+  }
+
+  /**
+   * Strokes the sequence of Bezier curves by given distance with the Tiller-Hanson algorithm
+   * and the given pen, and appends the stroked contour into the buffer.
+   *
+   * @param curves sequence of Bezier curves to stroke
+   * @param delta distance to stroke
+   * @param pen pen to draw the curves
+   * @param contour buffer to append a stroked contour
+   */
+  public static void stroke(ArrayList<BezierCurve> curves,
+                            double delta, double roundness, double contrast, PenModel pen,
+                            ContourBuffer contour) {
+    stroke(curves, DEFAULT_OFFSET_METHOD, delta, roundness, contrast, pen, contour);
+  }
+
+  /**
+   * Strokes the sequence of Bezier curves by given distance with the given offset algorithm
+   * and the given pen, and appends the stroked contour into the buffer.
+   *
+   * <p>This avoids allocating a Bezier curve for each segment of the contour. The buffer can be
+   * reused among calls after {@link ContourBuffer#clear()}.
+   *
+   * <p>With the Tiller-Hanson method, curves whose own offset method is
+   * {@link BezierCurveOffsetMethodType#Adaptive} are still offset adaptively. The adaptive
+   * method applies to every curve.
+   *
+   * @param curves sequence of Bezier curves to stroke
+   * @param offsetMethod offset method to apply
+   * @param delta distance to stroke
+   * @param pen pen to draw the curves
+   * @param contour buffer to append a stroked contour
+   * @throws MathIllegalArgumentException if the offset method is unknown
+   */
+  public static void stroke(ArrayList<BezierCurve> curves,
+                            BezierCurveOffsetMethodType offsetMethod,
+                            double delta, double roundness, double contrast, PenModel pen,
+                            ContourBuffer contour) {
+    stroke(curves, offsetMethod, delta, roundness, contrast, pen, false, contour);
+  }
+
+  /**
+   * Strokes the sequence of Bezier curves by given distance with the given offset algorithm
+   * and the given pen, optionally with segments independent of the distance, and appends
+   * the stroked contour into the buffer.
+   *
+   * <p>With a fixed topology, strokes of the same curves by any distance have the same
+   * sequence of segments, so that they can be interpolated point by point, such as the masters
+   * of a variable font. Joints keep their lines even where they collapse to a point, and
+   * adaptive offsets are split into a fixed number of pieces regardless of the tolerance.
+   *
+   * @param curves sequence of Bezier curves to stroke
+   * @param offsetMethod offset method to apply
+   * @param delta distance to stroke
+   * @param pen pen to draw the curves
+   * @param fixedTopology whether to keep the segments independent of the distance
+   * @param contour buffer to append a stroked contour
+   * @throws MathIllegalArgumentException if the offset method is unknown
+   */
+  public static void stroke(ArrayList<BezierCurve> curves,
+                            BezierCurveOffsetMethodType offsetMethod,
+                            double delta, double roundness, double contrast, PenModel pen,
+                            boolean fixedTopology, ContourBuffer contour) {
+    switch (offsetMethod) {
+      case TillerHanson:
+        OffsetTillerHanson.stroke(curves, delta, roundness, contrast, pen, false, fixedTopology,
+            contour);
+        break;
+      case Adaptive:
+        OffsetTillerHanson.stroke(curves, delta, roundness, contrast, pen, true, fixedTopology,
+            contour);
+        break;
+      default:
+        throw new MathIllegalArgumentException(LocalizedFormats.SIMPLE_MESSAGE,
+            "unknown offset method " + offsetMethod);
+    }
+  }
+
   /**
    * Returns the minimum value in x-axis among points of the given Bezier curve.
    * @param curve a Bezier curve
@@ -202,7 +301,7 @@ public class BezierCurveUtils {
     }
 
     for (int p = 0; p < sourcePoints.length; p++) {
-      if (sourcePoints[p] != targetPoints[p]) {
+      if (!sourcePoints[p].equals(targetPoints[p])) {
         return false;
       }
     }
@@ -239,4 +338,36 @@ public class BezierCurveUtils {
 
     return new BezierCurve(resultPoints);
   }
+
+  /**
+   * Returns the distance from the point to the quadratic curve, found by Newton's method
+   * starting from the given parameter.
+   *
+   * <p>A local minimum is never closer than the global one, thus the error is not
+   * underestimated.
+   */
+  static double distanceToQuadratic(double x0, double y0, double x1, double y1,
+                                    double x2, double y2, double x, double y, double time) {
+    double secondX = 2 * (x2 - 2 * x1 + x0);
+    double secondY = 2 * (y2 - 2 * y1 + y0);
+    double diffX = 0;
+    double diffY = 0;
+    for (int i = 0; i <= NEWTON_ITERATIONS; i++) {
+      double inverse = 1 - time;
+      diffX = inverse * inverse * x0 + 2 * time * inverse * x1 + time * time * x2 - x;
+      diffY = inverse * inverse * y0 + 2 * time * inverse * y1 + time * time * y2 - y;
+      if (i == NEWTON_ITERATIONS) {
+        break;
+      }
+      double firstX = 2 * (inverse * (x1 - x0) + time * (x2 - x1));
+      double firstY = 2 * (inverse * (y1 - y0) + time * (y2 - y1));
+      double value = diffX * firstX + diffY * firstY;
+      double slope = firstX * firstX + firstY * firstY + diffX * secondX + diffY * secondY;
+      if (slope <= 0) {
+        break;
+      }
+      time = Math.min(1, Math.max(0, time - value / slope));
+    }
+    return Math.sqrt(diffX * diffX + diffY * diffY);
+  }
 }
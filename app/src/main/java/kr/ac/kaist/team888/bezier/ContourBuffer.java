@@ -0,0 +1,458 @@
+package kr.ac.kaist.team888.bezier;
+
+import org.apache.commons.math3.exception.OutOfRangeException;
+import org.apache.commons.math3.geometry.euclidean.twod.Vector2D;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Reusable buffer of contours stored as primitive coordinates.
+ *
+ * <p>A contour is a sequence of segments, and a segment is a Bezier curve given by
+ * its order and its controlling points. Calling {@link #clear()} keeps the allocated arrays
+ * so that the buffer can be filled again without allocations. Segments can be converted to
+ * {@link BezierCurve} objects when needed.
+ *
+ * <p>Each segment also keeps the offset vectors of the skeleton curve it was stroked from,
+ * given by {@link #setOffsetVectors(Vector2D, Vector2D)} before appending it, so that the
+ * converted curves carry them as the list-based strokes do.
+ */
+public class ContourBuffer {
+  private static final int DEFAULT_SEGMENT_CAPACITY = 64;
+  private static final int DEFAULT_CONTOUR_CAPACITY = 8;
+
+  private double[] coordinates;
+  private int pointCount;
+  private int[] segmentStarts;
+  private int[] segmentOrders;
+  private Vector2D[] segmentOffsetVectors;
+  private Vector2D[] segmentEndOffsetVectors;
+  private int segmentCount;
+  private int[] contourEnds;
+  private int contourCount;
+  private boolean contourOpen;
+  private Vector2D offsetVector;
+  private Vector2D endOffsetVector;
+
+  /**
+   * Creates a new empty buffer with a default capacity.
+   */
+  public ContourBuffer() {
+    this(DEFAULT_SEGMENT_CAPACITY, DEFAULT_SEGMENT_CAPACITY * 3);
+  }
+
+  /**
+   * Creates a new empty buffer which can hold given numbers of segments and points
+   * without growing.
+   *
+   * @param segmentCapacity initial capacity in segments
+   * @param pointCapacity initial capacity in points
+   */
+  public ContourBuffer(int segmentCapacity, int pointCapacity) {
+    coordinates = new double[Math.max(1, pointCapacity) * 2];
+    segmentStarts = new int[Math.max(1, segmentCapacity)];
+    segmentOrders = new int[Math.max(1, segmentCapacity)];
+    segmentOffsetVectors = new Vector2D[Math.max(1, segmentCapacity)];
+    segmentEndOffsetVectors = new Vector2D[Math.max(1, segmentCapacity)];
+    contourEnds = new int[DEFAULT_CONTOUR_CAPACITY];
+  }
+
+  /**
+   * Removes every contour while keeping the allocated storage.
+   */
+  public void clear() {
+    pointCount = 0;
+    segmentCount = 0;
+    contourCount = 0;
+    contourOpen = false;
+    offsetVector = null;
+    endOffsetVector = null;
+  }
+
+  /**
+   * Sets the offset vectors of segments appended afterwards.
+   *
+   * @param offsetVector the offset vector, or <code>null</code> for the default one
+   * @param endOffsetVector the end offset vector, or <code>null</code> if not varying
+   */
+  public void setOffsetVectors(Vector2D offsetVector, Vector2D endOffsetVector) {
+    this.offsetVector = offsetVector;
+    this.endOffsetVector = endOffsetVector;
+  }
+
+  /**
+   * Makes sure that given numbers of segments and points can be appended without growing.
+   *
+   * @param segments number of segments to be appended
+   * @param points number of points to be appended
+   */
+  public void ensureCapacity(int segments, int points) {
+    if (segmentCount + segments > segmentStarts.length) {
+      int capacity = Math.max(segmentCount + segments, segmentStarts.length * 2);
+      segmentStarts = Arrays.copyOf(segmentStarts, capacity);
+      segmentOrders = Arrays.copyOf(segmentOrders, capacity);
+      segmentOffsetVectors = Arrays.copyOf(segmentOffsetVectors, capacity);
+      segmentEndOffsetVectors = Arrays.copyOf(segmentEndOffsetVectors, capacity);
+    }
+    if ((pointCount + points) * 2 > coordinates.length) {
+      coordinates = Arrays.copyOf(coordinates,
+          Math.max((pointCount + points) * 2, coordinates.length * 2));
+    }
+  }
+
+  /**
+   * Starts a new contour. Following segments are appended to this contour.
+   */
+  public void beginContour() {
+    if (contourOpen) {
+      endContour();
+    }
+    if (contourCount == contourEnds.length) {
+      contourEnds = Arrays.copyOf(contourEnds, contourEnds.length * 2);
+    }
+    contourEnds[contourCount++] = segmentCount;
+    contourOpen = true;
+  }
+
+  /**
+   * Finishes the current contour.
+   */
+  public void endContour() {
+    if (contourOpen) {
+      contourEnds[contourCount - 1] = segmentCount;
+      contourOpen = false;
+    }
+  }
+
+  /**
+   * Appends a segment of given order to the current contour.
+   *
+   * <p>The controlling points of the new segment are set to the origin and should be set by
+   * {@link #setPoint(int, int, double, double)}.
+   *
+   * @param order order of the segment
+   * @return the index of the new segment
+   */
+  public int addSegment(int order) {
+    if (order < 1) {
+      throw new OutOfRangeException(order, 1, Integer.MAX_VALUE);
+    }
+    if (!contourOpen) {
+      beginContour();
+    }
+    ensureCapacity(1, order + 1);
+    Arrays.fill(coordinates, pointCount * 2, (pointCount + order + 1) * 2, 0);
+    segmentStarts[segmentCount] = pointCount;
+    segmentOrders[segmentCount] = order;
+    segmentOffsetVectors[segmentCount] = offsetVector;
+    segmentEndOffsetVectors[segmentCount] = endOffsetVector;
+    pointCount += order + 1;
+    contourEnds[contourCount - 1] = segmentCount + 1;
+    return segmentCount++;
+  }
+
+  /**
+   * Appends a line segment to the current contour.
+   *
+   * @param x0 x-coordinate of the start point
+   * @param y0 y-coordinate of the start point
+   * @param x1 x-coordinate of the end point
+   * @param y1 y-coordinate of the end point
+   * @return the index of the new segment
+   */
+  public int addLine(double x0, double y0, double x1, double y1) {
+    int segment = addSegment(1);
+    setPoint(segment, 0, x0, y0);
+    setPoint(segment, 1, x1, y1);
+    return segment;
+  }
+
+  /**
+   * Appends a quadratic segment to the current contour.
+   *
+   * @param x0 x-coordinate of the start point
+   * @param y0 y-coordinate of the start point
+   * @param x1 x-coordinate of the control point
+   * @param y1 y-coordinate of the control point
+   * @param x2 x-coordinate of the end point
+   * @param y2 y-coordinate of the end point
+   * @return the index of the new segment
+   */
+  public int addQuadratic(double x0, double y0, double x1, double y1, double x2, double y2) {
+    int segment = addSegment(2);
+    setPoint(segment, 0, x0, y0);
+    setPoint(segment, 1, x1, y1);
+    setPoint(segment, 2, x2, y2);
+    return segment;
+  }
+
+  /**
+   * Appends a copy of the Bezier curve, including its offset vectors, to the current contour.
+   *
+   * @param curve a Bezier curve
+   * @return the index of the new segment
+   */
+  public int addCurve(BezierCurve curve) {
+    int segment = addSegment(curve.getOrder());
+    for (int i = 0; i <= curve.getOrder(); i++) {
+      setPoint(segment, i, curve.getX(i), curve.getY(i));
+    }
+    segmentOffsetVectors[segment] = curve.getOffsetVector();
+    segmentEndOffsetVectors[segment] = curve.getEndOffsetVector();
+    return segment;
+  }
+
+  /**
+   * Appends a new contour made of copies of the given Bezier curves.
+   *
+   * @param curves a sequence of Bezier curves
+   */
+  public void addContour(ArrayList<BezierCurve> curves) {
+    beginContour();
+    for (BezierCurve curve : curves) {
+      addCurve(curve);
+    }
+    endContour();
+  }
+
+  /**
+   * Appends copies of contours of the other buffer.
+   *
+   * @param source buffer holding the contours to copy
+   * @param start index of the first contour to copy
+   * @param end index after the last contour to copy
+   */
+  public void addContours(ContourBuffer source, int start, int end) {
+    for (int contour = start; contour < end; contour++) {
+      int firstSegment = source.getContourStart(contour);
+      int lastSegment = source.getContourEnd(contour);
+      beginContour();
+      for (int i = firstSegment; i < lastSegment; i++) {
+        int order = source.segmentOrders[i];
+        int segment = addSegment(order);
+        System.arraycopy(source.coordinates, source.segmentStarts[i] * 2,
+            coordinates, segmentStarts[segment] * 2, (order + 1) * 2);
+        segmentOffsetVectors[segment] = source.segmentOffsetVectors[i];
+        segmentEndOffsetVectors[segment] = source.segmentEndOffsetVectors[i];
+      }
+      endContour();
+    }
+  }
+
+  /**
+   * Sets a controlling point of the segment.
+   *
+   * @param segment index of the segment
+   * @param index index of the point in the segment
+   * @param x x-coordinate of the point
+   * @param y y-coordinate of the point
+   */
+  public void setPoint(int segment, int index, double x, double y) {
+    int offset = pointIndex(segment, index) * 2;
+    coordinates[offset] = x;
+    coordinates[offset + 1] = y;
+  }
+
+  /**
+   * Moves a controlling point of the segment by given amount.
+   *
+   * @param segment index of the segment
+   * @param index index of the point in the segment
+   * @param dx amount to move in x-axis
+   * @param dy amount to move in y-axis
+   */
+  public void translatePoint(int segment, int index, double dx, double dy) {
+    int offset = pointIndex(segment, index) * 2;
+    coordinates[offset] = coordinates[offset] + dx;
+    coordinates[offset + 1] = coordinates[offset + 1] + dy;
+  }
+
+  /**
+   * Transforms every controlling point in place.
+   *
+   * @param transform affine transform to apply
+   */
+  public void transform(AffineTransform2D transform) {
+    for (int i = 0; i < pointCount * 2; i += 2) {
+      double x = coordinates[i];
+      double y = coordinates[i + 1];
+      coordinates[i] = transform.transformX(x, y);
+      coordinates[i + 1] = transform.transformY(x, y);
+    }
+  }
+
+  /**
+   * Returns the number of contours in the buffer.
+   *
+   * @return the number of contours
+   */
+  public int getContourCount() {
+    return contourCount;
+  }
+
+  /**
+   * Returns the index of the first segment of the contour.
+   *
+   * @param contour index of the contour
+   * @return the index of the first segment
+   */
+  public int getContourStart(int contour) {
+    checkContour(contour);
+    return contour == 0 ? 0 : contourEnds[contour - 1];
+  }
+
+  /**
+   * Returns the index after the last segment of the contour.
+   *
+   * @param contour index of the contour
+   * @return the exclusive end index of the contour
+   */
+  public int getContourEnd(int contour) {
+    checkContour(contour);
+    return contourEnds[contour];
+  }
+
+  /**
+   * Returns the total number of segments in the buffer.
+   *
+   * @return the number of segments
+   */
+  public int getSegmentCount() {
+    return segmentCount;
+  }
+
+  /**
+   * Returns the total number of controlling points in the buffer.
+   *
+   * @return the number of points
+   */
+  public int getPointCount() {
+    return pointCount;
+  }
+
+  /**
+   * Returns the order of the segment.
+   *
+   * @param segment index of the segment
+   * @return the order of the segment
+   */
+  public int getOrder(int segment) {
+    checkSegment(segment);
+    return segmentOrders[segment];
+  }
+
+  /**
+   * Returns the offset vector of the segment.
+   *
+   * @param segment index of the segment
+   * @return the offset vector, or <code>null</code> for the default one
+   */
+  public Vector2D getOffsetVector(int segment) {
+    checkSegment(segment);
+    return segmentOffsetVectors[segment];
+  }
+
+  /**
+   * Returns the end offset vector of the segment.
+   *
+   * @param segment index of the segment
+   * @return the end offset vector, or <code>null</code> if not varying
+   */
+  public Vector2D getEndOffsetVector(int segment) {
+    checkSegment(segment);
+    return segmentEndOffsetVectors[segment];
+  }
+
+  /**
+   * Returns the x-coordinate of a controlling point of the segment.
+   *
+   * @param segment index of the segment
+   * @param index index of the point in the segment
+   * @return the x-coordinate
+   */
+  public double getX(int segment, int index) {
+    return coordinates[pointIndex(segment, index) * 2];
+  }
+
+  /**
+   * Returns the y-coordinate of a controlling point of the segment.
+   *
+   * @param segment index of the segment
+   * @param index index of the point in the segment
+   * @return the y-coordinate
+   */
+  public double getY(int segment, int index) {
+    return coordinates[pointIndex(segment, index) * 2 + 1];
+  }
+
+  /**
+   * Makes a new Bezier curve of the segment, carrying its offset vectors.
+   *
+   * @param segment index of the segment
+   * @return a new Bezier curve
+   */
+  public BezierCurve toBezierCurve(int segment) {
+    checkSegment(segment);
+    Vector2D[] points = new Vector2D[segmentOrders[segment] + 1];
+    int offset = segmentStarts[segment] * 2;
+    for (int i = 0; i < points.length; i++) {
+      points[i] = new Vector2D(coordinates[offset + i * 2], coordinates[offset + i * 2 + 1]);
+    }
+    BezierCurve curve = new BezierCurve(points);
+    if (segmentOffsetVectors[segment] != null) {
+      curve.setOffsetVector(segmentOffsetVectors[segment]);
+    }
+    curve.setEndOffsetVector(segmentEndOffsetVectors[segment]);
+    return curve;
+  }
+
+  /**
+   * Makes a sequence of new Bezier curves of the contour.
+   *
+   * @param contour index of the contour
+   * @return a sequence of new Bezier curves
+   */
+  public ArrayList<BezierCurve> toBezierCurves(int contour) {
+    int start = getContourStart(contour);
+    int end = getContourEnd(contour);
+    ArrayList<BezierCurve> curves = new ArrayList<>(end - start);
+    for (int i = start; i < end; i++) {
+      curves.add(toBezierCurve(i));
+    }
+    return curves;
+  }
+
+  /**
+   * Makes sequences of new Bezier curves of every contour.
+   *
+   * @return contours in the form of {@link kr.ac.kaist.team888.locator.Locator#getContour()}
+   */
+  public ArrayList<ArrayList<BezierCurve>> toBezierCurves() {
+    ArrayList<ArrayList<BezierCurve>> contours = new ArrayList<>(contourCount);
+    for (int i = 0; i < contourCount; i++) {
+      contours.add(toBezierCurves(i));
+    }
+    return contours;
+  }
+
+  private int pointIndex(int segment, int index) {
+    checkSegment(segment);
+    if (index < 0 || index > segmentOrders[segment]) {
+      throw new OutOfRangeException(index, 0, segmentOrders[segment]);
+    }
+    return segmentStarts[segment] + index;
+  }
+
+  private void checkSegment(int segment) {
+    if (segment < 0 || segment >= segmentCount) {
+      throw new OutOfRangeException(segment, 0, segmentCount - 1);
+    }
+  }
+
+  private void checkContour(int contour) {
+    if (contour < 0 || contour >= contourCount) {
+      throw new OutOfRangeException(contour, 0, contourCount - 1);
+    }
+  }
+}
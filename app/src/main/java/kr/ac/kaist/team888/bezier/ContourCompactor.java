@@ -0,0 +1,355 @@
+package kr.ac.kaist.team888.bezier;
+
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+import org.apache.commons.math3.geometry.euclidean.twod.Vector2D;
+
+import java.util.ArrayList;
+
+/**
+ * Compacts contours by removing redundant segments within a bounded error.
+ *
+ * <p>Stroking emits short connectors at joints and caps, some of which are collinear with
+ * their neighbours or have no length at all. Compaction drops segments which collapse to
+ * a point, lowers curves whose controlling points lie on their chord to lines, merges runs of
+ * collinear lines, and joins G1-continuous quadratic curves where the joined curve stays within
+ * the tolerance of the originals. No point of the outline moves farther than the tolerance.
+ */
+public class ContourCompactor {
+  /**
+   * A default tolerance in font units.
+   */
+  public static final double DEFAULT_TOLERANCE = .25;
+
+  private static final int SAMPLES = 4;
+  private static final int SEARCH_STEPS = 16;
+  private static final double PARALLEL_TOLERANCE = 1E-4;
+
+  private final double tolerance;
+
+  /**
+   * Creates a new compactor with a default tolerance.
+   */
+  public ContourCompactor() {
+    this(DEFAULT_TOLERANCE);
+  }
+
+  /**
+   * Creates a new compactor with given tolerance.
+   *
+   * @param tolerance maximum distance to move the outline
+   * @throws NotStrictlyPositiveException if tolerance is not positive
+   */
+  public ContourCompactor(double tolerance) throws NotStrictlyPositiveException {
+    if (!(tolerance > 0)) {
+      throw new NotStrictlyPositiveException(tolerance);
+    }
+    this.tolerance = tolerance;
+  }
+
+  /**
+   * Returns the tolerance of the compactor.
+   *
+   * @return the tolerance
+   */
+  public double getTolerance() {
+    return tolerance;
+  }
+
+  /**
+   * Compacts every contour in place.
+   *
+   * @param contours contours in the form of
+   *     {@link kr.ac.kaist.team888.locator.Locator#getContour()}
+   * @return the number of points removed
+   */
+  public int compact(ArrayList<ArrayList<BezierCurve>> contours) {
+    int count = countPoints(contours);
+    for (int i = 0; i < contours.size(); i++) {
+      contours.set(i, compactContour(contours.get(i)));
+    }
+    return count - countPoints(contours);
+  }
+
+  /**
+   * Returns a compacted copy of the closed contour.
+   *
+   * @param contour a closed contour as a sequence of connected Bezier curves
+   * @return a new sequence of Bezier curves
+   */
+  public ArrayList<BezierCurve> compactContour(ArrayList<BezierCurve> contour) {
+    ArrayList<BezierCurve> curves = new ArrayList<>(contour.size());
+    // Original curves covered by the first and the last curve of the result.
+    ArrayList<BezierCurve> firstPieces = new ArrayList<>();
+    ArrayList<BezierCurve> lastPieces = new ArrayList<>();
+    Vector2D droppedStart = null;
+    Vector2D droppedEnd = null;
+
+    for (BezierCurve curve : contour) {
+      // Degenerate curves are dropped by moving the start of the next curve.
+      if (isDegenerate(curve) && (droppedStart == null
+          || curve.getStartPoint().equals(droppedEnd)
+          && droppedStart.distance(curve.getEndPoint()) <= tolerance)) {
+        if (droppedStart == null) {
+          droppedStart = curve.getStartPoint();
+        }
+        droppedEnd = curve.getEndPoint();
+        continue;
+      }
+      if (droppedStart != null) {
+        if (curve.getStartPoint().equals(droppedEnd)) {
+          curve = movePoint(curve, 0, droppedStart);
+        }
+        droppedStart = null;
+      }
+      BezierCurve piece = curve;
+      curve = lower(curve);
+
+      if (!curves.isEmpty()) {
+        lastPieces.add(piece);
+        BezierCurve joined = join(curves.get(curves.size() - 1), curve, lastPieces);
+        if (joined != null) {
+          curves.set(curves.size() - 1, joined);
+          continue;
+        }
+        if (curves.size() == 1) {
+          firstPieces.addAll(lastPieces);
+          firstPieces.remove(firstPieces.size() - 1);
+        }
+      }
+      lastPieces.clear();
+      lastPieces.add(piece);
+      curves.add(curve);
+    }
+    if (curves.isEmpty()) {
+      return curves;
+    }
+
+    // Trailing degenerate curves are dropped by moving the end of the last curve instead.
+    if (droppedStart != null) {
+      int last = curves.size() - 1;
+      BezierCurve curve = curves.get(last);
+      if (curve.getEndPoint().equals(droppedStart)) {
+        curves.set(last, movePoint(curve, curve.getOrder(), droppedEnd));
+      }
+    }
+
+    // Join across the start of the contour.
+    if (curves.size() > 2) {
+      BezierCurve first = curves.get(0);
+      BezierCurve last = curves.get(curves.size() - 1);
+      if (last.getEndPoint().equals(first.getStartPoint())) {
+        lastPieces.addAll(firstPieces);
+        BezierCurve joined = join(last, first, lastPieces);
+        if (joined != null) {
+          curves.set(curves.size() - 1, joined);
+          curves.remove(0);
+        }
+      }
+    }
+    return curves;
+  }
+
+  /**
+   * Returns the number of points of the contours, i.e., controlling points except
+   * the start point of each curve, which is the end point of the previous one.
+   *
+   * @param contours contours in the form of
+   *     {@link kr.ac.kaist.team888.locator.Locator#getContour()}
+   * @return the number of points
+   */
+  public static int countPoints(ArrayList<ArrayList<BezierCurve>> contours) {
+    int count = 0;
+    for (ArrayList<BezierCurve> contour : contours) {
+      for (BezierCurve curve : contour) {
+        count += curve.getOrder();
+      }
+    }
+    return count;
+  }
+
+  private boolean isDegenerate(BezierCurve curve) {
+    for (int i = 1; i <= curve.getOrder(); i++) {
+      if (Math.hypot(curve.getX(i) - curve.getX(0), curve.getY(i) - curve.getY(0)) > tolerance) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Replaces the curve by its chord if every controlling point lies on the chord within
+   * the tolerance. The curve stays in the convex hull of its controlling points.
+   */
+  private BezierCurve lower(BezierCurve curve) {
+    int order = curve.getOrder();
+    if (order == 1) {
+      return curve;
+    }
+    for (int i = 1; i < order; i++) {
+      if (!isOnSegment(curve.getX(i), curve.getY(i), curve.getX(0), curve.getY(0),
+          curve.getX(order), curve.getY(order))) {
+        return curve;
+      }
+    }
+    return new BezierCurve(new Vector2D[] {curve.getStartPoint(), curve.getEndPoint()});
+  }
+
+  /**
+   * Returns a curve covering both connected curves, or null if it would move one of
+   * the original pieces farther than the tolerance.
+   */
+  private BezierCurve join(BezierCurve curve, BezierCurve next, ArrayList<BezierCurve> pieces) {
+    if (!curve.getEndPoint().equals(next.getStartPoint())) {
+      return null;
+    }
+    if (curve.getOrder() == 1 && next.getOrder() == 1) {
+      return joinLines(curve, next, pieces);
+    }
+    if (curve.getOrder() == 2 && next.getOrder() == 2) {
+      return joinQuadratics(curve, next, pieces);
+    }
+    return null;
+  }
+
+  private BezierCurve joinLines(BezierCurve curve, BezierCurve next,
+                                ArrayList<BezierCurve> pieces) {
+    double startX = curve.getX(0);
+    double startY = curve.getY(0);
+    double endX = next.getX(1);
+    double endY = next.getY(1);
+    double dx = endX - startX;
+    double dy = endY - startY;
+    double squaredLength = dx * dx + dy * dy;
+    if (squaredLength == 0) {
+      return null;
+    }
+    // Pieces lowered from curves stay in the convex hull of their controlling points.
+    // End points must keep their order along the line, so that no part is folded back.
+    double prevRatio = 0;
+    for (BezierCurve piece : pieces) {
+      int order = piece.getOrder();
+      for (int i = 1; i <= order; i++) {
+        if (!isOnSegment(piece.getX(i), piece.getY(i), startX, startY, endX, endY)) {
+          return null;
+        }
+      }
+      double ratio = ((piece.getX(order) - startX) * dx + (piece.getY(order) - startY) * dy)
+          / squaredLength;
+      if (ratio < prevRatio) {
+        return null;
+      }
+      prevRatio = ratio;
+    }
+    return new BezierCurve(new Vector2D[] {curve.getStartPoint(), next.getEndPoint()});
+  }
+
+  private BezierCurve joinQuadratics(BezierCurve curve, BezierCurve next,
+                                     ArrayList<BezierCurve> pieces) {
+    // Tangents must be continuous at the common point.
+    double endTangentX = curve.getX(2) - curve.getX(1);
+    double endTangentY = curve.getY(2) - curve.getY(1);
+    double startTangentX = next.getX(1) - next.getX(0);
+    double startTangentY = next.getY(1) - next.getY(0);
+    double cross = endTangentX * startTangentY - endTangentY * startTangentX;
+    double dot = endTangentX * startTangentX + endTangentY * startTangentY;
+    if (dot <= 0 || Math.abs(cross) > PARALLEL_TOLERANCE * Math.hypot(endTangentX, endTangentY)
+        * Math.hypot(startTangentX, startTangentY)) {
+      return null;
+    }
+
+    // Intersect the tangents at both ends.
+    double x0 = curve.getX(0);
+    double y0 = curve.getY(0);
+    double x2 = next.getX(2);
+    double y2 = next.getY(2);
+    double firstX = curve.getX(1) - x0;
+    double firstY = curve.getY(1) - y0;
+    double lastX = x2 - next.getX(1);
+    double lastY = y2 - next.getY(1);
+    double tangentCross = firstX * lastY - firstY * lastX;
+    if (Math.abs(tangentCross) <= PARALLEL_TOLERANCE * Math.hypot(firstX, firstY)
+        * Math.hypot(lastX, lastY)) {
+      return null;
+    }
+    double dx = x2 - x0;
+    double dy = y2 - y0;
+    double startFactor = (dx * lastY - dy * lastX) / tangentCross;
+    double endFactor = (firstX * dy - firstY * dx) / tangentCross;
+    if (startFactor <= 0 || endFactor <= 0) {
+      return null;
+    }
+    double x1 = x0 + startFactor * firstX;
+    double y1 = y0 + startFactor * firstY;
+
+    // The joined curve and the pieces must be close to each other in both ways.
+    for (BezierCurve piece : pieces) {
+      for (int k = 0; k <= SAMPLES + 1; k++) {
+        double[] point = piece.value(k / (double) (SAMPLES + 1));
+        if (distanceToQuadratic(x0, y0, x1, y1, x2, y2, point[0], point[1]) > tolerance) {
+          return null;
+        }
+      }
+    }
+    int samples = (SAMPLES + 1) * pieces.size();
+    for (int k = 1; k < samples; k++) {
+      double time = k / (double) samples;
+      double inverse = 1 - time;
+      double x = inverse * inverse * x0 + 2 * time * inverse * x1 + time * time * x2;
+      double y = inverse * inverse * y0 + 2 * time * inverse * y1 + time * time * y2;
+      boolean isClose = false;
+      for (int i = 0; !isClose && i < pieces.size(); i++) {
+        BezierCurve piece = pieces.get(i);
+        isClose = distanceToQuadratic(piece.getX(0), piece.getY(0), piece.getX(1), piece.getY(1),
+            piece.getX(2), piece.getY(2), x, y) <= tolerance;
+      }
+      if (!isClose) {
+        return null;
+      }
+    }
+    return new BezierCurve(new Vector2D[] {
+        curve.getStartPoint(), new Vector2D(x1, y1), next.getEndPoint()});
+  }
+
+  private boolean isOnSegment(double x, double y, double startX, double startY,
+                              double endX, double endY) {
+    double dx = endX - startX;
+    double dy = endY - startY;
+    double squaredLength = dx * dx + dy * dy;
+    if (squaredLength == 0) {
+      return Math.hypot(x - startX, y - startY) <= tolerance;
+    }
+    double ratio = ((x - startX) * dx + (y - startY) * dy) / squaredLength;
+    if (ratio < 0 || ratio > 1) {
+      return false;
+    }
+    return Math.abs((x - startX) * dy - (y - startY) * dx) <= tolerance * Math.sqrt(squaredLength);
+  }
+
+  /**
+   * Returns the distance from the point to the quadratic curve, starting the search from
+   * the closest of uniformly sampled points.
+   */
+  private static double distanceToQuadratic(double x0, double y0, double x1, double y1,
+                                            double x2, double y2, double x, double y) {
+    double closestTime = 0;
+    double closestDistance = Double.POSITIVE_INFINITY;
+    for (int i = 0; i <= SEARCH_STEPS; i++) {
+      double time = i / (double) SEARCH_STEPS;
+      double inverse = 1 - time;
+      double diffX = inverse * inverse * x0 + 2 * time * inverse * x1 + time * time * x2 - x;
+      double diffY = inverse * inverse * y0 + 2 * time * inverse * y1 + time * time * y2 - y;
+      double distance = diffX * diffX + diffY * diffY;
+      if (distance < closestDistance) {
+        closestDistance = distance;
+        closestTime = time;
+      }
+    }
+    return BezierCurveUtils.distanceToQuadratic(x0, y0, x1, y1, x2, y2, x, y, closestTime);
+  }
+
+  private static BezierCurve movePoint(BezierCurve curve, int index, Vector2D point) {
+    Vector2D[] points = curve.getPoints();
+    points[index] = point;
+    return new BezierCurve(points);
+  }
+}
@@ -0,0 +1,1153 @@
+package kr.ac.kaist.team888.bezier;
+
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+import org.apache.commons.math3.geometry.euclidean.twod.Vector2D;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+
+/**
+ * Boolean union of contours made of Bezier curves.
+ *
+ * <p>Each stroke of a glyph is its own closed contour, so crossing strokes overlap. The union
+ * merges the contours into outlines which do not overlap, and fill the same area as the input
+ * under the nonzero winding rule:
+ * <ol>
+ * <li>Pairs of segments whose bounding boxes overlap are found by sweeping a vertical line
+ * over the segments sorted by their left ends.</li>
+ * <li>Intersections of each pair are found by subdividing both curves while their bounding
+ * boxes overlap, until both are flat enough to intersect their chords. Pieces crossing at
+ * a wide angle stop early, and their crossing is refined on both curves.</li>
+ * <li>Segments are split at the intersections into fragments. A fragment is kept if the area
+ * is filled on exactly one side of it. Both sides are tested by a ray cast from the middle of
+ * the fragment, counting the crossings of the fragment and the ones coincident with it apart
+ * from the others, so that thin slivers between strokes are not stepped over. Rays are tested
+ * against the fragments in their band only.</li>
+ * <li>Kept fragments are chained into closed contours, and fragments of a segment following
+ * each other are joined back.</li>
+ * </ol>
+ *
+ * <p>Curves are split exactly, so that no curve is approximated by lines. Intersections closer
+ * than the tolerance are merged into one point.
+ */
+public class ContourUnion {
+  /**
+   * A default tolerance in font units.
+   */
+  public static final double DEFAULT_TOLERANCE = 1E-3;
+
+  private static final int MAX_DEPTH = 32;
+  private static final double TIME_TOLERANCE = 1E-9;
+  private static final double SELF_TIME_TOLERANCE = 1E-6;
+  private static final int NEWTON_ITERATIONS = 4;
+  private static final double CROSSING_FLATNESS = .1;
+  private static final double MIN_CROSSING_SINE = .1;
+  private static final int COINCIDENCE_SAMPLES = 4;
+  private static final int BANDS_PER_ROOT = 2;
+
+  private final double tolerance;
+  private final BezierCurveFlattener flattener;
+  private final BezierCurveFlattener crossingFlattener;
+
+  /**
+   * Creates a new union with a default tolerance.
+   */
+  public ContourUnion() {
+    this(DEFAULT_TOLERANCE);
+  }
+
+  /**
+   * Creates a new union with given tolerance.
+   *
+   * @param tolerance flatness to intersect curves as lines, and distance to merge points
+   * @throws NotStrictlyPositiveException if the tolerance is not positive
+   */
+  public ContourUnion(double tolerance) throws NotStrictlyPositiveException {
+    if (tolerance <= 0) {
+      throw new NotStrictlyPositiveException(tolerance);
+    }
+    this.tolerance = tolerance;
+    flattener = new BezierCurveFlattener(tolerance);
+    crossingFlattener = new BezierCurveFlattener(Math.max(tolerance, CROSSING_FLATNESS));
+  }
+
+  /**
+   * Returns the tolerance of the union.
+   *
+   * @return the tolerance
+   */
+  public double getTolerance() {
+    return tolerance;
+  }
+
+  /**
+   * Returns the union of the contours.
+   *
+   * <p>Contours are closed implicitly; lines are added over gaps between curves.
+   * The orientation of the result follows the majority of the input. If the boundary cannot
+   * be chained into closed contours, which may happen where edges nearly touch within
+   * the tolerance, the given contours are returned as they are.
+   *
+   * @param contours contours in the form of
+   *     {@link kr.ac.kaist.team888.locator.Locator#getContour()}
+   * @return new contours which do not overlap, or the given contours
+   */
+  public ArrayList<ArrayList<BezierCurve>> union(ArrayList<ArrayList<BezierCurve>> contours) {
+    ArrayList<Segment> segments = new ArrayList<>();
+    PointGrid points = new PointGrid(tolerance);
+    for (ArrayList<BezierCurve> contour : contours) {
+      addContour(contour, segments, points);
+    }
+
+    // Sweep the segments sorted by their left ends.
+    Segment[] sorted = segments.toArray(new Segment[segments.size()]);
+    Arrays.sort(sorted, new Comparator<Segment>() {
+      @Override
+      public int compare(Segment segment1, Segment segment2) {
+        return Double.compare(segment1.minX, segment2.minX);
+      }
+    });
+    ArrayList<Segment> active = new ArrayList<>();
+    for (Segment segment : sorted) {
+      for (int i = active.size() - 1; i >= 0; i--) {
+        if (active.get(i).maxX < segment.minX - tolerance) {
+          active.remove(i);
+        }
+      }
+      for (Segment other : active) {
+        if (other.minY <= segment.maxY + tolerance && segment.minY <= other.maxY + tolerance) {
+          intersect(other, other.x, other.y, 0, 1, segment, segment.x, segment.y, 0, 1, 0,
+              points);
+        }
+      }
+      active.add(segment);
+    }
+    // Pieces of a segment intersect only where the segment loops.
+    for (Segment segment : segments) {
+      for (int i = 0; i < segment.monotonePieces.size(); i += 2) {
+        for (int j = i + 2; j < segment.monotonePieces.size(); j += 2) {
+          intersect(segment, segment.monotonePieces.get(i), segment.monotonePieces.get(i + 1),
+              segment.pieceTimes.get(i), segment.pieceTimes.get(i + 1),
+              segment, segment.monotonePieces.get(j), segment.monotonePieces.get(j + 1),
+              segment.pieceTimes.get(j), segment.pieceTimes.get(j + 1), 0, points);
+        }
+      }
+    }
+
+    // Split segments into fragments, and group the coincident ones.
+    ArrayList<Segment> fragments = new ArrayList<>();
+    for (Segment segment : segments) {
+      fragments.addAll(segment.splitAtIntersections());
+    }
+    int[] groups = new int[fragments.size()];
+    int[] counts = new int[fragments.size()];
+    HashMap<Vector2D, ArrayList<Integer>> outgoing = new HashMap<>();
+    for (int i = 0; i < fragments.size(); i++) {
+      Segment fragment = fragments.get(i);
+      groups[i] = i;
+      counts[i] = 1;
+      if (!findGroup(fragments, outgoing, i, groups, counts)) {
+        ArrayList<Integer> indices = outgoing.get(fragment.getStart());
+        if (indices == null) {
+          indices = new ArrayList<>();
+          outgoing.put(fragment.getStart(), indices);
+        }
+        indices.add(i);
+      }
+    }
+
+    // Keep the fragments on the boundary of the filled area.
+    FragmentBands rows = new FragmentBands(fragments, false);
+    FragmentBands columns = new FragmentBands(fragments, true);
+    ArrayList<Segment> boundary = new ArrayList<>();
+    ArrayList<Boolean> fillsRight = new ArrayList<>();
+    int rightCount = 0;
+    for (int i = 0; i < fragments.size(); i++) {
+      if (groups[i] != i || counts[i] == 0) {
+        continue;
+      }
+      BezierCurve fragment = fragments.get(i).curve;
+      double[] point = fragment.value(.5);
+      double[] tangent = fragment.derivative().value(.5);
+      // Cast the ray across the fragment, and count the crossings of the coincident fragments
+      // separately, so that both sides are tested without stepping over thin slivers.
+      boolean isVertical = Math.abs(tangent[1]) >= Math.abs(tangent[0]);
+      int ahead = winding(fragments, isVertical ? rows : columns, groups, i, point[0], point[1],
+          !isVertical);
+      int behind = ahead + (isVertical ? 1 : -1)
+          * (int) Math.signum(isVertical ? tangent[1] : tangent[0]) * counts[i];
+      boolean isLeftAhead = isVertical ? tangent[1] < 0 : tangent[0] > 0;
+      boolean isLeftFilled = (isLeftAhead ? ahead : behind) != 0;
+      boolean isRightFilled = (isLeftAhead ? behind : ahead) != 0;
+      if (isLeftFilled != isRightFilled) {
+        boundary.add(fragments.get(i));
+        fillsRight.add(isRightFilled);
+        if (isRightFilled) {
+          rightCount++;
+        }
+      }
+    }
+    boolean isRightFilled = 2 * rightCount >= boundary.size();
+    ArrayList<BezierCurve> curves = new ArrayList<>(boundary.size());
+    boolean[] isReversed = new boolean[boundary.size()];
+    for (int i = 0; i < boundary.size(); i++) {
+      isReversed[i] = fillsRight.get(i) != isRightFilled;
+      BezierCurve curve = boundary.get(i).curve;
+      curves.add(isReversed[i] ? curve.reverse() : curve);
+    }
+    ArrayList<ArrayList<Integer>> chains = chain(curves, boundary, isReversed);
+    if (chains == null) {
+      return contours;
+    }
+    ArrayList<ArrayList<BezierCurve>> union = new ArrayList<>(chains.size());
+    for (ArrayList<Integer> indices : chains) {
+      union.add(join(indices, boundary, curves, isReversed));
+    }
+    return union;
+  }
+
+  /**
+   * Adds the fragment to the group of a coincident fragment found before, if any. The count of
+   * a group is the number of the fragments in the direction of the first one, minus the ones
+   * in the opposite direction.
+   */
+  private boolean findGroup(ArrayList<Segment> fragments,
+                            HashMap<Vector2D, ArrayList<Integer>> outgoing,
+                            int index, int[] groups, int[] counts) {
+    Segment fragment = fragments.get(index);
+    for (int direction = 1; direction >= -1; direction -= 2) {
+      ArrayList<Integer> indices =
+          outgoing.get(direction > 0 ? fragment.getStart() : fragment.getEnd());
+      if (indices == null) {
+        continue;
+      }
+      for (int other : indices) {
+        Segment candidate = fragments.get(other);
+        if (candidate.getEnd().equals(direction > 0 ? fragment.getEnd() : fragment.getStart())
+            && isCoincident(candidate, fragment, direction < 0)) {
+          groups[index] = other;
+          counts[other] += direction;
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Appends segments of the contour, closing gaps with lines.
+   */
+  private void addContour(ArrayList<BezierCurve> contour, ArrayList<Segment> segments,
+                          PointGrid points) {
+    if (contour.isEmpty()) {
+      return;
+    }
+    Vector2D start = points.snap(contour.get(0).getStartPoint());
+    Vector2D prev = start;
+    for (BezierCurve curve : contour) {
+      Vector2D curveStart = points.snap(curve.getStartPoint());
+      if (!prev.equals(curveStart)) {
+        segments.add(new Segment(new Vector2D[] {prev, curveStart}));
+      }
+      Vector2D[] curvePoints = curve.getPoints();
+      curvePoints[0] = curveStart;
+      curvePoints[curvePoints.length - 1] = points.snap(curve.getEndPoint());
+      prev = curvePoints[curvePoints.length - 1];
+      if (!isDegenerate(curvePoints)) {
+        segments.add(new Segment(curvePoints));
+      }
+    }
+    if (!prev.equals(start)) {
+      segments.add(new Segment(new Vector2D[] {prev, start}));
+    }
+  }
+
+  /**
+   * Finds the intersections of two pieces of segments by subdivision.
+   */
+  private void intersect(Segment segment1, double[] x1, double[] y1, double start1, double end1,
+                         Segment segment2, double[] x2, double[] y2, double start2, double end2,
+                         int depth, PointGrid points) {
+    if (min(x1) > max(x2) + tolerance || min(x2) > max(x1) + tolerance
+        || min(y1) > max(y2) + tolerance || min(y2) > max(y1) + tolerance) {
+      return;
+    }
+    // Pieces crossing at a wide angle are intersected as soon as they are roughly flat, and
+    // so are pieces leaving a common end apart, such as the ones at a joint of a contour.
+    // The others are subdivided until they are within the tolerance of their chords.
+    boolean isFlat1 = crossingFlattener.isFlat(x1.length - 1, x1, y1);
+    boolean isFlat2 = crossingFlattener.isFlat(x2.length - 1, x2, y2);
+    if (isFlat1 && isFlat2) {
+      if (intersectCrossing(segment1, x1, y1, start1, end1, segment2, x2, y2, start2, end2,
+          points) || isDiverging(x1, y1, x2, y2)) {
+        return;
+      }
+      isFlat1 = flattener.isFlat(x1.length - 1, x1, y1);
+      isFlat2 = flattener.isFlat(x2.length - 1, x2, y2);
+    }
+    if (isFlat1 && isFlat2 || depth == MAX_DEPTH) {
+      intersectChords(segment1, x1, y1, start1, end1, segment2, x2, y2, start2, end2, points);
+      return;
+    }
+    double middle1 = .5 * (start1 + end1);
+    double middle2 = .5 * (start2 + end2);
+    if (isFlat1) {
+      double[][] halves2 = split(x2, y2);
+      intersect(segment1, x1, y1, start1, end1, segment2, halves2[0], halves2[1], start2, middle2,
+          depth + 1, points);
+      intersect(segment1, x1, y1, start1, end1, segment2, halves2[2], halves2[3], middle2, end2,
+          depth + 1, points);
+    } else if (isFlat2) {
+      double[][] halves1 = split(x1, y1);
+      intersect(segment1, halves1[0], halves1[1], start1, middle1, segment2, x2, y2, start2, end2,
+          depth + 1, points);
+      intersect(segment1, halves1[2], halves1[3], middle1, end1, segment2, x2, y2, start2, end2,
+          depth + 1, points);
+    } else {
+      double[][] halves1 = split(x1, y1);
+      double[][] halves2 = split(x2, y2);
+      for (int i = 0; i < 4; i += 2) {
+        for (int j = 0; j < 4; j += 2) {
+          intersect(segment1, halves1[i], halves1[i + 1], i == 0 ? start1 : middle1,
+              i == 0 ? middle1 : end1, segment2, halves2[j], halves2[j + 1],
+              j == 0 ? start2 : middle2, j == 0 ? middle2 : end2, depth + 1, points);
+        }
+      }
+    }
+  }
+
+  /**
+   * Intersects two roughly flat pieces whose chords cross at a wide angle, refining
+   * the crossing of the chords on both curves at once by Newton's method. Returns false if
+   * the chords are not at a wide angle, or the refinement does not converge.
+   */
+  private boolean intersectCrossing(Segment segment1, double[] x1, double[] y1,
+                                    double start1, double end1,
+                                    Segment segment2, double[] x2, double[] y2,
+                                    double start2, double end2, PointGrid points) {
+    int last1 = x1.length - 1;
+    int last2 = x2.length - 1;
+    double dx1 = x1[last1] - x1[0];
+    double dy1 = y1[last1] - y1[0];
+    double dx2 = x2[last2] - x2[0];
+    double dy2 = y2[last2] - y2[0];
+    double length1 = Math.sqrt(dx1 * dx1 + dy1 * dy1);
+    double length2 = Math.sqrt(dx2 * dx2 + dy2 * dy2);
+    double cross = dx1 * dy2 - dy1 * dx2;
+    if (Math.abs(cross) <= MIN_CROSSING_SINE * length1 * length2) {
+      return false;
+    }
+    // The curves are within the flatness of the chords, which cross at a wide angle, thus
+    // the curves may only cross near the crossing of the chords.
+    double diffX = x2[0] - x1[0];
+    double diffY = y2[0] - y1[0];
+    double time1 = (diffX * dy2 - diffY * dx2) / cross;
+    double time2 = (diffX * dy1 - diffY * dx1) / cross;
+    double margin = 2 * crossingFlattener.getTolerance() / Math.abs(cross);
+    if (time1 < -margin * length2 || time1 > 1 + margin * length2
+        || time2 < -margin * length1 || time2 > 1 + margin * length1) {
+      return true;
+    }
+    time1 = start1 + clamp(time1) * (end1 - start1);
+    time2 = start2 + clamp(time2) * (end2 - start2);
+    for (int i = 0; i < 2 * NEWTON_ITERATIONS; i++) {
+      double diffX12 = evaluate(segment1.x, time1) - evaluate(segment2.x, time2);
+      double diffY12 = evaluate(segment1.y, time1) - evaluate(segment2.y, time2);
+      double tangentX1 = evaluate(segment1.derivativeX, time1);
+      double tangentY1 = evaluate(segment1.derivativeY, time1);
+      double tangentX2 = evaluate(segment2.derivativeX, time2);
+      double tangentY2 = evaluate(segment2.derivativeY, time2);
+      double determinant = tangentX2 * tangentY1 - tangentX1 * tangentY2;
+      if (determinant == 0) {
+        return false;
+      }
+      time1 = Math.min(end1, Math.max(start1,
+          time1 + (diffX12 * tangentY2 - tangentX2 * diffY12) / determinant));
+      time2 = Math.min(end2, Math.max(start2,
+          time2 + (tangentY1 * diffX12 - tangentX1 * diffY12) / determinant));
+    }
+    double[] point1 = segment1.curve.value(time1);
+    double[] point2 = segment2.curve.value(time2);
+    double gapX = point1[0] - point2[0];
+    double gapY = point1[1] - point2[1];
+    if (gapX * gapX + gapY * gapY > tolerance * tolerance) {
+      // The curves do not cross within the pieces, or only barely.
+      return !(time1 > start1 && time1 < end1 && time2 > start2 && time2 < end2);
+    }
+    addIntersection(segment1, time1, segment2, time2, points);
+    return true;
+  }
+
+  /**
+   * Returns whether the roughly flat pieces have a common end, and leave it in directions
+   * more than perpendicular to each other, in which case they meet at the end only.
+   */
+  private static boolean isDiverging(double[] x1, double[] y1, double[] x2, double[] y2) {
+    int last1 = x1.length - 1;
+    int last2 = x2.length - 1;
+    for (int end1 = 0; end1 <= last1; end1 += last1) {
+      for (int end2 = 0; end2 <= last2; end2 += last2) {
+        if (x1[end1] == x2[end2] && y1[end1] == y2[end2]) {
+          double dot = (x1[last1 - end1] - x1[end1]) * (x2[last2 - end2] - x2[end2])
+              + (y1[last1 - end1] - y1[end1]) * (y2[last2 - end2] - y2[end2]);
+          return dot < 0;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Intersects the chords of two flat pieces. Overlapping collinear chords intersect at
+   * the ends of the overlap.
+   */
+  private void intersectChords(Segment segment1, double[] x1, double[] y1,
+                               double start1, double end1,
+                               Segment segment2, double[] x2, double[] y2,
+                               double start2, double end2, PointGrid points) {
+    int last1 = x1.length - 1;
+    int last2 = x2.length - 1;
+    double dx1 = x1[last1] - x1[0];
+    double dy1 = y1[last1] - y1[0];
+    double dx2 = x2[last2] - x2[0];
+    double dy2 = y2[last2] - y2[0];
+    double diffX = x2[0] - x1[0];
+    double diffY = y2[0] - y1[0];
+    double cross = dx1 * dy2 - dy1 * dx2;
+    double length1 = Math.sqrt(dx1 * dx1 + dy1 * dy1);
+    double length2 = Math.sqrt(dx2 * dx2 + dy2 * dy2);
+    if (length1 == 0 || length2 == 0) {
+      return;
+    }
+    // Chords are collinear if the shorter one lies on the line of the longer one.
+    boolean isCollinear;
+    if (length1 >= length2) {
+      isCollinear = Math.abs(diffX * dy1 - diffY * dx1) <= tolerance * length1
+          && Math.abs((x2[last2] - x1[0]) * dy1 - (y2[last2] - y1[0]) * dx1)
+          <= tolerance * length1;
+    } else {
+      isCollinear = Math.abs(diffX * dy2 - diffY * dx2) <= tolerance * length2
+          && Math.abs((x1[last1] - x2[0]) * dy2 - (y1[last1] - y2[0]) * dx2)
+          <= tolerance * length2;
+    }
+    if (!isCollinear) {
+      if (cross == 0) {
+        return;
+      }
+      double time1 = (diffX * dy2 - diffY * dx2) / cross;
+      double time2 = (diffX * dy1 - diffY * dx1) / cross;
+      double margin1 = tolerance / length1;
+      double margin2 = tolerance / length2;
+      if (time1 >= -margin1 && time1 <= 1 + margin1
+          && time2 >= -margin2 && time2 <= 1 + margin2) {
+        double pointX = x1[0] + clamp(time1) * dx1;
+        double pointY = y1[0] + clamp(time1) * dy1;
+        addIntersection(segment1,
+            segment1.project(start1 + clamp(time1) * (end1 - start1), start1, end1, pointX, pointY),
+            segment2,
+            segment2.project(start2 + clamp(time2) * (end2 - start2), start2, end2, pointX, pointY),
+            points);
+      }
+      return;
+    }
+    // Collinear chords.
+    double squaredLength1 = length1 * length1;
+    double squaredLength2 = length2 * length2;
+    for (int i = 0; i <= last2; i += last2) {
+      double time = ((x2[i] - x1[0]) * dx1 + (y2[i] - y1[0]) * dy1) / squaredLength1;
+      if (time >= 0 && time <= 1) {
+        addIntersection(segment1,
+            segment1.project(start1 + time * (end1 - start1), start1, end1, x2[i], y2[i]),
+            segment2, i == 0 ? start2 : end2, points);
+      }
+    }
+    for (int i = 0; i <= last1; i += last1) {
+      double time = ((x1[i] - x2[0]) * dx2 + (y1[i] - y2[0]) * dy2) / squaredLength2;
+      if (time >= 0 && time <= 1) {
+        addIntersection(segment1, i == 0 ? start1 : end1,
+            segment2, segment2.project(start2 + time * (end2 - start2), start2, end2, x1[i], y1[i]),
+            points);
+      }
+    }
+  }
+
+  private void addIntersection(Segment segment1, double time1, Segment segment2, double time2,
+                               PointGrid points) {
+    if (segment1 == segment2 && Math.abs(time1 - time2) <= SELF_TIME_TOLERANCE) {
+      // Adjacent pieces of a segment touch at their common end.
+      return;
+    }
+    Vector2D point;
+    if (time1 <= TIME_TOLERANCE) {
+      point = segment1.getStart();
+    } else if (time1 >= 1 - TIME_TOLERANCE) {
+      point = segment1.getEnd();
+    } else if (time2 <= TIME_TOLERANCE) {
+      point = segment2.getStart();
+    } else if (time2 >= 1 - TIME_TOLERANCE) {
+      point = segment2.getEnd();
+    } else {
+      point = points.snap(new Vector2D(segment1.curve.value(time1)));
+    }
+    segment1.addSplit(time1, point);
+    segment2.addSplit(time2, point);
+  }
+
+  /**
+   * Returns the winding number of the fragments just ahead of the point along the ray, except
+   * for the crossings of the given group through the point. The ray goes to the right of
+   * the point, or upward if transposed. Only the fragments in the band of the ray are tested.
+   */
+  private int winding(ArrayList<Segment> fragments, FragmentBands bands, int[] groups, int group,
+                      double x, double y, boolean isTransposed) {
+    int winding = 0;
+    for (int i : bands.get(isTransposed ? x : y)) {
+      Segment fragment = fragments.get(i);
+      if (isTransposed) {
+        if (x < fragment.minX || x > fragment.maxX || y > fragment.maxY + tolerance) {
+          continue;
+        }
+      } else if (y < fragment.minY || y > fragment.maxY || x > fragment.maxX + tolerance) {
+        continue;
+      }
+      boolean isExcluded = groups[i] == group;
+      for (int j = 0; j < fragment.monotonePieces.size(); j += 2) {
+        double[] pieceX = fragment.monotonePieces.get(j);
+        double[] pieceY = fragment.monotonePieces.get(j + 1);
+        if (isTransposed) {
+          // Swapping the axes mirrors the plane, thus the crossings count negative.
+          winding -= crossing(pieceY, pieceX, y, x, isExcluded);
+        } else {
+          winding += crossing(pieceX, pieceY, x, y, isExcluded);
+        }
+      }
+    }
+    return winding;
+  }
+
+  /**
+   * Returns the signed crossing of the horizontal ray with a piece whose controlling points are
+   * monotone in y-axis; upward crossings count positive. The lower end is inclusive.
+   * If excluded, the crossing through the point within the tolerance does not count.
+   */
+  private int crossing(double[] x, double[] y, double pointX, double pointY,
+                       boolean isExcluded) {
+    int last = y.length - 1;
+    int direction;
+    if (y[0] < y[last]) {
+      if (pointY < y[0] || pointY >= y[last]) {
+        return 0;
+      }
+      direction = 1;
+    } else if (y[0] > y[last]) {
+      if (pointY < y[last] || pointY >= y[0]) {
+        return 0;
+      }
+      direction = -1;
+    } else {
+      return 0;
+    }
+    double margin = isExcluded ? tolerance : 0;
+    if (pointX < min(x) - margin) {
+      return direction;
+    }
+    if (pointX > max(x) + margin) {
+      return 0;
+    }
+    // Bisect the monotone piece for the parameter at the height of the point.
+    double lower = 0;
+    double upper = 1;
+    while (upper - lower > TIME_TOLERANCE) {
+      double middle = .5 * (lower + upper);
+      if ((evaluate(y, middle) < pointY) == (direction > 0)) {
+        lower = middle;
+      } else {
+        upper = middle;
+      }
+    }
+    double crossX = evaluate(x, .5 * (lower + upper));
+    if (isExcluded && Math.abs(crossX - pointX) <= tolerance) {
+      return 0;
+    }
+    return crossX > pointX ? direction : 0;
+  }
+
+  /**
+   * Chains the fragments into closed contours, or returns null if some contour is left open.
+   * A contour is given by the indices of its fragments in order. Where several fragments leave
+   * a point, the one continuing the same segment is preferred, so that it can be joined.
+   */
+  private static ArrayList<ArrayList<Integer>> chain(ArrayList<BezierCurve> curves,
+                                                     ArrayList<Segment> fragments,
+                                                     boolean[] isReversed) {
+    HashMap<Vector2D, ArrayList<Integer>> outgoing = new HashMap<>();
+    for (int i = 0; i < curves.size(); i++) {
+      Vector2D start = curves.get(i).getStartPoint();
+      ArrayList<Integer> indices = outgoing.get(start);
+      if (indices == null) {
+        indices = new ArrayList<>();
+        outgoing.put(start, indices);
+      }
+      indices.add(i);
+    }
+
+    ArrayList<ArrayList<Integer>> contours = new ArrayList<>();
+    boolean[] isUsed = new boolean[curves.size()];
+    for (int i = 0; i < curves.size(); i++) {
+      if (isUsed[i]) {
+        continue;
+      }
+      ArrayList<Integer> contour = new ArrayList<>();
+      Vector2D start = curves.get(i).getStartPoint();
+      int current = i;
+      while (current >= 0) {
+        isUsed[current] = true;
+        contour.add(current);
+        Vector2D end = curves.get(current).getEndPoint();
+        int prev = current;
+        current = -1;
+        if (end.equals(start)) {
+          break;
+        }
+        ArrayList<Integer> indices = outgoing.get(end);
+        if (indices != null) {
+          for (int index : indices) {
+            if (!isUsed[index] && (current < 0
+                || isContinued(fragments, isReversed, prev, index))) {
+              current = index;
+            }
+          }
+        }
+        if (current < 0) {
+          return null;
+        }
+      }
+      contours.add(contour);
+    }
+    return contours;
+  }
+
+  /**
+   * Returns whether the second fragment continues the first one along the same segment in
+   * the same direction, in which case both make a piece of the segment together.
+   */
+  private static boolean isContinued(ArrayList<Segment> fragments, boolean[] isReversed,
+                                     int index1, int index2) {
+    Segment fragment1 = fragments.get(index1);
+    Segment fragment2 = fragments.get(index2);
+    if (fragment1.source != fragment2.source || isReversed[index1] != isReversed[index2]) {
+      return false;
+    }
+    return isReversed[index1] ? fragment1.sourceStart == fragment2.sourceEnd
+        : fragment1.sourceEnd == fragment2.sourceStart;
+  }
+
+  /**
+   * Makes the contour of the chained fragments, joining the runs of fragments which continue
+   * each other back into single pieces of their segments.
+   */
+  private static ArrayList<BezierCurve> join(ArrayList<Integer> indices,
+                                             ArrayList<Segment> fragments,
+                                             ArrayList<BezierCurve> curves,
+                                             boolean[] isReversed) {
+    int size = indices.size();
+    // Begin at a fragment which does not continue the last one, unless every one does.
+    int first = 0;
+    while (first < size && isContinued(fragments, isReversed,
+        indices.get((first + size - 1) % size), indices.get(first))) {
+      first++;
+    }
+    if (first == size) {
+      first = 0;
+    }
+    ArrayList<BezierCurve> contour = new ArrayList<>();
+    int runStart = indices.get(first);
+    int runEnd = runStart;
+    for (int i = 1; i <= size; i++) {
+      int index = indices.get((first + i) % size);
+      if (i < size && isContinued(fragments, isReversed, runEnd, index)) {
+        runEnd = index;
+        continue;
+      }
+      if (runStart == runEnd) {
+        contour.add(curves.get(runStart));
+      } else {
+        Segment source = fragments.get(runStart).source;
+        boolean reversed = isReversed[runStart];
+        Vector2D[] points = source.subCurve(
+            reversed ? fragments.get(runEnd).sourceStart : fragments.get(runStart).sourceStart,
+            reversed ? fragments.get(runStart).sourceEnd : fragments.get(runEnd).sourceEnd);
+        BezierCurve curve = new BezierCurve(points);
+        if (reversed) {
+          curve = curve.reverse();
+          points = curve.getPoints();
+        }
+        points[0] = curves.get(runStart).getStartPoint();
+        points[points.length - 1] = curves.get(runEnd).getEndPoint();
+        contour.add(new BezierCurve(points));
+      }
+      runStart = index;
+      runEnd = index;
+    }
+    return contour;
+  }
+
+  /**
+   * Returns whether the fragments with common ends lie on each other within the tolerance.
+   */
+  private boolean isCoincident(Segment fragment1, Segment fragment2, boolean isReversed) {
+    for (int i = 1; i < COINCIDENCE_SAMPLES; i++) {
+      double time = i / (double) COINCIDENCE_SAMPLES;
+      double pointX = evaluate(fragment2.x, time);
+      double pointY = evaluate(fragment2.y, time);
+      double projection = fragment1.project(isReversed ? 1 - time : time, 0, 1, pointX, pointY);
+      if (Math.hypot(evaluate(fragment1.x, projection) - pointX,
+          evaluate(fragment1.y, projection) - pointY) > tolerance) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isDegenerate(Vector2D[] points) {
+    for (Vector2D point : points) {
+      if (!point.equals(points[0])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Splits controlling points in half by De Casteljau's algorithm, and returns
+   * the x and y-coordinates of the first half followed by the ones of the second half.
+   */
+  private static double[][] split(double[] x, double[] y) {
+    int order = x.length - 1;
+    double[][] halves = new double[4][order + 1];
+    double[] workX = x.clone();
+    double[] workY = y.clone();
+    for (int level = 0; level <= order; level++) {
+      halves[0][level] = workX[0];
+      halves[1][level] = workY[0];
+      halves[2][order - level] = workX[order - level];
+      halves[3][order - level] = workY[order - level];
+      for (int i = 0; i < order - level; i++) {
+        workX[i] = .5 * (workX[i] + workX[i + 1]);
+        workY[i] = .5 * (workY[i] + workY[i + 1]);
+      }
+    }
+    return halves;
+  }
+
+  private static double evaluate(double[] values, double time) {
+    // De Casteljau's algorithm is unrolled up to cubic curves not to allocate, since crossings
+    // of rays are bisected by evaluating pieces.
+    if (values.length == 1) {
+      return values[0];
+    }
+    if (values.length <= 4) {
+      double value0 = values[0] + time * (values[1] - values[0]);
+      if (values.length == 2) {
+        return value0;
+      }
+      double value1 = values[1] + time * (values[2] - values[1]);
+      if (values.length == 3) {
+        return value0 + time * (value1 - value0);
+      }
+      double value2 = values[2] + time * (values[3] - values[2]);
+      value0 += time * (value1 - value0);
+      value1 += time * (value2 - value1);
+      return value0 + time * (value1 - value0);
+    }
+    double[] work = values.clone();
+    for (int level = work.length - 1; level > 0; level--) {
+      for (int i = 0; i < level; i++) {
+        work[i] += time * (work[i + 1] - work[i]);
+      }
+    }
+    return work[0];
+  }
+
+  private static double clamp(double time) {
+    return Math.min(1, Math.max(0, time));
+  }
+
+  private static double min(double[] values) {
+    double min = values[0];
+    for (double value : values) {
+      min = Math.min(min, value);
+    }
+    return min;
+  }
+
+  private static double max(double[] values) {
+    double max = values[0];
+    for (double value : values) {
+      max = Math.max(max, value);
+    }
+    return max;
+  }
+
+  /**
+   * A segment of an input contour with the intersections found on it.
+   */
+  private static final class Segment {
+    private final BezierCurve curve;
+    private final double[] x;
+    private final double[] y;
+    private final double minX;
+    private final double maxX;
+    private final double minY;
+    private final double maxY;
+    // Controlling points of the derivative, which is empty for a point.
+    private final double[] derivativeX;
+    private final double[] derivativeY;
+    // Controlling points of pieces monotone in both axes, as pairs of x and y-coordinates,
+    // and the parameters of the segment at their ends.
+    private final ArrayList<double[]> monotonePieces = new ArrayList<>();
+    private final ArrayList<Double> pieceTimes = new ArrayList<>();
+    private final ArrayList<Double> splitTimes = new ArrayList<>();
+    private final ArrayList<Vector2D> splitPoints = new ArrayList<>();
+    // Segment which a fragment is split from, and the parameters of the segment at its ends.
+    private final Segment source;
+    private final double sourceStart;
+    private final double sourceEnd;
+
+    private Segment(Vector2D[] points) {
+      this(points, null, 0, 1);
+    }
+
+    private Segment(Vector2D[] points, Segment source, double sourceStart, double sourceEnd) {
+      this.source = source;
+      this.sourceStart = sourceStart;
+      this.sourceEnd = sourceEnd;
+      curve = new BezierCurve(points);
+      x = new double[points.length];
+      y = new double[points.length];
+      for (int i = 0; i < points.length; i++) {
+        x[i] = points[i].getX();
+        y[i] = points[i].getY();
+      }
+      minX = min(x);
+      maxX = max(x);
+      minY = min(y);
+      maxY = max(y);
+      int order = points.length - 1;
+      derivativeX = new double[order];
+      derivativeY = new double[order];
+      for (int i = 0; i < order; i++) {
+        derivativeX[i] = order * (x[i + 1] - x[i]);
+        derivativeY[i] = order * (y[i + 1] - y[i]);
+      }
+      addMonotonePieces();
+    }
+
+    /**
+     * Splits the segment at the extrema of its coordinates, so that each piece is monotone
+     * in both axes and cannot intersect itself.
+     */
+    private void addMonotonePieces() {
+      ArrayList<Double> times = new ArrayList<>();
+      addExtrema(x, times);
+      addExtrema(y, times);
+      Collections.sort(times);
+      times.add(1.0);
+      double prevTime = 0;
+      for (double time : times) {
+        if (time - prevTime > TIME_TOLERANCE) {
+          Vector2D[] points = subCurve(prevTime, time);
+          double[] pieceX = new double[points.length];
+          double[] pieceY = new double[points.length];
+          for (int i = 0; i < points.length; i++) {
+            pieceX[i] = points[i].getX();
+            pieceY[i] = points[i].getY();
+          }
+          monotonePieces.add(pieceX);
+          monotonePieces.add(pieceY);
+          pieceTimes.add(prevTime);
+          pieceTimes.add(time);
+          prevTime = time;
+        }
+      }
+    }
+
+    /**
+     * Adds the parameters where the derivative of the coordinate vanishes, up to cubic curves.
+     */
+    private void addExtrema(double[] values, ArrayList<Double> times) {
+      if (values.length == 3) {
+        double denominator = values[0] - 2 * values[1] + values[2];
+        if (denominator != 0) {
+          addTime((values[0] - values[1]) / denominator, times);
+        }
+      } else if (values.length == 4) {
+        // Derivative in the form of a * t^2 + 2 * b * t + c, divided by three.
+        double a = values[3] - 3 * values[2] + 3 * values[1] - values[0];
+        double b = values[0] - 2 * values[1] + values[2];
+        double c = values[1] - values[0];
+        if (a == 0) {
+          if (b != 0) {
+            addTime(-c / (2 * b), times);
+          }
+          return;
+        }
+        double discriminant = b * b - a * c;
+        if (discriminant >= 0) {
+          double root = Math.sqrt(discriminant);
+          addTime((-b - root) / a, times);
+          addTime((-b + root) / a, times);
+        }
+      }
+    }
+
+    private void addTime(double time, ArrayList<Double> times) {
+      if (time > TIME_TOLERANCE && time < 1 - TIME_TOLERANCE) {
+        times.add(time);
+      }
+    }
+
+    /**
+     * Refines the parameter of the point on the piece between the given parameters, since
+     * the parameter of a curve is not proportional to the length even where it is flat.
+     */
+    private double project(double time, double start, double end, double pointX,
+                           double pointY) {
+      int order = x.length - 1;
+      if (order == 1) {
+        double dx = x[1] - x[0];
+        double dy = y[1] - y[0];
+        double squaredLength = dx * dx + dy * dy;
+        if (squaredLength == 0) {
+          return time;
+        }
+        double ratio = ((pointX - x[0]) * dx + (pointY - y[0]) * dy) / squaredLength;
+        return Math.min(end, Math.max(start, ratio));
+      }
+      for (int i = 0; i < NEWTON_ITERATIONS; i++) {
+        double tangentX = evaluate(derivativeX, time);
+        double tangentY = evaluate(derivativeY, time);
+        double squaredNorm = tangentX * tangentX + tangentY * tangentY;
+        if (squaredNorm == 0) {
+          break;
+        }
+        time -= ((evaluate(x, time) - pointX) * tangentX
+            + (evaluate(y, time) - pointY) * tangentY) / squaredNorm;
+        time = Math.min(end, Math.max(start, time));
+      }
+      return time;
+    }
+
+    private Vector2D getStart() {
+      return curve.getStartPoint();
+    }
+
+    private Vector2D getEnd() {
+      return curve.getEndPoint();
+    }
+
+    private void addSplit(double time, Vector2D point) {
+      if (time > TIME_TOLERANCE && time < 1 - TIME_TOLERANCE) {
+        splitTimes.add(time);
+        splitPoints.add(point);
+      }
+    }
+
+    /**
+     * Returns the fragments between the intersections in order.
+     */
+    private ArrayList<Segment> splitAtIntersections() {
+      Integer[] order = new Integer[splitTimes.size()];
+      for (int i = 0; i < order.length; i++) {
+        order[i] = i;
+      }
+      Arrays.sort(order, new Comparator<Integer>() {
+        @Override
+        public int compare(Integer index1, Integer index2) {
+          return Double.compare(splitTimes.get(index1), splitTimes.get(index2));
+        }
+      });
+
+      ArrayList<Segment> fragments = new ArrayList<>();
+      double prevTime = 0;
+      Vector2D prevPoint = getStart();
+      for (int i = 0; i <= order.length; i++) {
+        double time = i == order.length ? 1 : splitTimes.get(order[i]);
+        Vector2D point = i == order.length ? getEnd() : splitPoints.get(order[i]);
+        if (point.equals(prevPoint) || time - prevTime <= TIME_TOLERANCE && i < order.length) {
+          continue;
+        }
+        Vector2D[] points = subCurve(prevTime, time);
+        points[0] = prevPoint;
+        points[points.length - 1] = point;
+        fragments.add(new Segment(points, this, prevTime, time));
+        prevTime = time;
+        prevPoint = point;
+      }
+      return fragments;
+    }
+
+    private Vector2D[] subCurve(double start, double end) {
+      int order = x.length - 1;
+      double[] workX = x.clone();
+      double[] workY = y.clone();
+      // Keep the part before the end.
+      for (int level = 1; level <= order; level++) {
+        for (int i = order; i >= level; i--) {
+          workX[i] = workX[i - 1] + end * (workX[i] - workX[i - 1]);
+          workY[i] = workY[i - 1] + end * (workY[i] - workY[i - 1]);
+        }
+      }
+      // Keep the part after the start, relative to the part before the end.
+      double time = end == 0 ? 0 : start / end;
+      for (int level = 1; level <= order; level++) {
+        for (int i = 0; i <= order - level; i++) {
+          workX[i] = workX[i] + time * (workX[i + 1] - workX[i]);
+          workY[i] = workY[i] + time * (workY[i + 1] - workY[i]);
+        }
+      }
+      Vector2D[] points = new Vector2D[order + 1];
+      for (int i = 0; i <= order; i++) {
+        points[i] = new Vector2D(workX[i], workY[i]);
+      }
+      return points;
+    }
+  }
+
+  /**
+   * Points registered by the union, hashed into square cells as large as the tolerance, so that
+   * the points closer than the tolerance to a point are found in the cells around it.
+   */
+  private static final class PointGrid {
+    private final double tolerance;
+    private final ArrayList<Vector2D> points = new ArrayList<>();
+    private final HashMap<Long, ArrayList<Integer>> cells = new HashMap<>();
+
+    private PointGrid(double tolerance) {
+      this.tolerance = tolerance;
+    }
+
+    /**
+     * Returns the first registered point closer than the tolerance, or registers the point.
+     */
+    private Vector2D snap(Vector2D point) {
+      long cellX = (long) Math.floor(point.getX() / tolerance);
+      long cellY = (long) Math.floor(point.getY() / tolerance);
+      int found = -1;
+      for (long x = cellX - 1; x <= cellX + 1; x++) {
+        for (long y = cellY - 1; y <= cellY + 1; y++) {
+          ArrayList<Integer> cell = cells.get(key(x, y));
+          if (cell == null) {
+            continue;
+          }
+          for (int index : cell) {
+            Vector2D existing = points.get(index);
+            if ((found < 0 || index < found)
+                && Math.abs(existing.getX() - point.getX()) <= tolerance
+                && Math.abs(existing.getY() - point.getY()) <= tolerance) {
+              found = index;
+            }
+          }
+        }
+      }
+      if (found >= 0) {
+        return points.get(found);
+      }
+      // Avoid negative zeros, which break hashing of equal points.
+      Vector2D normalized = new Vector2D(point.getX() + 0.0, point.getY() + 0.0);
+      Long key = key(cellX, cellY);
+      ArrayList<Integer> cell = cells.get(key);
+      if (cell == null) {
+        cell = new ArrayList<>();
+        cells.put(key, cell);
+      }
+      cell.add(points.size());
+      points.add(normalized);
+      return normalized;
+    }
+
+    private static Long key(long x, long y) {
+      return x << 32 ^ y & 0xFFFFFFFFL;
+    }
+  }
+
+  /**
+   * Fragments grouped by horizontal bands, or vertical ones if transposed, so that a ray along
+   * a band is tested against the fragments spanning the band only. Bands are cut at quantiles
+   * of the ends of the fragments rather than evenly, since controlling points of offset curves
+   * may lie far away from the glyph.
+   */
+  private static final class FragmentBands {
+    private final boolean isTransposed;
+    private final double[] bounds;
+    private final int[][] bands;
+
+    private FragmentBands(ArrayList<Segment> fragments, boolean isTransposed) {
+      this.isTransposed = isTransposed;
+      double[] ends = new double[2 * fragments.size()];
+      for (int i = 0; i < fragments.size(); i++) {
+        ends[2 * i] = getEnd(fragments.get(i), true);
+        ends[2 * i + 1] = getEnd(fragments.get(i), false);
+      }
+      Arrays.sort(ends);
+      int count = Math.max(1, (int) Math.sqrt(fragments.size()) * BANDS_PER_ROOT);
+      bounds = new double[count - 1];
+      for (int band = 1; band < count; band++) {
+        bounds[band - 1] = ends[(int) ((long) band * ends.length / count)];
+      }
+      int[] sizes = new int[count];
+      for (Segment fragment : fragments) {
+        int last = getBand(getEnd(fragment, false));
+        for (int band = getBand(getEnd(fragment, true)); band <= last; band++) {
+          sizes[band]++;
+        }
+      }
+      bands = new int[count][];
+      for (int band = 0; band < count; band++) {
+        bands[band] = new int[sizes[band]];
+        sizes[band] = 0;
+      }
+      for (int i = 0; i < fragments.size(); i++) {
+        Segment fragment = fragments.get(i);
+        int last = getBand(getEnd(fragment, false));
+        for (int band = getBand(getEnd(fragment, true)); band <= last; band++) {
+          bands[band][sizes[band]++] = i;
+        }
+      }
+    }
+
+    /**
+     * Returns the indices of the fragments whose range in the axis may contain the coordinate.
+     */
+    private int[] get(double coordinate) {
+      return bands[getBand(coordinate)];
+    }
+
+    private double getEnd(Segment fragment, boolean isLower) {
+      if (isTransposed) {
+        return isLower ? fragment.minX : fragment.maxX;
+      }
+      return isLower ? fragment.minY : fragment.maxY;
+    }
+
+    /**
+     * Returns the number of the bounds not greater than the coordinate.
+     */
+    private int getBand(double coordinate) {
+      int lower = 0;
+      int upper = bounds.length;
+      while (lower < upper) {
+        int middle = (lower + upper) >>> 1;
+        if (bounds[middle] <= coordinate) {
+          lower = middle + 1;
+        } else {
+          upper = middle;
+        }
+      }
+      return lower;
+    }
+  }
+}
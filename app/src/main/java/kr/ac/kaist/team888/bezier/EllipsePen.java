@@ -0,0 +1,11 @@
+package kr.ac.kaist.team888.bezier;
+
+/**
+ * Elliptical pen, which is a unit circle stretched by the offset vector and the contrast.
+ */
+public class EllipsePen extends PenModel {
+  @Override
+  protected double getRadius(double unitX, double unitY) {
+    return 1;
+  }
+}
@@ -0,0 +1,37 @@
+package kr.ac.kaist.team888.bezier;
+
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+import org.apache.commons.math3.geometry.euclidean.twod.Vector2D;
+
+/**
+ * Calligraphic flat nib, which is a thin rectangle held at a fixed angle.
+ *
+ * <p>Strokes drawn by a flat nib are thick when they run perpendicular to the nib and thin
+ * when they run along it.
+ */
+public class FlatNibPen extends PolygonPen {
+  /**
+   * Creates a new flat nib.
+   *
+   * @param angle angle of the nib from x-axis in radians
+   * @param thickness ratio of the thickness of the nib to its width
+   * @throws NotStrictlyPositiveException if thickness is not positive
+   */
+  public FlatNibPen(double angle, double thickness) throws NotStrictlyPositiveException {
+    super(getVertices(angle, thickness));
+  }
+
+  private static Vector2D[] getVertices(double angle, double thickness) {
+    if (!(thickness > 0)) {
+      throw new NotStrictlyPositiveException(thickness);
+    }
+    Vector2D along = new Vector2D(Math.cos(angle), Math.sin(angle));
+    Vector2D across = new Vector2D(-along.getY() * thickness, along.getX() * thickness);
+    return new Vector2D[] {
+        along.add(across),
+        along.negate().add(across),
+        along.negate().subtract(across),
+        along.subtract(across)
+    };
+  }
+}
@@ -0,0 +1,293 @@
+package kr.ac.kaist.team888.bezier;
+
+import org.apache.commons.math3.exception.MathArithmeticException;
+import org.apache.commons.math3.geometry.euclidean.twod.Vector2D;
+
+import java.util.ArrayList;
+
+/**
+ * Error-bounded adaptive offsetting of Bezier curves.
+ *
+ * <p>The exact offset of a curve at a parameter is the point of the curve moved by the offset
+ * target vector of the pen in the perpendicular direction of its derivative. The offset is
+ * approximated by quadratic curves whose end points lie on the exact offset and whose control
+ * point is the intersection of the tangents at both ends. Each piece is checked against
+ * samples of the exact offset, and is split in half only if some sample is farther than
+ * the tolerance, so that the offset is approximated by the fewest pieces where it is flat and
+ * refined only where it bends.
+ *
+ * <p>The end points of the offset equal the ones of the Tiller-Hanson method, so that
+ * the joints and the caps of {@link OffsetTillerHanson} connect both methods seamlessly.
+ */
+class OffsetAdaptive {
+  /**
+   * A default tolerance in font units.
+   */
+  static final double DEFAULT_TOLERANCE = .25;
+
+  private static final int MAX_DEPTH = 8;
+  // Depth of the halving of every piece when the pieces must not depend on the distance.
+  private static final int FIXED_DEPTH = 2;
+  private static final int SAMPLES = 4;
+  private static final double PARALLEL_TOLERANCE = 1E-4;
+  private static final double DERIVATIVE_STEP = 1E-6;
+
+  private final double[] pointsX;
+  private final double[] pointsY;
+  private final double[] workX;
+  private final double[] workY;
+  private final int order;
+  private final double delta;
+  private final double contrast;
+  private final double tolerance;
+  private final PenModel pen;
+  private final PenModel.Table table;
+  private final Vector2D offsetVector;
+  private final Vector2D endOffsetVector;
+  private final double[] target = new double[2];
+  private final double[] sample = new double[2];
+
+  // Results of the last evaluation.
+  private double pointX;
+  private double pointY;
+  private double tangentX;
+  private double tangentY;
+
+  private OffsetAdaptive(BezierCurve curve, double delta, double contrast, PenModel pen,
+                         double tolerance) {
+    order = curve.getOrder();
+    pointsX = new double[order + 1];
+    pointsY = new double[order + 1];
+    for (int i = 0; i <= order; i++) {
+      pointsX[i] = curve.getX(i);
+      pointsY[i] = curve.getY(i);
+    }
+    workX = new double[order + 1];
+    workY = new double[order + 1];
+    this.delta = delta;
+    this.contrast = contrast;
+    this.tolerance = tolerance;
+    this.pen = pen;
+    offsetVector = curve.getOffsetVector();
+    endOffsetVector = curve.getEndOffsetVector();
+    table = endOffsetVector == null ? pen.getTable(contrast, offsetVector) : null;
+  }
+
+  /**
+   * Returns an offset of the given Bezier curve drawn by the given pen as the form of
+   *     a sequence of quadratic Bezier curves within the default tolerance.
+   *
+   * @param curve a Bezier curve to append offsetting
+   * @param delta offset distance
+   * @param pen pen to draw the curve
+   * @return a sequence of offset Bezier curves
+   * @throws MathArithmeticException if an end of the curve has no direction
+   */
+  protected static ArrayList<BezierCurve> offset(BezierCurve curve, double delta,
+                                                 double contrast, PenModel pen)
+      throws MathArithmeticException {
+    OffsetAdaptive offset = new OffsetAdaptive(curve, delta, contrast, pen, DEFAULT_TOLERANCE);
+    double[] start = offset.offsetAt(0);
+    double[] end = offset.offsetAt(1);
+    ContourBuffer contour = new ContourBuffer(1 << 2, 1 << 3);
+    contour.setOffsetVectors(curve.getOffsetVector(), curve.getEndOffsetVector());
+    contour.beginContour();
+    offset.emit(0, start, 1, end, 0, false, contour);
+    contour.endContour();
+    return contour.toBezierCurves(0);
+  }
+
+  /**
+   * Appends one side of the offset of the curve to the buffer, in reverse order if needed.
+   *
+   * <p>The end points are given by the caller so that they match the joints exactly.
+   * With a fixed topology, the offset is split into the same number of pieces whatever
+   * the distance, rather than as many as the tolerance needs.
+   *
+   * @param curve a Bezier curve to append offsetting
+   * @param delta offset distance
+   * @param pen pen to draw the curve
+   * @param startX x-coordinate of the offset of the start point
+   * @param startY y-coordinate of the offset of the start point
+   * @param endX x-coordinate of the offset of the end point
+   * @param endY y-coordinate of the offset of the end point
+   * @param reverse whether to append from the end to the start
+   * @param fixedTopology whether to split into a number of pieces independent of the distance
+   * @param contour buffer to append the offset
+   * @return the index of the last appended segment
+   * @throws MathArithmeticException if an end of the curve has no direction
+   */
+  protected static int addOffsetCurve(BezierCurve curve, double delta, double contrast,
+                                      PenModel pen, double startX, double startY,
+                                      double endX, double endY, boolean reverse,
+                                      boolean fixedTopology, ContourBuffer contour)
+      throws MathArithmeticException {
+    OffsetAdaptive offset = new OffsetAdaptive(curve, delta, contrast, pen, DEFAULT_TOLERANCE);
+    double[] start = offset.offsetAt(0);
+    start[0] = startX;
+    start[1] = startY;
+    double[] end = offset.offsetAt(1);
+    end[0] = endX;
+    end[1] = endY;
+    if (fixedTopology) {
+      return offset.emitFixed(0, start, 1, end, 0, reverse, contour);
+    }
+    return offset.emit(0, start, 1, end, 0, reverse, contour);
+  }
+
+  /**
+   * Appends quadratic pieces approximating the offset between two parameters, and returns
+   * the index of the last appended segment.
+   *
+   * <p>Each offset point holds its coordinates followed by its tangent.
+   */
+  private int emit(double startTime, double[] start, double endTime, double[] end, int depth,
+                   boolean reverse, ContourBuffer contour) {
+    double x0 = start[0];
+    double y0 = start[1];
+    double x2 = end[0];
+    double y2 = end[1];
+    double startTangentX = start[2];
+    double startTangentY = start[3];
+    double endTangentX = end[2];
+    double endTangentY = end[3];
+
+    // Intersect the tangents at both ends.
+    double cross = startTangentX * endTangentY - startTangentY * endTangentX;
+    double sine = cross / (Math.hypot(startTangentX, startTangentY)
+        * Math.hypot(endTangentX, endTangentY));
+    double x1;
+    double y1;
+    boolean isFit;
+    if (Math.abs(sine) < PARALLEL_TOLERANCE) {
+      x1 = .5 * (x0 + x2);
+      y1 = .5 * (y0 + y2);
+      isFit = startTangentX * endTangentX + startTangentY * endTangentY > 0;
+    } else {
+      double dx = x2 - x0;
+      double dy = y2 - y0;
+      double startFactor = (dx * endTangentY - dy * endTangentX) / cross;
+      double endFactor = (startTangentX * dy - startTangentY * dx) / cross;
+      x1 = x0 + startFactor * startTangentX;
+      y1 = y0 + startFactor * startTangentY;
+      isFit = startFactor >= 0 && endFactor >= 0;
+    }
+
+    // Measure the deviation from the exact offset at interior samples, unless it cannot split.
+    for (int k = 1; isFit && depth < MAX_DEPTH && k <= SAMPLES; k++) {
+      double ratio = k / (double) (SAMPLES + 1);
+      offsetPointAt(startTime + ratio * (endTime - startTime), sample);
+      isFit = BezierCurveUtils.distanceToQuadratic(x0, y0, x1, y1, x2, y2,
+          sample[0], sample[1], ratio) <= tolerance;
+    }
+
+    if (!isFit && depth < MAX_DEPTH) {
+      double middleTime = .5 * (startTime + endTime);
+      double[] middle = offsetAt(middleTime);
+      if (reverse) {
+        emit(middleTime, middle, endTime, end, depth + 1, true, contour);
+        return emit(startTime, start, middleTime, middle, depth + 1, true, contour);
+      }
+      emit(startTime, start, middleTime, middle, depth + 1, false, contour);
+      return emit(middleTime, middle, endTime, end, depth + 1, false, contour);
+    }
+    if (reverse) {
+      return contour.addQuadratic(x2, y2, x1, y1, x0, y0);
+    }
+    return contour.addQuadratic(x0, y0, x1, y1, x2, y2);
+  }
+
+  /**
+   * Appends quadratic pieces approximating the offset between two parameters halved down to
+   * the fixed depth, and returns the index of the last appended segment.
+   */
+  private int emitFixed(double startTime, double[] start, double endTime, double[] end,
+                        int depth, boolean reverse, ContourBuffer contour) {
+    if (depth < FIXED_DEPTH) {
+      double middleTime = .5 * (startTime + endTime);
+      double[] middle = offsetAt(middleTime);
+      if (reverse) {
+        emitFixed(middleTime, middle, endTime, end, depth + 1, true, contour);
+        return emitFixed(startTime, start, middleTime, middle, depth + 1, true, contour);
+      }
+      emitFixed(startTime, start, middleTime, middle, depth + 1, false, contour);
+      return emitFixed(middleTime, middle, endTime, end, depth + 1, false, contour);
+    }
+    return emit(startTime, start, endTime, end, MAX_DEPTH, reverse, contour);
+  }
+
+  /**
+   * Returns the exact offset point and its tangent at the parameter.
+   *
+   * <p>The offset target vector varies along the curve unless the pen is a circle, thus
+   * the tangent of the offset is estimated by a central difference, falling back to
+   * the derivative of the curve where the offset stalls.
+   */
+  private double[] offsetAt(double time) throws MathArithmeticException {
+    double[] offset = new double[4];
+    double before = Math.max(0, time - DERIVATIVE_STEP);
+    double after = Math.min(1, time + DERIVATIVE_STEP);
+    offsetPointAt(before, offset);
+    double beforeX = offset[0];
+    double beforeY = offset[1];
+    offsetPointAt(after, offset);
+    offset[2] = offset[0] - beforeX;
+    offset[3] = offset[1] - beforeY;
+    offsetPointAt(time, offset);
+    if (offset[2] == 0 && offset[3] == 0) {
+      offset[2] = tangentX;
+      offset[3] = tangentY;
+    }
+    return offset;
+  }
+
+  /**
+   * Computes the exact offset point at the parameter.
+   */
+  private void offsetPointAt(double time, double[] point) throws MathArithmeticException {
+    evaluate(time);
+    PenModel.Table table = this.table;
+    if (table == null) {
+      table = pen.getTable(contrast,
+          (1 - time) * offsetVector.getX() + time * endOffsetVector.getX(),
+          (1 - time) * offsetVector.getY() + time * endOffsetVector.getY());
+    }
+    table.offsetTarget(tangentY, -tangentX, target);
+    point[0] = pointX + delta * target[0];
+    point[1] = pointY + delta * target[1];
+  }
+
+  /**
+   * Evaluates the point and the derivative of the curve at the parameter.
+   *
+   * <p>If the derivative vanishes at an interior cusp, the direction of a nearby chord is used.
+   */
+  private void evaluate(double time) {
+    deCasteljau(time);
+    tangentX = order * (workX[1] - workX[0]);
+    tangentY = order * (workY[1] - workY[0]);
+    pointX = workX[0] + time * (workX[1] - workX[0]);
+    pointY = workY[0] + time * (workY[1] - workY[0]);
+    if (tangentX == 0 && tangentY == 0 && time > 0 && time < 1) {
+      double nextTime = Math.min(1, time + DERIVATIVE_STEP);
+      deCasteljau(nextTime);
+      tangentX = workX[0] + nextTime * (workX[1] - workX[0]) - pointX;
+      tangentY = workY[0] + nextTime * (workY[1] - workY[0]) - pointY;
+    }
+  }
+
+  /**
+   * Reduces the controlling points down to the two points whose segment is tangent to
+   * the curve at the parameter.
+   */
+  private void deCasteljau(double time) {
+    System.arraycopy(pointsX, 0, workX, 0, order + 1);
+    System.arraycopy(pointsY, 0, workY, 0, order + 1);
+    for (int level = order; level > 1; level--) {
+      for (int i = 0; i < level; i++) {
+        workX[i] += time * (workX[i + 1] - workX[i]);
+        workY[i] += time * (workY[i + 1] - workY[i]);
+      }
+    }
+  }
+}
@@ -1,9 +1,10 @@
 package kr.ac.kaist.team888.bezier;
 
+import org.apache.commons.math3.exception.MathArithmeticException;
+import org.apache.commons.math3.exception.util.LocalizedFormats;
 import org.apache.commons.math3.geometry.euclidean.twod.Vector2D;
 
 import java.util.ArrayList;
-import java.util.Collections;
 
 /**
  * Implementation of the Tiller-Hanson algorithm to offset Bezier curves.
@@ -11,6 +12,15 @@ import java.util.Collections;
 class OffsetTillerHanson {
   private static final double CURVE_TOLERANCE = 1E-4;
 
+  // Layout of the per-edge data computed once by stroking.
+  private static final int EDGE_UNIT_X = 0;
+  private static final int EDGE_UNIT_Y = 1;
+  private static final int EDGE_START_TARGET_X = 2;
+  private static final int EDGE_START_TARGET_Y = 3;
+  private static final int EDGE_END_TARGET_X = 4;
+  private static final int EDGE_END_TARGET_Y = 5;
+  private static final int EDGE_STRIDE = 6;
+
   /**
    * Returns a offset of the given Bezier curve as the form of a Bezier curve
    *     by using the Tiller-Hanson algorithm.
@@ -20,6 +30,20 @@ class OffsetTillerHanson {
    * @return a offset Bezier curve
    */
   protected static BezierCurve offset(BezierCurve curve, double delta, double contrast) {
+    return offset(curve, delta, contrast, PenType.Ellipse.getPen());
+  }
+
+  /**
+   * Returns a offset of the given Bezier curve drawn by the given pen as the form of
+   *     a Bezier curve by using the Tiller-Hanson algorithm.
+   *
+   * @param curve a Bezier curve to append offsetting
+   * @param delta offset distance
+   * @param pen pen to draw the curve
+   * @return a offset Bezier curve
+   */
+  protected static BezierCurve offset(BezierCurve curve, double delta, double contrast,
+                                      PenModel pen) {
     Vector2D[] points = curve.getPoints();
     ArrayList<Vector2D> offsetPoints = new ArrayList<>();
     Vector2D prevPoint;
@@ -28,7 +52,7 @@ class OffsetTillerHanson {
       prevPoint = (i == 0) ? null : points[i - 1];
       nextPoint = (i == curve.getOrder()) ? null : points[i + 1];
       offsetPoints.add(offsetPoint(points[i], prevPoint, nextPoint,
-          delta, contrast, curve.getOffsetVector(i)));
+          delta, pen.getTable(contrast, curve.getOffsetVector(i))));
     }
 
     return new BezierCurve.Builder()
@@ -48,247 +72,544 @@ class OffsetTillerHanson {
    */
   protected static ArrayList<BezierCurve> stroke(ArrayList<BezierCurve> curves,
                                                  double delta, double roundness, double contrast) {
-    ArrayList<BezierCurve> contourUpper = new ArrayList<>();
-    ArrayList<BezierCurve> contourLower = new ArrayList<>();
-    for (BezierCurve curve : curves) {
-      contourUpper.add(offset(curve, delta, contrast));
-      contourLower.add(offset(curve, -delta, contrast).reverse());
-    }
-    Collections.reverse(contourLower);
+    ContourBuffer contour = new ContourBuffer(1, 1);
+    stroke(curves, delta, roundness, contrast, PenType.Ellipse.getPen(), contour);
+    return contour.toBezierCurves(contour.getContourCount() - 1);
+  }
 
-    ArrayList<BezierCurve> contour = new ArrayList<>();
+  /**
+   * Appends a contour of the given sequence of the Bezier curves to the buffer
+   *     by using the Tiller-Hanson algorithm.
+   *
+   * <p>The skeleton is walked once. The direction and the offset target vector of each edge of
+   * the controlling polygons are computed once and shared by both sides of the contour,
+   * by the joints between curves, and by the caps. Both sides, joints and caps are written in
+   * contour order into the buffer, whose capacity is reserved up front.
+   *
+   * @param curves a sequence of Bezier curves to append stroking
+   * @param delta offset distance
+   * @param pen pen to draw the curves
+   * @param contour buffer to append a contour
+   */
+  protected static void stroke(ArrayList<BezierCurve> curves, double delta, double roundness,
+                               double contrast, PenModel pen, ContourBuffer contour) {
+    stroke(curves, delta, roundness, contrast, pen, false, contour);
+  }
 
-    // Store special curves and points
-    BezierCurve firstBaseCurve = curves.get(0);
-    BezierCurve lastBaseCurve = curves.get(curves.size() - 1);
-    Vector2D firstBasePoint = firstBaseCurve.getPoint(0);
-    Vector2D firstNextPoint = firstBaseCurve.getPoint(1);
-    Vector2D lastBasePoint = lastBaseCurve.getPoint(lastBaseCurve.getOrder());
-    Vector2D lastPrevPoint = lastBaseCurve.getPoint(lastBaseCurve.getOrder() - 1);
+  /**
+   * Appends a contour of the given sequence of the Bezier curves to the buffer
+   *     by using the Tiller-Hanson algorithm for joints and caps.
+   *
+   * <p>Sides of curves whose offset method is {@link BezierCurveOffsetMethodType#Adaptive},
+   * or of every curve if adaptive is set, are approximated by {@link OffsetAdaptive}.
+   * Their ends coincide with the Tiller-Hanson ones, thus both methods can be mixed.
+   *
+   * @param curves a sequence of Bezier curves to append stroking
+   * @param delta offset distance
+   * @param pen pen to draw the curves
+   * @param adaptive whether to offset every curve adaptively
+   * @param contour buffer to append a contour
+   */
+  protected static void stroke(ArrayList<BezierCurve> curves, double delta, double roundness,
+                               double contrast, PenModel pen, boolean adaptive,
+                               ContourBuffer contour) {
+    stroke(curves, delta, roundness, contrast, pen, adaptive, false, contour);
+  }
+
+  /**
+   * Appends a contour of the given sequence of the Bezier curves to the buffer
+   *     by using the Tiller-Hanson algorithm for joints and caps, optionally with a structure
+   *     independent of the distance.
+   *
+   * <p>With a fixed topology, both lines of every joint are appended even if they collapse,
+   * and adaptive sides are split into a fixed number of pieces, so that strokes of the same
+   * skeleton by any distance have the same segments and can be interpolated point by point.
+   *
+   * @param curves a sequence of Bezier curves to append stroking
+   * @param delta offset distance
+   * @param pen pen to draw the curves
+   * @param adaptive whether to offset every curve adaptively
+   * @param fixedTopology whether to keep the segments independent of the distance
+   * @param contour buffer to append a contour
+   */
+  protected static void stroke(ArrayList<BezierCurve> curves, double delta, double roundness,
+                               double contrast, PenModel pen, boolean adaptive,
+                               boolean fixedTopology, ContourBuffer contour) {
+    final int count = curves.size();
+    int[] edgeStarts = new int[count + 1];
+    int points = 0;
+    for (int i = 0; i < count; i++) {
+      edgeStarts[i + 1] = edgeStarts[i] + curves.get(i).getOrder();
+      points += curves.get(i).getOrder() + 1;
+    }
+    contour.ensureCapacity(6 * count + 8, 2 * points + 8 * count + 24);
+    contour.beginContour();
+
+    // Compute the edges of every curve once.
+    double[] edges = new double[edgeStarts[count] * EDGE_STRIDE];
+    double[] target = new double[2];
+    for (int i = 0; i < count; i++) {
+      BezierCurve curve = curves.get(i);
+      Vector2D offsetVector = curve.getOffsetVector();
+      Vector2D endOffsetVector = curve.getEndOffsetVector();
+      PenModel.Table table = pen.getTable(contrast, offsetVector);
+      int order = curve.getOrder();
+      for (int j = 0; j < order; j++) {
+        int edge = (edgeStarts[i] + j) * EDGE_STRIDE;
+        double dx = curve.getX(j + 1) - curve.getX(j);
+        double dy = curve.getY(j + 1) - curve.getY(j);
+        double inverseNorm = 1 / norm(dx, dy);
+        edges[edge + EDGE_UNIT_X] = inverseNorm * dx;
+        edges[edge + EDGE_UNIT_Y] = inverseNorm * dy;
+        if (endOffsetVector == null) {
+          table.offsetTarget(dy, -dx, target);
+          edges[edge + EDGE_START_TARGET_X] = target[0];
+          edges[edge + EDGE_START_TARGET_Y] = target[1];
+          edges[edge + EDGE_END_TARGET_X] = target[0];
+          edges[edge + EDGE_END_TARGET_Y] = target[1];
+        } else {
+          pen.getTable(contrast,
+              interpolate(offsetVector.getX(), endOffsetVector.getX(), j, order),
+              interpolate(offsetVector.getY(), endOffsetVector.getY(), j, order))
+              .offsetTarget(dy, -dx, target);
+          edges[edge + EDGE_START_TARGET_X] = target[0];
+          edges[edge + EDGE_START_TARGET_Y] = target[1];
+          pen.getTable(contrast,
+              interpolate(offsetVector.getX(), endOffsetVector.getX(), j + 1, order),
+              interpolate(offsetVector.getY(), endOffsetVector.getY(), j + 1, order))
+              .offsetTarget(dy, -dx, target);
+          edges[edge + EDGE_END_TARGET_X] = target[0];
+          edges[edge + EDGE_END_TARGET_Y] = target[1];
+        }
+      }
+    }
 
-    // Check closeness
-    boolean isClosed = firstBaseCurve.getPoint(0)
-        .equals(lastBaseCurve.getPoint(lastBaseCurve.getOrder()));
+    BezierCurve firstBaseCurve = curves.get(0);
+    BezierCurve lastBaseCurve = curves.get(count - 1);
+    boolean isClosed = equals(firstBaseCurve.getX(0), firstBaseCurve.getY(0),
+        lastBaseCurve.getX(lastBaseCurve.getOrder()), lastBaseCurve.getY(lastBaseCurve.getOrder()));
 
     // Upper contour filling
-    fillHalfContour(contourUpper, curves, contour, delta, contrast);
+    double[] point = new double[2];
+    int firstUpperSegment = -1;
+    int lastUpperSegment = -1;
+    for (int i = 0; i < count; i++) {
+      BezierCurve curve = curves.get(i);
+      int firstSegment = contour.getSegmentCount();
+      contour.setOffsetVectors(curve.getOffsetVector(), curve.getEndOffsetVector());
+      lastUpperSegment = addOffsetCurve(curve, edges, edgeStarts[i], delta, false,
+          adaptive, fixedTopology, contrast, pen, contour, point);
+      if (i == 0) {
+        firstUpperSegment = firstSegment;
+      }
+      if (i < count - 1) {
+        BezierCurve nextCurve = curves.get(i + 1);
+        int lastEdge = (edgeStarts[i + 1] - 1) * EDGE_STRIDE;
+        int nextEdge = edgeStarts[i + 1] * EDGE_STRIDE;
+        double targetX = edges[lastEdge + EDGE_END_TARGET_X];
+        double targetY = edges[lastEdge + EDGE_END_TARGET_Y];
+        double unitX = edges[lastEdge + EDGE_UNIT_X];
+        double unitY = edges[lastEdge + EDGE_UNIT_Y];
+        int order = curve.getOrder();
+        if (nextCurve.getX(0) != curve.getX(order) || nextCurve.getY(0) != curve.getY(order)) {
+          // The next curve is not connected, so the joint edge differs from the last edge.
+          double dx = nextCurve.getX(0) - curve.getX(order - 1);
+          double dy = nextCurve.getY(0) - curve.getY(order - 1);
+          Vector2D offsetVector = curve.getEndOffsetVector() == null
+              ? curve.getOffsetVector() : curve.getEndOffsetVector();
+          pen.getTable(contrast, offsetVector).offsetTarget(dy, -dx, target);
+          targetX = target[0];
+          targetY = target[1];
+          double inverseNorm = 1 / norm(dx, dy);
+          unitX = inverseNorm * dx;
+          unitY = inverseNorm * dy;
+        }
+        int endOrder = contour.getOrder(lastUpperSegment);
+        addJoint(contour, contour.getX(lastUpperSegment, endOrder),
+            contour.getY(lastUpperSegment, endOrder),
+            nextCurve.getX(0) + delta * edges[nextEdge + EDGE_START_TARGET_X],
+            nextCurve.getY(0) + delta * edges[nextEdge + EDGE_START_TARGET_Y],
+            nextCurve.getX(0), nextCurve.getY(0), targetX, targetY, unitX, unitY,
+            edges[nextEdge + EDGE_START_TARGET_X], edges[nextEdge + EDGE_START_TARGET_Y],
+            edges[nextEdge + EDGE_UNIT_X], edges[nextEdge + EDGE_UNIT_Y], delta, fixedTopology,
+            point);
+      }
+    }
 
     // Connect upper to lower
+    int lastOrder = lastBaseCurve.getOrder();
+    contour.setOffsetVectors(lastBaseCurve.getOffsetVector(), null);
+    double lowerStartShiftX = 0;
+    double lowerStartShiftY = 0;
     if (isClosed) {
-      joinTwoHalfContours(lastBasePoint, lastPrevPoint, firstNextPoint, contour, delta, contrast,
-          lastBaseCurve.getOffsetVector(), firstBaseCurve.getOffsetVector());
+      joinTwoHalfContours(contour, lastBaseCurve.getX(lastOrder), lastBaseCurve.getY(lastOrder),
+          lastBaseCurve.getX(lastOrder - 1), lastBaseCurve.getY(lastOrder - 1),
+          firstBaseCurve.getX(1), firstBaseCurve.getY(1), delta,
+          pen.getTable(contrast, lastBaseCurve.getOffsetVector()),
+          pen.getTable(contrast, firstBaseCurve.getOffsetVector()), target, point);
+    } else if (lastBaseCurve.getCutoffEndVector() == null) {
+      joinTwoHalfContours(contour, lastBaseCurve.getX(lastOrder), lastBaseCurve.getY(lastOrder),
+          lastBaseCurve.getX(lastOrder - 1), lastBaseCurve.getY(lastOrder - 1),
+          delta, roundness, pen.getTable(contrast, lastBaseCurve.getOffsetVector()), target);
     } else {
-      if (lastBaseCurve.getCutoffEndVector() == null) {
-        joinTwoHalfContours(lastBasePoint, lastPrevPoint, contour, delta, roundness, contrast,
-            lastBaseCurve.getOffsetVector());
-      } else {
-        BezierCurve positiveCurve = contourUpper.get(contourUpper.size() - 1);
-        BezierCurve negativeCurve = contourLower.get(0);
-        Vector2D diffVector = joinTwoHalfContours(lastBasePoint, lastPrevPoint, contour, delta,
-            contrast, lastBaseCurve.getOffsetVector(), lastBaseCurve.getCutoffEndVector());
-        positiveCurve.setEndPoint(positiveCurve.getEndPoint().add(diffVector));
-        negativeCurve.setStartPoint(negativeCurve.getStartPoint().add(-1, diffVector));
-      }
+      joinTwoHalfContours(contour, lastBaseCurve.getX(lastOrder), lastBaseCurve.getY(lastOrder),
+          lastBaseCurve.getX(lastOrder - 1), lastBaseCurve.getY(lastOrder - 1),
+          delta, pen.getTable(contrast, lastBaseCurve.getOffsetVector()),
+          lastBaseCurve.getCutoffEndVector(), target, point);
+      contour.translatePoint(lastUpperSegment, contour.getOrder(lastUpperSegment),
+          point[0], point[1]);
+      lowerStartShiftX = -1 * point[0];
+      lowerStartShiftY = -1 * point[1];
     }
 
-
     // Lower contour filling
-    ArrayList<BezierCurve> reverseBezierCurves = new ArrayList<>();
-    for (BezierCurve curve : curves) {
-      reverseBezierCurves.add(curve.reverse());
+    int lastLowerSegment = -1;
+    for (int i = count - 1; i >= 0; i--) {
+      BezierCurve curve = curves.get(i);
+      int firstSegment = contour.getSegmentCount();
+      // Reversed curves lose their end offset vectors.
+      contour.setOffsetVectors(curve.getOffsetVector(), null);
+      lastLowerSegment = addOffsetCurve(curve, edges, edgeStarts[i], -delta, true,
+          adaptive, fixedTopology, contrast, pen, contour, point);
+      if (i == count - 1) {
+        contour.translatePoint(firstSegment, 0, lowerStartShiftX, lowerStartShiftY);
+      }
+      if (i > 0) {
+        BezierCurve nextCurve = curves.get(i - 1);
+        int firstEdge = edgeStarts[i] * EDGE_STRIDE;
+        int nextEdge = (edgeStarts[i] - 1) * EDGE_STRIDE;
+        int order = nextCurve.getOrder();
+        double startTargetX = -edges[firstEdge + EDGE_START_TARGET_X];
+        double startTargetY = -edges[firstEdge + EDGE_START_TARGET_Y];
+        double startUnitX = -edges[firstEdge + EDGE_UNIT_X];
+        double startUnitY = -edges[firstEdge + EDGE_UNIT_Y];
+        if (nextCurve.getX(order) != curve.getX(0) || nextCurve.getY(order) != curve.getY(0)) {
+          double dx = nextCurve.getX(order) - curve.getX(1);
+          double dy = nextCurve.getY(order) - curve.getY(1);
+          pen.getTable(contrast, curve.getOffsetVector()).offsetTarget(dy, -dx, target);
+          startTargetX = target[0];
+          startTargetY = target[1];
+          double inverseNorm = 1 / norm(dx, dy);
+          startUnitX = inverseNorm * dx;
+          startUnitY = inverseNorm * dy;
+        }
+        // Reversed curves lose their end offset vectors, thus the start one is used.
+        double endTargetX = -edges[nextEdge + EDGE_END_TARGET_X];
+        double endTargetY = -edges[nextEdge + EDGE_END_TARGET_Y];
+        if (nextCurve.getEndOffsetVector() != null) {
+          pen.getTable(contrast, nextCurve.getOffsetVector()).offsetTarget(
+              nextCurve.getY(order) - nextCurve.getY(order - 1),
+              -(nextCurve.getX(order) - nextCurve.getX(order - 1)), target);
+          endTargetX = -target[0];
+          endTargetY = -target[1];
+        }
+        int endOrder = contour.getOrder(lastLowerSegment);
+        addJoint(contour, contour.getX(lastLowerSegment, endOrder),
+            contour.getY(lastLowerSegment, endOrder),
+            nextCurve.getX(order) + -delta * edges[nextEdge + EDGE_END_TARGET_X],
+            nextCurve.getY(order) + -delta * edges[nextEdge + EDGE_END_TARGET_Y],
+            nextCurve.getX(order), nextCurve.getY(order), startTargetX, startTargetY,
+            startUnitX, startUnitY, endTargetX, endTargetY,
+            -edges[nextEdge + EDGE_UNIT_X], -edges[nextEdge + EDGE_UNIT_Y], delta, fixedTopology,
+            point);
+      }
     }
-    Collections.reverse(reverseBezierCurves);
-    fillHalfContour(contourLower, reverseBezierCurves, contour, delta, contrast);
 
     // Connect lower to upper
+    contour.setOffsetVectors(firstBaseCurve.getOffsetVector(), null);
     if (isClosed) {
-      joinTwoHalfContours(firstBasePoint, firstNextPoint, lastPrevPoint, contour, delta, contrast,
-          firstBaseCurve.getOffsetVector(), lastBaseCurve.getOffsetVector());
+      joinTwoHalfContours(contour, firstBaseCurve.getX(0), firstBaseCurve.getY(0),
+          firstBaseCurve.getX(1), firstBaseCurve.getY(1),
+          lastBaseCurve.getX(lastOrder - 1), lastBaseCurve.getY(lastOrder - 1), delta,
+          pen.getTable(contrast, firstBaseCurve.getOffsetVector()),
+          pen.getTable(contrast, lastBaseCurve.getOffsetVector()), target, point);
+    } else if (firstBaseCurve.getCutoffStartVector() == null) {
+      joinTwoHalfContours(contour, firstBaseCurve.getX(0), firstBaseCurve.getY(0),
+          firstBaseCurve.getX(1), firstBaseCurve.getY(1),
+          delta, roundness, pen.getTable(contrast, firstBaseCurve.getOffsetVector()), target);
     } else {
-      if (firstBaseCurve.getCutoffStartVector() == null) {
-        joinTwoHalfContours(firstBasePoint, firstNextPoint, contour, delta, roundness, contrast,
-            firstBaseCurve.getOffsetVector());
-      } else {
-        BezierCurve positiveCurve = contourLower.get(contourUpper.size() - 1);
-        BezierCurve negativeCurve = contourUpper.get(0);
-        Vector2D diffVector = joinTwoHalfContours(firstBasePoint, firstNextPoint, contour, delta,
-            contrast, firstBaseCurve.getOffsetVector(), firstBaseCurve.getCutoffStartVector());
-        positiveCurve.setEndPoint(positiveCurve.getEndPoint().add(diffVector));
-        negativeCurve.setStartPoint(negativeCurve.getStartPoint().add(-1, diffVector));
-      }
+      joinTwoHalfContours(contour, firstBaseCurve.getX(0), firstBaseCurve.getY(0),
+          firstBaseCurve.getX(1), firstBaseCurve.getY(1),
+          delta, pen.getTable(contrast, firstBaseCurve.getOffsetVector()),
+          firstBaseCurve.getCutoffStartVector(), target, point);
+      contour.translatePoint(lastLowerSegment, contour.getOrder(lastLowerSegment),
+          point[0], point[1]);
+      contour.translatePoint(firstUpperSegment, 0, -1 * point[0], -1 * point[1]);
     }
 
-    return contour;
+    contour.endContour();
+    contour.setOffsetVectors(null, null);
   }
 
-  private static void fillHalfContour(ArrayList<BezierCurve> halfContour,
-                                      ArrayList<BezierCurve> baseCurves,
-                                      ArrayList<BezierCurve> contour,
-                                      double delta, double contrast) {
-    for (int i = 0; i < halfContour.size(); i++) {
-      BezierCurve currentUpperCurve = halfContour.get(i);
-      contour.add(currentUpperCurve);
-      if (i == halfContour.size() - 1) {
-        continue;
+  /**
+   * Appends one side of the offset of the curve, in reverse order if needed, and returns
+   * the index of the last appended segment.
+   */
+  private static int addOffsetCurve(BezierCurve curve, double[] edges, int edgeStart,
+                                    double delta, boolean reverse, boolean adaptive,
+                                    boolean fixedTopology, double contrast, PenModel pen,
+                                    ContourBuffer contour, double[] point) {
+    int order = curve.getOrder();
+    if (adaptive || curve.getOffsetMethod() == BezierCurveOffsetMethodType.Adaptive) {
+      int startEdge = edgeStart * EDGE_STRIDE;
+      int endEdge = (edgeStart + order - 1) * EDGE_STRIDE;
+      return OffsetAdaptive.addOffsetCurve(curve, delta, contrast, pen,
+          curve.getX(0) + delta * edges[startEdge + EDGE_START_TARGET_X],
+          curve.getY(0) + delta * edges[startEdge + EDGE_START_TARGET_Y],
+          curve.getX(order) + delta * edges[endEdge + EDGE_END_TARGET_X],
+          curve.getY(order) + delta * edges[endEdge + EDGE_END_TARGET_Y],
+          reverse, fixedTopology, contour);
+    }
+    int segment = contour.addSegment(order);
+    for (int j = 0; j <= order; j++) {
+      double x = curve.getX(j);
+      double y = curve.getY(j);
+      if (j == 0) {
+        int edge = edgeStart * EDGE_STRIDE;
+        point[0] = x + delta * edges[edge + EDGE_START_TARGET_X];
+        point[1] = y + delta * edges[edge + EDGE_START_TARGET_Y];
+      } else if (j == order) {
+        int edge = (edgeStart + j - 1) * EDGE_STRIDE;
+        point[0] = x + delta * edges[edge + EDGE_END_TARGET_X];
+        point[1] = y + delta * edges[edge + EDGE_END_TARGET_Y];
+      } else {
+        int prevEdge = (edgeStart + j - 1) * EDGE_STRIDE;
+        int nextEdge = (edgeStart + j) * EDGE_STRIDE;
+        intersect(x, y, edges[prevEdge + EDGE_END_TARGET_X], edges[prevEdge + EDGE_END_TARGET_Y],
+            edges[prevEdge + EDGE_UNIT_X], edges[prevEdge + EDGE_UNIT_Y],
+            edges[nextEdge + EDGE_START_TARGET_X], edges[nextEdge + EDGE_START_TARGET_Y],
+            edges[nextEdge + EDGE_UNIT_X], edges[nextEdge + EDGE_UNIT_Y], delta, point);
       }
+      contour.setPoint(segment, reverse ? order - j : j, point[0], point[1]);
+    }
+    return segment;
+  }
 
-      BezierCurve currentBaseCurve = baseCurves.get(i);
-      BezierCurve nextBaseCurve = baseCurves.get(i + 1);
-      BezierCurve nextUpperCurve = halfContour.get(i + 1);
+  /**
+   * Appends the lines connecting the end of a side of a curve to the start of the same side of
+   * the next curve through the offset of their common point. Lines collapsing to a point are
+   * left out unless the topology is fixed.
+   */
+  private static void addJoint(ContourBuffer contour, double endX, double endY,
+                               double startX, double startY, double baseX, double baseY,
+                               double prevTargetX, double prevTargetY,
+                               double prevUnitX, double prevUnitY,
+                               double nextTargetX, double nextTargetY,
+                               double nextUnitX, double nextUnitY,
+                               double delta, boolean fixedTopology, double[] point) {
+    intersect(baseX, baseY, prevTargetX, prevTargetY, prevUnitX, prevUnitY,
+        nextTargetX, nextTargetY, nextUnitX, nextUnitY, delta, point);
+    double joiningX = point[0];
+    double joiningY = point[1];
+    if (fixedTopology || !equals(endX, endY, joiningX, joiningY)) {
+      contour.addLine(endX, endY, joiningX, joiningY);
+    }
+    if (fixedTopology || !equals(joiningX, joiningY, startX, startY)) {
+      contour.addLine(joiningX, joiningY, startX, startY);
+    }
+  }
 
-      Vector2D offsetVector = currentBaseCurve.getEndOffsetVector();
-      if (offsetVector == null) {
-        offsetVector = currentBaseCurve.getOffsetVector();
-      }
+  /**
+   * Appends a round cap.
+   */
+  private static void joinTwoHalfContours(ContourBuffer contour, double baseX, double baseY,
+                                          double prevX, double prevY,
+                                          double delta, double roundness, PenModel.Table table,
+                                          double[] target) {
+    double dx = baseX - prevX;
+    double dy = baseY - prevY;
+    double inverseNorm = 1 / norm(dx, dy);
+    double unitX = inverseNorm * dx;
+    double unitY = inverseNorm * dy;
+    table.offsetTarget(unitX, unitY, target);
+    double deltaRatio = target[0] * unitX + target[1] * unitY;
+    double joiningX = baseX + delta * deltaRatio * unitX;
+    double joiningY = baseY + delta * deltaRatio * unitY;
+
+    // Offset target of the direction from the joining point to the base point.
+    table.offsetTarget(baseY - joiningY, -(baseX - joiningX), target);
+    double targetX = target[0];
+    double targetY = target[1];
+    double[] joiningPoints = {
+        baseX + -delta * targetX, baseY + -delta * targetY,
+        joiningX + delta * -targetX, joiningY + delta * -targetY,
+        joiningX + -delta * -targetX, joiningY + -delta * -targetY,
+        baseX + delta * targetX, baseY + delta * targetY
+    };
 
-      Vector2D joiningPoint = offsetPoint(nextBaseCurve.getPoint(0),
-          currentBaseCurve.getPoint(currentBaseCurve.getOrder() - 1),
-          nextBaseCurve.getPoint(1), delta, contrast, offsetVector,
-          nextBaseCurve.getOffsetVector());
+    double[] roundPoints = new double[8];
+    roundJoining(joiningPoints, 0, 2, 4, delta, roundness, roundPoints, 0);
+    roundJoining(joiningPoints, 6, 4, 2, delta, roundness, roundPoints, 4);
+
+    contour.addLine(joiningPoints[0], joiningPoints[1], roundPoints[0], roundPoints[1]);
+    contour.addQuadratic(roundPoints[0], roundPoints[1], joiningPoints[2], joiningPoints[3],
+        roundPoints[2], roundPoints[3]);
+    contour.addLine(roundPoints[2], roundPoints[3], roundPoints[6], roundPoints[7]);
+    contour.addQuadratic(roundPoints[6], roundPoints[7], joiningPoints[4], joiningPoints[5],
+        roundPoints[4], roundPoints[5]);
+    contour.addLine(roundPoints[4], roundPoints[5], joiningPoints[6], joiningPoints[7]);
+  }
 
-      Vector2D[] joiningPoints = {currentUpperCurve.getPoint(currentUpperCurve.getOrder()),
-          joiningPoint, nextUpperCurve.getPoint(0)};
+  /**
+   * Appends a cap cut off along the cutoff vector, and returns the difference vector to move
+   * the ends of both sides by.
+   */
+  private static void joinTwoHalfContours(ContourBuffer contour, double baseX, double baseY,
+                                          double prevX, double prevY,
+                                          double delta, PenModel.Table table,
+                                          Vector2D cutoffVector,
+                                          double[] target, double[] diff) {
+    double dx = baseX - prevX;
+    double dy = baseY - prevY;
+    double inverseNorm = 1 / norm(dx, dy);
+    double directionX = inverseNorm * dx;
+    double directionY = inverseNorm * dy;
+    table.offsetTarget(-directionY, directionX, target);
+    double offsetLength = delta * Math.sqrt(target[0] * target[0] + target[1] * target[1]);
+    double distance = offsetLength
+        * (directionX * cutoffVector.getY() - directionY * cutoffVector.getX())
+        / (directionX * cutoffVector.getX() + directionY * cutoffVector.getY());
+
+    table.offsetTarget(dy, -dx, target);
+    double upperX = baseX + delta * target[0];
+    double upperY = baseY + delta * target[1];
+    double lowerX = baseX + -delta * target[0];
+    double lowerY = baseY + -delta * target[1];
+    contour.addLine(upperX + distance * directionX, upperY + distance * directionY,
+        lowerX + -distance * directionX, lowerY + -distance * directionY);
+    diff[0] = distance * directionX;
+    diff[1] = distance * directionY;
+  }
 
-      if (!joiningPoints[0].equals(joiningPoints[1])) {
-        contour.add(new BezierCurve.Builder()
-            .setPoints(new Vector2D[]{joiningPoints[0], joiningPoints[1]})
-            .setOffsetVector(currentBaseCurve.getOffsetVector())
-            .setEndOffsetVector(currentBaseCurve.getEndOffsetVector())
-            .build());
-      }
-      if (!joiningPoints[1].equals(joiningPoints[2])) {
-        contour.add(new BezierCurve.Builder()
-            .setPoints(new Vector2D[]{joiningPoints[1], joiningPoints[2]})
-            .setOffsetVector(currentBaseCurve.getOffsetVector())
-            .setEndOffsetVector(currentBaseCurve.getEndOffsetVector())
-            .build());
-      }
+  /**
+   * Appends lines crossing over the joint of a closed skeleton.
+   */
+  private static void joinTwoHalfContours(ContourBuffer contour, double baseX, double baseY,
+                                          double prevX, double prevY,
+                                          double oppositePrevX, double oppositePrevY,
+                                          double delta, PenModel.Table baseTable,
+                                          PenModel.Table nextTable,
+                                          double[] target, double[] point) {
+    double prevDx = baseX - prevX;
+    double prevDy = baseY - prevY;
+    double nextDx = oppositePrevX - baseX;
+    double nextDy = oppositePrevY - baseY;
+    double prevInverseNorm = 1 / norm(prevDx, prevDy);
+    double nextInverseNorm = 1 / norm(nextDx, nextDy);
+    baseTable.offsetTarget(prevDy, -prevDx, target);
+    double prevTargetX = target[0];
+    double prevTargetY = target[1];
+    nextTable.offsetTarget(nextDy, -nextDx, target);
+    double nextTargetX = target[0];
+    double nextTargetY = target[1];
+
+    double[] joiningPoints = new double[8];
+    joiningPoints[0] = baseX + delta * prevTargetX;
+    joiningPoints[1] = baseY + delta * prevTargetY;
+    intersect(baseX, baseY, prevTargetX, prevTargetY,
+        prevInverseNorm * prevDx, prevInverseNorm * prevDy, nextTargetX, nextTargetY,
+        nextInverseNorm * nextDx, nextInverseNorm * nextDy, delta, point);
+    joiningPoints[2] = point[0];
+    joiningPoints[3] = point[1];
+    intersect(baseX, baseY, prevTargetX, prevTargetY,
+        prevInverseNorm * prevDx, prevInverseNorm * prevDy, nextTargetX, nextTargetY,
+        nextInverseNorm * nextDx, nextInverseNorm * nextDy, -delta, point);
+    joiningPoints[4] = point[0];
+    joiningPoints[5] = point[1];
+    joiningPoints[6] = baseX + -delta * prevTargetX;
+    joiningPoints[7] = baseY + -delta * prevTargetY;
+
+    for (int i = 0; i < 6; i += 2) {
+      contour.addLine(joiningPoints[i], joiningPoints[i + 1],
+          joiningPoints[i + 2], joiningPoints[i + 3]);
     }
   }
 
-  private static void joinTwoHalfContours(Vector2D basePoint, Vector2D prevPoint,
-                                          ArrayList<BezierCurve> contour,
-                                          double delta, double roundness, double contrast,
-                                          Vector2D offsetVector) {
-    Vector2D baseUnitVector = basePoint.subtract(prevPoint).normalize();
-    double deltaRatio = getOffsetTargetVector(baseUnitVector, contrast, offsetVector)
-        .dotProduct(baseUnitVector);
-    Vector2D joiningPoint = basePoint.add(delta * deltaRatio, baseUnitVector);
-    Vector2D[] joiningPoints = {
-        offsetPoint(basePoint, null, joiningPoint, delta, contrast, offsetVector),
-        offsetPoint(joiningPoint, basePoint, null, delta, contrast, offsetVector),
-        offsetPoint(joiningPoint, basePoint, null, -delta, contrast, offsetVector),
-        offsetPoint(basePoint, null, joiningPoint, -delta, contrast, offsetVector),
-    };
-
-    Vector2D[][] roundPoints = {
-        roundJoining(joiningPoints[0], joiningPoints[1], joiningPoints[2], delta, roundness),
-        roundJoining(joiningPoints[3], joiningPoints[2], joiningPoints[1], delta, roundness)
-    };
-
-    contour.add(new BezierCurve.Builder()
-        .setPoints(new Vector2D[] {joiningPoints[0], roundPoints[0][0]})
-        .setOffsetVector(offsetVector)
-        .build());
-    contour.add(new BezierCurve.Builder()
-        .setPoints(new Vector2D[] {roundPoints[0][0], joiningPoints[1],roundPoints[0][1]})
-        .setOffsetVector(offsetVector)
-        .build());
-    contour.add(new BezierCurve.Builder()
-        .setPoints(new Vector2D[] {roundPoints[0][1], roundPoints[1][1]})
-        .setOffsetVector(offsetVector)
-        .build());
-    contour.add(new BezierCurve.Builder()
-        .setPoints(new Vector2D[] {roundPoints[1][1], joiningPoints[2], roundPoints[1][0]})
-        .setOffsetVector(offsetVector)
-        .build());
-    contour.add(new BezierCurve.Builder()
-        .setPoints(new Vector2D[] {roundPoints[1][0], joiningPoints[3]})
-        .setOffsetVector(offsetVector)
-        .build());
+  private static void roundJoining(double[] joiningPoints, int full, int joining, int half,
+                                   double delta, double roundness,
+                                   double[] roundPoints, int offset) {
+    double fullBaseX = joiningPoints[full] - joiningPoints[joining];
+    double fullBaseY = joiningPoints[full + 1] - joiningPoints[joining + 1];
+    double halfBaseX = joiningPoints[half] - joiningPoints[joining];
+    double halfBaseY = joiningPoints[half + 1] - joiningPoints[joining + 1];
+    double fullNorm = norm(fullBaseX, fullBaseY);
+    double halfNorm = norm(halfBaseX, halfBaseY);
+    double length = Math.min(Math.min(delta * roundness, fullNorm), halfNorm / 2);
+    double fullInverseNorm = 1 / nonZero(fullNorm);
+    double halfInverseNorm = 1 / nonZero(halfNorm);
+    roundPoints[offset] = joiningPoints[joining] + length * (fullInverseNorm * fullBaseX);
+    roundPoints[offset + 1] = joiningPoints[joining + 1] + length * (fullInverseNorm * fullBaseY);
+    roundPoints[offset + 2] = joiningPoints[joining] + length * (halfInverseNorm * halfBaseX);
+    roundPoints[offset + 3] = joiningPoints[joining + 1] + length * (halfInverseNorm * halfBaseY);
   }
 
-  private static Vector2D joinTwoHalfContours(Vector2D basePoint, Vector2D prevPoint,
-                                          ArrayList<BezierCurve> contour,
-                                          double delta, double contrast,
-                                          Vector2D offsetVector, Vector2D cutoffVector) {
-    Vector2D direction = basePoint.subtract(prevPoint).normalize();
-    double offsetLength = delta * getOffsetTargetVector(
-        new Vector2D(-direction.getY(), direction.getX()), contrast, offsetVector).getNorm();
-    double distance = offsetLength
-        * (direction.getX() * cutoffVector.getY() - direction.getY() * cutoffVector.getX())
-        / direction.dotProduct(cutoffVector);
-    contour.add(new BezierCurve.Builder()
-        .setPoints(new Vector2D[] {
-            offsetPoint(basePoint, null, prevPoint, -delta, contrast, offsetVector)
-                .add(distance, direction),
-            offsetPoint(basePoint, null, prevPoint, delta, contrast, offsetVector)
-                .add(-distance, direction)
-        })
-        .setOffsetVector(offsetVector)
-        .build());
-    return direction.scalarMultiply(distance);
+  /**
+   * Computes the intersection of two offset lines of the edges meeting at the base point.
+   *
+   * <p>Each line passes the base point moved by delta times its offset target vector, and runs
+   * along its unit vector. If the edges are nearly parallel, the midpoint of the moved points is
+   * used instead.
+   */
+  private static void intersect(double baseX, double baseY,
+                                double prevTargetX, double prevTargetY,
+                                double prevUnitX, double prevUnitY,
+                                double nextTargetX, double nextTargetY,
+                                double nextUnitX, double nextUnitY,
+                                double delta, double[] point) {
+    double x1 = baseX + delta * prevTargetX;
+    double y1 = baseY + delta * prevTargetY;
+    double x2 = baseX + delta * nextTargetX;
+    double y2 = baseY + delta * nextTargetY;
+
+    double cross = prevUnitX * nextUnitY - prevUnitY * nextUnitX;
+    if (Math.abs(cross) < CURVE_TOLERANCE) {
+      point[0] = .5 * (x1 + x2);
+      point[1] = .5 * (y1 + y2);
+      return;
+    }
+    double factor = (-x1 * nextUnitY
+        + y1 * nextUnitX
+        + x2 * nextUnitY
+        - y2 * nextUnitX) / cross;
+    point[0] = x1 + factor * prevUnitX;
+    point[1] = y1 + factor * prevUnitY;
   }
 
-  private static void joinTwoHalfContours(Vector2D basePoint, Vector2D prevPoint,
-                                          Vector2D oppositePrevPoint,
-                                          ArrayList<BezierCurve> contour,
-                                          double delta, double contrast,
-                                          Vector2D baseOffsetVector, Vector2D nextOffsetVector) {
-    Vector2D[] joiningPoints = {
-        offsetPoint(basePoint, prevPoint, null, delta, contrast, baseOffsetVector),
-        offsetPoint(basePoint, prevPoint, oppositePrevPoint, delta, contrast,
-            baseOffsetVector, nextOffsetVector),
-        offsetPoint(basePoint, prevPoint, oppositePrevPoint, -delta, contrast,
-            baseOffsetVector, nextOffsetVector),
-        offsetPoint(basePoint, prevPoint, null, -delta, contrast, baseOffsetVector)
-    };
+  private static double interpolate(double start, double end, int index, int order) {
+    return (order - index) / (double) order * start + index / (double) order * end;
+  }
 
-    contour.add(new BezierCurve.Builder()
-        .setPoints(new Vector2D[] {joiningPoints[0], joiningPoints[1]})
-        .setOffsetVector(baseOffsetVector)
-        .build());
-    contour.add(new BezierCurve.Builder()
-        .setPoints(new Vector2D[] {joiningPoints[1], joiningPoints[2]})
-        .setOffsetVector(baseOffsetVector)
-        .build());
-    contour.add(new BezierCurve.Builder()
-        .setPoints(new Vector2D[] {joiningPoints[2], joiningPoints[3]})
-        .setOffsetVector(baseOffsetVector)
-        .build());
+  private static boolean equals(double x1, double y1, double x2, double y2) {
+    boolean isNaN1 = Double.isNaN(x1) || Double.isNaN(y1);
+    boolean isNaN2 = Double.isNaN(x2) || Double.isNaN(y2);
+    if (isNaN1 || isNaN2) {
+      return isNaN1 && isNaN2;
+    }
+    return x1 == x2 && y1 == y2;
   }
 
-  private static Vector2D[] roundJoining(Vector2D fullPoint, Vector2D joiningPoint,
-                                         Vector2D halfPoint, double delta, double roundness) {
-    Vector2D fullBaseVector = fullPoint.subtract(joiningPoint);
-    Vector2D halfBaseVector = halfPoint.subtract(joiningPoint);
-    double length = Math.min(Math.min(delta * roundness, fullBaseVector.getNorm()),
-        halfBaseVector.getNorm() / 2);
-    return new Vector2D[] {
-        joiningPoint.add(length, fullBaseVector.normalize()),
-        joiningPoint.add(length, halfBaseVector.normalize())
-    };
+  private static double norm(double x, double y) {
+    return nonZero(Math.sqrt(x * x + y * y));
   }
 
-  private static Vector2D offsetPoint(Vector2D currentPoint, Vector2D prevPoint,
-                                      Vector2D nextPoint, double delta, double contrast,
-                                      Vector2D offsetVector) {
-    return offsetPoint(currentPoint, prevPoint, nextPoint, delta, contrast,
-        offsetVector, offsetVector);
+  private static double nonZero(double norm) {
+    if (norm == 0) {
+      throw new MathArithmeticException(LocalizedFormats.CANNOT_NORMALIZE_A_ZERO_NORM_VECTOR);
+    }
+    return norm;
   }
 
   private static Vector2D offsetPoint(Vector2D currentPoint, Vector2D prevPoint,
-                                      Vector2D nextPoint, double delta, double contrast,
-                                      Vector2D prevOffsetVector, Vector2D nextOffsetVector) {
+                                      Vector2D nextPoint, double delta, PenModel.Table table) {
     if (nextPoint == null) {
-      return offsetPoint(currentPoint, prevPoint, delta, contrast, prevOffsetVector);
+      return offsetPoint(currentPoint, prevPoint, delta, table);
     }
     if (prevPoint == null) {
-      return offsetPoint(currentPoint, nextPoint, -delta, contrast, nextOffsetVector);
+      return offsetPoint(currentPoint, nextPoint, -delta, table);
     }
 
-    Vector2D point1 = offsetPoint(currentPoint, prevPoint, delta, contrast, prevOffsetVector);
-    Vector2D point2 = offsetPoint(currentPoint, nextPoint, -delta, contrast, nextOffsetVector);
+    Vector2D point1 = offsetPoint(currentPoint, prevPoint, delta, table);
+    Vector2D point2 = offsetPoint(currentPoint, nextPoint, -delta, table);
 
     Vector2D unit1 = currentPoint.subtract(prevPoint).normalize();
     Vector2D unit2 = nextPoint.subtract(currentPoint).normalize();
@@ -305,20 +626,9 @@ class OffsetTillerHanson {
   }
 
   private static Vector2D offsetPoint(Vector2D currentPoint, Vector2D prevPoint,
-                                      double delta, double contrast, Vector2D offsetVector) {
+                                      double delta, PenModel.Table table) {
     Vector2D vector = currentPoint.subtract(prevPoint);
     Vector2D perpendicularVector = new Vector2D(vector.getY(), -vector.getX());
-    Vector2D targetVector = getOffsetTargetVector(perpendicularVector, contrast, offsetVector);
-    return currentPoint.add(delta, targetVector);
-  }
-
-  private static Vector2D getOffsetTargetVector(Vector2D vector, double contrast,
-                                                Vector2D offsetVector) {
-    Vector2D unitVector = vector.normalize();
-    double xRatio = 1 / ((contrast > 1 ? 1 : (2 / contrast - 1)) * offsetVector.getX());
-    double yRatio = 1 / ((contrast > 1 ? contrast / (2 - contrast) : 1) * offsetVector.getY());
-    double length = Math.sqrt(1 / ((unitVector.getX() * unitVector.getX()) / (xRatio * xRatio)
-        + (unitVector.getY() * unitVector.getY()) / (yRatio * yRatio)));
-    return new Vector2D(length, unitVector);
+    return currentPoint.add(delta, table.offsetTarget(perpendicularVector));
   }
 }
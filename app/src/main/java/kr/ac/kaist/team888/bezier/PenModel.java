@@ -0,0 +1,198 @@
+package kr.ac.kaist.team888.bezier;
+
+import org.apache.commons.math3.exception.MathArithmeticException;
+import org.apache.commons.math3.exception.util.LocalizedFormats;
+import org.apache.commons.math3.geometry.euclidean.twod.Vector2D;
+
+/**
+ * Shape of a pen (nib) which strokes skeletons.
+ *
+ * <p>A pen is a closed shape around its center, given by the radius of its boundary for every
+ * direction. Stroking moves the offset curves along the radius vector of the pen in
+ * the perpendicular direction of the skeleton. Pens are assumed to be centrally symmetric
+ * since both sides of a skeleton are offset by the same vector in opposite directions.
+ *
+ * <p>The pen is stretched along each axis by the offset vector of the curve and the contrast,
+ * so that the ellipse pen reproduces the original elliptical offsetting. Since stretching is
+ * linear, radii of the unit shape are sampled once per pen into a table indexed by
+ * a pseudo-angle of the direction, and a {@link Table} for each pair of contrast and offset
+ * vector only keeps the stretching factors. Looking up a table needs neither trigonometric
+ * functions nor square roots.
+ *
+ * <p>Tables are kept in a small cache of the pen, since a glyph is stroked with only a few
+ * offset vectors, so that strokers may ask for the table of each curve and joint without
+ * allocating.
+ */
+public abstract class PenModel {
+  private static final int TABLE_SIZE = 1024;
+  private static final double TABLE_SCALE = TABLE_SIZE / 4.0;
+  private static final int CACHE_SIZE = 64;
+
+  private volatile double[] radii;
+  // Tables are immutable, so threads racing on a slot at worst create a table twice.
+  private final Table[] tables = new Table[CACHE_SIZE];
+
+  /**
+   * Returns the radius of the unit shape of the pen in the given direction.
+   *
+   * @param unitX x-coordinate of the unit direction
+   * @param unitY y-coordinate of the unit direction
+   * @return the distance from the center to the boundary of the pen
+   */
+  protected abstract double getRadius(double unitX, double unitY);
+
+  /**
+   * Returns the lookup table of the pen stretched by given contrast and offset vector.
+   *
+   * @param contrast contrast of the stroke
+   * @param offsetVector offset vector of the curve
+   * @return the lookup table
+   */
+  public Table getTable(double contrast, Vector2D offsetVector) {
+    return getTable(contrast, offsetVector.getX(), offsetVector.getY());
+  }
+
+  /**
+   * Returns the lookup table of the pen stretched by given contrast and offset vector.
+   *
+   * @param contrast contrast of the stroke
+   * @param offsetX x-coordinate of the offset vector of the curve
+   * @param offsetY y-coordinate of the offset vector of the curve
+   * @return the lookup table
+   */
+  public Table getTable(double contrast, double offsetX, double offsetY) {
+    long hash = Double.doubleToLongBits(contrast);
+    hash = hash * 31 + Double.doubleToLongBits(offsetX);
+    hash = hash * 31 + Double.doubleToLongBits(offsetY);
+    int slot = (int) (hash ^ hash >>> 32 ^ hash >>> 48) & (CACHE_SIZE - 1);
+    Table table = tables[slot];
+    if (table == null || !table.matches(contrast, offsetX, offsetY)) {
+      table = new Table(getRadii(), contrast, offsetX, offsetY,
+          (contrast > 1 ? 1 : (2 / contrast - 1)) * offsetX,
+          (contrast > 1 ? contrast / (2 - contrast) : 1) * offsetY);
+      tables[slot] = table;
+    }
+    return table;
+  }
+
+  private double[] getRadii() {
+    double[] table = radii;
+    if (table == null) {
+      synchronized (this) {
+        table = radii;
+        if (table == null) {
+          table = new double[TABLE_SIZE + 1];
+          for (int i = 0; i < TABLE_SIZE; i++) {
+            double angle = i / TABLE_SCALE;
+            int quadrant = (int) angle;
+            double time = angle - quadrant;
+            double x;
+            double y;
+            switch (quadrant) {
+              case 0:
+                x = 1 - time;
+                y = time;
+                break;
+              case 1:
+                x = -time;
+                y = 1 - time;
+                break;
+              case 2:
+                x = time - 1;
+                y = -time;
+                break;
+              default:
+                x = time;
+                y = time - 1;
+                break;
+            }
+            double norm = Math.sqrt(x * x + y * y);
+            table[i] = getRadius(x / norm, y / norm) / norm;
+          }
+          table[TABLE_SIZE] = table[0];
+          radii = table;
+        }
+      }
+    }
+    return table;
+  }
+
+  /**
+   * Lookup table of offset target vectors of a pen stretched by a contrast and
+   * an offset vector.
+   *
+   * <p>A direction is mapped to the pseudo-angle of its intersection with the diamond
+   * {@code |x| + |y| = 1}, and the sampled radii are linearly interpolated.
+   */
+  public static final class Table {
+    private final double[] radii;
+    private final double contrast;
+    private final double offsetX;
+    private final double offsetY;
+    private final double xScale;
+    private final double yScale;
+
+    private Table(double[] radii, double contrast, double offsetX, double offsetY,
+                  double xScale, double yScale) {
+      this.radii = radii;
+      this.contrast = contrast;
+      this.offsetX = offsetX;
+      this.offsetY = offsetY;
+      this.xScale = xScale;
+      this.yScale = yScale;
+    }
+
+    private boolean matches(double contrast, double offsetX, double offsetY) {
+      // Compared as bits like the hash, so that a cached table is exactly the one made anew.
+      return Double.doubleToLongBits(this.contrast) == Double.doubleToLongBits(contrast)
+          && Double.doubleToLongBits(this.offsetX) == Double.doubleToLongBits(offsetX)
+          && Double.doubleToLongBits(this.offsetY) == Double.doubleToLongBits(offsetY);
+    }
+
+    /**
+     * Computes the offset target vector in the given direction.
+     *
+     * <p>The result is the vector from the center to the boundary of the pen in the direction.
+     *
+     * @param vectorX x-coordinate of the direction
+     * @param vectorY y-coordinate of the direction
+     * @param target array to store the x and y-coordinates of the offset target vector
+     * @throws MathArithmeticException if the direction is the zero vector
+     */
+    public void offsetTarget(double vectorX, double vectorY, double[] target)
+        throws MathArithmeticException {
+      // The direction in the unit shape of the pen.
+      double x = vectorX * xScale;
+      double y = vectorY * yScale;
+      double norm = Math.abs(x) + Math.abs(y);
+      if (norm == 0) {
+        throw new MathArithmeticException(LocalizedFormats.CANNOT_NORMALIZE_A_ZERO_NORM_VECTOR);
+      }
+      double angle;
+      if (y >= 0) {
+        angle = x >= 0 ? y / norm : 1 - x / norm;
+      } else {
+        angle = x < 0 ? 2 - y / norm : 3 + x / norm;
+      }
+      double index = angle * TABLE_SCALE;
+      int lower = Math.min((int) index, TABLE_SIZE - 1);
+      double radius = radii[lower] + (index - lower) * (radii[lower + 1] - radii[lower]);
+      double length = radius / norm;
+      target[0] = length * vectorX;
+      target[1] = length * vectorY;
+    }
+
+    /**
+     * Returns the offset target vector in the given direction.
+     *
+     * @param vector the direction
+     * @return the vector from the center to the boundary of the pen in the direction
+     * @throws MathArithmeticException if the direction is the zero vector
+     */
+    public Vector2D offsetTarget(Vector2D vector) throws MathArithmeticException {
+      double[] target = new double[2];
+      offsetTarget(vector.getX(), vector.getY(), target);
+      return new Vector2D(target[0], target[1]);
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package kr.ac.kaist.team888.bezier;
+
+import org.apache.commons.math3.geometry.euclidean.twod.Vector2D;
+
+/**
+ * Enumeration for pen styles to stroke skeletons.
+ */
+public enum PenType {
+  /**
+   * Elliptical pen.
+   */
+  Ellipse(new EllipsePen()),
+
+  /**
+   * Calligraphic flat nib held at 30 degrees.
+   */
+  FlatNib(new FlatNibPen(Math.PI / 6, .3)),
+
+  /**
+   * Square nib aligned to axes.
+   */
+  Square(new PolygonPen(new Vector2D[] {
+      new Vector2D(1, 1), new Vector2D(-1, 1), new Vector2D(-1, -1), new Vector2D(1, -1)})),
+
+  /**
+   * Square nib rotated by 45 degrees.
+   */
+  Diamond(new PolygonPen(new Vector2D[] {
+      new Vector2D(1, 0), new Vector2D(0, 1), new Vector2D(-1, 0), new Vector2D(0, -1)}));
+
+  private final PenModel pen;
+
+  PenType(PenModel pen) {
+    this.pen = pen;
+  }
+
+  /**
+   * Returns the shared pen model of this style.
+   *
+   * @return the pen model
+   */
+  public PenModel getPen() {
+    return pen;
+  }
+}
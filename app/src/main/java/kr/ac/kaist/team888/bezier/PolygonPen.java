@@ -0,0 +1,90 @@
+package kr.ac.kaist.team888.bezier;
+
+import org.apache.commons.math3.exception.MathIllegalArgumentException;
+import org.apache.commons.math3.exception.NullArgumentException;
+import org.apache.commons.math3.exception.NumberIsTooSmallException;
+import org.apache.commons.math3.exception.util.LocalizedFormats;
+import org.apache.commons.math3.geometry.euclidean.twod.Vector2D;
+import org.apache.commons.math3.util.MathUtils;
+
+/**
+ * Polygonal pen given by its vertices around the center.
+ *
+ * <p>The polygon should be star-shaped with respect to the origin, i.e., every ray from
+ * the origin crosses the boundary exactly once. Convex polygons containing the origin
+ * satisfy this condition.
+ */
+public class PolygonPen extends PenModel {
+  private static final int MIN_VERTICES = 3;
+
+  private final double[] verticesX;
+  private final double[] verticesY;
+
+  /**
+   * Creates a new polygonal pen with given vertices.
+   *
+   * <p>Vertices may be given either counterclockwise or clockwise.
+   *
+   * @param vertices vertices of the polygon in order
+   * @throws NullArgumentException if vertices or some vertex is `null`
+   * @throws NumberIsTooSmallException if there are less than three vertices
+   * @throws MathIllegalArgumentException if the polygon does not surround the origin
+   *     exactly once
+   */
+  public PolygonPen(Vector2D[] vertices)
+      throws NullArgumentException, NumberIsTooSmallException, MathIllegalArgumentException {
+    MathUtils.checkNotNull(vertices);
+    if (vertices.length < MIN_VERTICES) {
+      throw new NumberIsTooSmallException(vertices.length, MIN_VERTICES, true);
+    }
+    int count = vertices.length;
+    verticesX = new double[count];
+    verticesY = new double[count];
+    double winding = 0;
+    for (int i = 0; i < count; i++) {
+      MathUtils.checkNotNull(vertices[i]);
+      Vector2D vertex = vertices[i];
+      Vector2D next = vertices[(i + 1) % count];
+      double cross = vertex.getX() * next.getY() - vertex.getY() * next.getX();
+      if (cross == 0) {
+        throw new MathIllegalArgumentException(LocalizedFormats.SIMPLE_MESSAGE,
+            "an edge of the pen passes through its center");
+      }
+      winding += Math.atan2(cross, vertex.dotProduct(next));
+    }
+    if (Math.abs(Math.abs(winding) - 2 * Math.PI) > 1E-6) {
+      throw new MathIllegalArgumentException(LocalizedFormats.SIMPLE_MESSAGE,
+          "the pen does not surround its center exactly once");
+    }
+
+    // Store vertices counterclockwise.
+    for (int i = 0; i < count; i++) {
+      Vector2D vertex = vertices[winding > 0 ? i : count - 1 - i];
+      verticesX[i] = vertex.getX();
+      verticesY[i] = vertex.getY();
+    }
+  }
+
+  @Override
+  protected double getRadius(double unitX, double unitY) {
+    double radius = Double.POSITIVE_INFINITY;
+    int count = verticesX.length;
+    for (int i = 0; i < count; i++) {
+      int next = (i + 1) % count;
+      // The ray should lie in the sector spanned by the edge.
+      if (verticesX[i] * unitY - verticesY[i] * unitX < 0
+          || unitX * verticesY[next] - unitY * verticesX[next] < 0) {
+        continue;
+      }
+      double edgeX = verticesX[next] - verticesX[i];
+      double edgeY = verticesY[next] - verticesY[i];
+      double denominator = unitX * edgeY - unitY * edgeX;
+      if (denominator <= 0) {
+        continue;
+      }
+      radius = Math.min(radius,
+          (verticesX[i] * verticesY[next] - verticesY[i] * verticesX[next]) / denominator);
+    }
+    return radius;
+  }
+}
@@ -0,0 +1,190 @@
+package kr.ac.kaist.team888.bezier;
+
+import org.apache.commons.math3.exception.OutOfRangeException;
+
+import java.util.Arrays;
+
+/**
+ * Reusable buffer of polylines stored as primitive coordinates.
+ *
+ * <p>Points are grouped into contours. Each contour is an implicitly closed polygon,
+ * i.e., the last point is connected back to the first one. Calling {@link #clear()} keeps
+ * the allocated arrays so that the buffer can be filled again without allocations.
+ */
+public class PolylineBuffer {
+  private static final int DEFAULT_POINT_CAPACITY = 256;
+  private static final int DEFAULT_CONTOUR_CAPACITY = 16;
+
+  private double[] coordinates;
+  private int pointCount;
+  private int[] contourEnds;
+  private int contourCount;
+  private boolean contourOpen;
+
+  /**
+   * Creates a new empty buffer with a default capacity.
+   */
+  public PolylineBuffer() {
+    this(DEFAULT_POINT_CAPACITY);
+  }
+
+  /**
+   * Creates a new empty buffer which can hold given number of points without growing.
+   *
+   * @param pointCapacity initial capacity in points
+   */
+  public PolylineBuffer(int pointCapacity) {
+    coordinates = new double[Math.max(1, pointCapacity) * 2];
+    contourEnds = new int[DEFAULT_CONTOUR_CAPACITY];
+  }
+
+  /**
+   * Removes every point and contour while keeping the allocated storage.
+   */
+  public void clear() {
+    pointCount = 0;
+    contourCount = 0;
+    contourOpen = false;
+  }
+
+  /**
+   * Starts a new contour. Following points are appended to this contour.
+   */
+  public void beginContour() {
+    if (contourOpen) {
+      endContour();
+    }
+    if (contourCount == contourEnds.length) {
+      contourEnds = Arrays.copyOf(contourEnds, contourEnds.length * 2);
+    }
+    contourEnds[contourCount++] = pointCount;
+    contourOpen = true;
+  }
+
+  /**
+   * Finishes the current contour.
+   */
+  public void endContour() {
+    if (contourOpen) {
+      contourEnds[contourCount - 1] = pointCount;
+      contourOpen = false;
+    }
+  }
+
+  /**
+   * Appends a point to the current contour.
+   *
+   * @param x x-coordinate of the point
+   * @param y y-coordinate of the point
+   */
+  public void addPoint(double x, double y) {
+    if (!contourOpen) {
+      beginContour();
+    }
+    if (pointCount * 2 == coordinates.length) {
+      coordinates = Arrays.copyOf(coordinates, coordinates.length * 2);
+    }
+    coordinates[pointCount * 2] = x;
+    coordinates[pointCount * 2 + 1] = y;
+    pointCount++;
+    contourEnds[contourCount - 1] = pointCount;
+  }
+
+  /**
+   * Removes the last point of the current contour.
+   */
+  public void removeLastPoint() {
+    if (contourOpen && getContourPointCount(contourCount - 1) > 0) {
+      pointCount--;
+      contourEnds[contourCount - 1] = pointCount;
+    }
+  }
+
+  /**
+   * Returns the total number of points in the buffer.
+   *
+   * @return the number of points
+   */
+  public int getPointCount() {
+    return pointCount;
+  }
+
+  /**
+   * Returns the number of contours in the buffer.
+   *
+   * @return the number of contours
+   */
+  public int getContourCount() {
+    return contourCount;
+  }
+
+  /**
+   * Returns the index of the first point of the contour.
+   *
+   * @param contour index of the contour
+   * @return the index of the first point
+   */
+  public int getContourStart(int contour) {
+    checkContour(contour);
+    return contour == 0 ? 0 : contourEnds[contour - 1];
+  }
+
+  /**
+   * Returns the index after the last point of the contour.
+   *
+   * @param contour index of the contour
+   * @return the exclusive end index of the contour
+   */
+  public int getContourEnd(int contour) {
+    checkContour(contour);
+    return contourEnds[contour];
+  }
+
+  /**
+   * Returns the number of points emitted for the contour.
+   *
+   * @param contour index of the contour
+   * @return the number of points of the contour
+   */
+  public int getContourPointCount(int contour) {
+    return getContourEnd(contour) - getContourStart(contour);
+  }
+
+  /**
+   * Returns the x-coordinate of the point at given index.
+   *
+   * @param index index of the point
+   * @return the x-coordinate
+   */
+  public double getX(int index) {
+    return coordinates[index * 2];
+  }
+
+  /**
+   * Returns the y-coordinate of the point at given index.
+   *
+   * @param index index of the point
+   * @return the y-coordinate
+   */
+  public double getY(int index) {
+    return coordinates[index * 2 + 1];
+  }
+
+  /**
+   * Returns the backing array of coordinates in the form of x0, y0, x1, y1, and so on.
+   *
+   * <p>This does not copy the array. Only the first {@code 2 * getPointCount()} values
+   * are meaningful.
+   *
+   * @return the backing coordinates array
+   */
+  public double[] getCoordinates() {
+    return coordinates;
+  }
+
+  private void checkContour(int contour) {
+    if (contour < 0 || contour >= contourCount) {
+      throw new OutOfRangeException(contour, 0, contourCount - 1);
+    }
+  }
+}
@@ -0,0 +1,230 @@
+package kr.ac.kaist.team888.bezier;
+
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+import org.apache.commons.math3.geometry.euclidean.twod.Vector2D;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded memo table of stroked contours.
+ *
+ * <p>Many letters share identical skeletons, such as the same initial consonant placed in
+ * the same region of every letter with the same medial vowel. This memo keys each stroke by
+ * everything the stroke depends on, which is the controlling points, the offset method, the
+ * offset vectors and the cutoff vectors of each curve, together with the offset method of
+ * the stroke, the distance, the roundness, the contrast, the pen and whether the topology is
+ * fixed. On a hit the stored
+ * contour is copied into the buffer, which is exactly what stroking again would append.
+ *
+ * <p>The memo keeps at most the given number of contours, discarding the least recently used
+ * ones. It is not thread-safe.
+ */
+public class StrokeMemo {
+  /**
+   * A default maximum number of stored contours.
+   */
+  public static final int DEFAULT_CAPACITY = 1 << 12;
+
+  private final int capacity;
+  private final LinkedHashMap<Key, ContourBuffer> entries;
+  private int hitCount;
+  private int missCount;
+
+  /**
+   * Creates a new memo holding the default maximum number of contours.
+   */
+  public StrokeMemo() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Creates a new memo holding at most the given number of contours.
+   *
+   * @param capacity maximum number of stored contours
+   * @throws NotStrictlyPositiveException if <code>capacity</code> is not positive
+   */
+  public StrokeMemo(int capacity) throws NotStrictlyPositiveException {
+    if (capacity <= 0) {
+      throw new NotStrictlyPositiveException(capacity);
+    }
+    this.capacity = capacity;
+    entries = new LinkedHashMap<Key, ContourBuffer>(16, .75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, ContourBuffer> eldest) {
+        return size() > StrokeMemo.this.capacity;
+      }
+    };
+  }
+
+  /**
+   * Strokes the sequence of Bezier curves like
+   * {@link BezierCurveUtils#stroke(ArrayList, BezierCurveOffsetMethodType, double, double,
+   * double, PenModel, ContourBuffer)}, reusing the contour stored for an identical stroke if any.
+   *
+   * @param curves sequence of Bezier curves to stroke
+   * @param offsetMethod offset method to apply
+   * @param delta distance to stroke
+   * @param roundness roundness of the ends
+   * @param contrast contrast of the pen
+   * @param pen pen to draw the curves
+   * @param contour buffer to append a stroked contour
+   */
+  public void stroke(ArrayList<BezierCurve> curves, BezierCurveOffsetMethodType offsetMethod,
+                     double delta, double roundness, double contrast, PenModel pen,
+                     ContourBuffer contour) {
+    stroke(curves, offsetMethod, delta, roundness, contrast, pen, false, contour);
+  }
+
+  /**
+   * Strokes the sequence of Bezier curves like
+   * {@link BezierCurveUtils#stroke(ArrayList, BezierCurveOffsetMethodType, double, double,
+   * double, PenModel, boolean, ContourBuffer)}, reusing the contour stored for an identical
+   * stroke if any.
+   *
+   * @param curves sequence of Bezier curves to stroke
+   * @param offsetMethod offset method to apply
+   * @param delta distance to stroke
+   * @param roundness roundness of the ends
+   * @param contrast contrast of the pen
+   * @param pen pen to draw the curves
+   * @param fixedTopology whether to keep the segments independent of the distance
+   * @param contour buffer to append a stroked contour
+   */
+  public void stroke(ArrayList<BezierCurve> curves, BezierCurveOffsetMethodType offsetMethod,
+                     double delta, double roundness, double contrast, PenModel pen,
+                     boolean fixedTopology, ContourBuffer contour) {
+    Key key = new Key(curves, offsetMethod, delta, roundness, contrast, pen, fixedTopology);
+    ContourBuffer stored = entries.get(key);
+    if (stored != null) {
+      hitCount++;
+      contour.addContours(stored, 0, stored.getContourCount());
+      return;
+    }
+    missCount++;
+    int start = contour.getContourCount();
+    BezierCurveUtils.stroke(curves, offsetMethod, delta, roundness, contrast, pen, fixedTopology,
+        contour);
+    int end = contour.getContourCount();
+    int segments = end > start ? contour.getContourEnd(end - 1) - contour.getContourStart(start)
+        : 0;
+    stored = new ContourBuffer(segments, segments * 3);
+    stored.addContours(contour, start, end);
+    entries.put(key, stored);
+  }
+
+  /**
+   * Returns the number of strokes reused from the memo.
+   *
+   * @return the number of hits
+   */
+  public int getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Returns the number of strokes computed since they were not in the memo.
+   *
+   * @return the number of misses
+   */
+  public int getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Returns the ratio of hits among all strokes, or 0 if nothing has been stroked.
+   *
+   * @return the hit rate from 0 to 1
+   */
+  public double getHitRate() {
+    int total = hitCount + missCount;
+    return total == 0 ? 0 : hitCount / (double) total;
+  }
+
+  /**
+   * Returns the number of stored contours.
+   *
+   * @return the number of stored contours
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Removes every stored contour and resets the counts.
+   */
+  public void clear() {
+    entries.clear();
+    hitCount = 0;
+    missCount = 0;
+  }
+
+  /**
+   * Inputs of a stroke flattened into an array of numbers.
+   */
+  private static class Key {
+    private static final int CURVE_HEADER = 2;
+    private static final int VECTOR_SIZE = 3;
+
+    private final double[] values;
+    private final PenModel pen;
+    private final int hash;
+
+    Key(ArrayList<BezierCurve> curves, BezierCurveOffsetMethodType offsetMethod, double delta,
+        double roundness, double contrast, PenModel pen, boolean fixedTopology) {
+      int size = 5;
+      for (BezierCurve curve : curves) {
+        size += CURVE_HEADER + (curve.getOrder() + 1) * 2 + VECTOR_SIZE * 4;
+      }
+      values = new double[size];
+      int index = 0;
+      values[index++] = offsetMethod.ordinal();
+      values[index++] = delta;
+      values[index++] = roundness;
+      values[index++] = contrast;
+      values[index++] = fixedTopology ? 1 : 0;
+      for (BezierCurve curve : curves) {
+        values[index++] = curve.getOrder();
+        values[index++] = curve.getOffsetMethod() == null ? -1 : curve.getOffsetMethod().ordinal();
+        for (int i = 0; i <= curve.getOrder(); i++) {
+          values[index++] = curve.getX(i);
+          values[index++] = curve.getY(i);
+        }
+        index = putVector(curve.getOffsetVector(), index);
+        index = putVector(curve.getEndOffsetVector(), index);
+        index = putVector(curve.getCutoffStartVector(), index);
+        index = putVector(curve.getCutoffEndVector(), index);
+      }
+      this.pen = pen;
+      hash = 31 * Arrays.hashCode(values) + pen.hashCode();
+    }
+
+    private int putVector(Vector2D vector, int index) {
+      if (vector != null) {
+        values[index] = 1;
+        values[index + 1] = vector.getX();
+        values[index + 2] = vector.getY();
+      }
+      return index + VECTOR_SIZE;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      if (this == object) {
+        return true;
+      }
+      if (!(object instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) object;
+      return hash == key.hash && pen.equals(key.pen) && Arrays.equals(values, key.values);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
@@ -0,0 +1,526 @@
+package kr.ac.kaist.team888.daemon;
+
+import kr.ac.kaist.team888.bezier.BezierCurveOffsetMethodType;
+import kr.ac.kaist.team888.font.GlyphOutline;
+import kr.ac.kaist.team888.font.TrueTypeWriter;
+import kr.ac.kaist.team888.hangulcharacter.HangulCharacter;
+import kr.ac.kaist.team888.locator.TemplateStore;
+import kr.ac.kaist.team888.region.Region;
+import kr.ac.kaist.team888.util.FontFileOutput;
+
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Coordinator exporting fonts by several {@link GlyphDaemon} workers, each a process of its own
+ * on this machine or another.
+ *
+ * <p>The code point ranges of a font are split into shards of a fixed number of code points.
+ * Each worker is driven by a thread of the coordinator, which takes the next shard whenever
+ * the worker is free, keeping a couple of shards in flight to hide the round trips. Once every
+ * shard has been taken, a free worker steals the oldest unfinished shard of another worker and
+ * generates it again, and the shard is done by whichever worker finishes it first, thus a slow
+ * or stuck worker holds back the export by a single shard at most. Shards of a failed worker
+ * are taken by the others.
+ *
+ * <p>The glyphs of the shards are added to the font in order of code points as soon as the
+ * shards are done, and released, so the coordinator holds the glyph data of the shards not yet
+ * merged rather than generating anything itself. Workers keep their caches from one export to
+ * the next, thus several fonts may be exported by the same workers one after another.
+ */
+public class ExportCoordinator implements Closeable {
+  /**
+   * A default number of code points of a shard.
+   */
+  public static final int DEFAULT_SHARD_SIZE = 256;
+
+  private static final int REQUESTS_IN_FLIGHT = 2;
+  private static final int MAX_ATTEMPTS = 2;
+  private static final String LOCAL_HOST = "127.0.0.1";
+  private static final String WORKER_OUTPUT_PREFIX = "worker %d: ";
+
+  private final ArrayList<InetSocketAddress> workers;
+  private final ArrayList<Process> processes = new ArrayList<>();
+  private int shardSize = DEFAULT_SHARD_SIZE;
+  private int glyphCount;
+  private int stolenShardCount;
+  private int[] workerShardCounts;
+
+  /**
+   * Creates a new coordinator of the daemons running at the addresses.
+   *
+   * @param workers addresses of the daemons
+   * @throws NotStrictlyPositiveException if there is no worker
+   */
+  public ExportCoordinator(List<InetSocketAddress> workers) throws NotStrictlyPositiveException {
+    if (workers.isEmpty()) {
+      throw new NotStrictlyPositiveException(workers.size());
+    }
+    this.workers = new ArrayList<>(workers);
+  }
+
+  /**
+   * Starts daemons as processes on this machine, with the class path of this process, and
+   * creates a coordinator of them, which ends the processes when closed. The processes use
+   * the opened {@link TemplateStore} if any.
+   *
+   * @param count number of processes
+   * @param skeletonPath file of the skeleton data
+   * @param threadsPerWorker number of threads generating glyphs in each process
+   * @param offsetMethod offset method of every stroke
+   * @param mergingContours whether to merge overlapping contours of strokes
+   * @return the coordinator of the processes
+   * @throws IOException if a process cannot be started
+   * @throws NotStrictlyPositiveException if <code>count</code> is not positive
+   */
+  public static ExportCoordinator startLocalWorkers(int count, String skeletonPath,
+                                                    int threadsPerWorker,
+                                                    BezierCurveOffsetMethodType offsetMethod,
+                                                    boolean mergingContours)
+      throws IOException, NotStrictlyPositiveException {
+    if (count <= 0) {
+      throw new NotStrictlyPositiveException(count);
+    }
+    String java = System.getProperty("java.home") + File.separator + "bin" + File.separator
+        + "java";
+    TemplateStore templateStore = TemplateStore.getInstance();
+    ArrayList<Process> processes = new ArrayList<>();
+    ArrayList<InetSocketAddress> addresses = new ArrayList<>();
+    try {
+      for (int i = 0; i < count; i++) {
+        ArrayList<String> command = new ArrayList<>(Arrays.asList(java,
+            "-cp", System.getProperty("java.class.path"), GlyphDaemon.class.getName(),
+            "--skeleton", skeletonPath, "--port", "0", "--bind", LOCAL_HOST,
+            "--threads", String.valueOf(threadsPerWorker),
+            "--offset-method", offsetMethod.name()));
+        if (mergingContours) {
+          command.add("--merge-contours");
+        }
+        if (templateStore != null) {
+          command.add("--templates");
+          command.add(templateStore.getFile().getPath());
+        }
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectErrorStream(true);
+        Process process = builder.start();
+        processes.add(process);
+        addresses.add(new InetSocketAddress(LOCAL_HOST, readWorkerPort(i, process)));
+      }
+    } catch (IOException e) {
+      for (Process process : processes) {
+        process.destroy();
+      }
+      throw e;
+    }
+    ExportCoordinator coordinator = new ExportCoordinator(addresses);
+    coordinator.processes.addAll(processes);
+    return coordinator;
+  }
+
+  /**
+   * Reads the output of a starting worker until it listens, and forwards the rest of its
+   * output to the standard error by another thread.
+   */
+  private static int readWorkerPort(final int worker, Process process) throws IOException {
+    final BufferedReader reader = new BufferedReader(
+        new InputStreamReader(process.getInputStream()));
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (line.startsWith(GlyphDaemon.LISTENING_MESSAGE)) {
+        break;
+      }
+      System.err.println(String.format(WORKER_OUTPUT_PREFIX, worker) + line);
+    }
+    if (line == null) {
+      throw new IOException("Worker " + worker + " ended before listening");
+    }
+    String port = line.substring(GlyphDaemon.LISTENING_MESSAGE.length()).split(" ")[0];
+
+    Thread forwarder = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          String line;
+          while ((line = reader.readLine()) != null) {
+            System.err.println(String.format(WORKER_OUTPUT_PREFIX, worker) + line);
+          }
+        } catch (IOException e) {
+          // The worker has ended.
+        }
+      }
+    }, "worker " + worker + " output");
+    forwarder.setDaemon(true);
+    forwarder.start();
+    return Integer.parseInt(port);
+  }
+
+  /**
+   * Sets the number of code points of a shard. Smaller shards are stolen sooner and wasted less
+   * by stealing, and larger shards have less overhead. Defaults to
+   * {@value #DEFAULT_SHARD_SIZE}.
+   *
+   * @param shardSize number of code points of a shard
+   * @throws NotStrictlyPositiveException if <code>shardSize</code> is not positive
+   */
+  public void setShardSize(int shardSize) throws NotStrictlyPositiveException {
+    if (shardSize <= 0) {
+      throw new NotStrictlyPositiveException(shardSize);
+    }
+    this.shardSize = shardSize;
+  }
+
+  /**
+   * Exports the font of the drawable letters of the code point ranges with the features.
+   * A failed export keeps the previous font file.
+   *
+   * @param features features of the font
+   * @param ranges first and last code points of each range, in pairs
+   * @param familyName family name of the font
+   * @param file font file to write
+   * @return the font file
+   * @throws IOException if an I/O error occurs, or every worker fails
+   */
+  public File export(FeatureSnapshot features, int[] ranges, String familyName, File file)
+      throws IOException {
+    ShardQueue queue = new ShardQueue(makeShards(ranges), workers.size());
+    ArrayList<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < workers.size(); i++) {
+      Thread thread = new Thread(new WorkerLoop(i, workers.get(i), features, queue),
+          "worker " + i);
+      thread.start();
+      threads.add(thread);
+    }
+
+    FontFileOutput output = null;
+    try {
+      Region origin = HangulCharacter.ORIGIN_REGION;
+      TrueTypeWriter writer = new TrueTypeWriter(familyName,
+          (int) Math.round(origin.getMaxY() - origin.getMinY()),
+          (int) Math.round(origin.getMaxY()), (int) Math.round(origin.getMinY()));
+      int count = 0;
+      for (int i = 0; i < queue.shards.size(); i++) {
+        Shard shard = queue.await(i);
+        for (int k = 0; k < shard.letters.size(); k++) {
+          DataInputStream in = new DataInputStream(new ByteArrayInputStream(shard.glyphs.get(k)));
+          int advanceWidth = in.readInt();
+          int glyph = writer.addGlyph(GlyphOutline.readFrom(in), advanceWidth);
+          writer.mapCharacter(shard.letters.get(k), glyph);
+        }
+        count += shard.letters.size();
+        shard.release();
+      }
+
+      output = new FontFileOutput(file);
+      writer.write(output.getChannel());
+      output.commit();
+      glyphCount = count;
+      stolenShardCount = queue.stolenCount;
+      workerShardCounts = queue.workerShardCounts;
+      return file;
+    } catch (IOException e) {
+      if (output != null) {
+        output.abort();
+      }
+      throw e;
+    } finally {
+      queue.close();
+      for (Thread thread : threads) {
+        try {
+          thread.join();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the number of glyphs of the last export.
+   *
+   * @return the number of glyphs
+   */
+  public int getGlyphCount() {
+    return glyphCount;
+  }
+
+  /**
+   * Returns the number of shards stolen from slower workers by the last export.
+   *
+   * @return the number of stolen shards
+   */
+  public int getStolenShardCount() {
+    return stolenShardCount;
+  }
+
+  /**
+   * Returns the number of shards done by each worker in the last export.
+   *
+   * @return the number of shards by worker
+   */
+  public int[] getWorkerShardCounts() {
+    return workerShardCounts == null ? new int[workers.size()] : workerShardCounts.clone();
+  }
+
+  /**
+   * Ends the processes of the workers started by the coordinator.
+   */
+  @Override
+  public void close() {
+    for (Process process : processes) {
+      process.destroy();
+    }
+    for (Process process : processes) {
+      try {
+        process.waitFor();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    processes.clear();
+  }
+
+  private ArrayList<Shard> makeShards(int[] ranges) {
+    ArrayList<Shard> shards = new ArrayList<>();
+    for (int i = 0; i + 1 < ranges.length; i += 2) {
+      for (int first = ranges[i]; first <= ranges[i + 1]; first += shardSize) {
+        shards.add(new Shard(first, Math.min(ranges[i + 1], first + shardSize - 1)));
+      }
+    }
+    return shards;
+  }
+
+  /**
+   * Code points generated by a single request, done by the first worker finishing it.
+   */
+  private static class Shard {
+    private final int first;
+    private final int last;
+    private final ArrayList<Integer> holders = new ArrayList<>(MAX_ATTEMPTS);
+    private int attempts;
+    private boolean done;
+    private ArrayList<Character> letters;
+    private ArrayList<byte[]> glyphs;
+
+    Shard(int first, int last) {
+      this.first = first;
+      this.last = last;
+    }
+
+    void release() {
+      letters = null;
+      glyphs = null;
+    }
+  }
+
+  /**
+   * Shards of an export shared by the threads of the workers and the merging thread.
+   */
+  private static class ShardQueue {
+    private final ArrayList<Shard> shards;
+    private final ArrayDeque<Shard> retries = new ArrayDeque<>();
+    private final ArrayList<GlyphClient> clients = new ArrayList<>();
+    private final int[] workerShardCounts;
+    private int nextShard;
+    private int firstUndone;
+    private int liveWorkers;
+    private int stolenCount;
+    private IOException failure;
+    private boolean closed;
+
+    ShardQueue(ArrayList<Shard> shards, int workerCount) {
+      this.shards = shards;
+      workerShardCounts = new int[workerCount];
+      liveWorkers = workerCount;
+    }
+
+    synchronized boolean addClient(GlyphClient client) {
+      if (closed) {
+        return false;
+      }
+      clients.add(client);
+      return true;
+    }
+
+    /**
+     * Returns a shard for the worker to generate: a shard not taken yet, a shard of a failed
+     * worker, or the oldest unfinished shard of another worker. Returns <code>null</code> if
+     * every shard is done, or if there is no shard to take yet and the worker should not wait.
+     */
+    synchronized Shard take(int worker, boolean waiting) throws InterruptedIOException {
+      while (!closed && firstUndone < shards.size()) {
+        Shard shard = retries.poll();
+        if (shard == null && nextShard < shards.size()) {
+          shard = shards.get(nextShard++);
+        }
+        if (shard == null) {
+          shard = findStealable(worker);
+          if (shard != null) {
+            stolenCount++;
+          }
+        }
+        if (shard != null) {
+          shard.attempts++;
+          shard.holders.add(worker);
+          return shard;
+        }
+        if (!waiting) {
+          return null;
+        }
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          throw new InterruptedIOException("Export cancelled");
+        }
+      }
+      return null;
+    }
+
+    private Shard findStealable(int worker) {
+      for (int i = firstUndone; i < nextShard; i++) {
+        Shard shard = shards.get(i);
+        if (!shard.done && shard.attempts < MAX_ATTEMPTS && !shard.holders.contains(worker)) {
+          return shard;
+        }
+      }
+      return null;
+    }
+
+    synchronized void complete(int worker, Shard shard, ArrayList<Character> letters,
+                               ArrayList<byte[]> glyphs) {
+      shard.holders.remove(Integer.valueOf(worker));
+      if (shard.done) {
+        return;
+      }
+      shard.done = true;
+      shard.letters = letters;
+      shard.glyphs = glyphs;
+      workerShardCounts[worker]++;
+      while (firstUndone < shards.size() && shards.get(firstUndone).done) {
+        firstUndone++;
+      }
+      notifyAll();
+    }
+
+    synchronized void fail(int worker, Iterable<Shard> shardsInFlight, IOException e) {
+      for (Shard shard : shardsInFlight) {
+        shard.holders.remove(Integer.valueOf(worker));
+        shard.attempts--;
+        if (!shard.done && shard.holders.isEmpty()) {
+          retries.add(shard);
+        }
+      }
+      liveWorkers--;
+      if (failure == null) {
+        failure = e;
+      }
+      notifyAll();
+    }
+
+    synchronized Shard await(int index) throws IOException {
+      Shard shard = shards.get(index);
+      while (!shard.done) {
+        if (liveWorkers == 0) {
+          throw new IOException("Every worker failed", failure);
+        }
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          throw new InterruptedIOException("Export cancelled");
+        }
+      }
+      return shard;
+    }
+
+    /**
+     * Ends the export, disconnecting the workers still generating stolen shards.
+     */
+    synchronized void close() {
+      closed = true;
+      for (GlyphClient client : clients) {
+        try {
+          client.close();
+        } catch (IOException e) {
+          // The worker is abandoned anyway.
+        }
+      }
+      notifyAll();
+    }
+
+    synchronized boolean isClosed() {
+      return closed;
+    }
+  }
+
+  /**
+   * Loop of a thread sending shards to a worker and receiving their glyphs.
+   */
+  private static class WorkerLoop implements Runnable {
+    private final int worker;
+    private final InetSocketAddress address;
+    private final FeatureSnapshot features;
+    private final ShardQueue queue;
+
+    WorkerLoop(int worker, InetSocketAddress address, FeatureSnapshot features,
+               ShardQueue queue) {
+      this.worker = worker;
+      this.address = address;
+      this.features = features;
+      this.queue = queue;
+    }
+
+    @Override
+    public void run() {
+      ArrayDeque<Shard> shardsInFlight = new ArrayDeque<>();
+      ArrayDeque<Integer> requestIds = new ArrayDeque<>();
+      try {
+        GlyphClient client = new GlyphClient(address.getHostString(), address.getPort());
+        if (!queue.addClient(client)) {
+          client.close();
+          return;
+        }
+        while (true) {
+          while (shardsInFlight.size() < REQUESTS_IN_FLIGHT) {
+            Shard shard = queue.take(worker, shardsInFlight.isEmpty());
+            if (shard == null) {
+              break;
+            }
+            requestIds.add(client.send(features, new int[] {shard.first, shard.last}));
+            shardsInFlight.add(shard);
+          }
+          if (shardsInFlight.isEmpty()) {
+            break;
+          }
+          final ArrayList<Character> letters = new ArrayList<>();
+          final ArrayList<byte[]> glyphs = new ArrayList<>();
+          client.receive(requestIds.poll(), new GlyphClient.GlyphCallbacks() {
+            @Override
+            public void onGlyph(char letter, byte[] data) {
+              letters.add(letter);
+              glyphs.add(data);
+            }
+          });
+          queue.complete(worker, shardsInFlight.poll(), letters, glyphs);
+        }
+      } catch (IOException e) {
+        if (!queue.isClosed()) {
+          System.err.println("Worker " + worker + " at " + address + " failed: " + e);
+        }
+        queue.fail(worker, shardsInFlight, e);
+      }
+    }
+  }
+}
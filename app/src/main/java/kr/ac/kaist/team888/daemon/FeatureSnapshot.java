@@ -0,0 +1,204 @@
+package kr.ac.kaist.team888.daemon;
+
+import kr.ac.kaist.team888.bezier.PenType;
+import kr.ac.kaist.team888.mylittlefont.FontItem;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Immutable feature values of a font, which identify the glyphs generated from them.
+ *
+ * <p>Unlike {@link FontItem}, a snapshot holds the gap between letters, compares by value,
+ * and is written in a fixed binary form, so that it can be sent to a {@link GlyphDaemon} and
+ * key the glyphs cached there.
+ */
+public final class FeatureSnapshot {
+  private static final int VALUE_COUNT = 9;
+
+  private final double[] values;
+  private final PenType pen;
+
+  /**
+   * Creates a snapshot of the features of the font item.
+   *
+   * @param features feature values of the font
+   * @param gap gap between letters
+   */
+  public FeatureSnapshot(FontItem features, double gap) {
+    this(new double[] {features.getCurve(), features.getRoundness(), features.getWeight(),
+        features.getContrast(), features.getWidth(), features.getFlattening(),
+        features.getArise(), features.getSlant(), gap}, features.getPen());
+  }
+
+  private FeatureSnapshot(double[] values, PenType pen) {
+    this.values = values;
+    this.pen = pen;
+  }
+
+  /**
+   * Returns a new font item of the feature values of the snapshot.
+   *
+   * @return the font item
+   */
+  public FontItem getFeatures() {
+    return new FontItem.FontItemBuilder()
+        .setCurve(getCurve())
+        .setRoundness(getRoundness())
+        .setWeight(getWeight())
+        .setContrast(getContrast())
+        .setWidth(getWidth())
+        .setFlattening(getFlattening())
+        .setArise(getArise())
+        .setSlant(getSlant())
+        .setPen(pen)
+        .build();
+  }
+
+  /**
+   * Returns the curve value.
+   *
+   * @return the curve value
+   */
+  public double getCurve() {
+    return values[0];
+  }
+
+  /**
+   * Returns the roundness value.
+   *
+   * @return the roundness value
+   */
+  public double getRoundness() {
+    return values[1];
+  }
+
+  /**
+   * Returns the weight value.
+   *
+   * @return the weight value
+   */
+  public double getWeight() {
+    return values[2];
+  }
+
+  /**
+   * Returns the contrast value.
+   *
+   * @return the contrast value
+   */
+  public double getContrast() {
+    return values[3];
+  }
+
+  /**
+   * Returns the width value.
+   *
+   * @return the width value
+   */
+  public double getWidth() {
+    return values[4];
+  }
+
+  /**
+   * Returns the flattening value.
+   *
+   * @return the flattening value
+   */
+  public double getFlattening() {
+    return values[5];
+  }
+
+  /**
+   * Returns the arise value.
+   *
+   * @return the arise value
+   */
+  public double getArise() {
+    return values[6];
+  }
+
+  /**
+   * Returns the slant value.
+   *
+   * @return the slant value
+   */
+  public double getSlant() {
+    return values[7];
+  }
+
+  /**
+   * Returns the gap between letters.
+   *
+   * @return the gap between letters
+   */
+  public double getGap() {
+    return values[8];
+  }
+
+  /**
+   * Returns the pen type.
+   *
+   * @return the pen type
+   */
+  public PenType getPen() {
+    return pen;
+  }
+
+  /**
+   * Writes the snapshot to the output.
+   *
+   * @param out output to write the snapshot
+   * @throws IOException if an I/O error occurs
+   * @see #readFrom(DataInput)
+   */
+  public void writeTo(DataOutput out) throws IOException {
+    for (double value : values) {
+      out.writeDouble(value);
+    }
+    out.writeByte(pen.ordinal());
+  }
+
+  /**
+   * Reads a snapshot written by {@link #writeTo(DataOutput)}.
+   *
+   * @param in input to read the snapshot
+   * @return the snapshot read
+   * @throws IOException if an I/O error occurs or the snapshot is corrupted
+   */
+  public static FeatureSnapshot readFrom(DataInput in) throws IOException {
+    double[] values = new double[VALUE_COUNT];
+    for (int i = 0; i < VALUE_COUNT; i++) {
+      values[i] = in.readDouble();
+      if (Double.isNaN(values[i]) || Double.isInfinite(values[i])) {
+        throw new IOException("Invalid feature value: " + values[i]);
+      }
+    }
+    int pen = in.readUnsignedByte();
+    if (pen >= PenType.values().length) {
+      throw new IOException("Invalid pen: " + pen);
+    }
+    return new FeatureSnapshot(values, PenType.values()[pen]);
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (!(object instanceof FeatureSnapshot)) {
+      return false;
+    }
+    FeatureSnapshot snapshot = (FeatureSnapshot) object;
+    return pen == snapshot.pen && Arrays.equals(values, snapshot.values);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Arrays.hashCode(values) + pen.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(values) + " " + pen;
+  }
+}
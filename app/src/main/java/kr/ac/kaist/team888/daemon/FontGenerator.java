@@ -0,0 +1,635 @@
+package kr.ac.kaist.team888.daemon;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import kr.ac.kaist.team888.bezier.BezierCurve;
+import kr.ac.kaist.team888.bezier.BezierCurveOffsetMethodType;
+import kr.ac.kaist.team888.bezier.PenType;
+import kr.ac.kaist.team888.bezier.StrokeMemo;
+import kr.ac.kaist.team888.font.GlyphOutline;
+import kr.ac.kaist.team888.font.SvgWriter;
+import kr.ac.kaist.team888.font.SvgWriter.Layout;
+import kr.ac.kaist.team888.font.TrueTypeWriter;
+import kr.ac.kaist.team888.hangulcharacter.CharacterLoader;
+import kr.ac.kaist.team888.hangulcharacter.HangulCharacter;
+import kr.ac.kaist.team888.locator.TemplateStore;
+import kr.ac.kaist.team888.mylittlefont.FontItem;
+import kr.ac.kaist.team888.region.Region;
+import kr.ac.kaist.team888.util.FeatureController;
+import kr.ac.kaist.team888.util.FontExporter;
+import kr.ac.kaist.team888.util.FontExporter.ExportType;
+import kr.ac.kaist.team888.util.FontFileOutput;
+import kr.ac.kaist.team888.util.HangulLetters;
+import kr.ac.kaist.team888.util.JsonLoader;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Command-line generator of fonts, independent of Android and of the feature controller.
+ *
+ * <p>Fonts are generated from a skeleton file with feature values given as options or by
+ * a preset file, which holds a JSON object or an array of JSON objects of feature values and
+ * font names, such as <code>{"name": "Bold", "weight": 0.9, "pen": "FlatNib"}</code>. Options
+ * of feature values override the values of every preset.
+ *
+ * <p>Letters are generated in batches on a thread per core, each thread with its own
+ * {@link GlyphGenerator}, and written in order of code points as the batches complete,
+ * keeping a window of batches ahead of the writer. With <code>--workers</code>, TrueType fonts
+ * are generated by as many local daemon processes through an {@link ExportCoordinator} instead.
+ * With <code>--templates</code>, letters are located from a {@link TemplateStore}, which is
+ * built first if missing. With <code>--offset-method Adaptive</code>, every stroke is offset by
+ * the adaptive method rather than by Tiller-Hanson. With <code>--merge-contours</code>,
+ * overlapping contours of strokes are merged. The time of each font is printed when it is
+ * written.
+ *
+ * <p>The <code>fontGeneratorJar</code> task of the app module builds a runnable jar of the
+ * generator, which also holds the daemon started for <code>--workers</code>.
+ */
+public class FontGenerator {
+  private static final String USAGE = "Usage: FontGenerator --skeleton <file>"
+      + " [--templates <file>] [--preset <file>] [--curve|--roundness|--weight|--contrast"
+      + "|--width|--flattening|--arise|--slant|--gap <value>]"
+      + " [--pen Ellipse|FlatNib|Square|Diamond] [--offset-method TillerHanson|Adaptive]"
+      + " [--letters all|partial|text:<file>|<hex>[-<hex>],...]"
+      + " [--format ttf|svg|svg-paths] [--gzip] [--name <font name>] [--output <directory>]"
+      + " [--threads <count>] [--workers <count>] [--merge-contours]";
+  private static final String[] FEATURE_KEYS = {"curve", "roundness", "weight", "contrast",
+      "width", "flattening", "arise", "slant", "gap", "pen"};
+  private static final String NAME_KEY = "name";
+  private static final String DEFAULT_NAME = "MyLittleFont";
+  private static final String TEXT_PREFIX = "text:";
+  private static final String CHARSET = "UTF-8";
+  private static final int BATCH_SIZE = 32;
+  private static final int BATCHES_PER_THREAD = 2;
+  private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+  /**
+   * Format of the generated fonts.
+   */
+  public enum Format {
+    /**
+     * A TrueType font of simple glyphs.
+     */
+    TTF(".ttf"),
+    /**
+     * An SVG font.
+     */
+    SVG(".svg"),
+    /**
+     * An SVG document of a path per glyph.
+     */
+    SVG_PATHS(".svg");
+
+    private final String extension;
+
+    Format(String extension) {
+      this.extension = extension;
+    }
+  }
+
+  private final ArrayList<String> names = new ArrayList<>();
+  private final ArrayList<FeatureSnapshot> presets = new ArrayList<>();
+  private final ArrayList<Character> letters;
+  private final Format format;
+  private final boolean compressed;
+  private final File directory;
+  private final int threadCount;
+  private final BezierCurveOffsetMethodType offsetMethod;
+  private final boolean mergingContours;
+
+  /**
+   * Creates a new generator of the fonts of the presets, which reads the skeleton data from
+   * the file given by {@value JsonLoader#PATH_PROPERTY}.
+   *
+   * @param names names of the fonts
+   * @param presets features of the fonts
+   * @param letters drawable letters to generate in order of code points
+   * @param format format of the fonts
+   * @param compressed whether to compress SVG documents by gzip
+   * @param directory directory of the fonts
+   * @param threadCount number of threads generating glyphs
+   * @param offsetMethod offset method of every stroke
+   */
+  public FontGenerator(ArrayList<String> names, ArrayList<FeatureSnapshot> presets,
+                       ArrayList<Character> letters, Format format, boolean compressed,
+                       File directory, int threadCount,
+                       BezierCurveOffsetMethodType offsetMethod) {
+    this(names, presets, letters, format, compressed, directory, threadCount, offsetMethod,
+        false);
+  }
+
+  /**
+   * Creates a new generator of the fonts of the presets, which reads the skeleton data from
+   * the file given by {@value JsonLoader#PATH_PROPERTY}, and merges overlapping contours of
+   * strokes if asked.
+   *
+   * @param names names of the fonts
+   * @param presets features of the fonts
+   * @param letters drawable letters to generate in order of code points
+   * @param format format of the fonts
+   * @param compressed whether to compress SVG documents by gzip
+   * @param directory directory of the fonts
+   * @param threadCount number of threads generating glyphs
+   * @param offsetMethod offset method of every stroke
+   * @param mergingContours whether to merge overlapping contours of strokes
+   */
+  public FontGenerator(ArrayList<String> names, ArrayList<FeatureSnapshot> presets,
+                       ArrayList<Character> letters, Format format, boolean compressed,
+                       File directory, int threadCount,
+                       BezierCurveOffsetMethodType offsetMethod, boolean mergingContours) {
+    this.names.addAll(names);
+    this.presets.addAll(presets);
+    this.letters = letters;
+    this.format = format;
+    this.compressed = compressed;
+    this.directory = directory;
+    this.threadCount = threadCount;
+    this.offsetMethod = offsetMethod;
+    this.mergingContours = mergingContours;
+  }
+
+  /**
+   * Generates fonts as given by the arguments.
+   *
+   * @param args options of the fonts, as printed by the usage
+   */
+  public static void main(String[] args) {
+    String templates = null;
+    String presetPath = null;
+    String lettersOption = "all";
+    String formatOption = "ttf";
+    String name = null;
+    boolean compressed = false;
+    boolean mergingContours = false;
+    File directory = new File(".");
+    int threads = Runtime.getRuntime().availableProcessors();
+    int workers = 0;
+    BezierCurveOffsetMethodType offsetMethod = BezierCurveOffsetMethodType.TillerHanson;
+    JsonObject overrides = new JsonObject();
+    try {
+      for (int i = 0; i < args.length; i++) {
+        String option = args[i];
+        if (option.equals("--gzip")) {
+          compressed = true;
+          continue;
+        }
+        if (option.equals("--merge-contours")) {
+          mergingContours = true;
+          continue;
+        }
+        if (i + 1 >= args.length || !option.startsWith("--")) {
+          throw new IllegalArgumentException("Missing value of " + option);
+        }
+        String value = args[++i];
+        String key = option.substring(2);
+        switch (key) {
+          case "skeleton":
+            System.setProperty(JsonLoader.PATH_PROPERTY, value);
+            break;
+          case "templates":
+            templates = value;
+            break;
+          case "preset":
+            presetPath = value;
+            break;
+          case "letters":
+            lettersOption = value;
+            break;
+          case "format":
+            formatOption = value;
+            break;
+          case "name":
+            name = value;
+            break;
+          case "output":
+            directory = new File(value);
+            break;
+          case "threads":
+            threads = Integer.parseInt(value);
+            break;
+          case "workers":
+            workers = Integer.parseInt(value);
+            break;
+          case "offset-method":
+            offsetMethod = BezierCurveOffsetMethodType.valueOf(value);
+            break;
+          default:
+            if (!isFeatureKey(key)) {
+              throw new IllegalArgumentException("Unknown option " + option);
+            }
+            overrides.addProperty(key, value);
+            break;
+        }
+      }
+      String skeleton = System.getProperty(JsonLoader.PATH_PROPERTY);
+      if (skeleton == null || !new File(skeleton).isFile()) {
+        throw new IllegalArgumentException("Missing skeleton file " + skeleton);
+      }
+      if (threads <= 0 || workers < 0) {
+        throw new IllegalArgumentException("Invalid number of threads or workers");
+      }
+      Format format = Format.valueOf(formatOption.toUpperCase(Locale.US).replace('-', '_'));
+      if (workers > 0 && format != Format.TTF) {
+        throw new IllegalArgumentException("Workers generate TrueType fonts only");
+      }
+
+      JsonArray presetData = new JsonArray();
+      if (presetPath == null) {
+        presetData.add(new JsonObject());
+      } else {
+        JsonElement element = parseJson(new File(presetPath));
+        if (element.isJsonArray()) {
+          presetData = element.getAsJsonArray();
+        } else {
+          presetData.add(element);
+        }
+      }
+      ArrayList<String> names = new ArrayList<>();
+      ArrayList<FeatureSnapshot> presets = new ArrayList<>();
+      for (int i = 0; i < presetData.size(); i++) {
+        JsonObject preset = presetData.get(i).getAsJsonObject();
+        presets.add(makeSnapshot(preset, overrides));
+        String presetName = preset.has(NAME_KEY) ? preset.get(NAME_KEY).getAsString()
+            : name != null ? name : DEFAULT_NAME;
+        names.add(presetData.size() > 1 && !preset.has(NAME_KEY) ? presetName + i : presetName);
+      }
+
+      long start = System.nanoTime();
+      ArrayList<Character> letters = parseLetters(lettersOption);
+      System.out.println(String.format(Locale.US, "%d letters loaded in %d ms", letters.size(),
+          (System.nanoTime() - start) / 1000000));
+      if (templates != null) {
+        start = System.nanoTime();
+        TemplateStore templateStore = TemplateStore.open(new File(templates));
+        System.out.println(String.format(Locale.US, "%d templates opened in %d ms",
+            templateStore.getLetterCount(), (System.nanoTime() - start) / 1000000));
+      }
+      if (workers > 0) {
+        generateByWorkers(names, presets, letters, skeleton, workers, threads, offsetMethod,
+            mergingContours, directory);
+      } else {
+        new FontGenerator(names, presets, letters, format, compressed, directory, threads,
+            offsetMethod, mergingContours).generate();
+      }
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println(USAGE);
+      System.exit(2);
+    } catch (IOException e) {
+      e.printStackTrace();
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Generates every font, one after another on the same threads.
+   *
+   * @return the font files
+   * @throws IOException if an I/O error occurs
+   */
+  public ArrayList<File> generate() throws IOException {
+    ArrayList<File> files = new ArrayList<>();
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    ThreadLocal<GlyphGenerator> generators = new ThreadLocal<GlyphGenerator>() {
+      @Override
+      protected GlyphGenerator initialValue() {
+        return new GlyphGenerator(new StrokeMemo(), offsetMethod, mergingContours);
+      }
+    };
+    try {
+      for (int i = 0; i < presets.size(); i++) {
+        File file = new File(directory, names.get(i)
+            + (compressed && format != Format.TTF ? ".svgz" : format.extension));
+        generate(executor, generators, presets.get(i), names.get(i), file);
+        files.add(file);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    return files;
+  }
+
+  private void generate(ExecutorService executor, ThreadLocal<GlyphGenerator> generators,
+                        FeatureSnapshot features, String name, File file) throws IOException {
+    long start = System.nanoTime();
+    AtomicLong generationNanos = new AtomicLong();
+    long writingNanos = 0;
+    FontFileOutput output = new FontFileOutput(file);
+    try {
+      GlyphSink sink = format == Format.TTF ? new TrueTypeSink(name)
+          : new SvgSink(output, name, format == Format.SVG ? Layout.FONT : Layout.PATHS,
+              compressed, letters.size());
+      ArrayDeque<Future<Glyph[]>> pending = new ArrayDeque<>();
+      int next = 0;
+      while (next < letters.size() || !pending.isEmpty()) {
+        while (next < letters.size() && pending.size() < threadCount * BATCHES_PER_THREAD) {
+          int end = Math.min(letters.size(), next + BATCH_SIZE);
+          pending.add(executor.submit(
+              new Batch(generators, features, letters.subList(next, end), generationNanos)));
+          next = end;
+        }
+        Glyph[] glyphs = pending.poll().get();
+        long writingStart = System.nanoTime();
+        for (Glyph glyph : glyphs) {
+          sink.add(glyph);
+        }
+        writingNanos += System.nanoTime() - writingStart;
+      }
+      long writingStart = System.nanoTime();
+      sink.finish(output);
+      long bytes = output.getChannel().position();
+      output.commit();
+      writingNanos += System.nanoTime() - writingStart;
+
+      long elapsedNanos = System.nanoTime() - start;
+      System.out.println(String.format(Locale.US,
+          "%s: %d glyphs in %d ms (%.1f glyphs/s), generation %d ms on %d threads,"
+          + " writing %d ms, %d bytes to %s", name, letters.size(), elapsedNanos / 1000000,
+          letters.size() * 1E9 / Math.max(1, elapsedNanos), generationNanos.get() / 1000000,
+          threadCount, writingNanos / 1000000, bytes, file));
+    } catch (ExecutionException e) {
+      output.abort();
+      throw new IOException("Cannot generate " + name, e.getCause());
+    } catch (InterruptedException e) {
+      output.abort();
+      throw new IOException("Generation of " + name + " interrupted", e);
+    } catch (IOException | RuntimeException e) {
+      output.abort();
+      throw e;
+    }
+  }
+
+  private static void generateByWorkers(ArrayList<String> names,
+                                        ArrayList<FeatureSnapshot> presets,
+                                        ArrayList<Character> letters, String skeleton,
+                                        int workers, int threads,
+                                        BezierCurveOffsetMethodType offsetMethod,
+                                        boolean mergingContours, File directory)
+      throws IOException {
+    int[] ranges = toRanges(letters);
+    long start = System.nanoTime();
+    ExportCoordinator coordinator = ExportCoordinator.startLocalWorkers(workers, skeleton,
+        Math.max(1, threads / workers), offsetMethod, mergingContours);
+    try {
+      System.out.println(String.format(Locale.US, "%d workers started in %d ms", workers,
+          (System.nanoTime() - start) / 1000000));
+      for (int i = 0; i < presets.size(); i++) {
+        start = System.nanoTime();
+        File file = coordinator.export(presets.get(i), ranges, names.get(i),
+            new File(directory, names.get(i) + Format.TTF.extension));
+        long elapsedNanos = System.nanoTime() - start;
+        System.out.println(String.format(Locale.US,
+            "%s: %d glyphs in %d ms (%.1f glyphs/s) on %d workers, %d shards stolen,"
+            + " %d bytes to %s", names.get(i), coordinator.getGlyphCount(),
+            elapsedNanos / 1000000, coordinator.getGlyphCount() * 1E9 / Math.max(1, elapsedNanos),
+            workers, coordinator.getStolenShardCount(), file.length(), file));
+      }
+    } finally {
+      coordinator.close();
+    }
+  }
+
+  private static boolean isFeatureKey(String key) {
+    for (String featureKey : FEATURE_KEYS) {
+      if (featureKey.equals(key)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Makes the features of the preset, whose values missing in both the preset and
+   * the overrides are the default values of the application.
+   */
+  private static FeatureSnapshot makeSnapshot(JsonObject preset, JsonObject overrides) {
+    FontItem defaults = FontItem.DEFAULT_CONTROLS;
+    double[] values = {defaults.getCurve(), defaults.getRoundness(), defaults.getWeight(),
+        defaults.getContrast(), defaults.getWidth(), defaults.getFlattening(),
+        defaults.getArise(), defaults.getSlant(), FeatureController.getInstance().getGap()};
+    PenType pen = defaults.getPen();
+    for (JsonObject source : new JsonObject[] {preset, overrides}) {
+      for (int i = 0; i < values.length; i++) {
+        if (source.has(FEATURE_KEYS[i])) {
+          values[i] = source.get(FEATURE_KEYS[i]).getAsDouble();
+        }
+      }
+      String penKey = FEATURE_KEYS[FEATURE_KEYS.length - 1];
+      if (source.has(penKey)) {
+        pen = PenType.valueOf(source.get(penKey).getAsString());
+      }
+    }
+    return new FeatureSnapshot(new FontItem.FontItemBuilder()
+        .setCurve(values[0])
+        .setRoundness(values[1])
+        .setWeight(values[2])
+        .setContrast(values[3])
+        .setWidth(values[4])
+        .setFlattening(values[5])
+        .setArise(values[6])
+        .setSlant(values[7])
+        .setPen(pen)
+        .build(), values[8]);
+  }
+
+  /**
+   * Parses the letters option into drawable letters in order of code points.
+   */
+  private static ArrayList<Character> parseLetters(String option) throws IOException {
+    ArrayList<Character> letters;
+    if (option.equals("all")) {
+      letters = HangulLetters.getLetters(ExportType.ALL, null);
+    } else if (option.equals("partial")) {
+      letters = HangulLetters.getLetters(ExportType.PARTIAL, null);
+    } else if (option.startsWith(TEXT_PREFIX)) {
+      return HangulLetters.getLetters(ExportType.SUBSET,
+          FontExporter.readSubsetText(new File(option.substring(TEXT_PREFIX.length()))));
+    } else {
+      StringBuilder text = new StringBuilder();
+      for (String range : option.split(",")) {
+        String[] bounds = range.trim().split("-");
+        int first = Integer.parseInt(bounds[0], 16);
+        int last = bounds.length > 1 ? Integer.parseInt(bounds[1], 16) : first;
+        if (bounds.length > 2 || first < 0 || first > last
+            || last > GlyphProtocol.MAX_CODE_POINT) {
+          throw new IllegalArgumentException("Invalid range " + range);
+        }
+        for (int i = first; i <= last; i++) {
+          text.append((char) i);
+        }
+      }
+      return HangulLetters.getLetters(ExportType.SUBSET, text.toString());
+    }
+    ArrayList<Character> drawable = new ArrayList<>(letters.size());
+    for (char letter : letters) {
+      if (CharacterLoader.getInstance().isDrawable(letter)) {
+        drawable.add(letter);
+      }
+    }
+    return drawable;
+  }
+
+  /**
+   * Returns the ranges of consecutive letters, as the first and last code points in pairs.
+   */
+  private static int[] toRanges(ArrayList<Character> letters) {
+    int[] ranges = new int[letters.size() * 2];
+    int count = 0;
+    for (char letter : letters) {
+      if (count > 0 && ranges[count - 1] == letter - 1) {
+        ranges[count - 1] = letter;
+      } else {
+        ranges[count++] = letter;
+        ranges[count++] = letter;
+      }
+    }
+    int[] trimmed = new int[count];
+    System.arraycopy(ranges, 0, trimmed, 0, count);
+    return trimmed;
+  }
+
+  private static JsonElement parseJson(File file) throws IOException {
+    Reader reader = new InputStreamReader(new FileInputStream(file), CHARSET);
+    try {
+      return new JsonParser().parse(reader);
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * A generated glyph: its contours in font units and its advance width.
+   */
+  private static class Glyph {
+    private final char letter;
+    private final ArrayList<ArrayList<BezierCurve>> contours;
+    private final double advanceWidth;
+
+    Glyph(char letter, ArrayList<ArrayList<BezierCurve>> contours, double advanceWidth) {
+      this.letter = letter;
+      this.contours = contours;
+      this.advanceWidth = advanceWidth;
+    }
+  }
+
+  /**
+   * Letters generated by a thread of the pool.
+   */
+  private static class Batch implements Callable<Glyph[]> {
+    private final ThreadLocal<GlyphGenerator> generators;
+    private final FeatureSnapshot features;
+    private final List<Character> letters;
+    private final AtomicLong generationNanos;
+
+    Batch(ThreadLocal<GlyphGenerator> generators, FeatureSnapshot features,
+          List<Character> letters, AtomicLong generationNanos) {
+      this.generators = generators;
+      this.features = features;
+      this.letters = letters;
+      this.generationNanos = generationNanos;
+    }
+
+    @Override
+    public Glyph[] call() {
+      long start = System.nanoTime();
+      GlyphGenerator generator = generators.get();
+      Glyph[] glyphs = new Glyph[letters.size()];
+      for (int i = 0; i < glyphs.length; i++) {
+        char letter = letters.get(i);
+        glyphs[i] = new Glyph(letter, generator.generateContours(features, letter),
+            generator.getAdvanceWidth());
+      }
+      generationNanos.addAndGet(System.nanoTime() - start);
+      return glyphs;
+    }
+  }
+
+  /**
+   * Writer of generated glyphs in order.
+   */
+  private interface GlyphSink {
+    void add(Glyph glyph) throws IOException;
+
+    void finish(FontFileOutput output) throws IOException;
+  }
+
+  private static class TrueTypeSink implements GlyphSink {
+    private final TrueTypeWriter writer;
+
+    TrueTypeSink(String name) {
+      Region origin = HangulCharacter.ORIGIN_REGION;
+      writer = new TrueTypeWriter(name, (int) Math.round(origin.getMaxY() - origin.getMinY()),
+          (int) Math.round(origin.getMaxY()), (int) Math.round(origin.getMinY()));
+    }
+
+    @Override
+    public void add(Glyph glyph) {
+      GlyphOutline.Builder builder = new GlyphOutline.Builder();
+      for (ArrayList<BezierCurve> contour : glyph.contours) {
+        builder.addContour(contour);
+      }
+      int index = writer.addGlyph(builder.build(), (int) Math.round(glyph.advanceWidth));
+      writer.mapCharacter(glyph.letter, index);
+    }
+
+    @Override
+    public void finish(FontFileOutput output) throws IOException {
+      writer.write(output.getChannel());
+    }
+  }
+
+  /**
+   * Sink streaming glyphs to the file as they are added.
+   */
+  private static class SvgSink implements GlyphSink {
+    private final GZIPOutputStream gzipStream;
+    private final SvgWriter writer;
+
+    SvgSink(FontFileOutput output, String name, Layout layout, boolean compressed,
+            int glyphCount) throws IOException {
+      OutputStream stream = Channels.newOutputStream(output.getChannel());
+      gzipStream = compressed ? new GZIPOutputStream(stream, WRITE_BUFFER_SIZE) : null;
+      Region origin = HangulCharacter.ORIGIN_REGION;
+      writer = new SvgWriter(new BufferedWriter(new OutputStreamWriter(
+          gzipStream != null ? gzipStream : stream, CHARSET), WRITE_BUFFER_SIZE), layout, name,
+          (int) Math.round(origin.getMaxY() - origin.getMinY()),
+          (int) Math.round(origin.getMaxY()), (int) Math.round(origin.getMinY()), glyphCount,
+          SvgWriter.DEFAULT_DECIMALS);
+    }
+
+    @Override
+    public void add(Glyph glyph) throws IOException {
+      writer.addGlyph(glyph.letter, glyph.contours, glyph.advanceWidth);
+    }
+
+    @Override
+    public void finish(FontFileOutput output) throws IOException {
+      writer.finish();
+      if (gzipStream != null) {
+        gzipStream.finish();
+      }
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package kr.ac.kaist.team888.daemon;
+
+import kr.ac.kaist.team888.bezier.BezierCurve;
+import kr.ac.kaist.team888.font.GlyphOutline;
+import kr.ac.kaist.team888.font.TrueTypeWriter;
+import kr.ac.kaist.team888.hangulcharacter.HangulCharacter;
+import kr.ac.kaist.team888.region.Region;
+
+import org.apache.commons.math3.geometry.euclidean.twod.Vector2D;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.ArrayList;
+
+/**
+ * Session of the text protocol of the font server, with which a {@link GlyphDaemon} replaces
+ * the font server for the font exporter.
+ *
+ * <p>The client sends the font name after <code>$$</code>, a line per glyph, and a line of
+ * <code>$$</code>. A glyph line holds the letter, the advance width and the contours separated
+ * by semicolons, and each contour holds its start point and then the end point and the optional
+ * controlling point of each curve, separated by commas. The daemon answers with the length of
+ * the font as a long followed by the font.
+ */
+class FontServerSession {
+  private static final String CHARSET = "UTF-8";
+  private static final String DELIMITER = "$$";
+
+  private FontServerSession() {
+  }
+
+  /**
+   * Reads the glyphs and writes the font built of them.
+   *
+   * @param in input of the client
+   * @param out output to the client
+   * @throws IOException if an I/O error occurs or a glyph line is corrupted
+   */
+  static void serve(InputStream in, OutputStream out) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(in, CHARSET));
+    String header = reader.readLine();
+    if (header == null || !header.startsWith(DELIMITER)) {
+      throw new IOException("Missing font name");
+    }
+    Region origin = HangulCharacter.ORIGIN_REGION;
+    TrueTypeWriter writer = new TrueTypeWriter(header.substring(DELIMITER.length()),
+        (int) Math.round(origin.getMaxY() - origin.getMinY()),
+        (int) Math.round(origin.getMaxY()), (int) Math.round(origin.getMinY()));
+
+    String line;
+    while (!DELIMITER.equals(line = reader.readLine())) {
+      if (line == null) {
+        throw new IOException("Font server session ended before the font");
+      }
+      if (!line.trim().isEmpty()) {
+        addGlyph(writer, line);
+      }
+    }
+
+    ByteArrayOutputStream font = new ByteArrayOutputStream();
+    writer.write(font);
+    DataOutputStream dataOut = new DataOutputStream(out);
+    dataOut.writeLong(font.size());
+    font.writeTo(dataOut);
+    dataOut.flush();
+  }
+
+  private static void addGlyph(TrueTypeWriter writer, String line) throws IOException {
+    String[] fields = line.split(";");
+    if (fields.length < 2 || fields[0].isEmpty()) {
+      throw new IOException("Invalid glyph: " + line);
+    }
+    try {
+      char letter = fields[0].charAt(0);
+      int advanceWidth = (int) Math.round(Double.parseDouble(fields[1].trim()));
+      GlyphOutline.Builder builder = new GlyphOutline.Builder();
+      for (int i = 2; i < fields.length; i++) {
+        ArrayList<BezierCurve> contour = parseContour(fields[i]);
+        if (!contour.isEmpty()) {
+          builder.addContour(contour);
+        }
+      }
+      writer.mapCharacter(letter, writer.addGlyph(builder.build(), advanceWidth));
+    } catch (RuntimeException e) {
+      throw new IOException("Invalid glyph: " + line, e);
+    }
+  }
+
+  /**
+   * Parses a contour, whose last point repeats the end of its last curve.
+   */
+  private static ArrayList<BezierCurve> parseContour(String field) {
+    ArrayList<double[]> points = new ArrayList<>();
+    for (String token : field.split(",")) {
+      token = token.trim();
+      if (!token.isEmpty()) {
+        String[] values = token.split("\\s+");
+        double[] point = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+          point[i] = Double.parseDouble(values[i]);
+        }
+        points.add(point);
+      }
+    }
+
+    ArrayList<BezierCurve> contour = new ArrayList<>();
+    for (int i = 1; i < points.size() - 1; i++) {
+      double[] start = points.get(i - 1);
+      double[] curve = points.get(i);
+      Vector2D startPoint = new Vector2D(start[0], start[1]);
+      Vector2D endPoint = new Vector2D(curve[0], curve[1]);
+      if (curve.length >= 4) {
+        contour.add(new BezierCurve(new Vector2D[] {
+            startPoint, new Vector2D(curve[2], curve[3]), endPoint}));
+      } else {
+        contour.add(new BezierCurve(new Vector2D[] {startPoint, endPoint}));
+      }
+    }
+    return contour;
+  }
+}
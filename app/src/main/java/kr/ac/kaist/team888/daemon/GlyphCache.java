@@ -0,0 +1,107 @@
+package kr.ac.kaist.team888.daemon;
+
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of glyph data by features and letter, shared by every client of a daemon.
+ *
+ * <p>The cache keeps at most the given number of bytes of glyph data, discarding the least
+ * recently used glyphs. It is thread-safe.
+ */
+class GlyphCache {
+  private final long capacity;
+  private final LinkedHashMap<Key, byte[]> entries = new LinkedHashMap<>(16, .75f, true);
+  private long size;
+  private long hitCount;
+  private long missCount;
+
+  /**
+   * Creates a new cache holding at most the given number of bytes.
+   *
+   * @param capacity maximum number of bytes of glyph data
+   * @throws NotStrictlyPositiveException if <code>capacity</code> is not positive
+   */
+  GlyphCache(long capacity) throws NotStrictlyPositiveException {
+    if (capacity <= 0) {
+      throw new NotStrictlyPositiveException(capacity);
+    }
+    this.capacity = capacity;
+  }
+
+  /**
+   * Returns the glyph data of the letter with the features, or <code>null</code> if not cached.
+   *
+   * @param features features of the glyph
+   * @param letter letter of the glyph
+   * @return the glyph data, or <code>null</code> if not cached
+   */
+  synchronized byte[] get(FeatureSnapshot features, char letter) {
+    byte[] data = entries.get(new Key(features, letter));
+    if (data == null) {
+      missCount++;
+    } else {
+      hitCount++;
+    }
+    return data;
+  }
+
+  /**
+   * Caches the glyph data of the letter with the features.
+   *
+   * @param features features of the glyph
+   * @param letter letter of the glyph
+   * @param data glyph data, which must not be modified afterwards
+   */
+  synchronized void put(FeatureSnapshot features, char letter, byte[] data) {
+    if (data.length > capacity) {
+      return;
+    }
+    byte[] previous = entries.put(new Key(features, letter), data);
+    size += data.length - (previous == null ? 0 : previous.length);
+    Iterator<Map.Entry<Key, byte[]>> iterator = entries.entrySet().iterator();
+    while (size > capacity) {
+      size -= iterator.next().getValue().length;
+      iterator.remove();
+    }
+  }
+
+  synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  synchronized long getMissCount() {
+    return missCount;
+  }
+
+  synchronized long getSize() {
+    return size;
+  }
+
+  private static final class Key {
+    private final FeatureSnapshot features;
+    private final char letter;
+
+    Key(FeatureSnapshot features, char letter) {
+      this.features = features;
+      this.letter = letter;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      if (!(object instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) object;
+      return letter == key.letter && features.equals(key.features);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * features.hashCode() + letter;
+    }
+  }
+}
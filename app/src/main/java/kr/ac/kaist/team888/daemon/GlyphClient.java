@@ -0,0 +1,146 @@
+package kr.ac.kaist.team888.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Client of a {@link GlyphDaemon}.
+ *
+ * <p>Requests may be sent ahead of receiving the glyphs of earlier requests, which the daemon
+ * answers in order. A client is not thread-safe.
+ */
+public class GlyphClient implements Closeable {
+  private static final int CONNECT_TIMEOUT_MILLIS = 60000;
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final Socket socket;
+  private final DataInputStream in;
+  private final DataOutputStream out;
+  private final int threadCount;
+  private int nextRequestId;
+
+  /**
+   * Connects to a daemon.
+   *
+   * @param host host of the daemon
+   * @param port port of the daemon
+   * @throws IOException if the daemon cannot be reached or speaks another protocol
+   */
+  public GlyphClient(String host, int port) throws IOException {
+    socket = new Socket();
+    try {
+      socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+      socket.setTcpNoDelay(true);
+      in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+      out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(),
+          BUFFER_SIZE));
+      out.writeInt(GlyphProtocol.MAGIC);
+      out.writeShort(GlyphProtocol.VERSION);
+      out.flush();
+      if (in.readInt() != GlyphProtocol.MAGIC || in.readShort() != GlyphProtocol.VERSION) {
+        throw new IOException("Unsupported glyph daemon at " + host + ":" + port);
+      }
+      threadCount = in.readInt();
+    } catch (IOException e) {
+      socket.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the number of threads generating glyphs in the daemon.
+   *
+   * @return the number of threads of the daemon
+   */
+  public int getThreadCount() {
+    return threadCount;
+  }
+
+  /**
+   * Sends a request for the glyphs of the code point ranges with the features.
+   *
+   * @param features features of the glyphs
+   * @param ranges first and last code points of each range, in pairs
+   * @return the id of the request to receive its glyphs
+   * @throws IOException if an I/O error occurs
+   */
+  public int send(FeatureSnapshot features, int[] ranges) throws IOException {
+    int requestId = nextRequestId++;
+    out.writeByte(GlyphProtocol.REQUEST_GENERATE);
+    out.writeInt(requestId);
+    features.writeTo(out);
+    out.writeInt(ranges.length / 2);
+    for (int i = 0; i + 1 < ranges.length; i += 2) {
+      out.writeInt(ranges[i]);
+      out.writeInt(ranges[i + 1]);
+    }
+    out.flush();
+    return requestId;
+  }
+
+  /**
+   * Receives the glyphs of the request in order of code points, which must be the earliest
+   * request not received yet.
+   *
+   * @param requestId id of the request
+   * @param callbacks call backs receiving each glyph
+   * @return the number of glyphs received
+   * @throws IOException if an I/O error occurs, or the request failed in the daemon
+   */
+  public int receive(int requestId, GlyphCallbacks callbacks) throws IOException {
+    while (true) {
+      int record = in.readUnsignedByte();
+      int id = in.readInt();
+      if (id != requestId) {
+        throw new IOException("Unexpected request " + id + " instead of " + requestId);
+      }
+      switch (record) {
+        case GlyphProtocol.RECORD_GLYPH:
+          char letter = (char) in.readInt();
+          byte[] data = new byte[in.readInt()];
+          in.readFully(data);
+          callbacks.onGlyph(letter, data);
+          break;
+        case GlyphProtocol.RECORD_END:
+          return in.readInt();
+        case GlyphProtocol.RECORD_ERROR:
+          throw new IOException("Glyph daemon failed: " + in.readUTF());
+        default:
+          throw new IOException("Unknown record " + record);
+      }
+    }
+  }
+
+  /**
+   * Ends the session and closes the connection.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      out.writeByte(GlyphProtocol.REQUEST_CLOSE);
+      out.flush();
+    } finally {
+      socket.close();
+    }
+  }
+
+  /**
+   * Interface receiving the glyphs of a request.
+   */
+  public interface GlyphCallbacks {
+    /**
+     * Called for each glyph of the request in order of code points.
+     *
+     * @param letter letter of the glyph
+     * @param data glyph data made by {@link GlyphGenerator#generate(FeatureSnapshot, char)}
+     * @throws IOException if the glyph cannot be used, which ends receiving
+     */
+    void onGlyph(char letter, byte[] data) throws IOException;
+  }
+}
@@ -0,0 +1,453 @@
+package kr.ac.kaist.team888.daemon;
+
+import kr.ac.kaist.team888.bezier.BezierCurveOffsetMethodType;
+import kr.ac.kaist.team888.bezier.StrokeMemo;
+import kr.ac.kaist.team888.hangulcharacter.CharacterLoader;
+import kr.ac.kaist.team888.locator.TemplateStore;
+import kr.ac.kaist.team888.util.JsonLoader;
+
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Standalone daemon generating glyphs for clients over local sockets, independent of Android.
+ *
+ * <p>Clients send feature snapshots and code point ranges by the {@link GlyphProtocol}, and
+ * the daemon streams back the glyph data of every drawable letter of the ranges. Letters of
+ * a request are generated in batches on a pool of a thread per core, shared by every client,
+ * and the batches of a request are written in order of code points as they complete. Each
+ * thread keeps its own {@link GlyphGenerator} with its memo of strokes for the lifetime of
+ * the daemon, and generated glyphs are kept in a cache shared by the clients, so that clients
+ * exporting the same features reuse each other's work.
+ *
+ * <p>A client beginning with <code>$$</code> is served by the text protocol of the font server
+ * instead, which makes a local daemon a replacement of the font server for the font exporter.
+ *
+ * <p>The daemon reads the skeleton data from the file given by
+ * {@value JsonLoader#PATH_PROPERTY}, which is set by the <code>--skeleton</code> option, and
+ * locates letters from the {@link TemplateStore} given by the <code>--templates</code> option.
+ * The <code>glyphDaemonJar</code> task of the app module builds a runnable jar of the daemon.
+ */
+public class GlyphDaemon implements Closeable {
+  /**
+   * A default port, which is the port of the font server.
+   */
+  public static final int DEFAULT_PORT = 3000;
+
+  /**
+   * The beginning of the line printed by {@link #main(String[])} once the daemon accepts
+   * clients, followed by the port.
+   */
+  static final String LISTENING_MESSAGE = "Listening on port ";
+
+  private static final String USAGE = "Usage: GlyphDaemon --skeleton <file>"
+      + " [--templates <file>] [--port <port>] [--bind <address>] [--threads <count>]"
+      + " [--offset-method TillerHanson|Adaptive] [--merge-contours]";
+  private static final int BATCH_SIZE = 32;
+  private static final int BATCHES_PER_THREAD = 2;
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final long MAX_CACHE_BYTES = 1 << 28;
+  private static final int CACHE_HEAP_FRACTION = 4;
+
+  private final ServerSocket serverSocket;
+  private final int threadCount;
+  private final ExecutorService executor;
+  private final GlyphCache cache;
+  private final HashSet<Socket> clients = new HashSet<>();
+  private final ThreadLocal<GlyphGenerator> generators;
+  private volatile boolean closed;
+
+  /**
+   * Creates a new daemon accepting clients from the server socket.
+   *
+   * @param serverSocket bound server socket, which is closed with the daemon
+   * @param threadCount number of threads generating glyphs
+   * @throws NotStrictlyPositiveException if <code>threadCount</code> is not positive
+   */
+  public GlyphDaemon(ServerSocket serverSocket, int threadCount)
+      throws NotStrictlyPositiveException {
+    this(serverSocket, threadCount, BezierCurveOffsetMethodType.TillerHanson);
+  }
+
+  /**
+   * Creates a new daemon accepting clients from the server socket, which offsets strokes by
+   * the given method.
+   *
+   * @param serverSocket bound server socket, which is closed with the daemon
+   * @param threadCount number of threads generating glyphs
+   * @param offsetMethod offset method of every stroke
+   * @throws NotStrictlyPositiveException if <code>threadCount</code> is not positive
+   */
+  public GlyphDaemon(ServerSocket serverSocket, int threadCount,
+                     BezierCurveOffsetMethodType offsetMethod)
+      throws NotStrictlyPositiveException {
+    this(serverSocket, threadCount, offsetMethod, false);
+  }
+
+  /**
+   * Creates a new daemon accepting clients from the server socket, which offsets strokes by
+   * the given method, and merges overlapping contours of strokes if asked.
+   *
+   * @param serverSocket bound server socket, which is closed with the daemon
+   * @param threadCount number of threads generating glyphs
+   * @param offsetMethod offset method of every stroke
+   * @param mergingContours whether to merge overlapping contours of strokes
+   * @throws NotStrictlyPositiveException if <code>threadCount</code> is not positive
+   */
+  public GlyphDaemon(ServerSocket serverSocket, int threadCount,
+                     final BezierCurveOffsetMethodType offsetMethod,
+                     final boolean mergingContours)
+      throws NotStrictlyPositiveException {
+    if (threadCount <= 0) {
+      throw new NotStrictlyPositiveException(threadCount);
+    }
+    this.serverSocket = serverSocket;
+    this.threadCount = threadCount;
+    generators = new ThreadLocal<GlyphGenerator>() {
+      @Override
+      protected GlyphGenerator initialValue() {
+        return new GlyphGenerator(new StrokeMemo(), offsetMethod, mergingContours);
+      }
+    };
+    final AtomicInteger threadNumber = new AtomicInteger();
+    executor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "glyph-" + threadNumber.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    cache = new GlyphCache(Math.max(1, Math.min(MAX_CACHE_BYTES,
+        Runtime.getRuntime().maxMemory() / CACHE_HEAP_FRACTION)));
+  }
+
+  /**
+   * Starts a daemon on a local port.
+   *
+   * @param args <code>--skeleton</code> file of skeleton data, <code>--templates</code> file of
+   *     the template store, built if missing, <code>--port</code> to listen,
+   *     <code>--bind</code> address to listen, which is the loopback address by default,
+   *     <code>--threads</code> count, which is the number of cores by default,
+   *     <code>--offset-method</code> of strokes, which is Tiller-Hanson by default, and
+   *     <code>--merge-contours</code> to merge overlapping contours of strokes
+   */
+  public static void main(String[] args) {
+    int port = DEFAULT_PORT;
+    BezierCurveOffsetMethodType offsetMethod = BezierCurveOffsetMethodType.TillerHanson;
+    String templates = null;
+    String bindAddress = null;
+    int threads = Runtime.getRuntime().availableProcessors();
+    boolean mergingContours = false;
+    try {
+      for (int i = 0; i < args.length; i++) {
+        String option = args[i];
+        if (option.equals("--merge-contours")) {
+          mergingContours = true;
+          continue;
+        }
+        if (i + 1 >= args.length) {
+          throw new IllegalArgumentException("Missing value of " + option);
+        }
+        String value = args[++i];
+        switch (option) {
+          case "--skeleton":
+            System.setProperty(JsonLoader.PATH_PROPERTY, value);
+            break;
+          case "--templates":
+            templates = value;
+            break;
+          case "--port":
+            port = Integer.parseInt(value);
+            break;
+          case "--bind":
+            bindAddress = value;
+            break;
+          case "--threads":
+            threads = Integer.parseInt(value);
+            break;
+          case "--offset-method":
+            offsetMethod = BezierCurveOffsetMethodType.valueOf(value);
+            break;
+          default:
+            throw new IllegalArgumentException("Unknown option " + option);
+        }
+      }
+      String skeleton = System.getProperty(JsonLoader.PATH_PROPERTY);
+      if (skeleton == null || !new File(skeleton).isFile()) {
+        throw new IllegalArgumentException("Missing skeleton file " + skeleton);
+      }
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println(USAGE);
+      System.exit(2);
+      return;
+    }
+
+    try {
+      // Loads every character before the first client.
+      CharacterLoader.getInstance();
+      if (templates != null) {
+        TemplateStore.open(new File(templates));
+      }
+      ServerSocket serverSocket = new ServerSocket();
+      serverSocket.bind(new InetSocketAddress(InetAddress.getByName(bindAddress), port));
+      GlyphDaemon daemon = new GlyphDaemon(serverSocket, threads, offsetMethod, mergingContours);
+      System.out.println(LISTENING_MESSAGE + daemon.getPort() + " of "
+          + serverSocket.getInetAddress() + " with " + threads + " threads");
+      daemon.serve();
+    } catch (IOException e) {
+      e.printStackTrace();
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Returns the port of the daemon.
+   *
+   * @return the local port of the server socket
+   */
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  /**
+   * Accepts clients until the daemon is closed, serving each client by its own thread.
+   *
+   * @throws IOException if the server socket fails before the daemon is closed
+   */
+  public void serve() throws IOException {
+    try {
+      while (!closed) {
+        final Socket client = serverSocket.accept();
+        synchronized (clients) {
+          if (closed) {
+            client.close();
+            break;
+          }
+          clients.add(client);
+        }
+        Thread session = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            serveClient(client);
+          }
+        }, "session " + client.getRemoteSocketAddress());
+        session.setDaemon(true);
+        session.start();
+      }
+    } catch (IOException e) {
+      if (!closed) {
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Stops accepting clients, disconnects the connected clients and stops the threads.
+   */
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    serverSocket.close();
+    synchronized (clients) {
+      for (Socket client : clients) {
+        client.close();
+      }
+      clients.clear();
+    }
+    executor.shutdownNow();
+  }
+
+  private void serveClient(Socket client) {
+    try {
+      client.setTcpNoDelay(true);
+      BufferedInputStream in = new BufferedInputStream(client.getInputStream(), BUFFER_SIZE);
+      BufferedOutputStream out = new BufferedOutputStream(client.getOutputStream(),
+          BUFFER_SIZE);
+      in.mark(1);
+      int first = in.read();
+      in.reset();
+      if (first == '$') {
+        FontServerSession.serve(in, out);
+      } else if (first >= 0) {
+        serveGlyphs(new DataInputStream(in), new DataOutputStream(out));
+      }
+    } catch (EOFException | SocketException e) {
+      // The client has disconnected, such as a coordinator abandoning a stolen shard.
+    } catch (IOException e) {
+      if (!closed) {
+        System.err.println(Thread.currentThread().getName() + ": " + e);
+      }
+    } finally {
+      synchronized (clients) {
+        clients.remove(client);
+      }
+      try {
+        client.close();
+      } catch (IOException e) {
+        // The session has ended anyway.
+      }
+    }
+  }
+
+  private void serveGlyphs(DataInputStream in, DataOutputStream out) throws IOException {
+    int magic = in.readInt();
+    int version = in.readShort();
+    if (magic != GlyphProtocol.MAGIC || version != GlyphProtocol.VERSION) {
+      throw new IOException("Unsupported protocol " + Integer.toHexString(magic) + " "
+          + version);
+    }
+    out.writeInt(GlyphProtocol.MAGIC);
+    out.writeShort(GlyphProtocol.VERSION);
+    out.writeInt(threadCount);
+    out.flush();
+
+    while (true) {
+      int request = in.readUnsignedByte();
+      switch (request) {
+        case GlyphProtocol.REQUEST_GENERATE:
+          generate(in, out);
+          break;
+        case GlyphProtocol.REQUEST_CLOSE:
+          return;
+        default:
+          throw new IOException("Unknown request " + request);
+      }
+    }
+  }
+
+  /**
+   * Reads a request and streams its glyphs, keeping a window of batches generated ahead.
+   */
+  private void generate(DataInputStream in, DataOutputStream out) throws IOException {
+    int requestId = in.readInt();
+    FeatureSnapshot features = FeatureSnapshot.readFrom(in);
+    int rangeCount = in.readInt();
+    if (rangeCount < 0 || rangeCount > GlyphProtocol.MAX_RANGES) {
+      throw new IOException("Invalid number of ranges " + rangeCount);
+    }
+    BitSet codePoints = new BitSet();
+    String error = null;
+    for (int i = 0; i < rangeCount; i++) {
+      int first = in.readInt();
+      int last = in.readInt();
+      if (first < 0 || first > last || last > GlyphProtocol.MAX_CODE_POINT) {
+        error = "Invalid range " + first + " to " + last;
+      } else {
+        codePoints.set(first, last + 1);
+      }
+    }
+    if (error != null) {
+      writeError(out, requestId, error);
+      return;
+    }
+
+    char[] letters = new char[codePoints.cardinality()];
+    int letterCount = 0;
+    for (int i = codePoints.nextSetBit(0); i >= 0; i = codePoints.nextSetBit(i + 1)) {
+      if (CharacterLoader.getInstance().isDrawable((char) i)) {
+        letters[letterCount++] = (char) i;
+      }
+    }
+
+    ArrayDeque<Future<byte[][]>> pending = new ArrayDeque<>();
+    int next = 0;
+    int written = 0;
+    try {
+      while (next < letterCount || !pending.isEmpty()) {
+        while (next < letterCount && pending.size() < threadCount * BATCHES_PER_THREAD) {
+          int end = Math.min(letterCount, next + BATCH_SIZE);
+          pending.add(executor.submit(new Batch(features, letters, next, end)));
+          next = end;
+        }
+        byte[][] glyphs = pending.poll().get();
+        for (byte[] glyph : glyphs) {
+          out.writeByte(GlyphProtocol.RECORD_GLYPH);
+          out.writeInt(requestId);
+          out.writeInt(letters[written++]);
+          out.writeInt(glyph.length);
+          out.write(glyph);
+        }
+        out.flush();
+      }
+      out.writeByte(GlyphProtocol.RECORD_END);
+      out.writeInt(requestId);
+      out.writeInt(letterCount);
+      out.flush();
+    } catch (ExecutionException e) {
+      writeError(out, requestId, String.valueOf(e.getCause()));
+    } catch (InterruptedException e) {
+      throw new InterruptedIOException("Daemon closed");
+    } finally {
+      for (Future<byte[][]> batch : pending) {
+        batch.cancel(true);
+      }
+    }
+  }
+
+  private static void writeError(DataOutputStream out, int requestId, String message)
+      throws IOException {
+    out.writeByte(GlyphProtocol.RECORD_ERROR);
+    out.writeInt(requestId);
+    out.writeUTF(message);
+    out.flush();
+  }
+
+  /**
+   * Letters of a request generated by a thread of the pool, each loaded from the cache or
+   * generated by the generator of the thread.
+   */
+  private class Batch implements Callable<byte[][]> {
+    private final FeatureSnapshot features;
+    private final char[] letters;
+    private final int start;
+    private final int end;
+
+    Batch(FeatureSnapshot features, char[] letters, int start, int end) {
+      this.features = features;
+      this.letters = letters;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public byte[][] call() throws IOException {
+      GlyphGenerator generator = generators.get();
+      byte[][] glyphs = new byte[end - start][];
+      for (int i = start; i < end; i++) {
+        byte[] data = cache.get(features, letters[i]);
+        if (data == null) {
+          data = generator.generate(features, letters[i]);
+          cache.put(features, letters[i], data);
+        }
+        glyphs[i - start] = data;
+      }
+      return glyphs;
+    }
+  }
+}
@@ -0,0 +1,155 @@
+package kr.ac.kaist.team888.daemon;
+
+import kr.ac.kaist.team888.bezier.AffineTransform2D;
+import kr.ac.kaist.team888.bezier.BezierCurve;
+import kr.ac.kaist.team888.bezier.BezierCurveOffsetMethodType;
+import kr.ac.kaist.team888.bezier.ContourCompactor;
+import kr.ac.kaist.team888.bezier.ContourUnion;
+import kr.ac.kaist.team888.bezier.StrokeMemo;
+import kr.ac.kaist.team888.font.GlyphOutline;
+import kr.ac.kaist.team888.locator.Locator;
+import kr.ac.kaist.team888.region.Region;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Generator of simple glyph data and of glyph contours, independent of Android.
+ *
+ * <p>The data of a glyph is its advance width followed by its outline with compacted contours,
+ * as written by {@link GlyphOutline#writeTo(java.io.DataOutput)}, which is the format of
+ * the simple glyphs a font exporter writes on the device. Overlapping contours of strokes are
+ * merged by a {@link ContourUnion} first only if the generator is created so.
+ *
+ * <p>A generator keeps its own memo of stroked contours, which is reused by every glyph it
+ * generates whatever features they have, since strokes are keyed by everything they depend on.
+ * A generator is not thread-safe, but generators of different threads may run at the same time.
+ */
+public class GlyphGenerator {
+  private final StrokeMemo strokeMemo;
+  private final BezierCurveOffsetMethodType offsetMethod;
+  private final boolean mergingContours;
+  private final ContourUnion contourUnion = new ContourUnion();
+  private final ContourCompactor contourCompactor = new ContourCompactor();
+  private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+  private final DataOutputStream dataOut = new DataOutputStream(data);
+  private double advanceWidth;
+
+  /**
+   * Creates a new generator with a memo holding the default number of strokes.
+   */
+  public GlyphGenerator() {
+    this(new StrokeMemo());
+  }
+
+  /**
+   * Creates a new generator with the memo of stroked contours.
+   *
+   * @param strokeMemo memo of stroked contours, used by this generator only
+   */
+  public GlyphGenerator(StrokeMemo strokeMemo) {
+    this(strokeMemo, BezierCurveOffsetMethodType.TillerHanson);
+  }
+
+  /**
+   * Creates a new generator with the memo of stroked contours, offsetting strokes by the
+   * given method.
+   *
+   * @param strokeMemo memo of stroked contours, used by this generator only
+   * @param offsetMethod offset method of every stroke
+   */
+  public GlyphGenerator(StrokeMemo strokeMemo, BezierCurveOffsetMethodType offsetMethod) {
+    this(strokeMemo, offsetMethod, false);
+  }
+
+  /**
+   * Creates a new generator with the memo of stroked contours, offsetting strokes by the
+   * given method, which merges overlapping contours if asked.
+   *
+   * @param strokeMemo memo of stroked contours, used by this generator only
+   * @param offsetMethod offset method of every stroke
+   * @param mergingContours whether to merge overlapping contours of strokes
+   */
+  public GlyphGenerator(StrokeMemo strokeMemo, BezierCurveOffsetMethodType offsetMethod,
+                        boolean mergingContours) {
+    this.strokeMemo = strokeMemo;
+    this.offsetMethod = offsetMethod;
+    this.mergingContours = mergingContours;
+  }
+
+  /**
+   * Returns the memo of stroked contours of the generator.
+   *
+   * @return the memo of stroked contours
+   */
+  public StrokeMemo getStrokeMemo() {
+    return strokeMemo;
+  }
+
+  /**
+   * Generates the glyph data of the letter with the features.
+   *
+   * @param features features of the glyph
+   * @param letter drawable letter of the glyph
+   * @return the glyph data
+   * @throws IOException if the glyph data cannot be written
+   */
+  public byte[] generate(FeatureSnapshot features, char letter) throws IOException {
+    GlyphOutline.Builder builder = new GlyphOutline.Builder();
+    for (ArrayList<BezierCurve> contour : generateContours(features, letter)) {
+      builder.addContour(contour);
+    }
+    data.reset();
+    dataOut.writeInt((int) Math.round(advanceWidth));
+    builder.build().writeTo(dataOut);
+    dataOut.flush();
+    return data.toByteArray();
+  }
+
+  /**
+   * Generates the compacted contours of the letter with the features, in font units with y
+   * going up.
+   *
+   * @param features features of the glyph
+   * @param letter drawable letter of the glyph
+   * @return the contours of the glyph
+   * @see #getAdvanceWidth()
+   */
+  public ArrayList<ArrayList<BezierCurve>> generateContours(FeatureSnapshot features,
+                                                           char letter) {
+    Locator locator = new Locator(letter, false);
+    locator.manipulateSkeleton(features.getFlattening(), features.getArise());
+    locator.applyCurve(features.getCurve());
+    locator.applyWidth(features.getWidth());
+    locator.applyContour(features.getWeight(), features.getRoundness(), features.getContrast(),
+        features.getPen(), offsetMethod, strokeMemo);
+    Region region = locator.getGlyphRegion(features.getSlant(), features.getGap());
+    advanceWidth = region.getMaxX();
+
+    // Slants the contours on the way to font units rather than before merging.
+    ArrayList<ArrayList<BezierCurve>> contours = locator.getContour();
+    if (mergingContours) {
+      contours = contourUnion.union(contours);
+    }
+    contourCompactor.compact(contours);
+    AffineTransform2D transform = locator.getSlantTransform(features.getSlant())
+        .then(locator.locatorRegion.getTransform(region));
+    for (ArrayList<BezierCurve> contour : contours) {
+      for (BezierCurve curve : contour) {
+        curve.transform(transform);
+      }
+    }
+    return contours;
+  }
+
+  /**
+   * Returns the advance width of the glyph generated last, in font units.
+   *
+   * @return the advance width of the last glyph
+   */
+  public double getAdvanceWidth() {
+    return advanceWidth;
+  }
+}
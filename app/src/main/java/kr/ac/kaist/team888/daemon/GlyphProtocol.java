@@ -0,0 +1,71 @@
+package kr.ac.kaist.team888.daemon;
+
+/**
+ * Binary protocol between a {@link GlyphDaemon} and its clients.
+ *
+ * <p>Every value is big-endian as written by {@link java.io.DataOutputStream}. A client begins
+ * with {@link #MAGIC} and {@link #VERSION} as an int and a short, and the daemon answers with
+ * the same followed by the number of its generating threads as an int. Then the client sends
+ * requests, each beginning with a byte:
+ * <ul>
+ * <li>{@link #REQUEST_GENERATE}: the id of the request as an int, a {@link FeatureSnapshot},
+ * the number of code point ranges as an int, and the first and the last code points of each
+ * range as ints.</li>
+ * <li>{@link #REQUEST_CLOSE}: the end of the session.</li>
+ * </ul>
+ *
+ * <p>The daemon answers the requests in order. For each request it streams a record per
+ * drawable letter of the ranges in order of code points, followed by the end of the request.
+ * Each record begins with a byte and the id of the request as an int:
+ * <ul>
+ * <li>{@link #RECORD_GLYPH}: the code point as an int, the length of the glyph data as an int,
+ * and the glyph data made by {@link GlyphGenerator#generate(FeatureSnapshot, char)}.</li>
+ * <li>{@link #RECORD_END}: the number of glyphs of the request as an int.</li>
+ * <li>{@link #RECORD_ERROR}: a message as written by
+ * {@link java.io.DataOutput#writeUTF(String)}, which ends the request instead.</li>
+ * </ul>
+ */
+public final class GlyphProtocol {
+  /**
+   * The magic number beginning a session, which reads "MLFD".
+   */
+  public static final int MAGIC = 0x4D4C4644;
+  /**
+   * The version of the protocol.
+   */
+  public static final int VERSION = 1;
+
+  /**
+   * The request ending the session.
+   */
+  public static final int REQUEST_CLOSE = 0;
+  /**
+   * The request generating the glyphs of code point ranges.
+   */
+  public static final int REQUEST_GENERATE = 1;
+
+  /**
+   * The record of a glyph.
+   */
+  public static final int RECORD_GLYPH = 1;
+  /**
+   * The record ending a request.
+   */
+  public static final int RECORD_END = 2;
+  /**
+   * The record ending a request which failed.
+   */
+  public static final int RECORD_ERROR = 3;
+
+  /**
+   * The maximum number of code point ranges of a request.
+   */
+  public static final int MAX_RANGES = 1 << 12;
+  /**
+   * The maximum code point of a letter.
+   */
+  public static final int MAX_CODE_POINT = Character.MAX_VALUE;
+
+  private GlyphProtocol() {
+  }
+}
@@ -0,0 +1,388 @@
+package kr.ac.kaist.team888.font;
+
+import kr.ac.kaist.team888.bezier.BezierCurve;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Outline of a simple TrueType glyph in integer font units.
+ *
+ * <p>An outline is a set of closed contours made of on-curve and off-curve points, where
+ * an off-curve point is the controlling point of a quadratic Bezier curve. Two outlines are
+ * equal if they have the same points in the same order, so that an outline can be used as
+ * a key to share a glyph among several composite glyphs.
+ */
+public class GlyphOutline {
+  private final int[] xs;
+  private final int[] ys;
+  private final boolean[] onCurves;
+  private final int[] contourEnds;
+  private final int hash;
+
+  private GlyphOutline(int[] xs, int[] ys, boolean[] onCurves, int[] contourEnds) {
+    this.xs = xs;
+    this.ys = ys;
+    this.onCurves = onCurves;
+    this.contourEnds = contourEnds;
+
+    int hash = Arrays.hashCode(xs);
+    hash = 31 * hash + Arrays.hashCode(ys);
+    hash = 31 * hash + Arrays.hashCode(onCurves);
+    hash = 31 * hash + Arrays.hashCode(contourEnds);
+    this.hash = hash;
+  }
+
+  /**
+   * Returns the number of points.
+   *
+   * @return the number of points
+   */
+  public int getPointCount() {
+    return xs.length;
+  }
+
+  /**
+   * Returns the number of contours.
+   *
+   * @return the number of contours
+   */
+  public int getContourCount() {
+    return contourEnds.length;
+  }
+
+  /**
+   * Returns the index of the last point of the contour.
+   *
+   * @param contour index of the contour
+   * @return the index of the last point of the contour
+   */
+  public int getContourEnd(int contour) {
+    return contourEnds[contour];
+  }
+
+  /**
+   * Returns the x-coordinate of the point.
+   *
+   * @param index index of the point
+   * @return the x-coordinate of the point
+   */
+  public int getX(int index) {
+    return xs[index];
+  }
+
+  /**
+   * Returns the y-coordinate of the point.
+   *
+   * @param index index of the point
+   * @return the y-coordinate of the point
+   */
+  public int getY(int index) {
+    return ys[index];
+  }
+
+  /**
+   * Returns whether the point is on the curve.
+   *
+   * @param index index of the point
+   * @return <code>true</code> if the point is on the curve, <code>false</code> if it is
+   *     a controlling point of a quadratic curve
+   */
+  public boolean isOnCurve(int index) {
+    return onCurves[index];
+  }
+
+  /**
+   * Returns the minimum x-coordinate of the points, or 0 if the outline is empty.
+   *
+   * @return the minimum x-coordinate
+   */
+  public int getMinX() {
+    return min(xs);
+  }
+
+  /**
+   * Returns the minimum y-coordinate of the points, or 0 if the outline is empty.
+   *
+   * @return the minimum y-coordinate
+   */
+  public int getMinY() {
+    return min(ys);
+  }
+
+  /**
+   * Returns the maximum x-coordinate of the points, or 0 if the outline is empty.
+   *
+   * @return the maximum x-coordinate
+   */
+  public int getMaxX() {
+    return max(xs);
+  }
+
+  /**
+   * Returns the maximum y-coordinate of the points, or 0 if the outline is empty.
+   *
+   * @return the maximum y-coordinate
+   */
+  public int getMaxY() {
+    return max(ys);
+  }
+
+  /**
+   * Returns a new outline moved by given offsets.
+   *
+   * @param dx offset along the x-axis
+   * @param dy offset along the y-axis
+   * @return the translated outline
+   */
+  public GlyphOutline translate(int dx, int dy) {
+    int[] newXs = new int[xs.length];
+    int[] newYs = new int[ys.length];
+    for (int i = 0; i < xs.length; i++) {
+      newXs[i] = xs[i] + dx;
+      newYs[i] = ys[i] + dy;
+    }
+    return new GlyphOutline(newXs, newYs, onCurves, contourEnds);
+  }
+
+  /**
+   * Returns whether the outline has the same structure as the other, which is the same number
+   * of points in the same contours with the same on-curve flags. Compatible outlines can be
+   * interpolated point by point.
+   *
+   * @param outline outline to compare
+   * @return <code>true</code> if the outlines are compatible
+   */
+  public boolean isCompatible(GlyphOutline outline) {
+    return Arrays.equals(onCurves, outline.onCurves)
+        && Arrays.equals(contourEnds, outline.contourEnds);
+  }
+
+  /**
+   * Writes the outline to the output.
+   *
+   * @param out output to write the outline
+   * @throws IOException if an I/O error occurs
+   * @see #readFrom(DataInput)
+   */
+  public void writeTo(DataOutput out) throws IOException {
+    out.writeInt(xs.length);
+    out.writeInt(contourEnds.length);
+    for (int i = 0; i < xs.length; i++) {
+      out.writeInt(xs[i]);
+      out.writeInt(ys[i]);
+      out.writeBoolean(onCurves[i]);
+    }
+    for (int contourEnd : contourEnds) {
+      out.writeInt(contourEnd);
+    }
+  }
+
+  /**
+   * Reads an outline written by {@link #writeTo(DataOutput)}.
+   *
+   * @param in input to read the outline
+   * @return the outline read
+   * @throws IOException if an I/O error occurs
+   */
+  public static GlyphOutline readFrom(DataInput in) throws IOException {
+    int pointCount = in.readInt();
+    int contourCount = in.readInt();
+    int[] xs = new int[pointCount];
+    int[] ys = new int[pointCount];
+    boolean[] onCurves = new boolean[pointCount];
+    int[] contourEnds = new int[contourCount];
+    for (int i = 0; i < pointCount; i++) {
+      xs[i] = in.readInt();
+      ys[i] = in.readInt();
+      onCurves[i] = in.readBoolean();
+    }
+    for (int i = 0; i < contourCount; i++) {
+      contourEnds[i] = in.readInt();
+    }
+    return new GlyphOutline(xs, ys, onCurves, contourEnds);
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (this == object) {
+      return true;
+    }
+    if (!(object instanceof GlyphOutline)) {
+      return false;
+    }
+    GlyphOutline outline = (GlyphOutline) object;
+    return hash == outline.hash
+        && Arrays.equals(xs, outline.xs)
+        && Arrays.equals(ys, outline.ys)
+        && Arrays.equals(onCurves, outline.onCurves)
+        && Arrays.equals(contourEnds, outline.contourEnds);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  private static int min(int[] values) {
+    if (values.length == 0) {
+      return 0;
+    }
+    int min = values[0];
+    for (int value : values) {
+      min = Math.min(min, value);
+    }
+    return min;
+  }
+
+  private static int max(int[] values) {
+    if (values.length == 0) {
+      return 0;
+    }
+    int max = values[0];
+    for (int value : values) {
+      max = Math.max(max, value);
+    }
+    return max;
+  }
+
+  public static class Builder {
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final double CLOSING_TOLERANCE = 1E-6;
+
+    private int[] xs = new int[DEFAULT_CAPACITY];
+    private int[] ys = new int[DEFAULT_CAPACITY];
+    private boolean[] onCurves = new boolean[DEFAULT_CAPACITY];
+    private int pointCount;
+    private int[] contourEnds = new int[DEFAULT_CAPACITY / 8];
+    private int contourCount;
+    private int contourStart;
+    private boolean mergingPoints = true;
+    private double startX;
+    private double startY;
+    private double endX;
+    private double endY;
+
+    /**
+     * Sets whether coincident points are merged after rounding. Defaults to <code>true</code>.
+     *
+     * <p>Merging removes points depending on rounding, thus outlines to be interpolated
+     * with each other should be built without merging. Then only the closing point is dropped,
+     * and only if it coincides with the start point before rounding.
+     *
+     * @param mergingPoints whether to merge coincident points
+     * @return this builder, useful for chaining
+     */
+    public Builder setMergingPoints(boolean mergingPoints) {
+      this.mergingPoints = mergingPoints;
+      return this;
+    }
+
+    /**
+     * Appends a closed contour given as a sequence of Bezier curves.
+     *
+     * <p>Coordinates are rounded to integers. Lines and quadratic curves are kept as they are,
+     * and cubic or higher curves are approximated by two quadratic curves each.
+     * The closing point is omitted since every TrueType contour is closed implicitly.
+     *
+     * @see #setMergingPoints(boolean)
+     *
+     * @param curves a sequence of Bezier curves forming a contour
+     * @return this builder, useful for chaining
+     */
+    public Builder addContour(ArrayList<BezierCurve> curves) {
+      if (curves.isEmpty()) {
+        return this;
+      }
+      contourStart = pointCount;
+      BezierCurve first = curves.get(0);
+      startX = first.getX(0);
+      startY = first.getY(0);
+      addPoint(startX, startY, true);
+      for (BezierCurve curve : curves) {
+        int order = curve.getOrder();
+        if (order == 1) {
+          addPoint(curve.getX(1), curve.getY(1), true);
+        } else if (order == 2) {
+          addPoint(curve.getX(1), curve.getY(1), false);
+          addPoint(curve.getX(2), curve.getY(2), true);
+        } else {
+          BezierCurve[] halves = curve.split(.5);
+          addApproximation(halves[0]);
+          addApproximation(halves[1]);
+        }
+      }
+      closeContour();
+      return this;
+    }
+
+    /**
+     * Build the {@link GlyphOutline} after contours have been added.
+     *
+     * @return the newly constructed {@link GlyphOutline} object
+     */
+    public GlyphOutline build() {
+      return new GlyphOutline(Arrays.copyOf(xs, pointCount), Arrays.copyOf(ys, pointCount),
+          Arrays.copyOf(onCurves, pointCount), Arrays.copyOf(contourEnds, contourCount));
+    }
+
+    /**
+     * Appends a quadratic curve whose controlling point is the intersection of the end
+     * tangents estimated from the controlling points of the curve.
+     */
+    private void addApproximation(BezierCurve curve) {
+      int order = curve.getOrder();
+      double controlX = .25 * (3 * (curve.getX(1) + curve.getX(order - 1))
+          - curve.getX(0) - curve.getX(order));
+      double controlY = .25 * (3 * (curve.getY(1) + curve.getY(order - 1))
+          - curve.getY(0) - curve.getY(order));
+      addPoint(controlX, controlY, false);
+      addPoint(curve.getX(order), curve.getY(order), true);
+    }
+
+    private void addPoint(double x, double y, boolean onCurve) {
+      endX = x;
+      endY = y;
+      int roundX = (int) Math.round(x);
+      int roundY = (int) Math.round(y);
+      if (mergingPoints && pointCount > contourStart && onCurve && onCurves[pointCount - 1]
+          && xs[pointCount - 1] == roundX && ys[pointCount - 1] == roundY) {
+        return;
+      }
+      if (pointCount == xs.length) {
+        xs = Arrays.copyOf(xs, pointCount * 2);
+        ys = Arrays.copyOf(ys, pointCount * 2);
+        onCurves = Arrays.copyOf(onCurves, pointCount * 2);
+      }
+      xs[pointCount] = roundX;
+      ys[pointCount] = roundY;
+      onCurves[pointCount] = onCurve;
+      pointCount++;
+    }
+
+    private void closeContour() {
+      // Drop the closing point coinciding with the start point.
+      if (!mergingPoints) {
+        if (pointCount - contourStart > 1
+            && Math.abs(endX - startX) < CLOSING_TOLERANCE
+            && Math.abs(endY - startY) < CLOSING_TOLERANCE) {
+          pointCount--;
+        }
+      } else if (pointCount - contourStart > 1 && onCurves[pointCount - 1]
+          && xs[pointCount - 1] == xs[contourStart] && ys[pointCount - 1] == ys[contourStart]) {
+        pointCount--;
+      }
+      if (mergingPoints && pointCount - contourStart < 3) {
+        pointCount = contourStart;
+        return;
+      }
+      if (contourCount == contourEnds.length) {
+        contourEnds = Arrays.copyOf(contourEnds, contourCount * 2);
+      }
+      contourEnds[contourCount++] = pointCount - 1;
+    }
+  }
+}
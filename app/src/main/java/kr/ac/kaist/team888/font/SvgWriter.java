@@ -0,0 +1,339 @@
+package kr.ac.kaist.team888.font;
+
+import kr.ac.kaist.team888.bezier.BezierCurve;
+
+import org.apache.commons.math3.exception.MathIllegalStateException;
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+import org.apache.commons.math3.exception.OutOfRangeException;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+
+/**
+ * Streaming writer of glyph outlines as an SVG document, independent of Android.
+ *
+ * <p>Each glyph is written to the underlying writer as soon as it is added, thus memory does
+ * not grow with the number of glyphs. The element of a glyph is built in a single reusable
+ * {@link StringBuilder}, and numbers are appended with a fixed number of decimals by integer
+ * arithmetic rather than by {@link String#format(String, Object...)}, dropping trailing zeros.
+ *
+ * <p>Curves of order one to three become <code>L</code>, <code>Q</code> and <code>C</code>
+ * commands, and curves of higher orders are flattened into lines. Contours are closed, and
+ * filled by the non-zero rule, so that overlapping strokes need not be merged.
+ */
+public class SvgWriter {
+  /**
+   * A default number of decimals of coordinates in font units.
+   */
+  public static final int DEFAULT_DECIMALS = 2;
+
+  private static final int MAX_DECIMALS = 9;
+  private static final int HIGH_ORDER_PIECES = 16;
+  private static final int INITIAL_CAPACITY = 1 << 12;
+
+  /**
+   * Layout of the glyphs in the document.
+   */
+  public enum Layout {
+    /**
+     * An SVG font of a glyph per character, in font units with y going up.
+     */
+    FONT,
+    /**
+     * A path per glyph identified by its code point, laid out in a grid of em squares with
+     * y going down, for vector drawing tools.
+     */
+    PATHS
+  }
+
+  private final Writer out;
+  private final Layout layout;
+  private final int unitsPerEm;
+  private final int ascender;
+  private final int columns;
+  private final long decimalScale;
+  private final StringBuilder builder = new StringBuilder(INITIAL_CAPACITY);
+  private char[] chars = new char[INITIAL_CAPACITY];
+  private double[] scratchXs = new double[5];
+  private double[] scratchYs = new double[5];
+  private double scaleX = 1;
+  private double scaleY = 1;
+  private double originX;
+  private double originY;
+  private double lastX;
+  private double lastY;
+  private int glyphCount;
+  private boolean isFinished;
+
+  /**
+   * Creates a new writer and writes the beginning of the document.
+   *
+   * @param out writer of the document
+   * @param layout layout of the glyphs
+   * @param familyName family name of the font
+   * @param unitsPerEm size of the em square in font units
+   * @param ascender distance from the baseline to the top of the em square
+   * @param descender distance from the baseline to the bottom of the em square, negative below
+   * @param glyphCount number of glyphs to be added, which sizes the grid of
+   *     {@link Layout#PATHS}
+   * @param decimals number of decimals of coordinates
+   * @throws IOException if an I/O error occurs
+   * @throws NotStrictlyPositiveException if <code>unitsPerEm</code> is not positive
+   * @throws OutOfRangeException if <code>decimals</code> is out of the range from 0 to 9
+   */
+  public SvgWriter(Writer out, Layout layout, String familyName, int unitsPerEm, int ascender,
+                   int descender, int glyphCount, int decimals)
+      throws IOException, NotStrictlyPositiveException, OutOfRangeException {
+    if (unitsPerEm <= 0) {
+      throw new NotStrictlyPositiveException(unitsPerEm);
+    }
+    if (decimals < 0 || decimals > MAX_DECIMALS) {
+      throw new OutOfRangeException(decimals, 0, MAX_DECIMALS);
+    }
+    this.out = out;
+    this.layout = layout;
+    this.unitsPerEm = unitsPerEm;
+    this.ascender = ascender;
+    long scale = 1;
+    for (int i = 0; i < decimals; i++) {
+      scale *= 10;
+    }
+    decimalScale = scale;
+    columns = (int) Math.max(1, Math.ceil(Math.sqrt(glyphCount)));
+
+    builder.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    builder.append("<svg xmlns=\"http://www.w3.org/2000/svg\" version=\"1.1\"");
+    if (layout == Layout.PATHS) {
+      int rows = Math.max(1, (glyphCount + columns - 1) / columns);
+      builder.append(" viewBox=\"0 0 ").append(columns * unitsPerEm).append(' ')
+          .append(rows * unitsPerEm).append("\" fill-rule=\"nonzero\">\n");
+    } else {
+      builder.append(">\n<defs>\n<font id=\"");
+      appendEscaped(familyName);
+      builder.append("\" horiz-adv-x=\"").append(unitsPerEm).append("\">\n");
+      builder.append("<font-face font-family=\"");
+      appendEscaped(familyName);
+      builder.append("\" units-per-em=\"").append(unitsPerEm)
+          .append("\" ascent=\"").append(ascender)
+          .append("\" descent=\"").append(descender).append("\"/>\n");
+      builder.append("<missing-glyph horiz-adv-x=\"").append(unitsPerEm).append("\"/>\n");
+    }
+    flushBuilder();
+  }
+
+  /**
+   * Sets the mapping of contours to font units, where a point (x, y) is placed at
+   * (originX + x * scaleX, originY + y * scaleY).
+   *
+   * @param scaleX horizontal font units per unit of contours
+   * @param scaleY vertical font units per unit of contours
+   * @param originX horizontal position of the origin in font units
+   * @param originY vertical position of the origin in font units
+   */
+  public void setTransform(double scaleX, double scaleY, double originX, double originY) {
+    this.scaleX = scaleX;
+    this.scaleY = scaleY;
+    this.originX = originX;
+    this.originY = originY;
+  }
+
+  /**
+   * Writes the glyph of the character.
+   *
+   * @param codePoint code point of the character
+   * @param contours closed contours of the glyph, such as
+   *     {@link kr.ac.kaist.team888.locator.Locator#getContour()}
+   * @param advanceWidth advance width in font units
+   * @return the number of characters written for the glyph
+   * @throws IOException if an I/O error occurs
+   * @throws MathIllegalStateException if the document has been finished
+   */
+  public int addGlyph(int codePoint, ArrayList<ArrayList<BezierCurve>> contours,
+                      double advanceWidth) throws IOException, MathIllegalStateException {
+    checkNotFinished();
+    if (layout == Layout.PATHS) {
+      builder.append("<path id=\"u").append(Integer.toHexString(codePoint).toUpperCase())
+          .append("\" transform=\"translate(").append(glyphCount % columns * unitsPerEm)
+          .append(' ').append(glyphCount / columns * unitsPerEm).append(")\" d=\"");
+    } else {
+      builder.append("<glyph unicode=\"&#x").append(Integer.toHexString(codePoint))
+          .append(";\" horiz-adv-x=\"");
+      appendNumber(advanceWidth);
+      builder.append("\" d=\"");
+    }
+    for (int i = 0; i < contours.size(); i++) {
+      appendContour(contours.get(i));
+    }
+    builder.append("\"/>\n");
+    glyphCount++;
+    return flushBuilder();
+  }
+
+  /**
+   * Writes the end of the document and flushes the underlying writer, which is left open.
+   *
+   * @throws IOException if an I/O error occurs
+   * @throws MathIllegalStateException if the document has been finished
+   */
+  public void finish() throws IOException, MathIllegalStateException {
+    checkNotFinished();
+    if (layout == Layout.FONT) {
+      builder.append("</font>\n</defs>\n");
+    }
+    builder.append("</svg>\n");
+    flushBuilder();
+    out.flush();
+    isFinished = true;
+  }
+
+  private void appendContour(ArrayList<BezierCurve> contour) {
+    if (contour.isEmpty()) {
+      return;
+    }
+    BezierCurve first = contour.get(0);
+    builder.append('M');
+    appendPoint(first.getX(0), first.getY(0));
+    for (int i = 0; i < contour.size(); i++) {
+      BezierCurve curve = contour.get(i);
+      int order = curve.getOrder();
+      // Gaps between curves are bridged by lines, as in the other outputs.
+      double startX = mapX(curve.getX(0));
+      double startY = mapY(curve.getY(0));
+      if (i > 0 && (round(startX) != round(lastX) || round(startY) != round(lastY))) {
+        builder.append('L');
+        appendPoint(curve.getX(0), curve.getY(0));
+      }
+      if (order <= 3) {
+        builder.append(order == 1 ? 'L' : order == 2 ? 'Q' : 'C');
+        for (int k = 1; k <= order; k++) {
+          if (k > 1) {
+            builder.append(' ');
+          }
+          appendPoint(curve.getX(k), curve.getY(k));
+        }
+      } else {
+        builder.append('L');
+        for (int piece = 1; piece <= HIGH_ORDER_PIECES; piece++) {
+          if (piece > 1) {
+            builder.append(' ');
+          }
+          evaluate(curve, piece / (double) HIGH_ORDER_PIECES);
+          appendPoint(scratchXs[0], scratchYs[0]);
+        }
+      }
+    }
+    builder.append('Z');
+  }
+
+  /**
+   * Evaluates the curve at the parameter by de Casteljau's algorithm into the first scratch
+   * point, in the coordinates of the contours.
+   */
+  private void evaluate(BezierCurve curve, double t) {
+    int order = curve.getOrder();
+    if (scratchXs.length <= order) {
+      scratchXs = new double[order + 1];
+      scratchYs = new double[order + 1];
+    }
+    for (int k = 0; k <= order; k++) {
+      scratchXs[k] = curve.getX(k);
+      scratchYs[k] = curve.getY(k);
+    }
+    for (int level = order; level > 0; level--) {
+      for (int k = 0; k < level; k++) {
+        scratchXs[k] += t * (scratchXs[k + 1] - scratchXs[k]);
+        scratchYs[k] += t * (scratchYs[k + 1] - scratchYs[k]);
+      }
+    }
+  }
+
+  private double mapX(double x) {
+    return originX + x * scaleX;
+  }
+
+  private double mapY(double y) {
+    double fontY = originY + y * scaleY;
+    return layout == Layout.PATHS ? ascender - fontY : fontY;
+  }
+
+  private void appendPoint(double x, double y) {
+    lastX = mapX(x);
+    lastY = mapY(y);
+    appendNumber(lastX);
+    builder.append(' ');
+    appendNumber(lastY);
+  }
+
+  private long round(double value) {
+    return Math.round(value * decimalScale);
+  }
+
+  /**
+   * Appends the number with the fixed number of decimals, without trailing zeros.
+   */
+  private void appendNumber(double value) {
+    long scaled = round(value);
+    if (scaled < 0) {
+      builder.append('-');
+      scaled = -scaled;
+    }
+    builder.append(scaled / decimalScale);
+    long fraction = scaled % decimalScale;
+    if (fraction == 0) {
+      return;
+    }
+    builder.append('.');
+    for (long place = decimalScale / 10; fraction < place; place /= 10) {
+      builder.append('0');
+    }
+    while (fraction % 10 == 0) {
+      fraction /= 10;
+    }
+    builder.append(fraction);
+  }
+
+  private void appendEscaped(String text) {
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      switch (c) {
+        case '&':
+          builder.append("&amp;");
+          break;
+        case '<':
+          builder.append("&lt;");
+          break;
+        case '>':
+          builder.append("&gt;");
+          break;
+        case '"':
+          builder.append("&quot;");
+          break;
+        default:
+          builder.append(c);
+          break;
+      }
+    }
+  }
+
+  /**
+   * Writes the built text through a reusable array, since appending a builder to a writer
+   * would copy it into a new string, and clears the builder.
+   */
+  private int flushBuilder() throws IOException {
+    int length = builder.length();
+    if (chars.length < length) {
+      chars = new char[Math.max(length, chars.length * 2)];
+    }
+    builder.getChars(0, length, chars, 0);
+    out.write(chars, 0, length);
+    builder.setLength(0);
+    return length;
+  }
+
+  private void checkNotFinished() throws MathIllegalStateException {
+    if (isFinished) {
+      throw new MathIllegalStateException();
+    }
+  }
+}
@@ -0,0 +1,1239 @@
+package kr.ac.kaist.team888.font;
+
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.exception.MathIllegalStateException;
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+import org.apache.commons.math3.exception.OutOfRangeException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writer of TrueType font files holding simple and composite glyphs.
+ *
+ * <p>Glyphs are encoded as soon as they are added, so that only their compact table data is
+ * kept in memory. A composite glyph refers to glyphs added before it by their indices, and
+ * places each of them by an offset in font units. The glyph of index 0 is the empty
+ * <code>.notdef</code> glyph, which is added by the constructor.
+ *
+ * <p>The written font has the tables required by TrueType: <code>OS/2</code>, <code>cmap</code>,
+ * <code>glyf</code>, <code>head</code>, <code>hhea</code>, <code>hmtx</code>,
+ * <code>loca</code>, <code>maxp</code>, <code>name</code> and <code>post</code>.
+ *
+ * <p>A font with variation axes is an OpenType variable font, which also has the
+ * <code>avar</code>, <code>fvar</code> and <code>gvar</code> tables. Axes and masters are added
+ * before glyphs. A master is a location in the normalized design space, where the outline of
+ * a simple glyph may be given in addition to the default one. The font stores a difference of
+ * points for each master, and the outline at a location is the default one plus
+ * the differences of the masters between the location and the default, each scaled by how far
+ * the location goes toward the master. The difference of a master is taken from
+ * the interpolation of the masters added before it, thus every master outline is reproduced
+ * exactly. A master at a corner of several axes should therefore be added after the masters
+ * on each of these axes, and corrects what varies jointly along them.
+ */
+public class TrueTypeWriter {
+  private static final int SFNT_VERSION = 0x00010000;
+  private static final long CHECKSUM_MAGIC = 0xB1B0AFBAL;
+  private static final int HEAD_MAGIC = 0x5F0F3CF5;
+  private static final long MAC_EPOCH_OFFSET = 2082844800L;
+  private static final Charset UTF_16BE = Charset.forName("UTF-16BE");
+
+  private static final int FLAG_ON_CURVE = 0x01;
+  private static final int FLAG_X_SHORT = 0x02;
+  private static final int FLAG_Y_SHORT = 0x04;
+  private static final int FLAG_REPEAT = 0x08;
+  private static final int FLAG_X_SAME = 0x10;
+  private static final int FLAG_Y_SAME = 0x20;
+
+  private static final int ARG_1_AND_2_ARE_WORDS = 0x0001;
+  private static final int ARGS_ARE_XY_VALUES = 0x0002;
+  private static final int ROUND_XY_TO_GRID = 0x0004;
+  private static final int MORE_COMPONENTS = 0x0020;
+
+  private static final int SHARED_POINT_NUMBERS = 0x8000;
+  private static final int DELTAS_ARE_ZERO = 0x80;
+  private static final int DELTAS_ARE_WORDS = 0x40;
+  private static final int MAX_DELTA_RUN = 64;
+  private static final int PHANTOM_POINTS = 4;
+  private static final int FIRST_FONT_NAME_ID = 256;
+  private static final String WEIGHT_AXIS = "wght";
+  private static final int HEAD_ADJUSTMENT_OFFSET = 8;
+  private static final int CHANNEL_BUFFER_SIZE = 1 << 18;
+
+  private final String familyName;
+  private final int unitsPerEm;
+  private final int ascender;
+  private final int descender;
+
+  private final ArrayList<byte[]> glyphData = new ArrayList<>();
+  private final ArrayList<int[]> glyphBounds = new ArrayList<>();
+  private final ArrayList<Integer> advanceWidths = new ArrayList<>();
+  private final ArrayList<Boolean> composites = new ArrayList<>();
+  private final ArrayList<int[]> glyphCounts = new ArrayList<>();
+  private final TreeMap<Integer, Integer> characterMap = new TreeMap<>();
+  private final ArrayList<byte[]> glyphVariations = new ArrayList<>();
+
+  private final ArrayList<String> axisTags = new ArrayList<>();
+  private final ArrayList<double[]> axisValues = new ArrayList<>();
+  private final ArrayList<double[][]> axisMaps = new ArrayList<>();
+  private final ArrayList<String> axisNames = new ArrayList<>();
+  private final ArrayList<double[]> masters = new ArrayList<>();
+  private final ArrayList<String> instanceNames = new ArrayList<>();
+  private final ArrayList<double[]> instanceCoordinates = new ArrayList<>();
+
+  private int maxPoints;
+  private int maxContours;
+  private int maxCompositePoints;
+  private int maxCompositeContours;
+  private int maxComponentElements;
+
+  /**
+   * Creates a writer of a font with given name and vertical metrics.
+   *
+   * @param familyName family name of the font
+   * @param unitsPerEm number of font units per em
+   * @param ascender distance from the baseline to the top of the em
+   * @param descender distance from the baseline to the bottom of the em, usually negative
+   * @throws NotStrictlyPositiveException if <code>unitsPerEm</code> is not positive
+   */
+  public TrueTypeWriter(String familyName, int unitsPerEm, int ascender, int descender)
+      throws NotStrictlyPositiveException {
+    if (unitsPerEm <= 0) {
+      throw new NotStrictlyPositiveException(unitsPerEm);
+    }
+    this.familyName = familyName;
+    this.unitsPerEm = unitsPerEm;
+    this.ascender = ascender;
+    this.descender = descender;
+    addGlyph(new GlyphOutline.Builder().build(), unitsPerEm / 2);
+  }
+
+  /**
+   * Returns the number of glyphs added including the <code>.notdef</code> glyph.
+   *
+   * @return the number of glyphs
+   */
+  public int getGlyphCount() {
+    return glyphData.size();
+  }
+
+  /**
+   * Adds a variation axis, which makes the font a variable font.
+   *
+   * <p>User values of the axis are normalized linearly, from the minimum to -1, the default to
+   * 0 and the maximum to 1. The normalized value may be mapped again by
+   * {@link #setAxisMap(int, double[], double[])}.
+   *
+   * @param tag four-letter tag of the axis, such as <code>wght</code>
+   * @param minValue minimum user value
+   * @param defaultValue default user value, which is the value of the default outlines
+   * @param maxValue maximum user value
+   * @param name name of the axis
+   * @return the index of the new axis
+   * @throws DimensionMismatchException if the tag is not of four letters
+   * @throws OutOfRangeException if the default value is not within the minimum and maximum
+   * @throws MathIllegalStateException if a master or a glyph other than <code>.notdef</code>
+   *     has been added
+   */
+  public int addAxis(String tag, double minValue, double defaultValue, double maxValue,
+                     String name)
+      throws DimensionMismatchException, OutOfRangeException, MathIllegalStateException {
+    if (tag.length() != 4) {
+      throw new DimensionMismatchException(tag.length(), 4);
+    }
+    if (defaultValue < minValue || defaultValue > maxValue) {
+      throw new OutOfRangeException(defaultValue, minValue, maxValue);
+    }
+    if (!masters.isEmpty() || glyphData.size() > 1) {
+      throw new MathIllegalStateException();
+    }
+    axisTags.add(tag);
+    axisValues.add(new double[] {minValue, defaultValue, maxValue});
+    axisMaps.add(new double[][] {{-1, 0, 1}, {-1, 0, 1}});
+    axisNames.add(name);
+    return axisTags.size() - 1;
+  }
+
+  /**
+   * Sets the piecewise linear map of normalized values of the axis, which corrects
+   * interpolation where outlines do not change linearly along the axis.
+   *
+   * <p>Both arrays are increasing and map -1, 0 and 1 to themselves.
+   *
+   * @param axis index of the axis
+   * @param from normalized values to map
+   * @param to mapped values of <code>from</code>
+   * @throws OutOfRangeException if the axis does not exist
+   * @throws DimensionMismatchException if the arrays differ in length
+   */
+  public void setAxisMap(int axis, double[] from, double[] to)
+      throws OutOfRangeException, DimensionMismatchException {
+    if (axis < 0 || axis >= axisTags.size()) {
+      throw new OutOfRangeException(axis, 0, axisTags.size() - 1);
+    }
+    if (from.length != to.length) {
+      throw new DimensionMismatchException(to.length, from.length);
+    }
+    axisMaps.set(axis, new double[][] {from.clone(), to.clone()});
+  }
+
+  /**
+   * Adds a master at a location in the normalized design space.
+   *
+   * @param location normalized value from -1 to 1 of each axis
+   * @return the index of the new master
+   * @throws DimensionMismatchException if the location does not have a value for each axis
+   * @throws OutOfRangeException if a value is out of -1 to 1
+   * @throws MathIllegalStateException if a glyph other than <code>.notdef</code> has been added
+   */
+  public int addMaster(double[] location)
+      throws DimensionMismatchException, OutOfRangeException, MathIllegalStateException {
+    if (location.length != axisTags.size()) {
+      throw new DimensionMismatchException(location.length, axisTags.size());
+    }
+    for (double value : location) {
+      if (value < -1 || value > 1) {
+        throw new OutOfRangeException(value, -1, 1);
+      }
+    }
+    if (glyphData.size() > 1) {
+      throw new MathIllegalStateException();
+    }
+    masters.add(location.clone());
+    return masters.size() - 1;
+  }
+
+  /**
+   * Adds a named instance, which is a location in the design space offered as a style.
+   *
+   * @param name name of the style, such as <code>Bold</code>
+   * @param coordinates user value of each axis
+   * @throws DimensionMismatchException if the coordinates do not have a value for each axis
+   */
+  public void addInstance(String name, double[] coordinates) throws DimensionMismatchException {
+    if (coordinates.length != axisTags.size()) {
+      throw new DimensionMismatchException(coordinates.length, axisTags.size());
+    }
+    instanceNames.add(name);
+    instanceCoordinates.add(coordinates.clone());
+  }
+
+  /**
+   * Adds a simple glyph.
+   *
+   * @param outline outline of the glyph
+   * @param advanceWidth advance width of the glyph
+   * @return the index of the new glyph
+   */
+  public int addGlyph(GlyphOutline outline, int advanceWidth) {
+    return addGlyph(outline, advanceWidth, null, null);
+  }
+
+  /**
+   * Adds a simple glyph varying over the masters.
+   *
+   * @param outline default outline of the glyph
+   * @param advanceWidth default advance width of the glyph
+   * @param masterOutlines outline of the glyph at each master, or <code>null</code> where
+   *     the glyph does not vary. The array itself may be <code>null</code>.
+   * @param masterAdvanceWidths advance width of the glyph at each master
+   * @return the index of the new glyph
+   * @throws DimensionMismatchException if the arrays do not have an element for each master,
+   *     or some master outline is not compatible with the default one
+   */
+  public int addGlyph(GlyphOutline outline, int advanceWidth, GlyphOutline[] masterOutlines,
+                      int[] masterAdvanceWidths) throws DimensionMismatchException {
+    byte[] variations = new byte[0];
+    if (masterOutlines != null) {
+      if (masterOutlines.length != masters.size()) {
+        throw new DimensionMismatchException(masterOutlines.length, masters.size());
+      }
+      if (masterAdvanceWidths.length != masters.size()) {
+        throw new DimensionMismatchException(masterAdvanceWidths.length, masters.size());
+      }
+      for (GlyphOutline master : masterOutlines) {
+        if (master != null && !master.isCompatible(outline)) {
+          throw new DimensionMismatchException(master.getPointCount(), outline.getPointCount());
+        }
+      }
+      variations = encodeGlyphVariations(outline, advanceWidth, masterOutlines,
+          masterAdvanceWidths);
+    }
+
+    int[] bounds = new int[] {
+        outline.getMinX(), outline.getMinY(), outline.getMaxX(), outline.getMaxY()};
+    maxPoints = Math.max(maxPoints, outline.getPointCount());
+    maxContours = Math.max(maxContours, outline.getContourCount());
+    int glyph = addGlyphData(encodeSimpleGlyph(outline, bounds), bounds, advanceWidth, false,
+        new int[] {outline.getPointCount(), outline.getContourCount()});
+    glyphVariations.set(glyph, variations);
+    return glyph;
+  }
+
+  /**
+   * Adds a composite glyph made of glyphs added before.
+   *
+   * @param components indices of the component glyphs
+   * @param offsetsX offsets of the components along the x-axis
+   * @param offsetsY offsets of the components along the y-axis
+   * @param advanceWidth advance width of the glyph
+   * @return the index of the new glyph
+   * @throws OutOfRangeException if some component is not a simple glyph added before
+   */
+  public int addCompositeGlyph(int[] components, int[] offsetsX, int[] offsetsY,
+                               int advanceWidth) throws OutOfRangeException {
+    int[] bounds = null;
+    int points = 0;
+    int contours = 0;
+    for (int i = 0; i < components.length; i++) {
+      int component = components[i];
+      if (component < 0 || component >= glyphData.size() || composites.get(component)) {
+        throw new OutOfRangeException(component, 0, glyphData.size() - 1);
+      }
+      int[] componentBounds = glyphBounds.get(component);
+      points += glyphCounts.get(component)[0];
+      contours += glyphCounts.get(component)[1];
+      if (glyphData.get(component).length == 0) {
+        continue;
+      }
+      if (bounds == null) {
+        bounds = new int[] {Integer.MAX_VALUE, Integer.MAX_VALUE,
+            Integer.MIN_VALUE, Integer.MIN_VALUE};
+      }
+      bounds[0] = Math.min(bounds[0], componentBounds[0] + offsetsX[i]);
+      bounds[1] = Math.min(bounds[1], componentBounds[1] + offsetsY[i]);
+      bounds[2] = Math.max(bounds[2], componentBounds[2] + offsetsX[i]);
+      bounds[3] = Math.max(bounds[3], componentBounds[3] + offsetsY[i]);
+    }
+    if (bounds == null) {
+      return addGlyphData(new byte[0], new int[4], advanceWidth, true, new int[2]);
+    }
+    maxCompositePoints = Math.max(maxCompositePoints, points);
+    maxCompositeContours = Math.max(maxCompositeContours, contours);
+    maxComponentElements = Math.max(maxComponentElements, components.length);
+    return addGlyphData(encodeCompositeGlyph(components, offsetsX, offsetsY, bounds),
+        bounds, advanceWidth, true, new int[] {points, contours});
+  }
+
+  /**
+   * Maps a Unicode code point to a glyph.
+   *
+   * <p>Only code points of the Basic Multilingual Plane are supported.
+   *
+   * @param codePoint Unicode code point
+   * @param glyph index of the glyph
+   * @throws OutOfRangeException if the code point is out of the Basic Multilingual Plane or
+   *     the glyph does not exist
+   */
+  public void mapCharacter(int codePoint, int glyph) throws OutOfRangeException {
+    if (codePoint < 0 || codePoint >= 0xFFFF) {
+      throw new OutOfRangeException(codePoint, 0, 0xFFFE);
+    }
+    if (glyph < 0 || glyph >= glyphData.size()) {
+      throw new OutOfRangeException(glyph, 0, glyphData.size() - 1);
+    }
+    characterMap.put(codePoint, glyph);
+  }
+
+  /**
+   * Writes the font to the stream.
+   *
+   * <p>The table directory precedes the tables, thus the tables are scanned for their checksums
+   * before they are written. {@link #write(FileChannel)} computes the checksums while writing
+   * instead.
+   *
+   * @param out stream to write the font
+   * @throws IOException if an I/O error occurs
+   */
+  public void write(OutputStream out) throws IOException {
+    TreeMap<String, ArrayList<byte[]>> tableMap = makeTables();
+    String[] tags = tableMap.keySet().toArray(new String[tableMap.size()]);
+    int[] lengths = new int[tags.length];
+    long[] checksums = new long[tags.length];
+    for (int i = 0; i < tags.length; i++) {
+      Checksum checksum = new Checksum();
+      for (byte[] chunk : tableMap.get(tags[i])) {
+        checksum.update(chunk, 0, chunk.length);
+      }
+      lengths[i] = (int) checksum.getLength();
+      checksums[i] = checksum.getValue();
+    }
+    byte[] directory = makeDirectory(tags, lengths, checksums);
+    byte[] adjustment = getChecksumAdjustment(directory, checksums);
+    System.arraycopy(adjustment, 0, tableMap.get("head").get(0), HEAD_ADJUSTMENT_OFFSET,
+        adjustment.length);
+
+    out.write(directory);
+    byte[] padding = new byte[3];
+    for (int i = 0; i < tags.length; i++) {
+      for (byte[] chunk : tableMap.get(tags[i])) {
+        out.write(chunk);
+      }
+      out.write(padding, 0, -lengths[i] & 3);
+    }
+    out.flush();
+  }
+
+  /**
+   * Writes the font to the channel from its current position.
+   *
+   * <p>Tables are written through a direct buffer in a single pass, computing their checksums
+   * on the way. The table directory and the checksum adjustment of the <code>head</code> table
+   * are written at their positions afterwards, and the channel is left at the end of the font.
+   *
+   * @param channel channel to write the font
+   * @throws IOException if an I/O error occurs
+   */
+  public void write(FileChannel channel) throws IOException {
+    TreeMap<String, ArrayList<byte[]>> tableMap = makeTables();
+    String[] tags = tableMap.keySet().toArray(new String[tableMap.size()]);
+    int[] lengths = new int[tags.length];
+    long[] checksums = new long[tags.length];
+    long start = channel.position();
+    long headPosition = -1;
+
+    ByteBuffer buffer = ByteBuffer.allocateDirect(CHANNEL_BUFFER_SIZE);
+    channel.position(start + getDirectorySize(tags.length));
+    for (int i = 0; i < tags.length; i++) {
+      if (tags[i].equals("head")) {
+        headPosition = channel.position() + buffer.position();
+      }
+      Checksum checksum = new Checksum();
+      for (byte[] chunk : tableMap.get(tags[i])) {
+        checksum.update(chunk, 0, chunk.length);
+        put(channel, buffer, chunk, chunk.length);
+      }
+      lengths[i] = (int) checksum.getLength();
+      checksums[i] = checksum.getValue();
+      put(channel, buffer, new byte[3], -lengths[i] & 3);
+    }
+    buffer.flip();
+    writeFully(channel, buffer);
+    long end = channel.position();
+
+    byte[] directory = makeDirectory(tags, lengths, checksums);
+    byte[] adjustment = getChecksumAdjustment(directory, checksums);
+    channel.position(start);
+    writeFully(channel, ByteBuffer.wrap(directory));
+    channel.position(headPosition + HEAD_ADJUSTMENT_OFFSET);
+    writeFully(channel, ByteBuffer.wrap(adjustment));
+    channel.position(end);
+  }
+
+  /**
+   * Makes the tables of the font sorted by their tags, each as a sequence of chunks, so that
+   * large tables are not copied into a single array.
+   */
+  private TreeMap<String, ArrayList<byte[]>> makeTables() throws IOException {
+    TreeMap<String, ArrayList<byte[]>> tableMap = new TreeMap<>();
+
+    ByteArrayOutputStream loca = new ByteArrayOutputStream((glyphData.size() + 1) * 4);
+    DataOutputStream locaOut = new DataOutputStream(loca);
+    int glyfSize = 0;
+    for (byte[] data : glyphData) {
+      locaOut.writeInt(glyfSize);
+      glyfSize += data.length;
+    }
+    locaOut.writeInt(glyfSize);
+
+    putTable(tableMap, "OS/2", makeOs2());
+    putTable(tableMap, "cmap", makeCmap());
+    tableMap.put("glyf", new ArrayList<>(glyphData));
+    putTable(tableMap, "head", makeHead());
+    putTable(tableMap, "hhea", makeHhea());
+    putTable(tableMap, "hmtx", makeHmtx());
+    putTable(tableMap, "loca", loca.toByteArray());
+    putTable(tableMap, "maxp", makeMaxp());
+    putTable(tableMap, "name", makeName());
+    putTable(tableMap, "post", makePost());
+    if (!axisTags.isEmpty()) {
+      putTable(tableMap, "avar", makeAvar());
+      putTable(tableMap, "fvar", makeFvar());
+      ArrayList<byte[]> gvar = new ArrayList<>();
+      gvar.add(makeGvarHeader());
+      gvar.addAll(glyphVariations);
+      tableMap.put("gvar", gvar);
+    }
+    return tableMap;
+  }
+
+  private static void putTable(TreeMap<String, ArrayList<byte[]>> tableMap, String tag,
+                               byte[] table) {
+    ArrayList<byte[]> chunks = new ArrayList<>(1);
+    chunks.add(table);
+    tableMap.put(tag, chunks);
+  }
+
+  private static int getDirectorySize(int tableCount) {
+    return 12 + tableCount * 16;
+  }
+
+  private static byte[] makeDirectory(String[] tags, int[] lengths, long[] checksums)
+      throws IOException {
+    int searchRange = Integer.highestOneBit(tags.length) * 16;
+    ByteArrayOutputStream header = new ByteArrayOutputStream(getDirectorySize(tags.length));
+    DataOutputStream headerOut = new DataOutputStream(header);
+    headerOut.writeInt(SFNT_VERSION);
+    headerOut.writeShort(tags.length);
+    headerOut.writeShort(searchRange);
+    headerOut.writeShort(Integer.numberOfTrailingZeros(searchRange / 16));
+    headerOut.writeShort(tags.length * 16 - searchRange);
+    int offset = getDirectorySize(tags.length);
+    for (int i = 0; i < tags.length; i++) {
+      headerOut.writeBytes(tags[i]);
+      headerOut.writeInt((int) checksums[i]);
+      headerOut.writeInt(offset);
+      headerOut.writeInt(lengths[i]);
+      offset += (lengths[i] + 3) & ~3;
+    }
+    return header.toByteArray();
+  }
+
+  /**
+   * Returns the adjustment kept by the <code>head</code> table, which makes the checksum of
+   * the font the magic.
+   */
+  private static byte[] getChecksumAdjustment(byte[] directory, long[] checksums) {
+    Checksum checksum = new Checksum();
+    checksum.update(directory, 0, directory.length);
+    long fontChecksum = checksum.getValue();
+    for (long tableChecksum : checksums) {
+      fontChecksum += tableChecksum;
+    }
+    long adjustment = (CHECKSUM_MAGIC - fontChecksum) & 0xFFFFFFFFL;
+    return new byte[] {(byte) (adjustment >>> 24), (byte) (adjustment >>> 16),
+        (byte) (adjustment >>> 8), (byte) adjustment};
+  }
+
+  /**
+   * Puts the bytes into the buffer, writing the buffer to the channel whenever it is full.
+   */
+  private static void put(FileChannel channel, ByteBuffer buffer, byte[] data, int length)
+      throws IOException {
+    int offset = 0;
+    while (offset < length) {
+      if (!buffer.hasRemaining()) {
+        buffer.flip();
+        writeFully(channel, buffer);
+        buffer.clear();
+      }
+      int count = Math.min(length - offset, buffer.remaining());
+      buffer.put(data, offset, count);
+      offset += count;
+    }
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private int addGlyphData(byte[] data, int[] bounds, int advanceWidth, boolean composite,
+                           int[] counts) {
+    glyphData.add(data);
+    glyphBounds.add(bounds);
+    advanceWidths.add(advanceWidth);
+    composites.add(composite);
+    glyphCounts.add(counts);
+    glyphVariations.add(new byte[0]);
+    return glyphData.size() - 1;
+  }
+
+  /**
+   * Encodes the differences of the master outlines from the default one as glyph variation
+   * data. Differences are given for every point followed by the four phantom points, whose
+   * second one is placed at the advance width, thus advance widths vary as well.
+   */
+  private byte[] encodeGlyphVariations(GlyphOutline outline, int advanceWidth,
+                                       GlyphOutline[] masterOutlines,
+                                       int[] masterAdvanceWidths) {
+    int pointCount = outline.getPointCount() + PHANTOM_POINTS;
+    int advancePoint = outline.getPointCount() + 1;
+    ByteArrayOutputStream headers = new ByteArrayOutputStream();
+    DataOutputStream headersOut = new DataOutputStream(headers);
+    ByteArrayOutputStream data = new ByteArrayOutputStream();
+    // Every tuple uses all points.
+    data.write(0);
+    int tupleCount = 0;
+    int[][] deltasX = new int[masterOutlines.length][];
+    int[][] deltasY = new int[masterOutlines.length][];
+    double[] interpolatedX = new double[pointCount];
+    double[] interpolatedY = new double[pointCount];
+    try {
+      for (int master = 0; master < masterOutlines.length; master++) {
+        GlyphOutline masterOutline = masterOutlines[master];
+        if (masterOutline == null) {
+          continue;
+        }
+        for (int i = 0; i < outline.getPointCount(); i++) {
+          interpolatedX[i] = outline.getX(i);
+          interpolatedY[i] = outline.getY(i);
+        }
+        interpolatedX[advancePoint] = advanceWidth;
+        for (int previous = 0; previous < master; previous++) {
+          double scalar = getScalar(masters.get(previous), masters.get(master));
+          if (deltasX[previous] == null || scalar == 0) {
+            continue;
+          }
+          for (int i = 0; i < pointCount; i++) {
+            interpolatedX[i] += scalar * deltasX[previous][i];
+            interpolatedY[i] += scalar * deltasY[previous][i];
+          }
+        }
+
+        int[] masterDeltasX = new int[pointCount];
+        int[] masterDeltasY = new int[pointCount];
+        boolean isZero = true;
+        for (int i = 0; i < outline.getPointCount(); i++) {
+          masterDeltasX[i] = (int) Math.round(masterOutline.getX(i) - interpolatedX[i]);
+          masterDeltasY[i] = (int) Math.round(masterOutline.getY(i) - interpolatedY[i]);
+          isZero &= masterDeltasX[i] == 0 && masterDeltasY[i] == 0;
+        }
+        masterDeltasX[advancePoint] =
+            (int) Math.round(masterAdvanceWidths[master] - interpolatedX[advancePoint]);
+        isZero &= masterDeltasX[advancePoint] == 0;
+        if (isZero) {
+          continue;
+        }
+        deltasX[master] = masterDeltasX;
+        deltasY[master] = masterDeltasY;
+        int start = data.size();
+        encodeDeltas(masterDeltasX, data);
+        encodeDeltas(masterDeltasY, data);
+        headersOut.writeShort(data.size() - start);
+        headersOut.writeShort(master);
+        tupleCount++;
+      }
+      if (tupleCount == 0) {
+        return new byte[0];
+      }
+
+      ByteArrayOutputStream variations = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(variations);
+      out.writeShort(SHARED_POINT_NUMBERS | tupleCount);
+      out.writeShort(4 + headers.size());
+      headers.writeTo(out);
+      data.writeTo(out);
+      out.write(new byte[1], 0, variations.size() & 1);
+      return variations.toByteArray();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Returns how much the difference of the master at the peak applies at the location, which
+   * goes linearly from 1 at the peak to 0 at the default along each axis of the peak.
+   */
+  private static double getScalar(double[] peak, double[] location) {
+    double scalar = 1;
+    for (int axis = 0; axis < peak.length; axis++) {
+      if (peak[axis] == 0) {
+        continue;
+      }
+      if (location[axis] == 0 || location[axis] * peak[axis] < 0
+          || Math.abs(location[axis]) > Math.abs(peak[axis])) {
+        return 0;
+      }
+      scalar *= location[axis] / peak[axis];
+    }
+    return scalar;
+  }
+
+  /**
+   * Encodes deltas in runs of zeros, bytes or words.
+   */
+  private static void encodeDeltas(int[] deltas, ByteArrayOutputStream out) {
+    int i = 0;
+    while (i < deltas.length) {
+      int start = i;
+      if (deltas[i] == 0) {
+        while (i < deltas.length && i - start < MAX_DELTA_RUN && deltas[i] == 0) {
+          i++;
+        }
+        out.write(DELTAS_ARE_ZERO | (i - start - 1));
+      } else if (deltas[i] >= Byte.MIN_VALUE && deltas[i] <= Byte.MAX_VALUE) {
+        while (i < deltas.length && i - start < MAX_DELTA_RUN && deltas[i] != 0
+            && deltas[i] >= Byte.MIN_VALUE && deltas[i] <= Byte.MAX_VALUE) {
+          i++;
+        }
+        out.write(i - start - 1);
+        for (int j = start; j < i; j++) {
+          out.write(deltas[j]);
+        }
+      } else {
+        while (i < deltas.length && i - start < MAX_DELTA_RUN && deltas[i] != 0
+            && (deltas[i] < Byte.MIN_VALUE || deltas[i] > Byte.MAX_VALUE)) {
+          i++;
+        }
+        out.write(DELTAS_ARE_WORDS | (i - start - 1));
+        for (int j = start; j < i; j++) {
+          out.write(deltas[j] >> 8);
+          out.write(deltas[j]);
+        }
+      }
+    }
+  }
+
+  private static byte[] encodeSimpleGlyph(GlyphOutline outline, int[] bounds) {
+    int pointCount = outline.getPointCount();
+    if (pointCount == 0) {
+      return new byte[0];
+    }
+    ByteArrayOutputStream flags = new ByteArrayOutputStream(pointCount);
+    ByteArrayOutputStream xs = new ByteArrayOutputStream(pointCount * 2);
+    ByteArrayOutputStream ys = new ByteArrayOutputStream(pointCount * 2);
+    int lastFlag = -1;
+    int repeat = 0;
+    int lastX = 0;
+    int lastY = 0;
+    for (int i = 0; i < pointCount; i++) {
+      int dx = outline.getX(i) - lastX;
+      int dy = outline.getY(i) - lastY;
+      lastX = outline.getX(i);
+      lastY = outline.getY(i);
+      int flag = outline.isOnCurve(i) ? FLAG_ON_CURVE : 0;
+      flag |= encodeDelta(dx, xs, FLAG_X_SHORT, FLAG_X_SAME);
+      flag |= encodeDelta(dy, ys, FLAG_Y_SHORT, FLAG_Y_SAME);
+
+      if (flag == lastFlag && repeat < 255) {
+        repeat++;
+        continue;
+      }
+      writeFlag(flags, lastFlag, repeat);
+      lastFlag = flag;
+      repeat = 0;
+    }
+    writeFlag(flags, lastFlag, repeat);
+
+    ByteArrayOutputStream glyph = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(glyph);
+    try {
+      out.writeShort(outline.getContourCount());
+      writeBounds(out, bounds);
+      for (int i = 0; i < outline.getContourCount(); i++) {
+        out.writeShort(outline.getContourEnd(i));
+      }
+      out.writeShort(0);
+      flags.writeTo(out);
+      xs.writeTo(out);
+      ys.writeTo(out);
+      out.write(new byte[3], 0, -glyph.size() & 3);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return glyph.toByteArray();
+  }
+
+  private static int encodeDelta(int delta, ByteArrayOutputStream out, int shortFlag,
+                                 int sameFlag) {
+    if (delta == 0) {
+      return sameFlag;
+    }
+    if (delta > -256 && delta < 256) {
+      out.write(Math.abs(delta));
+      return shortFlag | (delta > 0 ? sameFlag : 0);
+    }
+    out.write(delta >> 8);
+    out.write(delta);
+    return 0;
+  }
+
+  private static void writeFlag(ByteArrayOutputStream out, int flag, int repeat) {
+    if (flag < 0) {
+      return;
+    }
+    if (repeat == 0) {
+      out.write(flag);
+    } else if (repeat == 1) {
+      out.write(flag);
+      out.write(flag);
+    } else {
+      out.write(flag | FLAG_REPEAT);
+      out.write(repeat);
+    }
+  }
+
+  private static byte[] encodeCompositeGlyph(int[] components, int[] offsetsX, int[] offsetsY,
+                                             int[] bounds) {
+    ByteArrayOutputStream glyph = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(glyph);
+    try {
+      out.writeShort(-1);
+      writeBounds(out, bounds);
+      for (int i = 0; i < components.length; i++) {
+        int flag = ARGS_ARE_XY_VALUES | ROUND_XY_TO_GRID;
+        boolean isWord = offsetsX[i] < Byte.MIN_VALUE || offsetsX[i] > Byte.MAX_VALUE
+            || offsetsY[i] < Byte.MIN_VALUE || offsetsY[i] > Byte.MAX_VALUE;
+        if (isWord) {
+          flag |= ARG_1_AND_2_ARE_WORDS;
+        }
+        if (i < components.length - 1) {
+          flag |= MORE_COMPONENTS;
+        }
+        out.writeShort(flag);
+        out.writeShort(components[i]);
+        if (isWord) {
+          out.writeShort(offsetsX[i]);
+          out.writeShort(offsetsY[i]);
+        } else {
+          out.writeByte(offsetsX[i]);
+          out.writeByte(offsetsY[i]);
+        }
+      }
+      out.write(new byte[3], 0, -glyph.size() & 3);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return glyph.toByteArray();
+  }
+
+  private static void writeBounds(DataOutputStream out, int[] bounds) throws IOException {
+    for (int bound : bounds) {
+      out.writeShort(bound);
+    }
+  }
+
+  private int[] getFontBounds() {
+    int[] bounds = null;
+    for (int i = 0; i < glyphData.size(); i++) {
+      if (glyphData.get(i).length == 0) {
+        continue;
+      }
+      int[] glyph = glyphBounds.get(i);
+      if (bounds == null) {
+        bounds = Arrays.copyOf(glyph, 4);
+        continue;
+      }
+      bounds[0] = Math.min(bounds[0], glyph[0]);
+      bounds[1] = Math.min(bounds[1], glyph[1]);
+      bounds[2] = Math.max(bounds[2], glyph[2]);
+      bounds[3] = Math.max(bounds[3], glyph[3]);
+    }
+    return bounds == null ? new int[4] : bounds;
+  }
+
+  private byte[] makeHead() throws IOException {
+    ByteArrayOutputStream table = new ByteArrayOutputStream(54);
+    DataOutputStream out = new DataOutputStream(table);
+    long time = System.currentTimeMillis() / 1000 + MAC_EPOCH_OFFSET;
+    out.writeInt(0x00010000);
+    out.writeInt(0x00010000);
+    out.writeInt(0);
+    out.writeInt(HEAD_MAGIC);
+    out.writeShort(0x0003);
+    out.writeShort(unitsPerEm);
+    out.writeLong(time);
+    out.writeLong(time);
+    writeBounds(out, getFontBounds());
+    out.writeShort(0);
+    out.writeShort(8);
+    out.writeShort(2);
+    out.writeShort(1);
+    out.writeShort(0);
+    return table.toByteArray();
+  }
+
+  private byte[] makeHhea() throws IOException {
+    int advanceWidthMax = 0;
+    int minLeftSideBearing = Integer.MAX_VALUE;
+    int minRightSideBearing = Integer.MAX_VALUE;
+    int maxExtent = Integer.MIN_VALUE;
+    for (int i = 0; i < glyphData.size(); i++) {
+      int advanceWidth = advanceWidths.get(i);
+      advanceWidthMax = Math.max(advanceWidthMax, advanceWidth);
+      if (glyphData.get(i).length == 0) {
+        continue;
+      }
+      int[] bounds = glyphBounds.get(i);
+      minLeftSideBearing = Math.min(minLeftSideBearing, bounds[0]);
+      minRightSideBearing = Math.min(minRightSideBearing, advanceWidth - bounds[2]);
+      maxExtent = Math.max(maxExtent, bounds[2]);
+    }
+    if (maxExtent == Integer.MIN_VALUE) {
+      minLeftSideBearing = 0;
+      minRightSideBearing = 0;
+      maxExtent = 0;
+    }
+
+    ByteArrayOutputStream table = new ByteArrayOutputStream(36);
+    DataOutputStream out = new DataOutputStream(table);
+    out.writeInt(0x00010000);
+    out.writeShort(ascender);
+    out.writeShort(descender);
+    out.writeShort(0);
+    out.writeShort(advanceWidthMax);
+    out.writeShort(minLeftSideBearing);
+    out.writeShort(minRightSideBearing);
+    out.writeShort(maxExtent);
+    out.writeShort(1);
+    out.writeShort(0);
+    out.writeShort(0);
+    out.write(new byte[8]);
+    out.writeShort(0);
+    out.writeShort(glyphData.size());
+    return table.toByteArray();
+  }
+
+  private byte[] makeHmtx() throws IOException {
+    ByteArrayOutputStream table = new ByteArrayOutputStream(glyphData.size() * 4);
+    DataOutputStream out = new DataOutputStream(table);
+    for (int i = 0; i < glyphData.size(); i++) {
+      out.writeShort(advanceWidths.get(i));
+      out.writeShort(glyphData.get(i).length == 0 ? 0 : glyphBounds.get(i)[0]);
+    }
+    return table.toByteArray();
+  }
+
+  private byte[] makeMaxp() throws IOException {
+    ByteArrayOutputStream table = new ByteArrayOutputStream(32);
+    DataOutputStream out = new DataOutputStream(table);
+    out.writeInt(0x00010000);
+    out.writeShort(glyphData.size());
+    out.writeShort(maxPoints);
+    out.writeShort(maxContours);
+    out.writeShort(maxCompositePoints);
+    out.writeShort(maxCompositeContours);
+    out.writeShort(2);
+    out.writeShort(0);
+    out.writeShort(0);
+    out.writeShort(0);
+    out.writeShort(0);
+    out.writeShort(0);
+    out.writeShort(0);
+    out.writeShort(maxComponentElements);
+    out.writeShort(maxComponentElements > 0 ? 1 : 0);
+    return table.toByteArray();
+  }
+
+  private byte[] makeOs2() throws IOException {
+    long widthSum = 0;
+    int widthCount = 0;
+    for (int i = 0; i < glyphData.size(); i++) {
+      if (advanceWidths.get(i) > 0) {
+        widthSum += advanceWidths.get(i);
+        widthCount++;
+      }
+    }
+    int firstChar = characterMap.isEmpty() ? 0 : characterMap.firstKey();
+    int lastChar = characterMap.isEmpty() ? 0 : characterMap.lastKey();
+
+    ByteArrayOutputStream table = new ByteArrayOutputStream(96);
+    DataOutputStream out = new DataOutputStream(table);
+    out.writeShort(4);
+    out.writeShort(widthCount == 0 ? 0 : (int) (widthSum / widthCount));
+    int weightAxis = axisTags.indexOf(WEIGHT_AXIS);
+    out.writeShort(weightAxis < 0 ? 400
+        : Math.max(1, Math.min(1000, (int) Math.round(axisValues.get(weightAxis)[1]))));
+    out.writeShort(5);
+    out.writeShort(0);
+    // Subscript, superscript and strikeout metrics
+    out.writeShort(unitsPerEm * 65 / 100);
+    out.writeShort(unitsPerEm * 60 / 100);
+    out.writeShort(0);
+    out.writeShort(unitsPerEm * 7 / 100);
+    out.writeShort(unitsPerEm * 65 / 100);
+    out.writeShort(unitsPerEm * 60 / 100);
+    out.writeShort(0);
+    out.writeShort(unitsPerEm * 35 / 100);
+    out.writeShort(unitsPerEm * 5 / 100);
+    out.writeShort(unitsPerEm * 26 / 100);
+    out.writeShort(0);
+    out.write(new byte[10]);
+    // Unicode ranges of Hangul Jamo, Hangul Compatibility Jamo and Hangul Syllables
+    out.writeInt(1 << 28);
+    out.writeInt(1 << 20 | 1 << 24);
+    out.writeInt(0);
+    out.writeInt(0);
+    out.writeBytes("NONE");
+    out.writeShort(0x0040);
+    out.writeShort(firstChar);
+    out.writeShort(lastChar);
+    out.writeShort(ascender);
+    out.writeShort(descender);
+    out.writeShort(0);
+    out.writeShort(ascender);
+    out.writeShort(-descender);
+    // Code page of Korean Wansung
+    out.writeInt(1 << 19);
+    out.writeInt(0);
+    out.writeShort(0);
+    out.writeShort(0);
+    out.writeShort(0);
+    out.writeShort(' ');
+    out.writeShort(1);
+    return table.toByteArray();
+  }
+
+  /**
+   * Makes a character map of format 4, where each run of consecutive code points becomes
+   * a segment. A segment uses a delta if glyph indices of the run are consecutive as well,
+   * and the glyph index array otherwise.
+   */
+  private byte[] makeCmap() throws IOException {
+    ArrayList<int[]> segments = new ArrayList<>();
+    int[] segment = null;
+    int lastGlyph = 0;
+    for (Map.Entry<Integer, Integer> entry : characterMap.entrySet()) {
+      int codePoint = entry.getKey();
+      int glyph = entry.getValue();
+      if (segment != null && segment[1] == codePoint - 1) {
+        segment[1] = codePoint;
+        if (glyph != lastGlyph + 1) {
+          segment[2] = 0;
+        }
+      } else {
+        segment = new int[] {codePoint, codePoint, 1};
+        segments.add(segment);
+      }
+      lastGlyph = glyph;
+    }
+    segments.add(new int[] {0xFFFF, 0xFFFF, 1});
+
+    int segCount = segments.size();
+    int searchRange = Integer.highestOneBit(segCount) * 2;
+    ByteArrayOutputStream glyphIds = new ByteArrayOutputStream();
+    DataOutputStream glyphIdsOut = new DataOutputStream(glyphIds);
+    int[] deltas = new int[segCount];
+    int[] rangeOffsets = new int[segCount];
+    for (int i = 0; i < segCount - 1; i++) {
+      int[] current = segments.get(i);
+      if (current[2] == 1) {
+        deltas[i] = characterMap.get(current[0]) - current[0];
+        continue;
+      }
+      // Offset from the range offset of the segment to its first glyph index.
+      rangeOffsets[i] = (segCount - i) * 2 + glyphIds.size();
+      for (int codePoint = current[0]; codePoint <= current[1]; codePoint++) {
+        glyphIdsOut.writeShort(characterMap.get(codePoint));
+      }
+    }
+    deltas[segCount - 1] = 1;
+
+    ByteArrayOutputStream subtable = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(subtable);
+    out.writeShort(4);
+    out.writeShort(16 + segCount * 8 + glyphIds.size());
+    out.writeShort(0);
+    out.writeShort(segCount * 2);
+    out.writeShort(searchRange);
+    out.writeShort(Integer.numberOfTrailingZeros(searchRange / 2));
+    out.writeShort(segCount * 2 - searchRange);
+    for (int[] current : segments) {
+      out.writeShort(current[1]);
+    }
+    out.writeShort(0);
+    for (int[] current : segments) {
+      out.writeShort(current[0]);
+    }
+    for (int delta : deltas) {
+      out.writeShort(delta);
+    }
+    for (int rangeOffset : rangeOffsets) {
+      out.writeShort(rangeOffset);
+    }
+    glyphIds.writeTo(out);
+
+    ByteArrayOutputStream table = new ByteArrayOutputStream();
+    DataOutputStream tableOut = new DataOutputStream(table);
+    tableOut.writeShort(0);
+    tableOut.writeShort(2);
+    // Unicode BMP and Windows Unicode BMP share the subtable.
+    tableOut.writeShort(0);
+    tableOut.writeShort(3);
+    tableOut.writeInt(20);
+    tableOut.writeShort(3);
+    tableOut.writeShort(1);
+    tableOut.writeInt(20);
+    subtable.writeTo(tableOut);
+    return table.toByteArray();
+  }
+
+  private byte[] makeName() throws IOException {
+    String postScriptName = familyName.replaceAll("[^A-Za-z0-9-]", "");
+    if (postScriptName.isEmpty()) {
+      postScriptName = "MyLittleFont";
+    }
+    String[] names = {
+        null,
+        familyName,
+        "Regular",
+        familyName + " Regular",
+        familyName,
+        "Version 1.0",
+        postScriptName
+    };
+    // Names of axes and instances follow from the first font-specific name ID.
+    ArrayList<String> fontNames = new ArrayList<>(axisNames);
+    fontNames.addAll(instanceNames);
+    int count = names.length - 1 + fontNames.size();
+
+    ByteArrayOutputStream strings = new ByteArrayOutputStream();
+    ByteArrayOutputStream table = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(table);
+    out.writeShort(0);
+    out.writeShort(count);
+    out.writeShort(6 + count * 12);
+    for (int nameId = 1; nameId < names.length; nameId++) {
+      writeNameRecord(out, strings, nameId, names[nameId]);
+    }
+    for (int i = 0; i < fontNames.size(); i++) {
+      writeNameRecord(out, strings, FIRST_FONT_NAME_ID + i, fontNames.get(i));
+    }
+    strings.writeTo(out);
+    return table.toByteArray();
+  }
+
+  private static void writeNameRecord(DataOutputStream out, ByteArrayOutputStream strings,
+                                      int nameId, String name) throws IOException {
+    byte[] bytes = name.getBytes(UTF_16BE);
+    out.writeShort(3);
+    out.writeShort(1);
+    out.writeShort(0x0409);
+    out.writeShort(nameId);
+    out.writeShort(bytes.length);
+    out.writeShort(strings.size());
+    strings.write(bytes);
+  }
+
+  private byte[] makeAvar() throws IOException {
+    ByteArrayOutputStream table = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(table);
+    out.writeInt(0x00010000);
+    out.writeShort(0);
+    out.writeShort(axisTags.size());
+    for (double[][] map : axisMaps) {
+      out.writeShort(map[0].length);
+      for (int i = 0; i < map[0].length; i++) {
+        out.writeShort(toF2Dot14(map[0][i]));
+        out.writeShort(toF2Dot14(map[1][i]));
+      }
+    }
+    return table.toByteArray();
+  }
+
+  private byte[] makeFvar() throws IOException {
+    int axisCount = axisTags.size();
+    ByteArrayOutputStream table = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(table);
+    out.writeInt(0x00010000);
+    out.writeShort(16);
+    out.writeShort(2);
+    out.writeShort(axisCount);
+    out.writeShort(20);
+    out.writeShort(instanceNames.size());
+    out.writeShort(4 + axisCount * 4);
+    for (int i = 0; i < axisCount; i++) {
+      double[] values = axisValues.get(i);
+      out.writeBytes(axisTags.get(i));
+      out.writeInt(toFixed(values[0]));
+      out.writeInt(toFixed(values[1]));
+      out.writeInt(toFixed(values[2]));
+      out.writeShort(0);
+      out.writeShort(FIRST_FONT_NAME_ID + i);
+    }
+    for (int i = 0; i < instanceNames.size(); i++) {
+      out.writeShort(FIRST_FONT_NAME_ID + axisCount + i);
+      out.writeShort(0);
+      for (double coordinate : instanceCoordinates.get(i)) {
+        out.writeInt(toFixed(coordinate));
+      }
+    }
+    return table.toByteArray();
+  }
+
+  /**
+   * Makes the header of a glyph variations table, which is followed by the variation data of
+   * glyphs. The masters are the shared tuples referred by the variation data.
+   */
+  private byte[] makeGvarHeader() throws IOException {
+    int axisCount = axisTags.size();
+    int glyphCount = glyphData.size();
+    int sharedTuplesOffset = 20 + (glyphCount + 1) * 4;
+    ByteArrayOutputStream table = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(table);
+    out.writeShort(1);
+    out.writeShort(0);
+    out.writeShort(axisCount);
+    out.writeShort(masters.size());
+    out.writeInt(sharedTuplesOffset);
+    out.writeShort(glyphCount);
+    // Offsets are of 32 bits.
+    out.writeShort(1);
+    out.writeInt(sharedTuplesOffset + masters.size() * axisCount * 2);
+    int offset = 0;
+    for (byte[] variations : glyphVariations) {
+      out.writeInt(offset);
+      offset += variations.length;
+    }
+    out.writeInt(offset);
+    for (double[] master : masters) {
+      for (double value : master) {
+        out.writeShort(toF2Dot14(value));
+      }
+    }
+    return table.toByteArray();
+  }
+
+  private static int toFixed(double value) {
+    return (int) Math.round(value * 0x10000);
+  }
+
+  private static int toF2Dot14(double value) {
+    return (int) Math.round(value * 0x4000);
+  }
+
+  private byte[] makePost() throws IOException {
+    ByteArrayOutputStream table = new ByteArrayOutputStream(32);
+    DataOutputStream out = new DataOutputStream(table);
+    out.writeInt(0x00030000);
+    out.writeInt(0);
+    out.writeShort(-unitsPerEm / 10);
+    out.writeShort(unitsPerEm / 20);
+    out.writeInt(0);
+    out.writeInt(0);
+    out.writeInt(0);
+    out.writeInt(0);
+    out.writeInt(0);
+    return table.toByteArray();
+  }
+
+  /**
+   * Checksum of a table computed over its data given in chunks of any length, as if the table
+   * were padded with zeros to a multiple of four bytes.
+   */
+  private static class Checksum {
+    private long sum;
+    private int word;
+    private long length;
+
+    void update(byte[] data, int offset, int count) {
+      for (int i = offset; i < offset + count; i++) {
+        word = word << 8 | (data[i] & 0xFF);
+        if ((++length & 3) == 0) {
+          sum += word & 0xFFFFFFFFL;
+          word = 0;
+        }
+      }
+    }
+
+    long getLength() {
+      return length;
+    }
+
+    long getValue() {
+      int shift = (int) (-length & 3) * 8;
+      return (sum + ((long) word << shift & 0xFFFFFFFFL)) & 0xFFFFFFFFL;
+    }
+  }
+}
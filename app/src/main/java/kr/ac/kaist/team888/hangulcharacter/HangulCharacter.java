@@ -25,6 +25,9 @@ import java.util.HashMap;
 
 /**
  * Abstract Class for each individual Hangul characters.
+ *
+ * <p>A character is shared by every locator, and computes new skeletons and regions on every
+ * call without keeping them, so that locators may be constructed on several threads at once.
  */
 public abstract class HangulCharacter implements FeatureController.OnFeatureChangeListener {
   private static final String NO_DATA_ERROR = "No Json Data for character \'%s\'";
@@ -41,10 +44,6 @@ public abstract class HangulCharacter implements FeatureController.OnFeatureChan
   private ArrayList<ArrayList<ArrayList<Vector2D>>> flattenPoints;
   private ArrayList<ArrayList<ArrayList<Vector2D>>> skeletonsPoints;
 
-  private ArrayList<ArrayList<ArrayList<BezierCurve>>> skeletonsData;
-  private ArrayList<ArrayList<ArrayList<BezierCurve>>> skeletons;
-
-  private Region region;
   protected JsonObject data;
 
   private final HashMap<Collection<Vector2D>, Vector2D> offsetVectorMap = new HashMap<>();
@@ -110,7 +109,8 @@ public abstract class HangulCharacter implements FeatureController.OnFeatureChan
     FeatureController.getInstance().registerOnFeatureChangeListener(this);
   }
 
-  private void calculateSkeletons(int currentIndex, ArrayList<HangulCharacter> characters) {
+  private ArrayList<ArrayList<ArrayList<BezierCurve>>> calculateSkeletons(
+      int currentIndex, ArrayList<HangulCharacter> characters) {
     ArrayList<ArrayList<ArrayList<Vector2D>>> selectedPoints = skeletonsPoints;
 
     if (flattenPoints != null && isFlatable(currentIndex, characters)) {
@@ -120,7 +120,7 @@ public abstract class HangulCharacter implements FeatureController.OnFeatureChan
     }
 
     // Construct the skeletons data
-    skeletonsData = new ArrayList<>();
+    ArrayList<ArrayList<ArrayList<BezierCurve>>> skeletonsData = new ArrayList<>();
     for (int i = 0; i < selectedPoints.size(); i++) {
       skeletonsData.add(i, new ArrayList<ArrayList<BezierCurve>>());
       for (int j = 0; j < selectedPoints.get(i).size(); j++) {
@@ -167,21 +167,11 @@ public abstract class HangulCharacter implements FeatureController.OnFeatureChan
         skeletonsData.get(i).add(segment);
       }
     }
-
-    // Copy the skeletons data
-    skeletons = new ArrayList<>();
-    for (int i = 0; i < skeletonsData.size(); i++) {
-      skeletons.add(i, new ArrayList<ArrayList<BezierCurve>>());
-      for (int j = 0; j < skeletonsData.get(i).size(); j++) {
-        skeletons.get(i).add(j, new ArrayList<BezierCurve>());
-        for (int k = 0; k < skeletonsData.get(i).get(j).size(); k++) {
-          skeletons.get(i).get(j).add(skeletonsData.get(i).get(j).get(k).clone());
-        }
-      }
-    }
+    return skeletonsData;
   }
 
-  private void calculateRegion() {
+  private static Region calculateRegion(
+      ArrayList<ArrayList<ArrayList<BezierCurve>>> skeletonsData) {
     double minX = ORIGIN_REGION.getMaxX();
     double maxX = ORIGIN_REGION.getMinX();
     double minY = ORIGIN_REGION.getMaxY();
@@ -199,12 +189,14 @@ public abstract class HangulCharacter implements FeatureController.OnFeatureChan
     }
 
     // Case for an empty list
+    Region region;
     if (minX > maxX || minY > maxY) {
       region = new Region(ORIGIN_REGION.getMinX(), ORIGIN_REGION.getMaxX(),
           ORIGIN_REGION.getMinY(), ORIGIN_REGION.getMaxY());
     }
 
     region = new Region(minX - X_OFFSET, maxX + X_OFFSET, minY - Y_OFFSET, maxY + Y_OFFSET);
+    return region;
   }
 
   public boolean isArisable() {
@@ -218,12 +210,13 @@ public abstract class HangulCharacter implements FeatureController.OnFeatureChan
   /**
    * Get array of skeletons.
    *
+   * <p>The skeletons are made anew on every call, so that the caller may transform them in place.
+   *
    * @return skeletons which is composed of 2D {@link kr.ac.kaist.team888.bezier.BezierCurve} array.
    */
   public ArrayList<ArrayList<ArrayList<BezierCurve>>> getSkeletons(
           int currentIndex, ArrayList<HangulCharacter> characters) {
-    calculateSkeletons(currentIndex, characters);
-    return skeletons;
+    return calculateSkeletons(currentIndex, characters);
   }
 
   /**
@@ -232,9 +225,7 @@ public abstract class HangulCharacter implements FeatureController.OnFeatureChan
    * @return the region of the character.
    */
   public Region getRegion(int currentIndex, ArrayList<HangulCharacter> characters) {
-    calculateSkeletons(currentIndex, characters);
-    calculateRegion();
-    return region;
+    return calculateRegion(calculateSkeletons(currentIndex, characters));
   }
 
   @Override
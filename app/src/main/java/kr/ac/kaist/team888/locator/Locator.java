@@ -6,8 +6,13 @@ import com.google.gson.reflect.TypeToken;
 
 import android.graphics.Path;
 
+import kr.ac.kaist.team888.bezier.AffineTransform2D;
 import kr.ac.kaist.team888.bezier.BezierCurve;
+import kr.ac.kaist.team888.bezier.BezierCurveOffsetMethodType;
 import kr.ac.kaist.team888.bezier.BezierCurveUtils;
+import kr.ac.kaist.team888.bezier.ContourBuffer;
+import kr.ac.kaist.team888.bezier.PenType;
+import kr.ac.kaist.team888.bezier.StrokeMemo;
 import kr.ac.kaist.team888.hangulcharacter.HangulCharacter;
 import kr.ac.kaist.team888.region.Region;
 import kr.ac.kaist.team888.util.FeatureController;
@@ -16,6 +21,7 @@ import kr.ac.kaist.team888.util.JsonLoader;
 
 import org.apache.commons.math3.analysis.UnivariateFunction;
 import org.apache.commons.math3.analysis.solvers.BisectionSolver;
+import org.apache.commons.math3.exception.DimensionMismatchException;
 import org.apache.commons.math3.geometry.euclidean.twod.Vector2D;
 
 import java.lang.reflect.Type;
@@ -34,8 +40,8 @@ public class Locator implements FeatureController.OnFeatureChangeListener{
   private static final double CURVE_TOLERANCE = 1E-4;
   private static final int WEIGHT_DEFAULT = 32;
   private static final double CONTRAST_MIN = .6;
-  private static final double WIDTH_MIN = 0.7;
-  private static final double WIDTH_MAX = 1.3;
+  public static final double WIDTH_MIN = 0.7;
+  public static final double WIDTH_MAX = 1.3;
   public static final double SLANT_MAX = 0.3;
   private static final int PRIORITY = 1;
 
@@ -57,8 +63,16 @@ public class Locator implements FeatureController.OnFeatureChangeListener{
   private ArrayList<ArrayList<ArrayList<BezierCurve>>> flattenData;
   private ArrayList<ArrayList<ArrayList<BezierCurve>>> skeletonsData;
   private ArrayList<ArrayList<ArrayList<BezierCurve>>> processedData;
+  private double[] baseCoordinates;
+  private double[] flattenCoordinates;
+  private double[] ariseCoordinates;
+  private double[] processedCoordinates;
   private ArrayList<ArrayList<BezierCurve>> skeletons;
   private ArrayList<ArrayList<BezierCurve>> contours;
+  private ArrayList<Integer> skeletonOwners;
+  private int[] contourOwners = new int[0];
+  private ContourBuffer contourBuffer = new ContourBuffer();
+  private boolean contoursPending = false;
 
   private boolean isArisable = false;
   private boolean isFlatable = false;
@@ -72,38 +86,39 @@ public class Locator implements FeatureController.OnFeatureChangeListener{
    * Constructs a locator object for given Hangul letter.
    *
    * <p>This method accepts a single Hangul letter and then composes and transforms each character
-   * of the letter to its right region by getting base region data of it.
+   * of the letter to its right region by getting base region data of it, or reads the located
+   * characters from the opened {@link TemplateStore} if any.
    *
    * <p>If an input letter is not Hangul, all locator functionality will not work properly.
    *
    * @param letter a Hangul letter.
    */
   public Locator(char letter) {
-    characters = HangulDecomposer.decompose(letter);
-    calculateRegions();
-
-    initialize();
-
-    FeatureController.getInstance().registerOnFeatureChangeListener(this);
-    onFeatureChange();
+    this(letter, true);
   }
 
   /**
    * Constructs a locator object for given Hangul letter.
    *
    * <p>This method accepts a single Hangul letter and then composes and transforms each character
-   * of the letter to its right region by getting base region data of it.
+   * of the letter to its right region by getting base region data of it, or reads the located
+   * characters from the opened {@link TemplateStore} if any.
    *
    * <p>If an input letter is not Hangul, all locator functionality will not work properly.
    *
+   * <p>Locators may be constructed on several threads at once, since characters keep no state
+   * of the letters they are located for.
+   *
    * @param letter a Hangul letter.
    * @param registerFeatureChangeListener whether register this to {@link FeatureController}
    */
   public Locator(char letter, boolean registerFeatureChangeListener) {
     characters = HangulDecomposer.decompose(letter);
-    calculateRegions();
-
-    initialize();
+    TemplateStore templateStore = TemplateStore.getInstance();
+    if (templateStore == null || !templateStore.load(letter, this)) {
+      calculateRegions();
+      initialize();
+    }
 
     if (registerFeatureChangeListener) {
       FeatureController.getInstance().registerOnFeatureChangeListener(this);
@@ -113,6 +128,7 @@ public class Locator implements FeatureController.OnFeatureChangeListener{
 
   private void initialize() {
     skeletonsData = new ArrayList<>();
+    skeletonOwners = new ArrayList<>();
 
     for (int i = 0; i < characters.size(); i++) {
       HangulCharacter character = characters.get(i);
@@ -127,17 +143,11 @@ public class Locator implements FeatureController.OnFeatureChangeListener{
         isArisable = true;
       }
 
+      AffineTransform2D transform = baseRegion.getTransform(targetRegion);
       for (ArrayList<ArrayList<BezierCurve>> skeleton : character.getSkeletons(i, characters)) {
-        ArrayList<ArrayList<BezierCurve>> newSkeletonData = new ArrayList<>();
-        for (ArrayList<BezierCurve> segment : skeleton) {
-          ArrayList<BezierCurve> newSegment = new ArrayList<>();
-          for (BezierCurve curve : segment) {
-            BezierCurve transformedCurve = baseRegion.transformBezierCurve(targetRegion, curve);
-            newSegment.add(transformedCurve);
-          }
-          newSkeletonData.add(newSegment);
-        }
-        skeletonsData.add(newSkeletonData);
+        transformSkeleton(skeleton, transform);
+        skeletonsData.add(skeleton);
+        skeletonOwners.add(i);
       }
     }
 
@@ -149,17 +159,10 @@ public class Locator implements FeatureController.OnFeatureChangeListener{
         Region baseRegion = character.getRegion(-1, characters);
         Region targetRegion = regions.get(i);
 
+        AffineTransform2D transform = baseRegion.getTransform(targetRegion);
         for (ArrayList<ArrayList<BezierCurve>> skeleton : character.getSkeletons(-1, characters)) {
-          ArrayList<ArrayList<BezierCurve>> newSkeletonData = new ArrayList<>();
-          for (ArrayList<BezierCurve> segment : skeleton) {
-            ArrayList<BezierCurve> newSegment = new ArrayList<>();
-            for (BezierCurve curve : segment) {
-              BezierCurve transformedCurve = baseRegion.transformBezierCurve(targetRegion, curve);
-              newSegment.add(transformedCurve);
-            }
-            newSkeletonData.add(newSegment);
-          }
-          flattenData.add(newSkeletonData);
+          transformSkeleton(skeleton, transform);
+          flattenData.add(skeleton);
         }
       }
     }
@@ -172,27 +175,87 @@ public class Locator implements FeatureController.OnFeatureChangeListener{
         Region baseRegion = character.getRegion(-1, characters);
         Region targetRegion = regions.get(i);
 
+        AffineTransform2D transform = baseRegion.getTransform(targetRegion);
         for (ArrayList<ArrayList<BezierCurve>> skeleton : character.getSkeletons(-1, characters)) {
-          ArrayList<ArrayList<BezierCurve>> newSkeletonData = new ArrayList<>();
-          for (ArrayList<BezierCurve> segment : skeleton) {
-            ArrayList<BezierCurve> newSegment = new ArrayList<>();
-            for (BezierCurve curve : segment) {
-              BezierCurve transformedCurve = baseRegion.transformBezierCurve(targetRegion, curve);
-              newSegment.add(transformedCurve);
-            }
-            newSkeletonData.add(newSegment);
-          }
-          ariseData.add(newSkeletonData);
+          transformSkeleton(skeleton, transform);
+          ariseData.add(skeleton);
         }
       }
     }
   }
 
+  /**
+   * Transforms the skeleton in place, which is a copy made by its character for the locator.
+   */
+  private static void transformSkeleton(ArrayList<ArrayList<BezierCurve>> skeleton,
+                                        AffineTransform2D transform) {
+    for (ArrayList<BezierCurve> segment : skeleton) {
+      for (BezierCurve curve : segment) {
+        curve.transform(transform);
+      }
+    }
+  }
+
+  /**
+   * Sets the located skeletons read from a {@link TemplateStore} instead of locating them.
+   *
+   * <p>The flatten and arise data are given only as coordinates packed as by
+   * {@link #packVariations()}, which is all the manipulation of the skeletons needs.
+   */
+  void setTemplate(ArrayList<ArrayList<ArrayList<BezierCurve>>> skeletonsData,
+                   ArrayList<Integer> skeletonOwners, double[] baseCoordinates,
+                   double[] flattenCoordinates, double[] ariseCoordinates) {
+    this.skeletonsData = skeletonsData;
+    this.skeletonOwners = skeletonOwners;
+    this.baseCoordinates = baseCoordinates;
+    this.flattenCoordinates = flattenCoordinates;
+    this.ariseCoordinates = ariseCoordinates;
+    isFlatable = flattenCoordinates != null;
+    isArisable = ariseCoordinates != null;
+    processedCoordinates = new double[baseCoordinates.length];
+  }
+
+  ArrayList<ArrayList<ArrayList<BezierCurve>>> getSkeletonsData() {
+    return skeletonsData;
+  }
+
+  ArrayList<Integer> getSkeletonOwners() {
+    return skeletonOwners;
+  }
+
+  double[] getBaseCoordinates() {
+    packVariations();
+    return baseCoordinates;
+  }
+
+  double[] getFlattenCoordinates() {
+    packVariations();
+    return flattenCoordinates;
+  }
+
+  double[] getAriseCoordinates() {
+    packVariations();
+    return ariseCoordinates;
+  }
+
+  /**
+   * Returns the base locator data of the letter made of given characters.
+   *
+   * @param characters characters of the letter
+   * @return the base locator data, or <code>null</code> if the letter has a single character
+   */
+  public static JsonArray getBaseLocatorData(ArrayList<HangulCharacter> characters) {
+    if (characters.size() <= 1) {
+      return null;
+    }
+    String type = String.format(TYPE_TOKEN, characters.size());
+    String medialToken = characters.get(1).getClass().getSimpleName();
+    return JsonLoader.getInstance().getLocatorData(type, medialToken);
+  }
+
   private void calculateRegions() {
     if (characters.size() > 1) {
-      String type = String.format(TYPE_TOKEN, characters.size());
-      String medialToken = characters.get(1).getClass().getSimpleName();
-      JsonArray baseLocatorData = JsonLoader.getInstance().getLocatorData(type, medialToken);
+      JsonArray baseLocatorData = getBaseLocatorData(characters);
       Gson gson = new Gson();
       Type collectionType = new TypeToken<Collection<Region>>(){}.getType();
       regions = gson.fromJson(baseLocatorData, collectionType);
@@ -222,6 +285,26 @@ public class Locator implements FeatureController.OnFeatureChangeListener{
     return skeletons;
   }
 
+  /**
+   * Returns contours of the letter grouped by the characters drawing them.
+   *
+   * <p>The i-th group holds the contours stroked from the skeletons of the i-th character of
+   * {@link Locator#getCharacters()}. Contours are shared with {@link Locator#getContour()}.
+   *
+   * @return contours of each character of the letter
+   */
+  public ArrayList<ArrayList<ArrayList<BezierCurve>>> getCharacterContours() {
+    ArrayList<ArrayList<ArrayList<BezierCurve>>> characterContours = new ArrayList<>();
+    for (int i = 0; i < characters.size(); i++) {
+      characterContours.add(new ArrayList<ArrayList<BezierCurve>>());
+    }
+    ArrayList<ArrayList<BezierCurve>> letterContours = getContour();
+    for (int i = 0; i < letterContours.size(); i++) {
+      characterContours.get(contourOwners[i]).add(letterContours.get(i));
+    }
+    return characterContours;
+  }
+
   /**
    * Recalculate Paths and Circles respect to canvas region.
    *
@@ -240,7 +323,7 @@ public class Locator implements FeatureController.OnFeatureChangeListener{
     controlCircles = new ArrayList<>();
 
     setPaths(canvasRegion, skeletons, skeletonPaths, true);
-    setPaths(canvasRegion, contours, contourPaths, false);
+    setPaths(canvasRegion, getContour(), contourPaths, false);
   }
 
   /**
@@ -321,6 +404,7 @@ public class Locator implements FeatureController.OnFeatureChangeListener{
           processedData.get(targetSegments).get(target), true);
       segment.add(0, new BezierCurve.Builder()
           .setPoints(new Vector2D[] {adjustPoint, segment.get(0).getStartPoint()})
+          .setOffsetMethod(startCurve.getOffsetMethod())
           .setOffsetVector(segment.get(0).getOffsetVector())
           .setCutoffStartVector(startCurve.getCutoffStartVector())
           .build());
@@ -346,6 +430,7 @@ public class Locator implements FeatureController.OnFeatureChangeListener{
       }
       segment.add(new BezierCurve.Builder()
           .setPoints(new Vector2D[] {endCurve.getEndPoint(), adjustPoint})
+          .setOffsetMethod(endCurve.getOffsetMethod())
           .setOffsetVector(offsetVector)
           .setCutoffEndVector(endCurve.getCutoffEndVector())
           .build());
@@ -414,6 +499,7 @@ public class Locator implements FeatureController.OnFeatureChangeListener{
           .dotProduct(endVector.normalize()) - 1) < CURVE_TOLERANCE) {
         return new BezierCurve.Builder()
             .setPoints(new Vector2D[] {joint.getStartPoint(), joint.getEndPoint()})
+            .setOffsetMethod(joint.getOffsetMethod())
             .setOffsetVector(joint.getOffsetVector())
             .setEndOffsetVector(joint.getEndOffsetVector())
             .build();
@@ -424,6 +510,7 @@ public class Locator implements FeatureController.OnFeatureChangeListener{
               joint.getStartPoint().add(offset, startVector.normalize()),
               joint.getEndPoint().add(offset, startVector.normalize()),
               joint.getEndPoint()})
+          .setOffsetMethod(joint.getOffsetMethod())
           .setOffsetVector(joint.getOffsetVector())
           .setEndOffsetVector(joint.getEndOffsetVector())
           .build();
@@ -437,6 +524,7 @@ public class Locator implements FeatureController.OnFeatureChangeListener{
             joint.getStartPoint(),
             joint.getStartPoint().add(factor, startVector),
             joint.getEndPoint()})
+        .setOffsetMethod(joint.getOffsetMethod())
         .setOffsetVector(joint.getOffsetVector())
         .setEndOffsetVector(joint.getEndOffsetVector())
         .build();
@@ -565,11 +653,88 @@ public class Locator implements FeatureController.OnFeatureChangeListener{
    * @param contrastControl contrast control value from 0 to 1
    */
   public void applyContour(double weightControl, double roundnessControl, double contrastControl) {
+    applyContour(weightControl, roundnessControl, contrastControl, PenType.Ellipse);
+  }
+
+  /**
+   * Applies contour by given weight, roundness and contrast control values and pen style.
+   *
+   * @param weightControl weight control value from 0 to 1
+   * @param roundnessControl roundness control value from 0 to 1
+   * @param contrastControl contrast control value from 0 to 1
+   * @param pen pen style to draw strokes
+   */
+  public void applyContour(double weightControl, double roundnessControl, double contrastControl,
+                           PenType pen) {
+    applyContour(weightControl, roundnessControl, contrastControl, pen, null);
+  }
+
+  /**
+   * Applies contour by given weight, roundness and contrast control values and pen style,
+   * reusing strokes stored in the memo.
+   *
+   * @param weightControl weight control value from 0 to 1
+   * @param roundnessControl roundness control value from 0 to 1
+   * @param contrastControl contrast control value from 0 to 1
+   * @param pen pen style to draw strokes
+   * @param strokeMemo memo of strokes shared among locators, or <code>null</code> to stroke
+   *     every skeleton
+   */
+  public void applyContour(double weightControl, double roundnessControl, double contrastControl,
+                           PenType pen, StrokeMemo strokeMemo) {
+    applyContour(weightControl, roundnessControl, contrastControl, pen,
+        BezierCurveOffsetMethodType.TillerHanson, strokeMemo);
+  }
+
+  /**
+   * Applies contour by given weight, roundness and contrast control values, pen style and
+   * offset method, reusing strokes stored in the memo.
+   *
+   * <p>With the Tiller-Hanson method, skeleton curves whose own offset method is adaptive are
+   * still offset adaptively, while the adaptive method applies to every curve.
+   *
+   * @param weightControl weight control value from 0 to 1
+   * @param roundnessControl roundness control value from 0 to 1
+   * @param contrastControl contrast control value from 0 to 1
+   * @param pen pen style to draw strokes
+   * @param offsetMethod offset method of the strokes
+   * @param strokeMemo memo of strokes shared among locators, or <code>null</code> to stroke
+   *     every skeleton
+   */
+  public void applyContour(double weightControl, double roundnessControl, double contrastControl,
+                           PenType pen, BezierCurveOffsetMethodType offsetMethod,
+                           StrokeMemo strokeMemo) {
+    applyContour(weightControl, roundnessControl, contrastControl, pen, offsetMethod, false,
+        strokeMemo);
+  }
+
+  /**
+   * Applies contour by given weight, roundness and contrast control values, pen style and
+   * offset method, optionally keeping the structure of the contour independent of the weight,
+   * reusing strokes stored in the memo.
+   *
+   * <p>With a fixed topology, contours of the same skeletons applied any weight have the same
+   * segments, so that they can be interpolated with each other.
+   *
+   * @param weightControl weight control value from 0 to 1
+   * @param roundnessControl roundness control value from 0 to 1
+   * @param contrastControl contrast control value from 0 to 1
+   * @param pen pen style to draw strokes
+   * @param offsetMethod offset method of the strokes
+   * @param fixedTopology whether to keep the segments independent of the weight
+   * @param strokeMemo memo of strokes shared among locators, or <code>null</code> to stroke
+   *     every skeleton
+   */
+  public void applyContour(double weightControl, double roundnessControl, double contrastControl,
+                           PenType pen, BezierCurveOffsetMethodType offsetMethod,
+                           boolean fixedTopology, StrokeMemo strokeMemo) {
     double weight = weightControl - .5;
     double roundness = roundnessControl;
     double contrast = contrastControl * (2 - 2 * CONTRAST_MIN) + CONTRAST_MIN;
-    contours = new ArrayList<>();
-    for (ArrayList<BezierCurve> curves : skeletons) {
+    contourBuffer.clear();
+    int[] owners = new int[skeletons.size()];
+    for (int i = 0; i < skeletons.size(); i++) {
+      ArrayList<BezierCurve> curves = skeletons.get(i);
       ArrayList<BezierCurve> newCurves = new ArrayList<>();
       for (BezierCurve curve : curves) {
         if (curve.isCollapsed()) {
@@ -578,7 +743,26 @@ public class Locator implements FeatureController.OnFeatureChangeListener{
         newCurves.add(curve);
       }
       double delta = WEIGHT_DEFAULT + (WEIGHT_DEFAULT - 1) * weight;
-      contours.add(BezierCurveUtils.stroke(newCurves, delta, roundness, contrast));
+      if (strokeMemo == null) {
+        BezierCurveUtils.stroke(newCurves, offsetMethod, delta, roundness, contrast,
+            pen.getPen(), fixedTopology, contourBuffer);
+      } else {
+        strokeMemo.stroke(newCurves, offsetMethod, delta, roundness, contrast, pen.getPen(),
+            fixedTopology, contourBuffer);
+      }
+      owners[i] = contourBuffer.getContourCount();
+    }
+    // Curves are made only when asked by getContour(), as buffer consumers do not need them.
+    contours = null;
+    contoursPending = true;
+
+    // Record the character of each contour from the number of contours after each skeleton.
+    contourOwners = new int[contourBuffer.getContourCount()];
+    int contour = 0;
+    for (int i = 0; i < skeletons.size(); i++) {
+      for (; contour < owners[i]; contour++) {
+        contourOwners[contour] = skeletonOwners.get(i);
+      }
     }
   }
 
@@ -596,10 +780,10 @@ public class Locator implements FeatureController.OnFeatureChangeListener{
     locatorRegion.setMinX(widthCenter - totalWidth / 2);
     locatorRegion.setMaxX(widthCenter + totalWidth / 2);
 
+    AffineTransform2D transform = HangulCharacter.ORIGIN_REGION.getTransform(locatorRegion);
     for (ArrayList<BezierCurve> skeleton : skeletons) {
-      for (int i = 0; i < skeleton.size(); i++) {
-        skeleton.set(i,
-            HangulCharacter.ORIGIN_REGION.transformBezierCurve(locatorRegion, skeleton.get(i)));
+      for (BezierCurve curve : skeleton) {
+        curve.transform(transform);
       }
     }
   }
@@ -635,50 +819,96 @@ public class Locator implements FeatureController.OnFeatureChangeListener{
       processedData = skeletonsData;
       return;
     }
+    packVariations();
+
+    // Flattening moves from the skeleton toward the flatten data, while arise moves from
+    // the arise data toward the skeleton. Flattening takes precedence for letters having both.
+    double[] sources = isFlatable ? baseCoordinates : ariseCoordinates;
+    double[] targets = isFlatable ? flattenCoordinates : baseCoordinates;
+    double proportion = isFlatable ? flatteningControl : ariseControl;
+    // Same arithmetic as BezierCurveUtils.interpolate, even for curves whose points are equal.
+    for (int i = 0; i < processedCoordinates.length; i++) {
+      processedCoordinates[i] = targets[i] * proportion + (1 - proportion) * sources[i];
+    }
 
-    processedData = new ArrayList<>();
+    processedData = new ArrayList<>(skeletonsData.size());
+    int offset = 0;
+    for (ArrayList<ArrayList<BezierCurve>> segments : skeletonsData) {
+      ArrayList<ArrayList<BezierCurve>> processedSegments = new ArrayList<>(segments.size());
+      for (ArrayList<BezierCurve> segment : segments) {
+        ArrayList<BezierCurve> processedSegment = new ArrayList<>(segment.size());
+        for (BezierCurve curve : segment) {
+          Vector2D[] points = new Vector2D[curve.getOrder() + 1];
+          for (int p = 0; p < points.length; p++) {
+            points[p] = new Vector2D(processedCoordinates[offset],
+                processedCoordinates[offset + 1]);
+            offset += 2;
+          }
+          // Interpolated curves keep only the cutoffs of the skeleton curve.
+          BezierCurve between = new BezierCurve(points);
+          between.setCutoffStart(curve.getCutoffStart());
+          between.setCutoffEnd(curve.getCutoffEnd());
+          processedSegment.add(between);
+        }
+        processedSegments.add(processedSegment);
+      }
+      processedData.add(processedSegments);
+    }
+  }
 
+  /**
+   * Packs the points of the skeletons, and of the flatten and arise data the letter has, into
+   * arrays of coordinates aligned in order of curves, unless they are packed already.
+   */
+  private void packVariations() {
+    if (processedCoordinates != null) {
+      return;
+    }
+    int coordinateCount = 0;
+    for (ArrayList<ArrayList<BezierCurve>> segments : skeletonsData) {
+      for (ArrayList<BezierCurve> segment : segments) {
+        for (BezierCurve curve : segment) {
+          coordinateCount += (curve.getOrder() + 1) * 2;
+        }
+      }
+    }
+    baseCoordinates = packCoordinates(skeletonsData, coordinateCount);
+    if (isFlatable) {
+      flattenCoordinates = packCoordinates(flattenData, coordinateCount);
+    }
+    if (isArisable) {
+      ariseCoordinates = packCoordinates(ariseData, coordinateCount);
+    }
+    processedCoordinates = new double[coordinateCount];
+  }
+
+  /**
+   * Packs the points of the data aligned to the skeletons.
+   *
+   * @throws DimensionMismatchException if a curve of the data does not match its skeleton curve
+   */
+  private double[] packCoordinates(ArrayList<ArrayList<ArrayList<BezierCurve>>> data,
+                                   int coordinateCount) {
+    double[] coordinates = new double[coordinateCount];
+    int offset = 0;
     for (int i = 0; i < skeletonsData.size(); i++) {
       ArrayList<ArrayList<BezierCurve>> segments = skeletonsData.get(i);
-      ArrayList<ArrayList<BezierCurve>> processedSegments = new ArrayList<>();
-
       for (int j = 0; j < segments.size(); j++) {
         ArrayList<BezierCurve> segment = segments.get(j);
-        ArrayList<BezierCurve> processedSegment = new ArrayList<>();
-
         for (int k = 0; k < segment.size(); k++) {
-          BezierCurve fundamentalCurve = segment.get(k);
-
-          if (isFlatable) {
-            BezierCurve flattenCurve = flattenData.get(i).get(j).get(k);
-            if (BezierCurveUtils.comparePoints(fundamentalCurve, flattenCurve)) {
-              processedSegment.add(fundamentalCurve.clone());
-            } else {
-              BezierCurve between = BezierCurveUtils.interpolate(
-                      fundamentalCurve, flattenCurve, flatteningControl);
-              between.setCutoffStart(fundamentalCurve.getCutoffStart());
-              between.setCutoffEnd(fundamentalCurve.getCutoffEnd());
-              processedSegment.add(between);
-            }
-          } else if (isArisable) {
-            BezierCurve ariseCurve = ariseData.get(i).get(j).get(k);
-            if (BezierCurveUtils.comparePoints(fundamentalCurve, ariseCurve)) {
-              processedSegment.add(fundamentalCurve.clone());
-            } else {
-              BezierCurve between = BezierCurveUtils.interpolate(
-                      ariseCurve, fundamentalCurve, ariseControl);
-              between.setCutoffStart(fundamentalCurve.getCutoffStart());
-              between.setCutoffEnd(fundamentalCurve.getCutoffEnd());
-              processedSegment.add(between);
-            }
-          } else {
-            // TODO: handle when character has flattenData & ariseData.
+          BezierCurve curve = data.get(i).get(j).get(k);
+          if (curve.getOrder() != segment.get(k).getOrder()) {
+            throw new DimensionMismatchException(curve.getOrder(), segment.get(k).getOrder());
+          }
+          for (int p = 0; p <= curve.getOrder(); p++) {
+            coordinates[offset] = curve.getX(p);
+            coordinates[offset + 1] = curve.getY(p);
+            offset += 2;
           }
         }
-        processedSegments.add(processedSegment);
       }
-      processedData.add(processedSegments);
     }
+    return coordinates;
   }
 
   /**
@@ -687,90 +917,148 @@ public class Locator implements FeatureController.OnFeatureChangeListener{
    * @param slantControl slant value within range 0~1
    */
   public void applySlant(double slantControl) {
-    double slantRadian = slantControl * Math.PI / 2 * SLANT_MAX;
+    AffineTransform2D transform = getSlantTransform(slantControl);
+    if (contoursPending) {
+      contourBuffer.transform(transform);
+      return;
+    }
     for (ArrayList<BezierCurve> contour : contours) {
-      for (int i = 0; i < contour.size(); i++) {
-        BezierCurve bezierCurve = contour.get(i);
-        Vector2D[] points = bezierCurve.getPoints();
-        Vector2D[] newPoints = new Vector2D[points.length];
-        for (int j = 0; j < points.length; j++) {
-          Vector2D point = points[j];
-
-          double newX = point.getX()
-              + (point.getY() - locatorRegion.getMinY()) / (Math.tan(Math.PI / 2 - slantRadian));
-
-          newPoints[j] = new Vector2D(newX, point.getY());
-        }
-        bezierCurve.setPoints(newPoints);
+      for (BezierCurve curve : contour) {
+        curve.transform(transform);
       }
     }
   }
 
+  /**
+   * Returns the shear applied by {@link #applySlant(double)}, which keeps the bottom of
+   * the locator region in place.
+   *
+   * <p>Contours may be slanted by this transformation composed with others instead of being
+   * slanted by the locator, such as when they are transformed to font units.
+   *
+   * @param slantControl slant control value from 0 to 1
+   * @return the shear of the slant
+   */
+  public AffineTransform2D getSlantTransform(double slantControl) {
+    double slantRadian = slantControl * Math.PI / 2 * SLANT_MAX;
+    return AffineTransform2D.shearing(1 / Math.tan(Math.PI / 2 - slantRadian),
+        locatorRegion.getMinY());
+  }
+
+  /**
+   * Returns the region of the glyph of the locator, whose width is the advance width of
+   * the glyph: the locator region widened by the slant, plus the gap after it.
+   *
+   * @param slantControl slant control value from 0 to 1
+   * @param gap gap after the glyph in proportion to its slanted width
+   * @return the region of the glyph
+   */
+  public Region getGlyphRegion(double slantControl, double gap) {
+    double slantRadian = slantControl * Math.PI / 2 * SLANT_MAX;
+    double maxX = locatorRegion.getMaxX()
+        + (locatorRegion.getMaxY() - locatorRegion.getMinY())
+        / (Math.tan(Math.PI / 2 - slantRadian));
+    double regionWidth = maxX - locatorRegion.getMinX();
+    return new Region(0, regionWidth + regionWidth * gap,
+        locatorRegion.getMinY(), locatorRegion.getMaxY());
+  }
+
   private void setPaths(Region canvasRegion, ArrayList<ArrayList<BezierCurve>> curvesSet,
                         ArrayList<Path> paths, boolean showPoints) {
+    AffineTransform2D transform = locatorRegion.getTransform(canvasRegion);
     for (ArrayList<BezierCurve> curves : curvesSet) {
       Path path = new Path();
-      BezierCurve transInitial = locatorRegion.transformBezierCurve(canvasRegion, curves.get(0));
-      path.moveTo((float) transInitial.getStartPoint().getX(),
-          (float) transInitial.getStartPoint().getY());
+      Vector2D initialPoint = transformPoint(transform, curves.get(0), 0);
+      path.moveTo((float) initialPoint.getX(), (float) initialPoint.getY());
 
       for (BezierCurve curve : curves) {
         if (curve.isCollapsed()) {
           continue;
         }
 
-        BezierCurve transCurve = locatorRegion.transformBezierCurve(canvasRegion, curve);
+        int order = curve.getOrder();
         if (showPoints) {
-          fixedCircles.add(transCurve.getStartPoint());
+          fixedCircles.add(transformPoint(transform, curve, 0));
         }
 
-        Vector2D[] controlPoints = transCurve.getControlPoints();
-        for (int i = 0; i < controlPoints.length; i++) {
-          if (i == controlPoints.length - 1) {
-            break;
-          }
-
-          float controlX = (float) controlPoints[i].getX();
-          float controlY = (float) controlPoints[i].getY();
+        for (int i = 1; i < order - 1; i++) {
+          Vector2D controlPoint = transformPoint(transform, curve, i);
+          float controlX = (float) controlPoint.getX();
+          float controlY = (float) controlPoint.getY();
 
-          float endX = (float) (controlPoints[i + 1].getX() + controlX) / 2;
-          float endY = (float) (controlPoints[i + 1].getY() + controlY) / 2;
+          float endX = (float) (transform.transformX(curve.getX(i + 1), curve.getY(i + 1))
+              + controlX) / 2;
+          float endY = (float) (transform.transformY(curve.getX(i + 1), curve.getY(i + 1))
+              + controlY) / 2;
 
           path.quadTo(controlX, controlY, endX, endY);
           if (showPoints) {
-            controlCircles.add(controlPoints[i]);
+            controlCircles.add(controlPoint);
           }
         }
 
-        if (controlPoints.length == 0) {
-          path.lineTo((float) transCurve.getEndPoint().getX(),
-              (float) transCurve.getEndPoint().getY());
-          if (showPoints) {
-            fixedCircles.add(transCurve.getEndPoint());
-          }
+        Vector2D endPoint = transformPoint(transform, curve, order);
+        if (order == 1) {
+          path.lineTo((float) endPoint.getX(), (float) endPoint.getY());
         } else {
-          Vector2D lastControlPoint = controlPoints[controlPoints.length - 1];
+          Vector2D lastControlPoint = transformPoint(transform, curve, order - 1);
           path.quadTo((float) lastControlPoint.getX(), (float) lastControlPoint.getY(),
-              (float) transCurve.getEndPoint().getX(), (float) transCurve.getEndPoint().getY());
+              (float) endPoint.getX(), (float) endPoint.getY());
           if (showPoints) {
             controlCircles.add(lastControlPoint);
-            fixedCircles.add(transCurve.getEndPoint());
           }
         }
+        if (showPoints) {
+          fixedCircles.add(endPoint);
+        }
       }
       paths.add(path);
     }
   }
 
+  private static Vector2D transformPoint(AffineTransform2D transform, BezierCurve curve,
+                                         int index) {
+    double x = curve.getX(index);
+    double y = curve.getY(index);
+    return new Vector2D(transform.transformX(x, y), transform.transformY(x, y));
+  }
+
   /**
    * Getter of contour.
    *
+   * <p>Curves are made from the stroked contour buffer on the first call after
+   * {@link #applyContour(double, double, double, PenType, StrokeMemo)}, and changes to them are
+   * kept by the locator from then on.
+   *
    * @return contour
    */
   public ArrayList<ArrayList<BezierCurve>> getContour() {
+    if (contoursPending) {
+      contours = contourBuffer.toBezierCurves();
+      contoursPending = false;
+    }
     return contours;
   }
 
+  /**
+   * Returns the contour as a buffer of primitive coordinates, without making curves if
+   * {@link #getContour()} has not been called since the contour was applied.
+   *
+   * <p>The buffer is owned and reused by the locator, and should not be modified.
+   *
+   * @return contour buffer in the same order as {@link #getContour()}
+   */
+  public ContourBuffer getContourBuffer() {
+    if (!contoursPending && contours != null) {
+      // Curves may have been changed in place, thus they are copied back.
+      contourBuffer.clear();
+      for (ArrayList<BezierCurve> contour : contours) {
+        contourBuffer.addContour(contour);
+      }
+    }
+    return contourBuffer;
+  }
+
   @Override
   public void onFeatureChange() {
     manipulateSkeleton(FeatureController.getInstance().getFlattening(),
@@ -779,7 +1067,9 @@ public class Locator implements FeatureController.OnFeatureChangeListener{
     applyWidth(FeatureController.getInstance().getWidth(), true);
     applyContour(FeatureController.getInstance().getWeight(),
         FeatureController.getInstance().getRoundness(),
-        FeatureController.getInstance().getContrast());
+        FeatureController.getInstance().getContrast(),
+        FeatureController.getInstance().getPen(),
+        FeatureController.getInstance().getOffsetMethod(), null);
     applySlant(FeatureController.getInstance().getSlant());
   }
 
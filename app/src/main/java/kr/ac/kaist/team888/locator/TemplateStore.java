@@ -0,0 +1,459 @@
+package kr.ac.kaist.team888.locator;
+
+import kr.ac.kaist.team888.bezier.BezierCurve;
+import kr.ac.kaist.team888.bezier.BezierCurveOffsetMethodType;
+import kr.ac.kaist.team888.hangulcharacter.CharacterLoader;
+import kr.ac.kaist.team888.util.FontExporter.ExportType;
+import kr.ac.kaist.team888.util.FontFileOutput;
+import kr.ac.kaist.team888.util.HangulLetters;
+import kr.ac.kaist.team888.util.JsonLoader;
+
+import org.apache.commons.math3.geometry.euclidean.twod.Vector2D;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.zip.CRC32;
+
+/**
+ * Store of the located skeletons of every drawable letter, precompiled from the skeleton data.
+ *
+ * <p>A {@link Locator} of a letter transforms the skeletons of each character of the letter into
+ * its region, for the base, flatten and arise data. The store keeps the result of every
+ * drawable letter in one file, which is mapped into memory and read by locators instead, so that
+ * a locator reads its slice of the file without parsing or transforming anything.
+ *
+ * <p>The points are kept as the packed coordinates a locator manipulates its skeletons with,
+ * which are copied in bulk out of the file. Only the curves of the base skeletons are
+ * made of them, since the flatten and arise data are used as coordinates alone.
+ *
+ * <p>The file holds a header with the fingerprint of the skeleton data, an index of the letters
+ * in order of code points and their offsets, and a record per letter. A record is a byte of
+ * flags telling which of the flatten and arise data exist and the number of coordinates,
+ * followed by the coordinates of the base, flatten and arise data in order of curves. Then come
+ * the number of base skeletons and for each skeleton the index of its character, the number of
+ * segments and for each segment the number of curves. Each curve is its number of points,
+ * offset method, a mask of the vectors it has and its cutoffs, followed by the coordinates of
+ * its vectors.
+ *
+ * <p>A store is opened once, and is then used by every locator constructed after. A store built
+ * from other skeleton data than the loaded one is built again when opened.
+ */
+public class TemplateStore {
+  private static final int MAGIC = 0x4D4C4654;
+  private static final int VERSION = 3;
+  private static final int HEADER_SIZE = 16;
+  private static final int INDEX_ENTRY_SIZE = 8;
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final String CHARSET = "UTF-8";
+
+  private static final int FLATTEN_FLAG = 1;
+  private static final int ARISE_FLAG = 2;
+  private static final int OFFSET_VECTOR_FLAG = 1;
+  private static final int END_OFFSET_VECTOR_FLAG = 2;
+  private static final int CUTOFF_START_VECTOR_FLAG = 4;
+  private static final int CUTOFF_END_VECTOR_FLAG = 8;
+  private static final BezierCurveOffsetMethodType[] OFFSET_METHODS =
+      BezierCurveOffsetMethodType.values();
+
+  private static volatile TemplateStore instance;
+
+  private final File file;
+  private final MappedByteBuffer buffer;
+  private final int letterCount;
+
+  private TemplateStore(File file, MappedByteBuffer buffer) {
+    this.file = file;
+    this.buffer = buffer;
+    letterCount = buffer.getInt(12);
+  }
+
+  /**
+   * Returns the store used by locators.
+   *
+   * @return the store opened last, or <code>null</code> if none is opened
+   */
+  public static TemplateStore getInstance() {
+    return instance;
+  }
+
+  /**
+   * Opens the store of the file for every locator constructed after, building the file first
+   * if it is missing or made from other skeleton data.
+   *
+   * @param file file of the store
+   * @return the opened store
+   * @throws IOException if the file cannot be built or read
+   */
+  public static synchronized TemplateStore open(File file) throws IOException {
+    int fingerprint = getFingerprint();
+    TemplateStore store = file.isFile() ? map(file) : null;
+    if (store == null || store.buffer.getInt(8) != fingerprint) {
+      instance = null;
+      build(file, fingerprint);
+      store = map(file);
+      if (store == null) {
+        throw new IOException("Invalid template store " + file);
+      }
+    }
+    instance = store;
+    return store;
+  }
+
+  /**
+   * Builds the store of every drawable letter into the file from the loaded skeleton data.
+   *
+   * @param file file of the store
+   * @throws IOException if the file cannot be written
+   */
+  public static synchronized void build(File file) throws IOException {
+    // Locates the letters from the skeleton data rather than from the opened store.
+    TemplateStore store = instance;
+    instance = null;
+    try {
+      build(file, getFingerprint());
+    } finally {
+      instance = store;
+    }
+  }
+
+  /**
+   * Returns the file of the store.
+   *
+   * @return the file of the store
+   */
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * Returns the number of letters in the store.
+   *
+   * @return the number of letters
+   */
+  public int getLetterCount() {
+    return letterCount;
+  }
+
+  /**
+   * Sets the located skeletons of the letter to the locator, if the store has the letter.
+   *
+   * @param letter letter of the locator
+   * @param locator locator constructed for the letter
+   * @return whether the store has the letter
+   */
+  boolean load(char letter, Locator locator) {
+    int entry = findEntry(letter);
+    if (entry < 0) {
+      return false;
+    }
+    // Reads of a damaged record fail at its end instead of running into the next one.
+    ByteBuffer record = buffer.duplicate();
+    int position = buffer.getInt(entry + 4);
+    record.limit(entry + INDEX_ENTRY_SIZE < HEADER_SIZE + letterCount * INDEX_ENTRY_SIZE
+        ? buffer.getInt(entry + INDEX_ENTRY_SIZE + 4) : buffer.limit());
+    ArrayList<Integer> owners = new ArrayList<>();
+    ArrayList<ArrayList<ArrayList<BezierCurve>>> skeletonsData;
+    double[] baseCoordinates;
+    double[] flattenCoordinates = null;
+    double[] ariseCoordinates = null;
+    try {
+      int flags = record.get(position);
+      int coordinateCount = getCount(record, position + 1);
+      position += 5;
+      baseCoordinates = readCoordinates(record, position, coordinateCount);
+      position += coordinateCount * 8;
+      if ((flags & FLATTEN_FLAG) != 0) {
+        flattenCoordinates = readCoordinates(record, position, coordinateCount);
+        position += coordinateCount * 8;
+      }
+      if ((flags & ARISE_FLAG) != 0) {
+        ariseCoordinates = readCoordinates(record, position, coordinateCount);
+        position += coordinateCount * 8;
+      }
+      skeletonsData = readSkeletons(record, position, baseCoordinates, owners);
+    } catch (IndexOutOfBoundsException e) {
+      return false;
+    }
+    locator.setTemplate(skeletonsData, owners, baseCoordinates, flattenCoordinates,
+        ariseCoordinates);
+    return true;
+  }
+
+  /**
+   * Returns the position of the index entry of the letter, or -1 if the store does not have it.
+   */
+  private int findEntry(char letter) {
+    int low = 0;
+    int high = letterCount - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int entry = HEADER_SIZE + middle * INDEX_ENTRY_SIZE;
+      int key = buffer.getInt(entry);
+      if (key < letter) {
+        low = middle + 1;
+      } else if (key > letter) {
+        high = middle - 1;
+      } else {
+        return entry;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Copies the coordinates at the position of the record.
+   *
+   * @throws IndexOutOfBoundsException if the coordinates run past the end of the record
+   */
+  private static double[] readCoordinates(ByteBuffer buffer, int position, int count) {
+    if (count > (buffer.limit() - position) / 8) {
+      throw new IndexOutOfBoundsException("Invalid count " + count + " at " + position);
+    }
+    double[] coordinates = new double[count];
+    ByteBuffer source = buffer.duplicate();
+    source.position(position);
+    source.asDoubleBuffer().get(coordinates);
+    return coordinates;
+  }
+
+  /**
+   * Reads the base skeletons from the record at the position, making their curves of
+   * the coordinates.
+   *
+   * <p>The curves are made rather than read in place, since locators transform their
+   * skeletons in place and a {@link BezierCurve} holds its points as vectors.
+   *
+   * @throws IndexOutOfBoundsException if the skeletons run past the end of the record, or do
+   *     not match the coordinates
+   */
+  private static ArrayList<ArrayList<ArrayList<BezierCurve>>> readSkeletons(
+      ByteBuffer buffer, int position, double[] coordinates, ArrayList<Integer> owners) {
+    int skeletonCount = getCount(buffer, position);
+    position += 4;
+    int offset = 0;
+    ArrayList<ArrayList<ArrayList<BezierCurve>>> data = new ArrayList<>(skeletonCount);
+    for (int i = 0; i < skeletonCount; i++) {
+      owners.add(buffer.getInt(position));
+      int segmentCount = getCount(buffer, position + 4);
+      position += 8;
+      ArrayList<ArrayList<BezierCurve>> skeleton = new ArrayList<>(segmentCount);
+      for (int j = 0; j < segmentCount; j++) {
+        int curveCount = getCount(buffer, position);
+        position += 4;
+        ArrayList<BezierCurve> segment = new ArrayList<>(curveCount);
+        for (int k = 0; k < curveCount; k++) {
+          int pointCount = buffer.get(position) & 0xFF;
+          BezierCurveOffsetMethodType offsetMethod =
+              OFFSET_METHODS[buffer.get(position + 1) & 0xFF];
+          int vectors = buffer.get(position + 2);
+          int cutoffStart = buffer.getInt(position + 4);
+          int cutoffEnd = buffer.getInt(position + 8);
+          position += 12;
+          Vector2D[] points = new Vector2D[pointCount];
+          for (int l = 0; l < pointCount; l++) {
+            points[l] = new Vector2D(coordinates[offset], coordinates[offset + 1]);
+            offset += 2;
+          }
+          BezierCurve.Builder builder = new BezierCurve.Builder()
+              .setPoints(points)
+              .setOffsetMethod(offsetMethod)
+              .setCutoffStart(cutoffStart)
+              .setCutoffEnd(cutoffEnd);
+          if ((vectors & OFFSET_VECTOR_FLAG) != 0) {
+            builder.setOffsetVector(readVector(buffer, position));
+            position += 16;
+          }
+          if ((vectors & END_OFFSET_VECTOR_FLAG) != 0) {
+            builder.setEndOffsetVector(readVector(buffer, position));
+            position += 16;
+          }
+          if ((vectors & CUTOFF_START_VECTOR_FLAG) != 0) {
+            builder.setCutoffStartVector(readVector(buffer, position));
+            position += 16;
+          }
+          if ((vectors & CUTOFF_END_VECTOR_FLAG) != 0) {
+            builder.setCutoffEndVector(readVector(buffer, position));
+            position += 16;
+          }
+          segment.add(builder.build());
+        }
+        skeleton.add(segment);
+      }
+      data.add(skeleton);
+    }
+    if (offset != coordinates.length) {
+      throw new IndexOutOfBoundsException("Unused coordinates from " + offset);
+    }
+    return data;
+  }
+
+  private static Vector2D readVector(ByteBuffer buffer, int position) {
+    return new Vector2D(buffer.getDouble(position), buffer.getDouble(position + 8));
+  }
+
+  /**
+   * Returns the count at the position, which cannot exceed the bytes left in the buffer since
+   * every counted item takes at least a byte.
+   *
+   * @throws IndexOutOfBoundsException if the count is negative or too large
+   */
+  private static int getCount(ByteBuffer buffer, int position) {
+    int count = buffer.getInt(position);
+    if (count < 0 || count > buffer.limit() - position) {
+      throw new IndexOutOfBoundsException("Invalid count " + count + " at " + position);
+    }
+    return count;
+  }
+
+  /**
+   * Maps the file into memory, or returns <code>null</code> if it is not a store of this version
+   * or its index does not fit in the file.
+   */
+  private static TemplateStore map(File file) throws IOException {
+    RandomAccessFile input = new RandomAccessFile(file, "r");
+    try {
+      long size = input.length();
+      if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+        return null;
+      }
+      MappedByteBuffer buffer = input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+      int letterCount = buffer.getInt(12);
+      long recordsStart = HEADER_SIZE + (long) letterCount * INDEX_ENTRY_SIZE;
+      if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || letterCount < 0
+          || recordsStart > size) {
+        return null;
+      }
+      // Letters ascend for the binary search, and each record ends where the next one starts.
+      long previousLetter = -1;
+      long previousOffset = recordsStart;
+      for (int i = 0; i < letterCount; i++) {
+        int entry = HEADER_SIZE + i * INDEX_ENTRY_SIZE;
+        int letter = buffer.getInt(entry);
+        int offset = buffer.getInt(entry + 4);
+        if (letter <= previousLetter || letter > Character.MAX_VALUE
+            || offset < previousOffset || offset >= size) {
+          return null;
+        }
+        previousLetter = letter;
+        previousOffset = offset + 1;
+      }
+      return new TemplateStore(file, buffer);
+    } finally {
+      input.close();
+    }
+  }
+
+  private static void build(File file, int fingerprint) throws IOException {
+    ArrayList<Character> letters = new ArrayList<>();
+    for (char letter : HangulLetters.getLetters(ExportType.ALL, null)) {
+      if (CharacterLoader.getInstance().isDrawable(letter)) {
+        letters.add(letter);
+      }
+    }
+    // Letters of the index ascend for the binary search, while jamo come after syllables.
+    Collections.sort(letters);
+    int recordsStart = HEADER_SIZE + letters.size() * INDEX_ENTRY_SIZE;
+    ByteBuffer header = ByteBuffer.allocate(recordsStart);
+    header.putInt(MAGIC).putInt(VERSION).putInt(fingerprint).putInt(letters.size());
+
+    FontFileOutput output = new FontFileOutput(file);
+    try {
+      FileChannel channel = output.getChannel();
+      channel.position(recordsStart);
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+          Channels.newOutputStream(channel), BUFFER_SIZE));
+      for (char letter : letters) {
+        header.putInt(letter).putInt(recordsStart + out.size());
+        Locator locator = new Locator(letter, false);
+        double[] flattenCoordinates = locator.getFlattenCoordinates();
+        double[] ariseCoordinates = locator.getAriseCoordinates();
+        double[] baseCoordinates = locator.getBaseCoordinates();
+        out.writeByte((flattenCoordinates != null ? FLATTEN_FLAG : 0)
+            | (ariseCoordinates != null ? ARISE_FLAG : 0));
+        out.writeInt(baseCoordinates.length);
+        writeCoordinates(out, baseCoordinates);
+        writeCoordinates(out, flattenCoordinates);
+        writeCoordinates(out, ariseCoordinates);
+        writeSkeletons(out, locator.getSkeletonsData(), locator.getSkeletonOwners());
+        if (out.size() < 0) {
+          throw new IOException("Template store exceeds 2 GB");
+        }
+      }
+      out.flush();
+      header.flip();
+      channel.position(0);
+      while (header.hasRemaining()) {
+        channel.write(header);
+      }
+      output.commit();
+    } catch (IOException | RuntimeException e) {
+      output.abort();
+      throw e;
+    }
+  }
+
+  private static void writeCoordinates(DataOutputStream out, double[] coordinates)
+      throws IOException {
+    if (coordinates == null) {
+      return;
+    }
+    for (double coordinate : coordinates) {
+      out.writeDouble(coordinate);
+    }
+  }
+
+  private static void writeSkeletons(DataOutputStream out,
+                                     ArrayList<ArrayList<ArrayList<BezierCurve>>> data,
+                                     ArrayList<Integer> owners) throws IOException {
+    out.writeInt(data.size());
+    for (int i = 0; i < data.size(); i++) {
+      out.writeInt(owners.get(i));
+      out.writeInt(data.get(i).size());
+      for (ArrayList<BezierCurve> segment : data.get(i)) {
+        out.writeInt(segment.size());
+        for (BezierCurve curve : segment) {
+          Vector2D[] vectors = {curve.getOffsetVector(), curve.getEndOffsetVector(),
+              curve.getCutoffStartVector(), curve.getCutoffEndVector()};
+          int mask = 0;
+          for (int j = 0; j < vectors.length; j++) {
+            if (vectors[j] != null) {
+              mask |= 1 << j;
+            }
+          }
+          out.writeByte(curve.getOrder() + 1);
+          out.writeByte(curve.getOffsetMethod().ordinal());
+          out.writeByte(mask);
+          out.writeByte(0);
+          out.writeInt(curve.getCutoffStart());
+          out.writeInt(curve.getCutoffEnd());
+          for (Vector2D vector : vectors) {
+            if (vector != null) {
+              out.writeDouble(vector.getX());
+              out.writeDouble(vector.getY());
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the fingerprint of the loaded skeleton data and the format version, which tells
+   * whether a store is made from them.
+   */
+  private static int getFingerprint() throws IOException {
+    CRC32 crc = new CRC32();
+    crc.update(ByteBuffer.allocate(4).putInt(VERSION).array());
+    crc.update(JsonLoader.getInstance().getData().toString().getBytes(CHARSET));
+    return (int) crc.getValue();
+  }
+}
@@ -1,5 +1,7 @@
 package kr.ac.kaist.team888.mylittlefont;
 
+import kr.ac.kaist.team888.bezier.PenType;
+
 import java.util.Date;
 
 /**
@@ -20,6 +22,7 @@ public class FontItem {
   private static final double DEFAULT_CONTROL_FLATTENING = 0;
   private static final double DEFAULT_CONTROL_ARISE = 0;
   private static final double DEFAULT_CONTROL_SLANT = 0;
+  private static final PenType DEFAULT_CONTROL_PEN = PenType.Ellipse;
 
   /**
    * Initial font with default feature values.
@@ -29,7 +32,8 @@ public class FontItem {
       DEFAULT_CONTROL_CURVE, DEFAULT_CONTROL_ROUNDNESS,
       DEFAULT_CONTROL_WEIGHT, DEFAULT_CONTROL_CONTRAST,
       DEFAULT_CONTROL_WIDTH, DEFAULT_CONTROL_FLATTENING,
-      DEFAULT_CONTROL_ARISE, DEFAULT_CONTROL_SLANT
+      DEFAULT_CONTROL_ARISE, DEFAULT_CONTROL_SLANT,
+      DEFAULT_CONTROL_PEN
   );
 
   private int id;
@@ -43,11 +47,12 @@ public class FontItem {
   private double flattening;
   private double arise;
   private double slant;
+  private PenType pen;
 
   private FontItem(int id, String name, Date datetime,
                    double curve, double roundness, double weight,
                    double contrast, double width, double flattening, double arise,
-                   double slant) {
+                   double slant, PenType pen) {
     this.id = id;
     this.name = name;
     this.datetime = datetime;
@@ -59,6 +64,7 @@ public class FontItem {
     this.flattening = flattening;
     this.arise = arise;
     this.slant = slant;
+    this.pen = pen;
   }
 
   /**
@@ -258,6 +264,24 @@ public class FontItem {
     this.slant = slant;
   }
 
+  /**
+   * Returns the pen style of the font.
+   *
+   * @return the pen style of the font
+   */
+  public PenType getPen() {
+    return this.pen;
+  }
+
+  /**
+   * Sets the pen style of the font.
+   *
+   * @param pen the pen style of the font
+   */
+  public void setPen(PenType pen) {
+    this.pen = pen;
+  }
+
   public static class FontItemBuilder {
     private int id;
     private String name;
@@ -270,6 +294,7 @@ public class FontItem {
     private double flattening;
     private double arise;
     private double slant;
+    private PenType pen = DEFAULT_CONTROL_PEN;
 
     /**
      * Sets the id.
@@ -381,6 +406,17 @@ public class FontItem {
       return this;
     }
 
+    /**
+     * Sets the pen style.
+     *
+     * @param pen the pen style
+     * @return this builder, useful for chaining
+     */
+    public FontItemBuilder setPen(PenType pen) {
+      this.pen = pen;
+      return this;
+    }
+
     /**
      * Sets the arise value.
      *
@@ -399,7 +435,7 @@ public class FontItem {
      */
     public FontItem build() {
       return new FontItem(id, name, datetime, curve, roundness, weight,
-          contrast, width, flattening, arise, slant);
+          contrast, width, flattening, arise, slant, pen);
     }
   }
 }
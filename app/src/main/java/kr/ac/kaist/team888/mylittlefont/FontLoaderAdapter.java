@@ -70,7 +70,7 @@ public class FontLoaderAdapter extends BaseAdapter {
     locator.manipulateSkeleton(item.getFlattening(), item.getArise());
     locator.applyCurve(item.getCurve());
     locator.applyWidth(item.getWidth());
-    locator.applyContour(item.getWeight(), item.getRoundness(), item.getContrast());
+    locator.applyContour(item.getWeight(), item.getRoundness(), item.getContrast(), item.getPen());
     locator.applySlant(item.getSlant());
 
     // Store a locator in a list.
@@ -26,6 +26,7 @@ import android.widget.SeekBar;
 import android.widget.Switch;
 import android.widget.TextView;
 
+import kr.ac.kaist.team888.bezier.PenType;
 import kr.ac.kaist.team888.hangulcharacter.CharacterLoader;
 import kr.ac.kaist.team888.locator.Locator;
 import kr.ac.kaist.team888.util.FeatureController;
@@ -320,6 +321,22 @@ public class FontMakerFragment extends Fragment {
         FeatureController.getInstance().setSlant(value);
       }
     };
+
+    // Feature - pen
+    SeekBar penControl = (SeekBar) view.findViewById(R.id.penControl);
+    penControl.setMax(PenType.values().length - 1);
+    new SeekBarContainer(penControl) {
+      @Override
+      public double getFeatureValue() {
+        return FeatureController.getInstance().getPen().ordinal() / (double) view.getMax();
+      }
+
+      @Override
+      public void setFeatureValue(double value) {
+        FeatureController.getInstance().setPen(
+            PenType.values()[(int) Math.round(value * view.getMax())]);
+      }
+    };
   }
 
   private void checkExportFont() {
@@ -0,0 +1,344 @@
+package kr.ac.kaist.team888.raster;
+
+import kr.ac.kaist.team888.bezier.BezierCurve;
+import kr.ac.kaist.team888.bezier.BezierCurveFlattener;
+import kr.ac.kaist.team888.bezier.ContourBuffer;
+import kr.ac.kaist.team888.bezier.PolylineBuffer;
+
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Scanline rasterizer of contours into anti-aliased alpha masks, independent of Android.
+ *
+ * <p>Each line is accumulated into a buffer as the signed area it covers in every pixel it
+ * crosses, and the rest of the scanline to its right is covered through the running sum of
+ * the buffer. The sum at a pixel is thus the exact area of the pixel inside the contours
+ * counted by their winding numbers. The non-zero winding rule takes its absolute value clamped
+ * to one, which is exact wherever the contours do not overlap within a pixel, like FreeType.
+ *
+ * <p>Curves are flattened on the fly by a {@link BezierCurveFlattener} within the tolerance of
+ * a fraction of a pixel. Contours are mapped from font units, where y goes up,
+ * to pixels, where y goes down, by {@link #setTransform(double, double, double)}.
+ *
+ * <p>The rasterizer keeps its buffers among glyphs and does not allocate while rasterizing
+ * glyphs of the size it has already rendered. It is not thread-safe.
+ */
+public class ContourRasterizer {
+  /**
+   * A default maximum distance between a curve and its flattened lines in pixels.
+   */
+  public static final double DEFAULT_TOLERANCE = .02;
+
+  private final BezierCurveFlattener flattener;
+  private final PolylineBuffer polyline = new PolylineBuffer();
+  private int width;
+  private int height;
+  private int stride;
+  private float[] accumulation = new float[0];
+  private double[] xs = new double[4];
+  private double[] ys = new double[4];
+  private double scaleX = 1;
+  private double scaleY = 1;
+  private double originX;
+  private double originY;
+
+  /**
+   * Creates a new rasterizer of the size with a default tolerance.
+   *
+   * @param width width in pixels
+   * @param height height in pixels
+   * @throws NotStrictlyPositiveException if the size is not positive
+   */
+  public ContourRasterizer(int width, int height) throws NotStrictlyPositiveException {
+    this(width, height, DEFAULT_TOLERANCE);
+  }
+
+  /**
+   * Creates a new rasterizer of the size with given tolerance.
+   *
+   * @param width width in pixels
+   * @param height height in pixels
+   * @param tolerance maximum distance between a curve and its flattened lines in pixels
+   * @throws NotStrictlyPositiveException if the size or the tolerance is not positive
+   */
+  public ContourRasterizer(int width, int height, double tolerance)
+      throws NotStrictlyPositiveException {
+    flattener = new BezierCurveFlattener(tolerance);
+    reset(width, height);
+  }
+
+  /**
+   * Clears the accumulated contours and changes the size, keeping the buffer if it is large
+   * enough.
+   *
+   * @param width width in pixels
+   * @param height height in pixels
+   * @throws NotStrictlyPositiveException if the size is not positive
+   */
+  public void reset(int width, int height) throws NotStrictlyPositiveException {
+    if (width <= 0) {
+      throw new NotStrictlyPositiveException(width);
+    }
+    if (height <= 0) {
+      throw new NotStrictlyPositiveException(height);
+    }
+    this.width = width;
+    this.height = height;
+    // Two cells past the end of each row take the coverage right of the last pixel.
+    stride = width + 2;
+    if (accumulation.length < stride * height) {
+      accumulation = new float[stride * height];
+    } else {
+      Arrays.fill(accumulation, 0, stride * height, 0);
+    }
+  }
+
+  /**
+   * Returns the width in pixels.
+   *
+   * @return the width
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Returns the height in pixels.
+   *
+   * @return the height
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Sets the mapping of contours to pixels, where a point (x, y) is placed at
+   * (originX + x * scale, originY - y * scale).
+   *
+   * @param scale pixels per unit of contours
+   * @param originX horizontal position of the origin in pixels
+   * @param originY vertical position of the origin in pixels, from the top
+   * @throws NotStrictlyPositiveException if <code>scale</code> is not positive
+   */
+  public void setTransform(double scale, double originX, double originY)
+      throws NotStrictlyPositiveException {
+    setTransform(scale, scale, originX, originY);
+  }
+
+  /**
+   * Sets the mapping of contours to pixels, where a point (x, y) is placed at
+   * (originX + x * scaleX, originY - y * scaleY).
+   *
+   * @param scaleX horizontal pixels per unit of contours
+   * @param scaleY vertical pixels per unit of contours
+   * @param originX horizontal position of the origin in pixels
+   * @param originY vertical position of the origin in pixels, from the top
+   * @throws NotStrictlyPositiveException if a scale is not positive
+   */
+  public void setTransform(double scaleX, double scaleY, double originX, double originY)
+      throws NotStrictlyPositiveException {
+    if (!(scaleX > 0)) {
+      throw new NotStrictlyPositiveException(scaleX);
+    }
+    if (!(scaleY > 0)) {
+      throw new NotStrictlyPositiveException(scaleY);
+    }
+    this.scaleX = scaleX;
+    this.scaleY = scaleY;
+    this.originX = originX;
+    this.originY = originY;
+  }
+
+  /**
+   * Adds closed contours given as sequences of Bezier curves, such as
+   * {@link kr.ac.kaist.team888.locator.Locator#getContour()}.
+   *
+   * @param contours contours to add
+   */
+  public void addContours(ArrayList<ArrayList<BezierCurve>> contours) {
+    // Indices rather than iterators, which would be allocated.
+    for (int i = 0; i < contours.size(); i++) {
+      ArrayList<BezierCurve> contour = contours.get(i);
+      for (int j = 0; j < contour.size(); j++) {
+        BezierCurve curve = contour.get(j);
+        int order = curve.getOrder();
+        ensureOrder(order);
+        for (int k = 0; k <= order; k++) {
+          xs[k] = curve.getX(k);
+          ys[k] = curve.getY(k);
+        }
+        addCurve(order);
+      }
+    }
+  }
+
+  /**
+   * Adds closed contours of the buffer.
+   *
+   * @param contours contours to add
+   */
+  public void addContours(ContourBuffer contours) {
+    for (int segment = 0; segment < contours.getSegmentCount(); segment++) {
+      int order = contours.getOrder(segment);
+      ensureOrder(order);
+      for (int k = 0; k <= order; k++) {
+        xs[k] = contours.getX(segment, k);
+        ys[k] = contours.getY(segment, k);
+      }
+      addCurve(order);
+    }
+  }
+
+  /**
+   * Adds a line given in pixels. Lines added should form closed contours.
+   *
+   * @param x0 x-coordinate of the start point
+   * @param y0 y-coordinate of the start point
+   * @param x1 x-coordinate of the end point
+   * @param y1 y-coordinate of the end point
+   */
+  public void addLine(double x0, double y0, double x1, double y1) {
+    if (y0 == y1) {
+      return;
+    }
+    double direction = 1;
+    if (y0 > y1) {
+      direction = -1;
+      double swap = x0;
+      x0 = x1;
+      x1 = swap;
+      swap = y0;
+      y0 = y1;
+      y1 = swap;
+    }
+    double dxdy = (x1 - x0) / (y1 - y0);
+    int rowStart = (int) Math.max(0, Math.floor(y0));
+    int rowEnd = (int) Math.min(height, Math.ceil(y1));
+    double x = x0 + (Math.max(y0, rowStart) - y0) * dxdy;
+    for (int row = rowStart; row < rowEnd; row++) {
+      double dy = Math.min(row + 1, y1) - Math.max(row, y0);
+      double nextX = x + dxdy * dy;
+      accumulateRow(row * stride, clamp(x), clamp(nextX), dy * direction);
+      x = nextX;
+    }
+  }
+
+  /**
+   * Renders the accumulated contours into the alpha buffer, one byte per pixel from 0 to 255,
+   * and clears them for the next glyph.
+   *
+   * @param alpha buffer to render into
+   * @param offset index of the top left pixel in <code>alpha</code>
+   * @param rowStride distance between the first pixels of consecutive rows in
+   *     <code>alpha</code>
+   * @throws DimensionMismatchException if the alpha buffer is too small
+   */
+  public void render(byte[] alpha, int offset, int rowStride) throws DimensionMismatchException {
+    int required = offset + (height - 1) * rowStride + width;
+    if (offset < 0 || rowStride < width || alpha.length < required) {
+      throw new DimensionMismatchException(alpha.length, required);
+    }
+    for (int row = 0; row < height; row++) {
+      int cell = row * stride;
+      int pixel = offset + row * rowStride;
+      float sum = 0;
+      for (int column = 0; column < width; column++) {
+        sum += accumulation[cell];
+        accumulation[cell++] = 0;
+        float coverage = Math.min(Math.abs(sum), 1);
+        alpha[pixel++] = (byte) (coverage * 255 + .5f);
+      }
+      accumulation[cell] = 0;
+      accumulation[cell + 1] = 0;
+    }
+  }
+
+  /**
+   * Renders the accumulated contours into the alpha buffer of the size of the rasterizer.
+   *
+   * @param alpha buffer of at least <code>width * height</code> bytes to render into
+   * @throws DimensionMismatchException if the alpha buffer is too small
+   * @see #render(byte[], int, int)
+   */
+  public void render(byte[] alpha) throws DimensionMismatchException {
+    render(alpha, 0, width);
+  }
+
+  /**
+   * Adds the curve of the order held by the control points in <code>xs</code> and
+   * <code>ys</code>, flattened within the tolerance.
+   */
+  private void addCurve(int order) {
+    for (int k = 0; k <= order; k++) {
+      xs[k] = originX + xs[k] * scaleX;
+      ys[k] = originY - ys[k] * scaleY;
+    }
+    polyline.clear();
+    polyline.addPoint(xs[0], ys[0]);
+    flattener.flatten(order, xs, ys, polyline);
+    for (int i = 1; i < polyline.getPointCount(); i++) {
+      addLine(polyline.getX(i - 1), polyline.getY(i - 1), polyline.getX(i), polyline.getY(i));
+    }
+  }
+
+  /**
+   * Accumulates the part of a line within a row, going from <code>x0</code> to
+   * <code>x1</code> over the height <code>dy</code>, signed by the direction of the line.
+   */
+  private void accumulateRow(int rowStart, double x0, double x1, double dy) {
+    if (x0 > x1) {
+      double swap = x0;
+      x0 = x1;
+      x1 = swap;
+    }
+    double x0Floor = Math.floor(x0);
+    int x0Index = (int) x0Floor;
+    double x1Ceil = Math.ceil(x1);
+    int x1Index = (int) x1Ceil;
+    if (x1Index <= x0Index + 1) {
+      // Within a single pixel, the area right of the line is a trapezoid.
+      double middle = .5 * (x0 + x1) - x0Floor;
+      accumulation[rowStart + x0Index] += dy - dy * middle;
+      accumulation[rowStart + x0Index + 1] += dy * middle;
+      return;
+    }
+    // Across several pixels, the covered area grows linearly between triangles at both ends.
+    double slope = 1 / (x1 - x0);
+    double x0Fraction = x0 - x0Floor;
+    double firstArea = .5 * slope * (1 - x0Fraction) * (1 - x0Fraction);
+    double x1Fraction = x1 - x1Ceil + 1;
+    double lastArea = .5 * slope * x1Fraction * x1Fraction;
+    accumulation[rowStart + x0Index] += dy * firstArea;
+    if (x1Index == x0Index + 2) {
+      accumulation[rowStart + x0Index + 1] += dy * (1 - firstArea - lastArea);
+    } else {
+      double secondArea = slope * (1.5 - x0Fraction);
+      accumulation[rowStart + x0Index + 1] += dy * (secondArea - firstArea);
+      for (int index = x0Index + 2; index < x1Index - 1; index++) {
+        accumulation[rowStart + index] += dy * slope;
+      }
+      double beforeLastArea = secondArea + (x1Index - x0Index - 3) * slope;
+      accumulation[rowStart + x1Index - 1] += dy * (1 - beforeLastArea - lastArea);
+    }
+    accumulation[rowStart + x1Index] += dy * lastArea;
+  }
+
+  /**
+   * Clamps the x-coordinate into the row, where the coverage left of the row is kept by
+   * its first pixel and the coverage right of the row by the cells past its end.
+   */
+  private double clamp(double x) {
+    return Math.max(0, Math.min(width, x));
+  }
+
+  private void ensureOrder(int order) {
+    if (xs.length <= order) {
+      xs = new double[order + 1];
+      ys = new double[order + 1];
+    }
+  }
+}
@@ -0,0 +1,758 @@
+package kr.ac.kaist.team888.raster;
+
+import kr.ac.kaist.team888.bezier.BezierCurve;
+import kr.ac.kaist.team888.bezier.BezierCurveFlattener;
+import kr.ac.kaist.team888.bezier.ContourBuffer;
+import kr.ac.kaist.team888.bezier.PolylineBuffer;
+
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Generator of signed distance fields of contours, computed from the curves themselves rather
+ * than from a bitmap, independent of Android.
+ *
+ * <p>Each texel holds the distance from its center to the nearest curve, positive inside
+ * the contours, encoded as <code>0.5 + distance / (2 * range)</code> clamped into a byte.
+ * The nearest point of a curve is found by sampling the curve and refining by Newton's method,
+ * and the inside is decided by the non-zero winding number of the center. Since an edge of
+ * a contour inside another one would count as a boundary, overlapping contours should be merged
+ * first, as by {@link kr.ac.kaist.team888.bezier.ContourUnion}.
+ *
+ * <p>Only curves within the range change a texel, thus the curves are indexed by a grid of
+ * cells, each listing the curves whose bounding boxes expanded by the range overlap it.
+ * A texel tests the curves of its cell only, skipping those whose bounding boxes are farther
+ * than the nearest curve found so far.
+ *
+ * <p>In the multi-channel mode, the curves of each contour are colored so that two curves
+ * meeting at a corner share a single channel, and each channel holds the pseudo-distance to
+ * the nearest curve of its color, where the curve is extended along its tangents past its
+ * ends. The median of the channels keeps corners sharp however the field is magnified.
+ * A texel whose median disagrees with the winding number in sign falls back to the true
+ * distance in every channel.
+ *
+ * <p>Contours are mapped to pixels like {@link ContourRasterizer}. The generator keeps its
+ * buffers among glyphs. It is not thread-safe.
+ */
+public class DistanceFieldGenerator {
+  /**
+   * A default distance in pixels from the contours to where the field saturates.
+   */
+  public static final double DEFAULT_RANGE = 4;
+
+  private static final int RED = 1;
+  private static final int GREEN = 2;
+  private static final int BLUE = 4;
+  private static final int WHITE = RED | GREEN | BLUE;
+  private static final int[] CORNER_COLORS = {GREEN | BLUE, RED | BLUE, RED | GREEN};
+  // Two curves meet at a corner if their tangents turn by more than about 8 degrees.
+  private static final double CORNER_SINE = Math.sin(3);
+
+  private static final int CELL_SIZE = 8;
+  private static final int SAMPLES_PER_ORDER = 4;
+  private static final int NEWTON_ITERATIONS = 4;
+  private static final double TIE_TOLERANCE = 1e-9;
+
+  private final double range;
+  private final boolean multiChannel;
+  private int width;
+  private int height;
+  private double scaleX = 1;
+  private double scaleY = 1;
+  private double originX;
+  private double originY;
+
+  private final ContourBuffer curves = new ContourBuffer();
+  private final BezierCurveFlattener flattener =
+      new BezierCurveFlattener(ContourRasterizer.DEFAULT_TOLERANCE);
+  private final PolylineBuffer polyline = new PolylineBuffer();
+  private byte[] colors = new byte[64];
+  private double[] bounds = new double[256];
+  private double orientation;
+  private double[] edges = new double[256];
+  private int edgeCount;
+  private int gridWidth;
+  private int[] cellStarts = new int[1];
+  private int[] cellCurves = new int[64];
+  private double[] crossingXs = new double[16];
+  private int[] crossingDirections = new int[16];
+
+  private double[] controlXs = new double[4];
+  private double[] controlYs = new double[4];
+  private double[] scratchXs = new double[4];
+  private double[] scratchYs = new double[4];
+  private double pointX;
+  private double pointY;
+  private double derivativeX;
+  private double derivativeY;
+  private double secondX;
+  private double secondY;
+  private double projectedT;
+  private final double[] channelDistances = new double[3];
+  private final int[] channelCurves = new int[3];
+  private final double[] channelTs = new double[3];
+  private final double[] channelValues = new double[3];
+
+  /**
+   * Creates a new generator of single-channel fields of the range.
+   *
+   * @param width width in texels
+   * @param height height in texels
+   * @param range distance in pixels from the contours to where the field saturates
+   * @throws NotStrictlyPositiveException if the size or the range is not positive
+   */
+  public DistanceFieldGenerator(int width, int height, double range)
+      throws NotStrictlyPositiveException {
+    this(width, height, range, false);
+  }
+
+  /**
+   * Creates a new generator of fields of the range.
+   *
+   * @param width width in texels
+   * @param height height in texels
+   * @param range distance in pixels from the contours to where the field saturates
+   * @param multiChannel whether to generate three channels whose median is the distance
+   * @throws NotStrictlyPositiveException if the size or the range is not positive
+   */
+  public DistanceFieldGenerator(int width, int height, double range, boolean multiChannel)
+      throws NotStrictlyPositiveException {
+    if (!(range > 0)) {
+      throw new NotStrictlyPositiveException(range);
+    }
+    this.range = range;
+    this.multiChannel = multiChannel;
+    reset(width, height);
+  }
+
+  /**
+   * Clears the added contours and changes the size.
+   *
+   * @param width width in texels
+   * @param height height in texels
+   * @throws NotStrictlyPositiveException if the size is not positive
+   */
+  public void reset(int width, int height) throws NotStrictlyPositiveException {
+    if (width <= 0) {
+      throw new NotStrictlyPositiveException(width);
+    }
+    if (height <= 0) {
+      throw new NotStrictlyPositiveException(height);
+    }
+    this.width = width;
+    this.height = height;
+    curves.clear();
+  }
+
+  /**
+   * Returns the number of bytes of each texel, which is three in the multi-channel mode and
+   * one otherwise.
+   *
+   * @return the number of channels
+   */
+  public int getChannelCount() {
+    return multiChannel ? 3 : 1;
+  }
+
+  /**
+   * Returns the distance in pixels from the contours to where the field saturates.
+   *
+   * @return the range
+   */
+  public double getRange() {
+    return range;
+  }
+
+  /**
+   * Sets the mapping of contours to pixels, where a point (x, y) is placed at
+   * (originX + x * scaleX, originY - y * scaleY).
+   *
+   * @param scaleX horizontal pixels per unit of contours
+   * @param scaleY vertical pixels per unit of contours
+   * @param originX horizontal position of the origin in pixels
+   * @param originY vertical position of the origin in pixels, from the top
+   * @throws NotStrictlyPositiveException if a scale is not positive
+   * @see ContourRasterizer#setTransform(double, double, double, double)
+   */
+  public void setTransform(double scaleX, double scaleY, double originX, double originY)
+      throws NotStrictlyPositiveException {
+    if (!(scaleX > 0)) {
+      throw new NotStrictlyPositiveException(scaleX);
+    }
+    if (!(scaleY > 0)) {
+      throw new NotStrictlyPositiveException(scaleY);
+    }
+    this.scaleX = scaleX;
+    this.scaleY = scaleY;
+    this.originX = originX;
+    this.originY = originY;
+  }
+
+  /**
+   * Adds closed contours given as sequences of Bezier curves, such as
+   * {@link kr.ac.kaist.team888.locator.Locator#getContour()}.
+   *
+   * @param contours contours to add
+   */
+  public void addContours(ArrayList<ArrayList<BezierCurve>> contours) {
+    for (int i = 0; i < contours.size(); i++) {
+      ArrayList<BezierCurve> contour = contours.get(i);
+      curves.beginContour();
+      for (int j = 0; j < contour.size(); j++) {
+        BezierCurve curve = contour.get(j);
+        int segment = curves.addSegment(curve.getOrder());
+        for (int k = 0; k <= curve.getOrder(); k++) {
+          curves.setPoint(segment, k, originX + curve.getX(k) * scaleX,
+              originY - curve.getY(k) * scaleY);
+        }
+      }
+      curves.endContour();
+    }
+  }
+
+  /**
+   * Adds closed contours of the buffer.
+   *
+   * @param contours contours to add
+   */
+  public void addContours(ContourBuffer contours) {
+    for (int contour = 0; contour < contours.getContourCount(); contour++) {
+      curves.beginContour();
+      int end = contours.getContourEnd(contour);
+      for (int source = contours.getContourStart(contour); source < end; source++) {
+        int order = contours.getOrder(source);
+        int segment = curves.addSegment(order);
+        for (int k = 0; k <= order; k++) {
+          curves.setPoint(segment, k, originX + contours.getX(source, k) * scaleX,
+              originY - contours.getY(source, k) * scaleY);
+        }
+      }
+      curves.endContour();
+    }
+  }
+
+  /**
+   * Renders the field of the added contours, {@link #getChannelCount()} bytes per texel, and
+   * clears them for the next glyph.
+   *
+   * @param field buffer to render into
+   * @param offset index of the first byte of the top left texel in <code>field</code>
+   * @param rowStride distance in bytes between the first texels of consecutive rows
+   * @throws DimensionMismatchException if the buffer is too small
+   */
+  public void render(byte[] field, int offset, int rowStride) throws DimensionMismatchException {
+    int channels = getChannelCount();
+    int required = offset + (height - 1) * rowStride + width * channels;
+    if (offset < 0 || rowStride < width * channels || field.length < required) {
+      throw new DimensionMismatchException(field.length, required);
+    }
+    prepare();
+    for (int row = 0; row < height; row++) {
+      double y = row + .5;
+      int crossingCount = findCrossings(y);
+      int crossing = 0;
+      int winding = 0;
+      int texel = offset + row * rowStride;
+      int cellRow = (row / CELL_SIZE) * gridWidth;
+      for (int column = 0; column < width; column++) {
+        double x = column + .5;
+        while (crossing < crossingCount && crossingXs[crossing] < x) {
+          winding += crossingDirections[crossing++];
+        }
+        int cell = cellRow + column / CELL_SIZE;
+        boolean inside = winding != 0;
+        if (multiChannel) {
+          measureChannels(cell, x, y, inside);
+          for (int channel = 0; channel < 3; channel++) {
+            field[texel++] = encode(channelValues[channel]);
+          }
+        } else {
+          double distance = Math.sqrt(measure(cell, x, y));
+          field[texel++] = encode(inside ? distance : -distance);
+        }
+      }
+    }
+    curves.clear();
+  }
+
+  /**
+   * Renders the field into a buffer of the size of the generator.
+   *
+   * @param field buffer of at least <code>width * height * channels</code> bytes
+   * @throws DimensionMismatchException if the buffer is too small
+   * @see #render(byte[], int, int)
+   */
+  public void render(byte[] field) throws DimensionMismatchException {
+    render(field, 0, width * getChannelCount());
+  }
+
+  private byte encode(double distance) {
+    double value = .5 + distance / (2 * range);
+    return (byte) (Math.max(0, Math.min(1, value)) * 255 + .5);
+  }
+
+  /**
+   * Returns the squared distance to the nearest curve of the cell, at most the squared range.
+   */
+  private double measure(int cell, double x, double y) {
+    double best = range * range;
+    for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+      int segment = cellCurves[i];
+      if (getBoundsDistance(segment, x, y) < best) {
+        best = Math.min(best, project(segment, x, y));
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Computes the signed pseudo-distance of each channel to the nearest curve of its color, or
+   * the true distance if their median disagrees with the winding number.
+   */
+  private void measureChannels(int cell, double x, double y, boolean inside) {
+    double limit = range * range;
+    double nearest = limit;
+    for (int channel = 0; channel < 3; channel++) {
+      channelDistances[channel] = limit;
+      channelCurves[channel] = -1;
+    }
+    for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+      int segment = cellCurves[i];
+      int color = colors[segment];
+      double boundsDistance = getBoundsDistance(segment, x, y);
+      boolean isCandidate = boundsDistance < nearest;
+      for (int channel = 0; channel < 3 && !isCandidate; channel++) {
+        isCandidate = (color & (1 << channel)) != 0
+            && boundsDistance <= channelDistances[channel] + TIE_TOLERANCE;
+      }
+      if (!isCandidate) {
+        continue;
+      }
+      double distance = project(segment, x, y);
+      double t = projectedT;
+      nearest = Math.min(nearest, distance);
+      for (int channel = 0; channel < 3; channel++) {
+        if ((color & (1 << channel)) == 0) {
+          continue;
+        }
+        double difference = distance - channelDistances[channel];
+        // Curves meeting at the nearest point tie, and the one facing the texel wins.
+        if (difference < -TIE_TOLERANCE || channelCurves[channel] >= 0
+            && difference <= TIE_TOLERANCE
+            && getObliqueness(segment, t, x, y)
+            < getObliqueness(channelCurves[channel], channelTs[channel], x, y)) {
+          channelDistances[channel] = distance;
+          channelCurves[channel] = segment;
+          channelTs[channel] = t;
+        }
+      }
+    }
+
+    double trueDistance = Math.sqrt(nearest);
+    double signedDistance = inside ? trueDistance : -trueDistance;
+    for (int channel = 0; channel < 3; channel++) {
+      int segment = channelCurves[channel];
+      channelValues[channel] = segment < 0
+          ? (inside ? range : -range) : getPseudoDistance(segment, channelTs[channel], x, y);
+    }
+    double median = Math.max(Math.min(channelValues[0], channelValues[1]),
+        Math.min(Math.max(channelValues[0], channelValues[1]), channelValues[2]));
+    if ((median > 0) != inside) {
+      for (int channel = 0; channel < 3; channel++) {
+        channelValues[channel] = signedDistance;
+      }
+    }
+  }
+
+  /**
+   * Returns the signed distance to the curve at the parameter, or to its tangent where
+   * the nearest point is an end and the point lies beyond it.
+   */
+  private double getPseudoDistance(int segment, double t, double x, double y) {
+    evaluate(segment, t);
+    double dx = x - pointX;
+    double dy = y - pointY;
+    double cross = derivativeX * dy - derivativeY * dx;
+    double dot = derivativeX * dx + derivativeY * dy;
+    double distance;
+    if (t <= 0 && dot < 0 || t >= 1 && dot > 0) {
+      double length = Math.hypot(derivativeX, derivativeY);
+      distance = length > 0 ? Math.abs(cross) / length : Math.hypot(dx, dy);
+    } else {
+      distance = Math.hypot(dx, dy);
+    }
+    return cross * orientation >= 0 ? distance : -distance;
+  }
+
+  /**
+   * Returns the cosine between the tangent of the curve at the parameter and the direction to
+   * the point, in absolute value.
+   */
+  private double getObliqueness(int segment, double t, double x, double y) {
+    evaluate(segment, t);
+    double dx = x - pointX;
+    double dy = y - pointY;
+    double length = Math.hypot(derivativeX, derivativeY) * Math.hypot(dx, dy);
+    return length > 0 ? Math.abs(derivativeX * dx + derivativeY * dy) / length : 0;
+  }
+
+  /**
+   * Returns the squared distance from the point to the bounding box of the curve.
+   */
+  private double getBoundsDistance(int segment, double x, double y) {
+    int index = segment * 4;
+    double dx = Math.max(0, Math.max(bounds[index] - x, x - bounds[index + 2]));
+    double dy = Math.max(0, Math.max(bounds[index + 1] - y, y - bounds[index + 3]));
+    return dx * dx + dy * dy;
+  }
+
+  /**
+   * Returns the squared distance from the point to the curve, leaving the parameter of
+   * the nearest point in {@link #projectedT}.
+   */
+  private double project(int segment, double x, double y) {
+    int order = curves.getOrder(segment);
+    loadControls(segment, order);
+    if (order == 1) {
+      double dx = controlXs[1] - controlXs[0];
+      double dy = controlYs[1] - controlYs[0];
+      double length = dx * dx + dy * dy;
+      double t = length > 0
+          ? ((x - controlXs[0]) * dx + (y - controlYs[0]) * dy) / length : 0;
+      projectedT = Math.max(0, Math.min(1, t));
+      double nearestX = controlXs[0] + projectedT * dx - x;
+      double nearestY = controlYs[0] + projectedT * dy - y;
+      return nearestX * nearestX + nearestY * nearestY;
+    }
+
+    int samples = SAMPLES_PER_ORDER * order;
+    double best = Double.POSITIVE_INFINITY;
+    double bestT = 0;
+    for (int sample = 0; sample <= samples; sample++) {
+      double t = sample / (double) samples;
+      evaluateLoaded(order, t);
+      double dx = pointX - x;
+      double dy = pointY - y;
+      if (dx * dx + dy * dy < best) {
+        best = dx * dx + dy * dy;
+        bestT = t;
+      }
+    }
+    // Newton's method on the derivative of the squared distance.
+    double t = bestT;
+    for (int iteration = 0; iteration < NEWTON_ITERATIONS; iteration++) {
+      evaluateLoaded(order, t);
+      double dx = pointX - x;
+      double dy = pointY - y;
+      if (dx * dx + dy * dy < best) {
+        best = dx * dx + dy * dy;
+        bestT = t;
+      }
+      double slope = dx * derivativeX + dy * derivativeY;
+      double curvature = derivativeX * derivativeX + derivativeY * derivativeY
+          + dx * secondX + dy * secondY;
+      if (!(curvature > 0)) {
+        break;
+      }
+      double next = Math.max(0, Math.min(1, t - slope / curvature));
+      if (next == t) {
+        break;
+      }
+      t = next;
+    }
+    projectedT = bestT;
+    return best;
+  }
+
+  private void evaluate(int segment, double t) {
+    int order = curves.getOrder(segment);
+    loadControls(segment, order);
+    if (order == 1) {
+      derivativeX = controlXs[1] - controlXs[0];
+      derivativeY = controlYs[1] - controlYs[0];
+      pointX = controlXs[0] + t * derivativeX;
+      pointY = controlYs[0] + t * derivativeY;
+      return;
+    }
+    evaluateLoaded(order, t);
+  }
+
+  /**
+   * Evaluates the point and the first and second derivatives of the loaded curve of order two
+   * or more at the parameter by de Casteljau's algorithm.
+   */
+  private void evaluateLoaded(int order, double t) {
+    double[] xs = scratchXs;
+    double[] ys = scratchYs;
+    for (int k = 0; k <= order; k++) {
+      xs[k] = controlXs[k];
+      ys[k] = controlYs[k];
+    }
+    for (int level = order; level > 2; level--) {
+      for (int k = 0; k < level; k++) {
+        xs[k] += t * (xs[k + 1] - xs[k]);
+        ys[k] += t * (ys[k + 1] - ys[k]);
+      }
+    }
+    secondX = order * (order - 1) * (xs[0] - 2 * xs[1] + xs[2]);
+    secondY = order * (order - 1) * (ys[0] - 2 * ys[1] + ys[2]);
+    double x0 = xs[0] + t * (xs[1] - xs[0]);
+    double y0 = ys[0] + t * (ys[1] - ys[0]);
+    double x1 = xs[1] + t * (xs[2] - xs[1]);
+    double y1 = ys[1] + t * (ys[2] - ys[1]);
+    derivativeX = order * (x1 - x0);
+    derivativeY = order * (y1 - y0);
+    pointX = x0 + t * (x1 - x0);
+    pointY = y0 + t * (y1 - y0);
+  }
+
+  private void loadControls(int segment, int order) {
+    if (controlXs.length <= order) {
+      controlXs = new double[order + 1];
+      controlYs = new double[order + 1];
+      scratchXs = new double[order + 1];
+      scratchYs = new double[order + 1];
+    }
+    for (int k = 0; k <= order; k++) {
+      controlXs[k] = curves.getX(segment, k);
+      controlYs[k] = curves.getY(segment, k);
+    }
+  }
+
+  /**
+   * Computes the bounding boxes, the colors, the flattened edges and the grid of the curves.
+   */
+  private void prepare() {
+    int segmentCount = curves.getSegmentCount();
+    if (bounds.length < segmentCount * 4) {
+      bounds = new double[segmentCount * 8];
+      colors = new byte[segmentCount * 2];
+    }
+    edgeCount = 0;
+    double area = 0;
+    for (int segment = 0; segment < segmentCount; segment++) {
+      int order = curves.getOrder(segment);
+      loadControls(segment, order);
+      double minX = Double.POSITIVE_INFINITY;
+      double minY = Double.POSITIVE_INFINITY;
+      double maxX = Double.NEGATIVE_INFINITY;
+      double maxY = Double.NEGATIVE_INFINITY;
+      for (int k = 0; k <= order; k++) {
+        minX = Math.min(minX, controlXs[k]);
+        minY = Math.min(minY, controlYs[k]);
+        maxX = Math.max(maxX, controlXs[k]);
+        maxY = Math.max(maxY, controlYs[k]);
+      }
+      bounds[segment * 4] = minX;
+      bounds[segment * 4 + 1] = minY;
+      bounds[segment * 4 + 2] = maxX;
+      bounds[segment * 4 + 3] = maxY;
+      colors[segment] = WHITE;
+
+      // Flattened edges decide the winding numbers, as in ContourRasterizer.
+      polyline.clear();
+      polyline.addPoint(controlXs[0], controlYs[0]);
+      flattener.flatten(order, controlXs, controlYs, polyline);
+      for (int i = 1; i < polyline.getPointCount(); i++) {
+        double lastX = polyline.getX(i - 1);
+        double lastY = polyline.getY(i - 1);
+        double x = polyline.getX(i);
+        double y = polyline.getY(i);
+        addEdge(lastX, lastY, x, y);
+        area += lastX * y - x * lastY;
+      }
+    }
+    // Contours are closed implicitly by lines over the gaps between their curves.
+    for (int contour = 0; contour < curves.getContourCount(); contour++) {
+      int start = curves.getContourStart(contour);
+      int end = curves.getContourEnd(contour);
+      for (int segment = start; segment < end; segment++) {
+        int previous = segment == start ? end - 1 : segment - 1;
+        int previousOrder = curves.getOrder(previous);
+        double x0 = curves.getX(previous, previousOrder);
+        double y0 = curves.getY(previous, previousOrder);
+        double x1 = curves.getX(segment, 0);
+        double y1 = curves.getY(segment, 0);
+        if (x0 != x1 || y0 != y1) {
+          addEdge(x0, y0, x1, y1);
+          area += x0 * y1 - x1 * y0;
+        }
+      }
+      if (multiChannel) {
+        colorContour(start, end);
+      }
+    }
+    orientation = area >= 0 ? 1 : -1;
+    buildGrid(segmentCount);
+  }
+
+  private void addEdge(double x0, double y0, double x1, double y1) {
+    if (edges.length < (edgeCount + 1) * 4) {
+      edges = Arrays.copyOf(edges, edges.length * 2);
+    }
+    int index = edgeCount++ * 4;
+    edges[index] = x0;
+    edges[index + 1] = y0;
+    edges[index + 2] = x1;
+    edges[index + 3] = y1;
+  }
+
+  /**
+   * Colors the curves of the contour, switching colors at every corner so that curves meeting
+   * at a corner share a single channel. A contour without corners is white in every channel,
+   * and one with a single corner is split into three colors.
+   */
+  private void colorContour(int start, int end) {
+    int count = end - start;
+    int firstCorner = -1;
+    int cornerCount = 0;
+    for (int segment = start; segment < end; segment++) {
+      if (isCorner(segment == start ? end - 1 : segment - 1, segment)) {
+        if (firstCorner < 0) {
+          firstCorner = segment;
+        }
+        cornerCount++;
+      }
+    }
+    if (cornerCount == 0) {
+      return;
+    }
+    if (cornerCount == 1) {
+      if (count < 3) {
+        return;
+      }
+      for (int i = 0; i < count; i++) {
+        int segment = start + (firstCorner - start + i) % count;
+        colors[segment] = (byte) CORNER_COLORS[i * 3 / count];
+      }
+      return;
+    }
+    int span = -1;
+    for (int i = 0; i < count; i++) {
+      int segment = start + (firstCorner - start + i) % count;
+      if (isCorner(segment == start ? end - 1 : segment - 1, segment)) {
+        span++;
+      }
+      // The last span meets the first one, thus it cannot take the first color.
+      int color = span == cornerCount - 1 && cornerCount % 3 == 1 ? 1 : span % 3;
+      colors[segment] = (byte) CORNER_COLORS[color];
+    }
+  }
+
+  /**
+   * Returns whether the tangents of the curves turn sharply where the first meets the second.
+   */
+  private boolean isCorner(int previous, int next) {
+    int order = curves.getOrder(previous);
+    double endX = curves.getX(previous, order);
+    double endY = curves.getY(previous, order);
+    double inX = 0;
+    double inY = 0;
+    for (int k = order - 1; k >= 0 && inX == 0 && inY == 0; k--) {
+      inX = endX - curves.getX(previous, k);
+      inY = endY - curves.getY(previous, k);
+    }
+    order = curves.getOrder(next);
+    double startX = curves.getX(next, 0);
+    double startY = curves.getY(next, 0);
+    double outX = 0;
+    double outY = 0;
+    for (int k = 1; k <= order && outX == 0 && outY == 0; k++) {
+      outX = curves.getX(next, k) - startX;
+      outY = curves.getY(next, k) - startY;
+    }
+    double length = Math.hypot(inX, inY) * Math.hypot(outX, outY);
+    if (!(length > 0)) {
+      return false;
+    }
+    double dot = (inX * outX + inY * outY) / length;
+    double cross = (inX * outY - inY * outX) / length;
+    return dot <= 0 || Math.abs(cross) > CORNER_SINE;
+  }
+
+  /**
+   * Lists in each cell of the grid the curves whose bounding boxes expanded by the range
+   * overlap the cell.
+   */
+  private void buildGrid(int segmentCount) {
+    gridWidth = (width + CELL_SIZE - 1) / CELL_SIZE;
+    int gridHeight = (height + CELL_SIZE - 1) / CELL_SIZE;
+    int cellCount = gridWidth * gridHeight;
+    if (cellStarts.length < cellCount + 1) {
+      cellStarts = new int[cellCount + 1];
+    } else {
+      Arrays.fill(cellStarts, 0, cellCount + 1, 0);
+    }
+    // Count the curves of each cell, turn the counts into starts, and fill the cells.
+    for (int pass = 0; pass < 2; pass++) {
+      for (int segment = 0; segment < segmentCount; segment++) {
+        int index = segment * 4;
+        int column0 = getCell(bounds[index] - range, gridWidth);
+        int row0 = getCell(bounds[index + 1] - range, gridHeight);
+        int column1 = getCell(bounds[index + 2] + range, gridWidth);
+        int row1 = getCell(bounds[index + 3] + range, gridHeight);
+        for (int row = row0; row <= row1; row++) {
+          for (int column = column0; column <= column1; column++) {
+            int cell = row * gridWidth + column;
+            if (pass == 0) {
+              cellStarts[cell + 1]++;
+            } else {
+              cellCurves[cellStarts[cell]++] = segment;
+            }
+          }
+        }
+      }
+      if (pass == 0) {
+        for (int cell = 0; cell < cellCount; cell++) {
+          cellStarts[cell + 1] += cellStarts[cell];
+        }
+        if (cellCurves.length < cellStarts[cellCount]) {
+          cellCurves = new int[cellStarts[cellCount] * 2];
+        }
+      }
+    }
+    // Filling moved each start to the next one.
+    System.arraycopy(cellStarts, 0, cellStarts, 1, cellCount);
+    cellStarts[0] = 0;
+  }
+
+  private static int getCell(double coordinate, int cellCount) {
+    return (int) Math.max(0, Math.min(cellCount - 1, Math.floor(coordinate / CELL_SIZE)));
+  }
+
+  /**
+   * Finds where the edges cross the horizontal line, sorted from the left, with their
+   * directions, and returns the number of crossings.
+   */
+  private int findCrossings(double y) {
+    int count = 0;
+    for (int edge = 0; edge < edgeCount; edge++) {
+      int index = edge * 4;
+      double y0 = edges[index + 1];
+      double y1 = edges[index + 3];
+      if ((y0 <= y) == (y1 <= y)) {
+        continue;
+      }
+      double x0 = edges[index];
+      double x = x0 + (y - y0) * (edges[index + 2] - x0) / (y1 - y0);
+      int direction = y1 > y0 ? 1 : -1;
+      if (count == crossingXs.length) {
+        crossingXs = Arrays.copyOf(crossingXs, count * 2);
+        crossingDirections = Arrays.copyOf(crossingDirections, count * 2);
+      }
+      // Insertion sort, since a row crosses few edges.
+      int position = count++;
+      while (position > 0 && crossingXs[position - 1] > x) {
+        crossingXs[position] = crossingXs[position - 1];
+        crossingDirections[position] = crossingDirections[position - 1];
+        position--;
+      }
+      crossingXs[position] = x;
+      crossingDirections[position] = direction;
+    }
+    return count;
+  }
+}
@@ -0,0 +1,120 @@
+package kr.ac.kaist.team888.raster;
+
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.exception.OutOfRangeException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writer of 8-bit PNG images of one to four channels, independent of Android.
+ *
+ * <p>Each row is filtered by the difference from the pixel to its left, which turns the flat
+ * areas of anti-aliased glyphs into runs of zeros.
+ */
+public class PngWriter {
+  private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+  private static final int BIT_DEPTH = 8;
+  // Gray, gray and alpha, RGB, and RGBA by the number of channels.
+  private static final int[] COLOR_TYPES = {0, 4, 2, 6};
+  private static final int FILTER_SUB = 1;
+
+  private PngWriter() {
+  }
+
+  /**
+   * Writes the gray pixels as a PNG image.
+   *
+   * @param out stream to write the image
+   * @param pixels gray values of the pixels, row by row from the top
+   * @param width width of the image
+   * @param height height of the image
+   * @param stride distance between the first pixels of consecutive rows in <code>pixels</code>
+   * @throws IOException if an I/O error occurs
+   * @throws DimensionMismatchException if the pixels do not hold the image
+   */
+  public static void writeGray(OutputStream out, byte[] pixels, int width, int height,
+                               int stride) throws IOException, DimensionMismatchException {
+    write(out, pixels, width, height, stride, 1);
+  }
+
+  /**
+   * Writes the pixels of interleaved channels as a PNG image: gray, gray and alpha, RGB, or
+   * RGBA by the number of channels.
+   *
+   * @param out stream to write the image
+   * @param pixels channels of the pixels, row by row from the top
+   * @param width width of the image
+   * @param height height of the image
+   * @param stride distance in bytes between the first pixels of consecutive rows in
+   *     <code>pixels</code>
+   * @param channels number of bytes of each pixel
+   * @throws IOException if an I/O error occurs
+   * @throws OutOfRangeException if the number of channels is out of the range from 1 to 4
+   * @throws DimensionMismatchException if the pixels do not hold the image
+   */
+  public static void write(OutputStream out, byte[] pixels, int width, int height, int stride,
+                           int channels)
+      throws IOException, OutOfRangeException, DimensionMismatchException {
+    if (channels < 1 || channels > COLOR_TYPES.length) {
+      throw new OutOfRangeException(channels, 1, COLOR_TYPES.length);
+    }
+    int rowLength = width * channels;
+    int required = (height - 1) * stride + rowLength;
+    if (stride < rowLength || pixels.length < required) {
+      throw new DimensionMismatchException(pixels.length, required);
+    }
+    DataOutputStream dataOut = new DataOutputStream(out);
+    dataOut.write(SIGNATURE);
+
+    ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+    DataOutputStream headerOut = new DataOutputStream(header);
+    headerOut.writeInt(width);
+    headerOut.writeInt(height);
+    headerOut.writeByte(BIT_DEPTH);
+    headerOut.writeByte(COLOR_TYPES[channels - 1]);
+    headerOut.writeByte(0);
+    headerOut.writeByte(0);
+    headerOut.writeByte(0);
+    writeChunk(dataOut, "IHDR", header.toByteArray());
+
+    ByteArrayOutputStream data = new ByteArrayOutputStream();
+    Deflater deflater = new Deflater();
+    try {
+      DeflaterOutputStream deflaterOut = new DeflaterOutputStream(data, deflater);
+      byte[] row = new byte[rowLength + 1];
+      row[0] = FILTER_SUB;
+      for (int y = 0; y < height; y++) {
+        int start = y * stride;
+        for (int i = 0; i < rowLength; i++) {
+          int left = i < channels ? 0 : pixels[start + i - channels];
+          row[i + 1] = (byte) (pixels[start + i] - left);
+        }
+        deflaterOut.write(row);
+      }
+      deflaterOut.finish();
+    } finally {
+      deflater.end();
+    }
+    writeChunk(dataOut, "IDAT", data.toByteArray());
+    writeChunk(dataOut, "IEND", new byte[0]);
+    dataOut.flush();
+  }
+
+  private static void writeChunk(DataOutputStream out, String type, byte[] data)
+      throws IOException {
+    byte[] typeBytes = type.getBytes("US-ASCII");
+    CRC32 crc = new CRC32();
+    crc.update(typeBytes);
+    crc.update(data);
+    out.writeInt(data.length);
+    out.write(typeBytes);
+    out.write(data);
+    out.writeInt((int) crc.getValue());
+  }
+}
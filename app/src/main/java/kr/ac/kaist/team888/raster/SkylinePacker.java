@@ -0,0 +1,195 @@
+package kr.ac.kaist.team888.raster;
+
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+
+import java.util.Arrays;
+
+/**
+ * Packer of rectangles into a page by the skyline bottom-left heuristic.
+ *
+ * <p>The skyline is the top edge of the packed rectangles, kept as horizontal segments from
+ * left to right. A rectangle is placed on the skyline where its top would be the lowest,
+ * preferring the narrower segment on ties, and the skyline is raised under it. Space below
+ * the skyline is never reused, which keeps packing linear in the number of segments while
+ * wasting little for rectangles of similar heights such as glyphs of a font.
+ */
+public class SkylinePacker {
+  private final int width;
+  private final int height;
+  private int[] xs = new int[16];
+  private int[] ys = new int[16];
+  private int[] widths = new int[16];
+  private int count;
+  private int usedHeight;
+
+  /**
+   * Creates a new empty page of the size.
+   *
+   * @param width width of the page
+   * @param height height of the page
+   * @throws NotStrictlyPositiveException if the size is not positive
+   */
+  public SkylinePacker(int width, int height) throws NotStrictlyPositiveException {
+    if (width <= 0) {
+      throw new NotStrictlyPositiveException(width);
+    }
+    if (height <= 0) {
+      throw new NotStrictlyPositiveException(height);
+    }
+    this.width = width;
+    this.height = height;
+    reset();
+  }
+
+  /**
+   * Removes every packed rectangle.
+   */
+  public void reset() {
+    xs[0] = 0;
+    ys[0] = 0;
+    widths[0] = width;
+    count = 1;
+    usedHeight = 0;
+  }
+
+  /**
+   * Places a rectangle of the size in the page.
+   *
+   * @param rectWidth width of the rectangle
+   * @param rectHeight height of the rectangle
+   * @param position array receiving the x and y of the top left corner of the placed rectangle
+   * @return <code>true</code> if placed, <code>false</code> if the page has no room for it
+   */
+  public boolean pack(int rectWidth, int rectHeight, int[] position) {
+    int bestIndex = -1;
+    int bestTop = Integer.MAX_VALUE;
+    int bestWidth = Integer.MAX_VALUE;
+    int bestY = 0;
+    for (int i = 0; i < count; i++) {
+      int y = fit(i, rectWidth, rectHeight);
+      if (y < 0) {
+        continue;
+      }
+      int top = y + rectHeight;
+      if (top < bestTop || (top == bestTop && widths[i] < bestWidth)) {
+        bestIndex = i;
+        bestTop = top;
+        bestWidth = widths[i];
+        bestY = y;
+      }
+    }
+    if (bestIndex < 0) {
+      return false;
+    }
+    position[0] = xs[bestIndex];
+    position[1] = bestY;
+    raise(bestIndex, rectWidth, bestTop);
+    usedHeight = Math.max(usedHeight, bestTop);
+    return true;
+  }
+
+  /**
+   * Returns the height up to which rectangles have been placed.
+   *
+   * @return the used height
+   */
+  public int getUsedHeight() {
+    return usedHeight;
+  }
+
+  /**
+   * Returns the width of the page.
+   *
+   * @return the width
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Returns the height of the page.
+   *
+   * @return the height
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Returns the y where a rectangle starting at the segment would rest, or -1 if it does not
+   * fit in the page there.
+   */
+  private int fit(int index, int rectWidth, int rectHeight) {
+    int x = xs[index];
+    if (x + rectWidth > width) {
+      return -1;
+    }
+    int y = 0;
+    int remaining = rectWidth;
+    for (int i = index; remaining > 0; i++) {
+      y = Math.max(y, ys[i]);
+      if (y + rectHeight > height) {
+        return -1;
+      }
+      remaining -= widths[i];
+    }
+    return y;
+  }
+
+  /**
+   * Replaces the skyline under a rectangle placed at the segment by a segment at its top.
+   */
+  private void raise(int index, int rectWidth, int top) {
+    int x = xs[index];
+    int end = x + rectWidth;
+    // Segments covered entirely are removed, and one covered in part is shortened.
+    int next = index;
+    while (next < count && xs[next] + widths[next] <= end) {
+      next++;
+    }
+    if (next < count && xs[next] < end) {
+      widths[next] -= end - xs[next];
+      xs[next] = end;
+    }
+    int removed = next - index;
+    if (removed == 0) {
+      ensureCapacity(count + 1);
+      System.arraycopy(xs, index, xs, index + 1, count - index);
+      System.arraycopy(ys, index, ys, index + 1, count - index);
+      System.arraycopy(widths, index, widths, index + 1, count - index);
+      count++;
+    } else if (removed > 1) {
+      System.arraycopy(xs, next, xs, index + 1, count - next);
+      System.arraycopy(ys, next, ys, index + 1, count - next);
+      System.arraycopy(widths, next, widths, index + 1, count - next);
+      count -= removed - 1;
+    }
+    xs[index] = x;
+    ys[index] = top;
+    widths[index] = rectWidth;
+    merge();
+  }
+
+  private void merge() {
+    int last = 0;
+    for (int i = 1; i < count; i++) {
+      if (ys[i] == ys[last]) {
+        widths[last] += widths[i];
+      } else {
+        last++;
+        xs[last] = xs[i];
+        ys[last] = ys[i];
+        widths[last] = widths[i];
+      }
+    }
+    count = last + 1;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (xs.length < capacity) {
+      xs = Arrays.copyOf(xs, capacity * 2);
+      ys = Arrays.copyOf(ys, capacity * 2);
+      widths = Arrays.copyOf(widths, capacity * 2);
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package kr.ac.kaist.team888.region;
 
+import kr.ac.kaist.team888.bezier.AffineTransform2D;
 import kr.ac.kaist.team888.bezier.BezierCurve;
 
 import org.apache.commons.math3.geometry.euclidean.twod.Vector2D;
@@ -121,6 +122,19 @@ public class Region {
     this.maxY = maxY;
   }
 
+  /**
+   * Returns the linear transformation of this region onto the destination region.
+   *
+   * @param dst destination region
+   * @return the transformation mapping this region to the destination region
+   */
+  public AffineTransform2D getTransform(Region dst) {
+    double scaleX = (dst.maxX - dst.minX) / (maxX - minX);
+    double scaleY = (dst.maxY - dst.minY) / (maxY - minY);
+    return AffineTransform2D.scaling(scaleX, scaleY, dst.minX - minX * scaleX,
+        dst.minY - minY * scaleY);
+  }
+
   /**
    * Do linear transformation on destination region.
    *
@@ -129,19 +143,9 @@ public class Region {
    * @return new stroke on destination region
    */
   public BezierCurve transformBezierCurve(Region dst, BezierCurve curve) {
-    Vector2D[] transformedPoints = new Vector2D[curve.getPoints().length];
-    for (int i = 0; i < transformedPoints.length; i++) {
-      transformedPoints[i] = (transformVector2D(dst, curve.getPoint(i)));
-    }
-    return new BezierCurve.Builder()
-        .setPoints(transformedPoints)
-        .setOffsetVector(curve.getOffsetVector())
-        .setEndOffsetVector(curve.getEndOffsetVector())
-        .setCutoffStart(curve.getCutoffStart())
-        .setCutoffEnd(curve.getCutoffEnd())
-        .setCutoffStartVector(curve.getCutoffStartVector())
-        .setCutoffEndVector(curve.getCutoffEndVector())
-        .build();
+    BezierCurve transformedCurve = curve.clone();
+    transformedCurve.transform(getTransform(dst));
+    return transformedCurve;
   }
 
   /**
@@ -152,15 +156,7 @@ public class Region {
    * @return new point on destination region
    */
   public Vector2D transformVector2D(Region dst, Vector2D point) {
-    Vector2D baseMinPoint = getMinPoint();
-    Vector2D baseVector = getMaxPoint().subtract(baseMinPoint);
-    Vector2D targetMinPoint = dst.getMinPoint();
-    Vector2D targetVector = dst.getMaxPoint().subtract(targetMinPoint);
-
-    Vector2D diffVector = point.subtract(baseMinPoint);
-    return new Vector2D(diffVector.getX() * targetVector.getX() / baseVector.getX(),
-        diffVector.getY() * targetVector.getY() / baseVector.getY())
-        .add(targetMinPoint);
+    return getTransform(dst).transform(point);
   }
 
   @Override
@@ -0,0 +1,594 @@
+package kr.ac.kaist.team888.util;
+
+import android.os.AsyncTask;
+import android.os.Environment;
+
+import kr.ac.kaist.team888.bezier.BezierCurve;
+import kr.ac.kaist.team888.bezier.ContourBuffer;
+import kr.ac.kaist.team888.bezier.ContourUnion;
+import kr.ac.kaist.team888.bezier.StrokeMemo;
+import kr.ac.kaist.team888.hangulcharacter.CharacterLoader;
+import kr.ac.kaist.team888.hangulcharacter.HangulCharacter;
+import kr.ac.kaist.team888.locator.Locator;
+import kr.ac.kaist.team888.mylittlefont.FontItem;
+import kr.ac.kaist.team888.raster.ContourRasterizer;
+import kr.ac.kaist.team888.raster.DistanceFieldGenerator;
+import kr.ac.kaist.team888.raster.PngWriter;
+import kr.ac.kaist.team888.raster.SkylinePacker;
+import kr.ac.kaist.team888.region.Region;
+import kr.ac.kaist.team888.util.FontExporter.ExportCallbacks;
+import kr.ac.kaist.team888.util.FontExporter.ExportProgressCallbacks;
+import kr.ac.kaist.team888.util.FontExporter.ExportType;
+import kr.ac.kaist.team888.util.FontExporter.OutputType;
+import kr.ac.kaist.team888.util.ProgressMeter.Phase;
+
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+import org.apache.commons.math3.exception.OutOfRangeException;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.InterruptedIOException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Exports the glyphs of the current features pre-rasterized at several pixel sizes, as pages of
+ * PNG images and a binary index of the placement and metrics of every glyph.
+ *
+ * <p>Letters are built and rasterized in parallel by a thread per processor, each with its own
+ * {@link StrokeMemo} and {@link ContourRasterizer}. Only the construction of {@link Locator}s is
+ * serialized, since characters compute their skeletons and regions into shared instances.
+ * Contours are rasterized as they are by the non-zero winding rule, which fills the same area as
+ * their union. Rasterized letters are consumed in order, a bounded number ahead of the consumer,
+ * and packed by a {@link SkylinePacker} into square power-of-two pages of each size, the last
+ * page being trimmed to a power-of-two height. A page is written as soon as it is full, thus
+ * memory holds a single page of each size besides the letters in flight.
+ *
+ * <p>The atlas is written in the directory <code>&lt;name&gt;-atlas</code> next to the fonts.
+ * Pages are 8-bit grayscale images of the coverage of each pixel, named
+ * <code>&lt;name&gt;-&lt;size&gt;-&lt;page&gt;.png</code>. The index
+ * <code>&lt;name&gt;.atlas</code> is big-endian:
+ * <pre>
+ * int magic "MLFA", short version, short number of sizes, short atlas type,
+ * float range of distance fields in pixels
+ * for each size:
+ *   short pixel size, short number of pages, short width and height of each page
+ *   int number of glyphs, and for each glyph:
+ *     int code point, short page, x, y, width, height, bearing x, bearing y, float advance
+ * </pre>
+ * Bearings are the offsets of the top left of the image from the origin of the glyph, right and
+ * up, and the advance is in pixels. A glyph without outlines has page -1 and no image.
+ *
+ * <p>For {@link AtlasType#SDF} and {@link AtlasType#MSDF}, pages hold signed distance fields
+ * of merged contours instead, made by a {@link DistanceFieldGenerator} of each thread, and
+ * images are padded by the range of the field.
+ *
+ * <p>The export can be cancelled by {@link #cancel(boolean)}, which is checked between letters.
+ * Files of the atlas are replaced only when every file is complete.
+ */
+public class AtlasExporter extends AsyncTask<String, ExportProgress, File> {
+  private static final String DEFAULT_FILE_PATH = "/MyLittleFont/";
+  private static final String DIRECTORY_SUFFIX = "-atlas";
+  private static final String PAGE_EXTENSION = ".png";
+  private static final String INDEX_EXTENSION = ".atlas";
+  private static final int INDEX_MAGIC = 0x4D4C4641;
+  private static final int INDEX_VERSION = 2;
+
+  private static final int MAX_PIXEL_SIZE = 512;
+  private static final int MAX_PAGE_SIZE = 2048;
+  private static final int PADDING = 1;
+  private static final int TASKS_PER_THREAD = 4;
+  private static final int WRITE_BUFFER_SIZE = 1 << 16;
+  private static final double DISTANCE_RANGE = DistanceFieldGenerator.DEFAULT_RANGE;
+
+  private final AtlasType atlasType;
+  private final FontItem features;
+  private final double gap;
+  private final String name;
+  private final int[] pixelSizes;
+  private final FontExporter letterSource;
+  private final File directory;
+  private final int threadCount = Runtime.getRuntime().availableProcessors();
+  private ExportCallbacks exportCallbacks;
+  private ArrayList<FontFileOutput> outputs = new ArrayList<>();
+  private ProgressMeter progressMeter = new ProgressMeter();
+
+  private final ThreadLocal<GlyphRasterizer> glyphRasterizers =
+      new ThreadLocal<GlyphRasterizer>() {
+        @Override
+        protected GlyphRasterizer initialValue() {
+          return new GlyphRasterizer();
+        }
+      };
+
+  /**
+   * Content of the pages of an atlas.
+   */
+  public enum AtlasType {
+    /**
+     * Coverage of each pixel in gray.
+     */
+    COVERAGE,
+    /**
+     * Signed distance of each texel to the outline in gray.
+     */
+    SDF,
+    /**
+     * Signed pseudo-distances of each texel in RGB, whose median keeps corners sharp.
+     */
+    MSDF
+  }
+
+  /**
+   * Class for export atlas of the current features.
+   *
+   * @param exportType export type
+   * @param name name of the atlas
+   * @param pixelSizes sizes of the em square in pixels, each rasterized into its own pages
+   * @param exportCallbacks call backs on async task
+   * @throws OutOfRangeException if a pixel size is out of the range from 1 to
+   *     {@value #MAX_PIXEL_SIZE}
+   */
+  public AtlasExporter(ExportType exportType, String name, int[] pixelSizes,
+                       ExportCallbacks exportCallbacks) throws OutOfRangeException {
+    this(exportType, name, pixelSizes, exportCallbacks, AtlasType.COVERAGE);
+  }
+
+  /**
+   * Class for export atlas of the current features.
+   *
+   * @param exportType export type
+   * @param name name of the atlas
+   * @param pixelSizes sizes of the em square in pixels, each rasterized into its own pages
+   * @param exportCallbacks call backs on async task
+   * @param atlasType content of the pages
+   * @throws OutOfRangeException if a pixel size is out of the range from 1 to
+   *     {@value #MAX_PIXEL_SIZE}
+   */
+  public AtlasExporter(ExportType exportType, String name, int[] pixelSizes,
+                       ExportCallbacks exportCallbacks, AtlasType atlasType)
+      throws OutOfRangeException {
+    for (int pixelSize : pixelSizes) {
+      if (pixelSize < 1 || pixelSize > MAX_PIXEL_SIZE) {
+        throw new OutOfRangeException(pixelSize, 1, MAX_PIXEL_SIZE);
+      }
+    }
+    this.atlasType = atlasType;
+    this.features = FeatureController.getInstance().getFeatures();
+    this.gap = FeatureController.getInstance().getGap();
+    this.name = name;
+    this.pixelSizes = pixelSizes.clone();
+    this.exportCallbacks = exportCallbacks;
+    letterSource = new FontExporter(features, gap, exportType, name, null, OutputType.SIMPLE);
+    directory = new File(
+        Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS)
+        + DEFAULT_FILE_PATH + name + DIRECTORY_SUFFIX);
+  }
+
+  /**
+   * Class for export atlas of the current features, containing only the letters of the given
+   * text.
+   *
+   * @param subsetText text whose letters are exported
+   * @param name name of the atlas
+   * @param pixelSizes sizes of the em square in pixels, each rasterized into its own pages
+   * @param exportCallbacks call backs on async task
+   * @throws OutOfRangeException if a pixel size is out of the range from 1 to
+   *     {@value #MAX_PIXEL_SIZE}
+   */
+  public AtlasExporter(String subsetText, String name, int[] pixelSizes,
+                       ExportCallbacks exportCallbacks) throws OutOfRangeException {
+    this(subsetText, name, pixelSizes, exportCallbacks, AtlasType.COVERAGE);
+  }
+
+  /**
+   * Class for export atlas of the current features, containing only the letters of the given
+   * text.
+   *
+   * @param subsetText text whose letters are exported
+   * @param name name of the atlas
+   * @param pixelSizes sizes of the em square in pixels, each rasterized into its own pages
+   * @param exportCallbacks call backs on async task
+   * @param atlasType content of the pages
+   * @throws OutOfRangeException if a pixel size is out of the range from 1 to
+   *     {@value #MAX_PIXEL_SIZE}
+   */
+  public AtlasExporter(String subsetText, String name, int[] pixelSizes,
+                       ExportCallbacks exportCallbacks, AtlasType atlasType)
+      throws OutOfRangeException {
+    this(ExportType.SUBSET, name, pixelSizes, exportCallbacks, atlasType);
+    letterSource.setSubsetText(subsetText);
+  }
+
+  @Override
+  protected void onProgressUpdate(ExportProgress... values) {
+    super.onProgressUpdate(values);
+    if (exportCallbacks != null) {
+      exportCallbacks.onProgress(values[0].getFraction());
+      if (exportCallbacks instanceof ExportProgressCallbacks) {
+        ((ExportProgressCallbacks) exportCallbacks).onProgress(values[0]);
+      }
+    }
+  }
+
+  @Override
+  protected void onPostExecute(File file) {
+    super.onPostExecute(file);
+    if (exportCallbacks != null) {
+      exportCallbacks.onEnd(file);
+    }
+  }
+
+  @Override
+  protected File doInBackground(String... params) {
+    try {
+      return export();
+    } catch (IOException e) {
+      e.printStackTrace();
+      for (FontFileOutput output : outputs) {
+        output.abort();
+      }
+    } catch (RuntimeException e) {
+      // Keeps the previous atlas before the task fails.
+      for (FontFileOutput output : outputs) {
+        output.abort();
+      }
+      throw e;
+    }
+    return null;
+  }
+
+  private File export() throws IOException {
+    progressMeter.start();
+    letterSource.openTemplateStore();
+    ArrayList<Character> letters = new ArrayList<>();
+    for (char letter : letterSource.getLetters()) {
+      if (CharacterLoader.getInstance().isDrawable(letter)) {
+        letters.add(letter);
+      }
+    }
+    Sheet[] sheets = new Sheet[pixelSizes.length];
+    for (int i = 0; i < sheets.length; i++) {
+      sheets[i] = new Sheet(pixelSizes[i], getPageSize(pixelSizes[i], letters.size()),
+          getChannelCount());
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    ArrayDeque<Future<Glyph[]>> pending = new ArrayDeque<>();
+    try {
+      int submitted = 0;
+      int[] position = new int[2];
+      for (int i = 0; i < letters.size(); i++) {
+        // Keep every thread busy while holding a bounded number of rasterized letters.
+        while (submitted < letters.size() && submitted < i + threadCount * TASKS_PER_THREAD) {
+          pending.add(executor.submit(newTask(letters.get(submitted++))));
+        }
+        checkCancelled();
+        Glyph[] glyphs = await(pending.remove());
+        int bytes = 0;
+        for (int j = 0; j < sheets.length; j++) {
+          addGlyph(sheets[j], letters.get(i), glyphs[j], position);
+          if (glyphs[j].pixels != null) {
+            bytes += glyphs[j].pixels.length;
+          }
+        }
+        progressMeter.addGlyph(bytes);
+        reportProgress(0.9 * (i + 1) / letters.size());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    for (Sheet sheet : sheets) {
+      if (sheet.packer.getUsedHeight() > 0) {
+        writePage(sheet, true);
+      }
+    }
+    File indexFile = writeIndex(sheets);
+    Phase previous = progressMeter.begin(Phase.IO);
+    for (FontFileOutput output : outputs) {
+      output.commit();
+    }
+    progressMeter.end(previous);
+    Alert.log(this, String.format("%d letters at %d sizes by %d threads", letters.size(),
+        sheets.length, threadCount));
+    reportProgress(1.0);
+    return indexFile;
+  }
+
+  private Callable<Glyph[]> newTask(final char letter) {
+    return new Callable<Glyph[]>() {
+      @Override
+      public Glyph[] call() throws Exception {
+        return glyphRasterizers.get().rasterize(letter);
+      }
+    };
+  }
+
+  /**
+   * Waits for the rasterized glyphs of a letter.
+   */
+  private Glyph[] await(Future<Glyph[]> future) throws IOException {
+    Phase previous = progressMeter.begin(Phase.GENERATION);
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      throw new InterruptedIOException("Export cancelled");
+    } catch (ExecutionException e) {
+      throw new IOException("Cannot rasterize a letter", e.getCause());
+    } finally {
+      progressMeter.end(previous);
+    }
+  }
+
+  /**
+   * Places the glyph in the current page of the sheet, writing the page first if it is full.
+   */
+  private void addGlyph(Sheet sheet, char letter, Glyph glyph, int[] position)
+      throws IOException {
+    Phase previous = progressMeter.begin(Phase.SERIALIZATION);
+    int page = -1;
+    if (glyph.pixels != null) {
+      if (!sheet.packer.pack(glyph.width + PADDING, glyph.height + PADDING, position)) {
+        writePage(sheet, false);
+        if (!sheet.packer.pack(glyph.width + PADDING, glyph.height + PADDING, position)) {
+          throw new IOException(String.format("%c of %dx%d pixels exceeds a page", letter,
+              glyph.width, glyph.height));
+        }
+      }
+      page = sheet.pageSizes.size();
+      int pageStride = sheet.packer.getWidth() * sheet.channels;
+      int rowLength = glyph.width * sheet.channels;
+      for (int row = 0; row < glyph.height; row++) {
+        System.arraycopy(glyph.pixels, row * rowLength, sheet.pixels,
+            (position[1] + row) * pageStride + position[0] * sheet.channels, rowLength);
+      }
+    } else {
+      position[0] = 0;
+      position[1] = 0;
+    }
+    DataOutputStream out = sheet.recordOut;
+    out.writeInt(letter);
+    out.writeShort(page);
+    out.writeShort(position[0]);
+    out.writeShort(position[1]);
+    out.writeShort(glyph.width);
+    out.writeShort(glyph.height);
+    out.writeShort(glyph.left);
+    out.writeShort(-glyph.top);
+    out.writeFloat(glyph.advance);
+    sheet.glyphCount++;
+    progressMeter.end(previous);
+  }
+
+  /**
+   * Writes the current page of the sheet and begins a new one. The last page is trimmed to
+   * the power of two holding its glyphs.
+   */
+  private void writePage(Sheet sheet, boolean isLast) throws IOException {
+    Phase previous = progressMeter.begin(Phase.IO);
+    int width = sheet.packer.getWidth();
+    int height = isLast
+        ? Math.min(sheet.packer.getHeight(), nextPowerOfTwo(sheet.packer.getUsedHeight()))
+        : sheet.packer.getHeight();
+    FontFileOutput output = new FontFileOutput(new File(directory, String.format("%s-%d-%d%s",
+        name, sheet.pixelSize, sheet.pageSizes.size(), PAGE_EXTENSION)));
+    outputs.add(output);
+    OutputStream out = new BufferedOutputStream(Channels.newOutputStream(output.getChannel()),
+        WRITE_BUFFER_SIZE);
+    PngWriter.write(out, sheet.pixels, width, height, width * sheet.channels, sheet.channels);
+    out.flush();
+    progressMeter.addFontBytes(output.getChannel().position());
+
+    sheet.pageSizes.add(new int[] {width, height});
+    Arrays.fill(sheet.pixels, 0, width * height * sheet.channels, (byte) 0);
+    sheet.packer.reset();
+    progressMeter.end(previous);
+  }
+
+  private File writeIndex(Sheet[] sheets) throws IOException {
+    Phase previous = progressMeter.begin(Phase.IO);
+    File file = new File(directory, name + INDEX_EXTENSION);
+    FontFileOutput output = new FontFileOutput(file);
+    outputs.add(output);
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+        Channels.newOutputStream(output.getChannel()), WRITE_BUFFER_SIZE));
+    out.writeInt(INDEX_MAGIC);
+    out.writeShort(INDEX_VERSION);
+    out.writeShort(sheets.length);
+    out.writeShort(atlasType.ordinal());
+    out.writeFloat(atlasType == AtlasType.COVERAGE ? 0 : (float) DISTANCE_RANGE);
+    for (Sheet sheet : sheets) {
+      out.writeShort(sheet.pixelSize);
+      out.writeShort(sheet.pageSizes.size());
+      for (int[] pageSize : sheet.pageSizes) {
+        out.writeShort(pageSize[0]);
+        out.writeShort(pageSize[1]);
+      }
+      out.writeInt(sheet.glyphCount);
+      sheet.recordOut.flush();
+      sheet.records.writeTo(out);
+    }
+    out.flush();
+    progressMeter.addFontBytes(out.size());
+    progressMeter.end(previous);
+    return file;
+  }
+
+  /**
+   * Returns the side of the square pages of the size, which holds every letter in a page if
+   * possible and at least a few of the largest glyphs.
+   */
+  private int getPageSize(int pixelSize, int letterCount) {
+    int cell = pixelSize + PADDING + 2 * getFieldPadding();
+    int fitting = nextPowerOfTwo((int) Math.ceil(Math.sqrt((double) letterCount * cell * cell)));
+    return Math.max(nextPowerOfTwo(2 * cell), Math.min(MAX_PAGE_SIZE, fitting));
+  }
+
+  /**
+   * Returns the margin of the images around the outlines, which holds the distance fields down
+   * to their range.
+   */
+  private int getFieldPadding() {
+    return atlasType == AtlasType.COVERAGE ? 0 : (int) Math.ceil(DISTANCE_RANGE);
+  }
+
+  private int getChannelCount() {
+    return atlasType == AtlasType.MSDF ? 3 : 1;
+  }
+
+  private static int nextPowerOfTwo(int value) {
+    return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+  }
+
+  /**
+   * Publishes the progress, unless the last one has been published too recently.
+   */
+  private void reportProgress(double fraction) {
+    ExportProgress progress = progressMeter.poll(fraction);
+    if (progress != null) {
+      publishProgress(progress);
+    }
+  }
+
+  /**
+   * Throws an exception to end the export if it is cancelled, which is checked between letters.
+   */
+  private void checkCancelled() throws InterruptedIOException {
+    if (isCancelled()) {
+      throw new InterruptedIOException("Export cancelled");
+    }
+  }
+
+  /**
+   * Rasterizer of letters owned by a thread, with its own locator pipeline.
+   */
+  private class GlyphRasterizer {
+    private final FontExporter source = new FontExporter(features, gap, ExportType.SUBSET, name,
+        null, OutputType.SIMPLE);
+    private final ContourRasterizer rasterizer = new ContourRasterizer(1, 1);
+    private final ContourUnion contourUnion = new ContourUnion();
+    private final ContourBuffer unionBuffer = new ContourBuffer();
+    private final DistanceFieldGenerator distanceFieldGenerator = new DistanceFieldGenerator(1, 1,
+        DISTANCE_RANGE, atlasType == AtlasType.MSDF);
+
+    /**
+     * Rasterizes the letter at each pixel size.
+     */
+    Glyph[] rasterize(char letter) {
+      Locator locator = new Locator(letter, false);
+      source.applyFeatures(locator);
+      Region region = source.makeRegion(locator);
+      ContourBuffer contours = locator.getContourBuffer();
+      if (atlasType != AtlasType.COVERAGE) {
+        // Edges inside other strokes are no boundaries of distance fields.
+        unionBuffer.clear();
+        for (ArrayList<BezierCurve> contour : contourUnion.union(locator.getContour())) {
+          unionBuffer.addContour(contour);
+        }
+        contours = unionBuffer;
+      }
+
+      // The glyph region stretches the locator region horizontally, keeping y.
+      Region locatorRegion = locator.locatorRegion;
+      double unitScaleX = (region.getMaxX() - region.getMinX())
+          / (locatorRegion.getMaxX() - locatorRegion.getMinX());
+      double unitOriginX = -locatorRegion.getMinX() * unitScaleX;
+      double minX = Double.POSITIVE_INFINITY;
+      double maxX = Double.NEGATIVE_INFINITY;
+      double minY = Double.POSITIVE_INFINITY;
+      double maxY = Double.NEGATIVE_INFINITY;
+      for (int i = 0; i < contours.getSegmentCount(); i++) {
+        for (int k = 0; k <= contours.getOrder(i); k++) {
+          minX = Math.min(minX, contours.getX(i, k));
+          maxX = Math.max(maxX, contours.getX(i, k));
+          minY = Math.min(minY, contours.getY(i, k));
+          maxY = Math.max(maxY, contours.getY(i, k));
+        }
+      }
+      minX = unitOriginX + minX * unitScaleX;
+      maxX = unitOriginX + maxX * unitScaleX;
+
+      Region origin = HangulCharacter.ORIGIN_REGION;
+      double unitsPerEm = origin.getMaxY() - origin.getMinY();
+      int padding = getFieldPadding();
+      Glyph[] glyphs = new Glyph[pixelSizes.length];
+      for (int i = 0; i < pixelSizes.length; i++) {
+        double scale = pixelSizes[i] / unitsPerEm;
+        Glyph glyph = new Glyph();
+        glyph.advance = (float) (region.getMaxX() * scale);
+        if (minX <= maxX && minY <= maxY) {
+          glyph.left = (int) Math.floor(minX * scale) - padding;
+          glyph.top = (int) Math.floor(-maxY * scale) - padding;
+          int width = (int) Math.ceil(maxX * scale) + padding - glyph.left;
+          int height = (int) Math.ceil(-minY * scale) + padding - glyph.top;
+          if (width > 0 && height > 0) {
+            glyph.width = width;
+            glyph.height = height;
+            glyph.pixels = new byte[width * height * getChannelCount()];
+            if (atlasType == AtlasType.COVERAGE) {
+              rasterizer.reset(width, height);
+              rasterizer.setTransform(unitScaleX * scale, scale,
+                  unitOriginX * scale - glyph.left, -glyph.top);
+              rasterizer.addContours(contours);
+              rasterizer.render(glyph.pixels);
+            } else {
+              distanceFieldGenerator.reset(width, height);
+              distanceFieldGenerator.setTransform(unitScaleX * scale, scale,
+                  unitOriginX * scale - glyph.left, -glyph.top);
+              distanceFieldGenerator.addContours(contours);
+              distanceFieldGenerator.render(glyph.pixels);
+            }
+          }
+        }
+        glyphs[i] = glyph;
+      }
+      return glyphs;
+    }
+  }
+
+  /**
+   * A letter rasterized at a size, positioned by its top left pixel relative to the origin of
+   * the glyph, with y going down.
+   */
+  private static class Glyph {
+    int left;
+    int top;
+    int width;
+    int height;
+    float advance;
+    byte[] pixels;
+  }
+
+  /**
+   * Pages of a size being packed, with the index records of their glyphs.
+   */
+  private static class Sheet {
+    final int pixelSize;
+    final int channels;
+    final SkylinePacker packer;
+    final byte[] pixels;
+    final ArrayList<int[]> pageSizes = new ArrayList<>();
+    final ByteArrayOutputStream records = new ByteArrayOutputStream();
+    final DataOutputStream recordOut = new DataOutputStream(records);
+    int glyphCount;
+
+    Sheet(int pixelSize, int pageSize, int channels) throws NotStrictlyPositiveException {
+      this.pixelSize = pixelSize;
+      this.channels = channels;
+      packer = new SkylinePacker(pageSize, pageSize);
+      pixels = new byte[pageSize * pageSize * channels];
+    }
+  }
+}
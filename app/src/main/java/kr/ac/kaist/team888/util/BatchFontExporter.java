@@ -0,0 +1,179 @@
+package kr.ac.kaist.team888.util;
+
+import android.os.AsyncTask;
+
+import kr.ac.kaist.team888.bezier.StrokeMemo;
+import kr.ac.kaist.team888.hangulcharacter.CharacterLoader;
+import kr.ac.kaist.team888.locator.Locator;
+import kr.ac.kaist.team888.mylittlefont.FontItem;
+import kr.ac.kaist.team888.util.FontExporter.ExportType;
+import kr.ac.kaist.team888.util.FontExporter.OutputType;
+import kr.ac.kaist.team888.util.ProgressMeter.Phase;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+
+/**
+ * Exports a font for each of several font items in a single task.
+ *
+ * <p>Letters are visited once for all fonts. The feature-independent work of a letter, which is
+ * the decomposition, the region lookup and the skeleton transforms of a {@link Locator}, is done
+ * once, and then the features of every font item are applied to the same locator. Strokes are
+ * shared among the fonts through a single {@link StrokeMemo}, and glyphs unchanged since
+ * the previous export of a font are loaded from its glyph store without a locator at all.
+ *
+ * <p>Since the font server builds one font per session, every font is written on the device.
+ *
+ * <p>The export can be cancelled by {@link #cancel(boolean)}, which is checked between letters.
+ * A cancelled or failed export deletes the fonts written so far and keeps the previous glyph
+ * stores.
+ */
+public class BatchFontExporter extends AsyncTask<String, ExportProgress, ArrayList<File>> {
+  private ArrayList<FontExporter> exporters = new ArrayList<>();
+  private BatchExportCallbacks batchExportCallbacks;
+  private ProgressMeter progressMeter = new ProgressMeter();
+
+  /**
+   * Class for export fonts of the font items, named after the font items.
+   *
+   * @param fontItems font items to export
+   * @param exportType export type
+   * @param batchExportCallbacks call backs on async task
+   * @param outputType format of the fonts
+   */
+  public BatchFontExporter(ArrayList<FontItem> fontItems, ExportType exportType,
+                           BatchExportCallbacks batchExportCallbacks, OutputType outputType) {
+    this.batchExportCallbacks = batchExportCallbacks;
+    double gap = FeatureController.getInstance().getGap();
+    StrokeMemo strokeMemo = new StrokeMemo();
+    for (FontItem fontItem : fontItems) {
+      FontExporter exporter = new FontExporter(fontItem, gap, exportType, fontItem.getName(),
+          null, outputType);
+      exporter.setStrokeMemo(strokeMemo);
+      exporter.setProgressMeter(progressMeter);
+      exporters.add(exporter);
+    }
+  }
+
+  /**
+   * Class for export fonts of the font items, containing only the letters of the given text.
+   *
+   * @param fontItems font items to export
+   * @param subsetText text whose letters are exported
+   * @param batchExportCallbacks call backs on async task
+   * @param outputType format of the fonts
+   */
+  public BatchFontExporter(ArrayList<FontItem> fontItems, String subsetText,
+                           BatchExportCallbacks batchExportCallbacks, OutputType outputType) {
+    this(fontItems, ExportType.SUBSET, batchExportCallbacks, outputType);
+    for (FontExporter exporter : exporters) {
+      exporter.setSubsetText(subsetText);
+    }
+  }
+
+  @Override
+  protected void onProgressUpdate(ExportProgress... values) {
+    super.onProgressUpdate(values);
+    if (batchExportCallbacks != null) {
+      batchExportCallbacks.onProgress(values[0]);
+    }
+  }
+
+  @Override
+  protected void onPostExecute(ArrayList<File> files) {
+    super.onPostExecute(files);
+    if (batchExportCallbacks != null) {
+      batchExportCallbacks.onEnd(files);
+    }
+  }
+
+  @Override
+  protected ArrayList<File> doInBackground(String... params) {
+    ArrayList<File> files = new ArrayList<>();
+    if (exporters.isEmpty()) {
+      return files;
+    }
+    progressMeter.start();
+    try {
+      for (FontExporter exporter : exporters) {
+        exporter.beginLocalExport();
+      }
+
+      ArrayList<Character> letters = exporters.get(0).getLetters();
+      for (int i = 0; i < letters.size(); i++) {
+        if (isCancelled()) {
+          throw new InterruptedIOException("Export cancelled");
+        }
+        char letter = letters.get(i);
+        if (CharacterLoader.getInstance().isDrawable(letter)) {
+          Locator locator = null;
+          for (FontExporter exporter : exporters) {
+            Phase previous = progressMeter.begin(Phase.GENERATION);
+            String hash = exporter.getContentHash(letter);
+            byte[] data = exporter.loadGlyphData(hash);
+            if (data == null) {
+              if (locator == null) {
+                locator = new Locator(letter, false);
+              }
+              data = exporter.makeGlyphData(hash, letter, locator);
+            }
+            progressMeter.end(previous);
+            exporter.addGlyph(letter, data);
+          }
+        }
+        reportProgress(0.9 * (i + 1) / letters.size());
+      }
+
+      for (int i = 0; i < exporters.size(); i++) {
+        files.add(exporters.get(i).finishLocalExport());
+        reportProgress(0.9 + 0.1 * (i + 1) / exporters.size());
+      }
+      return files;
+    } catch (IOException e) {
+      e.printStackTrace();
+      for (FontExporter exporter : exporters) {
+        exporter.abortExport();
+      }
+    } catch (RuntimeException e) {
+      // Keeps the previous fonts and glyph stores before the task fails.
+      for (FontExporter exporter : exporters) {
+        exporter.abortExport();
+      }
+      throw e;
+    }
+    return null;
+  }
+
+  /**
+   * Publishes the progress, unless the last one has been published too recently.
+   */
+  private void reportProgress(double fraction) {
+    ExportProgress progress = progressMeter.poll(fraction);
+    if (progress != null) {
+      publishProgress(progress);
+    }
+  }
+
+  /**
+   * Interface for getting result of batch exporting progress.
+   */
+  public interface BatchExportCallbacks {
+    /**
+     * Callback during exporting, at most once per
+     * {@value ProgressMeter#DEFAULT_INTERVAL_MILLIS} milliseconds.
+     *
+     * @param progress progress ahead of exporting all fonts with its throughput, remaining time,
+     *     bytes produced and time split
+     */
+    void onProgress(ExportProgress progress);
+
+    /**
+     * Callback after exporting finished.
+     *
+     * @param files result files in the order of the font items. return null on export fail.
+     */
+    void onEnd(ArrayList<File> files);
+  }
+}
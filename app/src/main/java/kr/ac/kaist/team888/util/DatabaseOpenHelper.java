@@ -6,6 +6,7 @@ import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
+import kr.ac.kaist.team888.bezier.PenType;
 import kr.ac.kaist.team888.mylittlefont.FontItem;
 
 import java.text.ParseException;
@@ -17,7 +18,7 @@ import java.util.Date;
  * Database manager for stored font features.
  */
 public class DatabaseOpenHelper extends SQLiteOpenHelper {
-  private static final int DATABASE_VERSION = 1;
+  private static final int DATABASE_VERSION = 2;
 
   private static final String DATABASE_NAME = "feature.db";
   private static final String TABLE_NAME = "feature";
@@ -32,6 +33,7 @@ public class DatabaseOpenHelper extends SQLiteOpenHelper {
   private static final String KEY_FLATTENING = "flattening";
   private static final String KEY_ARISE = "arise";
   private static final String KEY_SLANT = "slant";
+  private static final String KEY_PEN = "pen";
 
   private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
 
@@ -47,7 +49,9 @@ public class DatabaseOpenHelper extends SQLiteOpenHelper {
           + KEY_WIDTH       + " REAL, "
           + KEY_FLATTENING  + " REAL, "
           + KEY_ARISE       + " REAL, "
-          + KEY_SLANT       + " REAL);";
+          + KEY_SLANT       + " REAL, "
+          + KEY_PEN         + " TEXT);";
+  private static final String COLUMN_ADD = "ALTER TABLE %s ADD COLUMN %s %s";
 
   private static final String TABLE_SELECT = "SELECT * FROM %s ORDER BY %s DESC";
   private static final String ROW_DELETE = "DELETE FROM %s WHERE %s=%d";
@@ -62,7 +66,11 @@ public class DatabaseOpenHelper extends SQLiteOpenHelper {
   }
 
   @Override
-  public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) { }
+  public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+    if (oldVersion < 2) {
+      db.execSQL(String.format(COLUMN_ADD, TABLE_NAME, KEY_PEN, "TEXT"));
+    }
+  }
 
   /**
    * Saves feature values from the {@link FeatureController} in the database
@@ -82,6 +90,7 @@ public class DatabaseOpenHelper extends SQLiteOpenHelper {
     values.put(KEY_FLATTENING, features.getFlattening());
     values.put(KEY_ARISE, features.getArise());
     values.put(KEY_SLANT, features.getSlant());
+    values.put(KEY_PEN, features.getPen().name());
     getWritableDatabase().insert(TABLE_NAME, null, values);
   }
 
@@ -117,12 +126,24 @@ public class DatabaseOpenHelper extends SQLiteOpenHelper {
       builder.setFlattening(cursor.getDouble(cursor.getColumnIndex(KEY_FLATTENING)));
       builder.setArise(cursor.getDouble(cursor.getColumnIndex(KEY_ARISE)));
       builder.setSlant(cursor.getDouble(cursor.getColumnIndex(KEY_SLANT)));
+      builder.setPen(parsePen(cursor.getString(cursor.getColumnIndex(KEY_PEN))));
 
       results.add(builder.build());
     }
     return results;
   }
 
+  private static PenType parsePen(String name) {
+    if (name == null) {
+      return FontItem.DEFAULT_CONTROLS.getPen();
+    }
+    try {
+      return PenType.valueOf(name);
+    } catch (IllegalArgumentException e) {
+      return FontItem.DEFAULT_CONTROLS.getPen();
+    }
+  }
+
   /**
    * Delete the font data corresponding to the given id from the database.
    *
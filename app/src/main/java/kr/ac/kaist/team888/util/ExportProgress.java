@@ -0,0 +1,135 @@
+package kr.ac.kaist.team888.util;
+
+/**
+ * Snapshot of the progress of an export.
+ *
+ * <p>Besides the fraction done, a snapshot reports the throughput, the estimated remaining
+ * time, the bytes produced and how the elapsed time is split across generating glyphs,
+ * serializing them into the font and I/O, which covers the glyph store, the font file and
+ * the font server.
+ */
+public class ExportProgress {
+  private final double fraction;
+  private final int glyphCount;
+  private final long glyphBytes;
+  private final long fontBytes;
+  private final long elapsedNanos;
+  private final long generationNanos;
+  private final long serializationNanos;
+  private final long ioNanos;
+
+  ExportProgress(double fraction, int glyphCount, long glyphBytes, long fontBytes,
+                 long elapsedNanos, long generationNanos, long serializationNanos, long ioNanos) {
+    this.fraction = fraction;
+    this.glyphCount = glyphCount;
+    this.glyphBytes = glyphBytes;
+    this.fontBytes = fontBytes;
+    this.elapsedNanos = elapsedNanos;
+    this.generationNanos = generationNanos;
+    this.serializationNanos = serializationNanos;
+    this.ioNanos = ioNanos;
+  }
+
+  /**
+   * Returns the fraction of the export done.
+   *
+   * @return progress ahead of exporting. Range 0~1
+   */
+  public double getFraction() {
+    return fraction;
+  }
+
+  /**
+   * Returns the number of glyphs added to the fonts so far.
+   *
+   * @return the number of glyphs
+   */
+  public int getGlyphCount() {
+    return glyphCount;
+  }
+
+  /**
+   * Returns the number of glyphs added per second since the export started.
+   *
+   * @return the throughput in glyphs per second, or 0 if no time has elapsed
+   */
+  public double getGlyphsPerSecond() {
+    return elapsedNanos == 0 ? 0 : glyphCount * 1E9 / elapsedNanos;
+  }
+
+  /**
+   * Returns the estimated time until the export ends, assuming the rest of the export goes
+   * as fast as the part done.
+   *
+   * @return the remaining time in milliseconds, or -1 if nothing has been done yet
+   */
+  public long getRemainingMillis() {
+    if (fraction <= 0) {
+      return -1;
+    }
+    return (long) (elapsedNanos / 1E6 * (1 - fraction) / fraction);
+  }
+
+  /**
+   * Returns the number of bytes of glyph data generated or loaded from the glyph store.
+   *
+   * @return the bytes of glyph data
+   */
+  public long getGlyphBytes() {
+    return glyphBytes;
+  }
+
+  /**
+   * Returns the number of bytes of the fonts written or downloaded so far.
+   *
+   * @return the bytes of the fonts
+   */
+  public long getFontBytes() {
+    return fontBytes;
+  }
+
+  /**
+   * Returns the time elapsed since the export started.
+   *
+   * @return the elapsed time in milliseconds
+   */
+  public long getElapsedMillis() {
+    return elapsedNanos / 1000000;
+  }
+
+  /**
+   * Returns the time spent generating glyphs from the features.
+   *
+   * @return the generation time in milliseconds
+   */
+  public long getGenerationMillis() {
+    return generationNanos / 1000000;
+  }
+
+  /**
+   * Returns the time spent serializing glyphs into the font tables.
+   *
+   * @return the serialization time in milliseconds
+   */
+  public long getSerializationMillis() {
+    return serializationNanos / 1000000;
+  }
+
+  /**
+   * Returns the time spent reading and writing the glyph store, the font file and the socket
+   * to the font server.
+   *
+   * @return the I/O time in milliseconds
+   */
+  public long getIoMillis() {
+    return ioNanos / 1000000;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%.1f%%, %d glyphs (%.1f/s), ETA %d ms, %d glyph bytes, %d font bytes,"
+        + " generation %d ms, serialization %d ms, I/O %d ms", fraction * 100, glyphCount,
+        getGlyphsPerSecond(), getRemainingMillis(), glyphBytes, fontBytes, getGenerationMillis(),
+        getSerializationMillis(), getIoMillis());
+  }
+}
@@ -1,5 +1,7 @@
 package kr.ac.kaist.team888.util;
 
+import kr.ac.kaist.team888.bezier.BezierCurveOffsetMethodType;
+import kr.ac.kaist.team888.bezier.PenType;
 import kr.ac.kaist.team888.mylittlefont.FontItem;
 
 import java.lang.ref.WeakReference;
@@ -37,6 +39,9 @@ public class FeatureController {
   private double arise = FontItem.DEFAULT_CONTROLS.getArise();
   private double gap = DEFAULT_GAP;
   private double slant = FontItem.DEFAULT_CONTROLS.getSlant();
+  private PenType pen = FontItem.DEFAULT_CONTROLS.getPen();
+  private BezierCurveOffsetMethodType offsetMethod = BezierCurveOffsetMethodType.TillerHanson;
+  private boolean mergingContours;
 
   /**
    * Interface for listening change of hangul features.
@@ -285,6 +290,70 @@ public class FeatureController {
     onFeatureChange();
   }
 
+  /**
+   * Getter of pen style.
+   *
+   * @return pen style
+   */
+  public PenType getPen() {
+    return pen;
+  }
+
+  /**
+   * Setter of pen style.
+   *
+   * @param pen pen style
+   */
+  public void setPen(PenType pen) {
+    this.pen = pen;
+    onFeatureChange();
+  }
+
+  /**
+   * Getter of offset method of strokes.
+   *
+   * <p>The offset method applies to every letter regardless of font items. With the
+   * Tiller-Hanson method, skeleton curves marked as adaptive are still offset adaptively.
+   *
+   * @return offset method of strokes
+   */
+  public BezierCurveOffsetMethodType getOffsetMethod() {
+    return offsetMethod;
+  }
+
+  /**
+   * Setter of offset method of strokes.
+   *
+   * @param offsetMethod offset method of strokes
+   */
+  public void setOffsetMethod(BezierCurveOffsetMethodType offsetMethod) {
+    this.offsetMethod = offsetMethod;
+    onFeatureChange();
+  }
+
+  /**
+   * Getter of whether exported glyphs merge overlapping contours of strokes.
+   *
+   * <p>Merging is off by default, since merged outlines have more points than the compacted
+   * contours of strokes, and merging costs more than generating the glyphs.
+   *
+   * @return whether exported glyphs merge contours
+   */
+  public boolean isMergingContours() {
+    return mergingContours;
+  }
+
+  /**
+   * Setter of whether exported glyphs merge overlapping contours of strokes.
+   *
+   * <p>Previews do not change, thus listeners are not notified.
+   *
+   * @param mergingContours whether exported glyphs merge contours
+   */
+  public void setMergingContours(boolean mergingContours) {
+    this.mergingContours = mergingContours;
+  }
+
   /**
    * Sets feature values as of the given font item in one swoop.
    *
@@ -302,9 +371,30 @@ public class FeatureController {
     flattening = fontItem.getFlattening();
     arise = fontItem.getArise();
     slant = fontItem.getSlant();
+    pen = fontItem.getPen();
     onFeatureChange();
   }
 
+  /**
+   * Returns the current feature values as a font item.
+   *
+   * @return a font item of the current feature values
+   * @see #setFeatures(FontItem)
+   */
+  public FontItem getFeatures() {
+    return new FontItem.FontItemBuilder()
+        .setCurve(curve)
+        .setRoundness(roundness)
+        .setWeight(weight)
+        .setContrast(contrast)
+        .setWidth(width)
+        .setFlattening(flattening)
+        .setArise(arise)
+        .setSlant(slant)
+        .setPen(pen)
+        .build();
+  }
+
   /**
    * Sets feature values as the initial setting.
    */
@@ -1,39 +1,91 @@
 package kr.ac.kaist.team888.util;
 
 import static kr.ac.kaist.team888.locator.Locator.SLANT_MAX;
+import static kr.ac.kaist.team888.locator.Locator.WIDTH_MAX;
+import static kr.ac.kaist.team888.locator.Locator.WIDTH_MIN;
+
+import com.google.gson.JsonElement;
 
 import android.os.AsyncTask;
 import android.os.Environment;
 
+import kr.ac.kaist.team888.bezier.AffineTransform2D;
 import kr.ac.kaist.team888.bezier.BezierCurve;
+import kr.ac.kaist.team888.bezier.BezierCurveOffsetMethodType;
+import kr.ac.kaist.team888.bezier.ContourCompactor;
+import kr.ac.kaist.team888.bezier.ContourUnion;
+import kr.ac.kaist.team888.bezier.PenType;
+import kr.ac.kaist.team888.bezier.StrokeMemo;
+import kr.ac.kaist.team888.font.GlyphOutline;
+import kr.ac.kaist.team888.font.TrueTypeWriter;
 import kr.ac.kaist.team888.hangulcharacter.CharacterLoader;
+import kr.ac.kaist.team888.hangulcharacter.HangulCharacter;
 import kr.ac.kaist.team888.locator.Locator;
+import kr.ac.kaist.team888.locator.TemplateStore;
+import kr.ac.kaist.team888.mylittlefont.FontItem;
 import kr.ac.kaist.team888.region.Region;
+import kr.ac.kaist.team888.util.ProgressMeter.Phase;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.FileInputStream;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 
-public class FontExporter extends AsyncTask<String, Double, File> {
+public class FontExporter extends AsyncTask<String, ExportProgress, File> {
   private static final String DEFAULT_FILE_PATH = "/MyLittleFont/";
+  private static final String GLYPH_STORE_EXTENSION = ".glyphs";
+  private static final String TEMPLATE_STORE_NAME = "Templates.store";
+  private static final String CHARSET = "UTF-8";
+  private static final String DIGEST_ALGORITHM = "SHA-1";
+  // Increase whenever generated glyphs change for the same inputs, to invalidate stored ones.
+  private static final int GLYPH_FORMAT_VERSION = 5;
   private static final String IP = "143.248.199.15";
   private static final int PORT = 3000;
+  /**
+   * A system property giving the address of the font server as <code>host:port</code>, used
+   * instead of the default server, such as a local
+   * {@link kr.ac.kaist.team888.daemon.GlyphDaemon} in tests.
+   */
+  public static final String SERVER_PROPERTY = "mylittlefont.server";
+  private static final int SERVER_TIMEOUT_MILLIS = 60000;
+  private static final int CANCEL_CHECK_INTERVAL_MILLIS = 500;
+  private static final long MAX_QUEUED_BYTES = 1 << 20;
+  private static final int QUEUED_HEAP_FRACTION = 16;
+  private static final int DOWNLOAD_CHUNK_SIZE = 1 << 16;
 
-  private static final int HANGUL_COMPATIBILITY_JAMO_START = 0x3130;
-  private static final int HANGUL_COMPATIBILITY_JAMO_END = 0x0318F;
-  private static final int HANGUL_SYLLABLES_START = 0xAC00;
-  private static final int HANGUL_SYLLABLES_END = 0xD7AF;
+  private static final int WEIGHT_AXIS = 0;
+  private static final int WIDTH_AXIS = 1;
+  private static final int SLANT_AXIS = 2;
+  private static final String[] AXIS_TAGS = {"wght", "wdth", "slnt"};
+  private static final String[] AXIS_NAMES = {"Weight", "Width", "Slant"};
+  private static final double WEIGHT_CLASS_MIN = 100;
+  private static final double WEIGHT_CLASS_MAX = 900;
+  private static final int SLANT_MAP_STEPS = 8;
 
   private String path;
   private String fontname;
   private File fontFile;
+  private File glyphStoreFile;
 
   private double curve;
   private double roundness;
@@ -44,13 +96,53 @@ public class FontExporter extends AsyncTask<String, Double, File> {
   private double arise;
   private double slant;
   private double gap;
+  private PenType pen;
+  private BezierCurveOffsetMethodType offsetMethod;
+  private boolean mergingContours;
   private ExportType exportType;
+  private String subsetText;
+  private OutputType outputType;
+  private boolean local;
+  private FontFileOutput fontOutput;
 
   private ExportCallbacks exportCallbacks;
 
+  private StrokeMemo strokeMemo = new StrokeMemo();
+  private ContourUnion contourUnion = new ContourUnion();
+  private ContourCompactor contourCompactor = new ContourCompactor();
+  private int removedPoints;
+  private GlyphStore glyphStore;
+  private String featureSnapshot;
+  private HashMap<String, byte[]> inputDigests = new HashMap<>();
+  private TrueTypeWriter writer;
+  private HashMap<GlyphOutline, Integer> components = new HashMap<>();
+  private int letterCount;
+  private ArrayList<double[]> masterControls = new ArrayList<>();
+  private ProgressMeter progressMeter = new ProgressMeter();
+
   public enum ExportType {
     PARTIAL,
-    ALL
+    ALL,
+    SUBSET
+  }
+
+  /**
+   * Format of the exported font.
+   */
+  public enum OutputType {
+    /**
+     * Simple glyphs, built by the font server, or written on the device by a batch export.
+     */
+    SIMPLE,
+    /**
+     * Composite glyphs sharing the outlines of characters as component glyphs, written on
+     * the device.
+     */
+    COMPOSITE,
+    /**
+     * A variable font with weight, width and slant axes, written on the device.
+     */
+    VARIABLE
   }
 
   /**
@@ -61,55 +153,220 @@ public class FontExporter extends AsyncTask<String, Double, File> {
    * @param exportCallbacks call backs on async task
    */
   public FontExporter(ExportType exportType, String fontname, ExportCallbacks exportCallbacks) {
+    this(exportType, fontname, exportCallbacks, OutputType.SIMPLE);
+  }
+
+  /**
+   * Class for export font synchronously.
+   *
+   * <p>For {@link OutputType#COMPOSITE}, each distinct outline of a character placed in
+   * a letter is written once as a component glyph, and letters are written as composite glyphs
+   * referring to their components by offsets.
+   *
+   * <p>For {@link OutputType#VARIABLE}, the current features are the default instance, and
+   * the extremes of weight, width and slant and their corners are the masters. Contours of
+   * a variable font are stroked with a fixed topology, and are neither merged nor compacted, so
+   * that the outlines of every master have the same points. The export fails if the outline of
+   * a letter at a master still differs in structure, rather than writing axes that do nothing.
+   *
+   * <p>Since the font server only accepts simple outlines, fonts other than
+   * {@link OutputType#SIMPLE} are written on the device.
+   *
+   * <p>The export can be cancelled by {@link #cancel(boolean)}, which is checked between glyphs
+   * and while waiting for the font server. A cancelled export ends with
+   * {@link #onCancelled(Object)} instead of {@link ExportCallbacks#onEnd(File)}. A cancelled or
+   * failed export deletes the partially written font and keeps the previous glyph store.
+   *
+   * @param exportType export type
+   * @param fontname name of font
+   * @param exportCallbacks call backs on async task
+   * @param outputType format of the font
+   */
+  public FontExporter(ExportType exportType, String fontname, ExportCallbacks exportCallbacks,
+                      OutputType outputType) {
+    this(FeatureController.getInstance().getFeatures(), FeatureController.getInstance().getGap(),
+        exportType, fontname, exportCallbacks, outputType);
+  }
+
+  /**
+   * Class for export font of the features of the font item.
+   *
+   * @param features feature values of the font
+   * @param gap gap between letters
+   * @param exportType export type
+   * @param fontname name of font
+   * @param exportCallbacks call backs on async task
+   * @param outputType format of the font
+   */
+  FontExporter(FontItem features, double gap, ExportType exportType, String fontname,
+               ExportCallbacks exportCallbacks, OutputType outputType) {
     this.exportType = exportType;
+    this.outputType = outputType;
     this.fontname = fontname;
     this.exportCallbacks = exportCallbacks;
 
-    this.curve = FeatureController.getInstance().getCurve();
-    this.roundness = FeatureController.getInstance().getRoundness();
-    this.weight = FeatureController.getInstance().getWeight();
-    this.contrast = FeatureController.getInstance().getContrast();
-    this.width = FeatureController.getInstance().getWidth();
-    this.flattening = FeatureController.getInstance().getFlattening();
-    this.arise = FeatureController.getInstance().getArise();
-    this.slant = FeatureController.getInstance().getSlant();
-    this.gap = FeatureController.getInstance().getGap();
+    this.curve = features.getCurve();
+    this.roundness = features.getRoundness();
+    this.weight = features.getWeight();
+    this.contrast = features.getContrast();
+    this.width = features.getWidth();
+    this.flattening = features.getFlattening();
+    this.arise = features.getArise();
+    this.slant = features.getSlant();
+    this.gap = gap;
+    this.pen = features.getPen();
+    this.offsetMethod = FeatureController.getInstance().getOffsetMethod();
+    this.mergingContours = FeatureController.getInstance().isMergingContours();
 
     path = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS)
         + DEFAULT_FILE_PATH + fontname + ".ttf";
     fontFile = new File(path);
+    glyphStoreFile = new File(
+        Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS)
+        + DEFAULT_FILE_PATH + fontname + GLYPH_STORE_EXTENSION);
   }
 
-  private String makeFontData(char letter) {
-    Locator locator = new Locator(letter, false);
+  /**
+   * Class for export font synchronously, containing only the letters of the given text.
+   *
+   * <p>The font has a glyph for each distinct drawable letter of the text, thus its size and
+   * the time to export it scale with the text rather than with the whole set of Hangul.
+   *
+   * @param subsetText text whose letters are exported
+   * @param fontname name of font
+   * @param exportCallbacks call backs on async task
+   */
+  public FontExporter(String subsetText, String fontname, ExportCallbacks exportCallbacks) {
+    this(subsetText, fontname, exportCallbacks, OutputType.SIMPLE);
+  }
 
+  /**
+   * Class for export font synchronously, containing only the letters of the given text.
+   *
+   * @param subsetText text whose letters are exported
+   * @param fontname name of font
+   * @param exportCallbacks call backs on async task
+   * @param outputType format of the font
+   * @see #FontExporter(ExportType, String, ExportCallbacks, OutputType)
+   */
+  public FontExporter(String subsetText, String fontname, ExportCallbacks exportCallbacks,
+                      OutputType outputType) {
+    this(ExportType.SUBSET, fontname, exportCallbacks, outputType);
+    this.subsetText = subsetText;
+  }
+
+  /**
+   * Reads a UTF-8 text file to export the font of its letters.
+   *
+   * @param file text file
+   * @return the content of the file
+   * @throws IOException if an I/O error occurs
+   */
+  public static String readSubsetText(File file) throws IOException {
+    StringBuilder builder = new StringBuilder();
+    BufferedReader reader = new BufferedReader(
+        new InputStreamReader(new FileInputStream(file), "UTF-8"));
+    try {
+      char[] buffer = new char[1 << 12];
+      int length;
+      while ((length = reader.read(buffer)) > 0) {
+        builder.append(buffer, 0, length);
+      }
+    } finally {
+      reader.close();
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Sets the subset of letters to export.
+   *
+   * @param subsetText text whose letters are exported
+   */
+  void setSubsetText(String subsetText) {
+    this.subsetText = subsetText;
+  }
+
+  /**
+   * Sets the memo of stroked contours, which may be shared by exporters running one after
+   * another on the same thread.
+   *
+   * @param strokeMemo memo of stroked contours
+   */
+  void setStrokeMemo(StrokeMemo strokeMemo) {
+    this.strokeMemo = strokeMemo;
+  }
+
+  /**
+   * Sets the meter of the export, which may be shared by exporters making up a single export.
+   *
+   * @param progressMeter meter of the export
+   */
+  void setProgressMeter(ProgressMeter progressMeter) {
+    this.progressMeter = progressMeter;
+  }
+
+  /**
+   * Applies the features to the locator, which may have been applied other features before.
+   *
+   * @param locator locator of a letter
+   * @return the locator
+   */
+  Locator applyFeatures(Locator locator) {
+    applyFeatures(locator, weight, width, false);
+    locator.applySlant(slant);
+    return locator;
+  }
+
+  /**
+   * Applies the features but the slant, which is applied by the transformation of
+   * {@link #makeGlyphTransform(Locator, Region, double)} instead. Contours are stroked with
+   * a fixed topology if they are to be interpolated with each other.
+   */
+  private void applyFeatures(Locator locator, double weight, double width,
+                             boolean fixedTopology) {
     locator.manipulateSkeleton(flattening, arise);
     locator.applyCurve(curve);
     locator.applyWidth(width);
-    locator.applyContour(weight, roundness, contrast);
-    locator.applySlant(slant);
+    locator.applyContour(weight, roundness, contrast, pen, offsetMethod, fixedTopology,
+        strokeMemo);
+  }
 
-    double slantRadian = slant * Math.PI / 2 * SLANT_MAX;
-    double maxX = locator.locatorRegion.getMaxX()
-        + (locator.locatorRegion.getMaxY() - locator.locatorRegion.getMinY())
-        / (Math.tan(Math.PI / 2 - slantRadian));
+  /**
+   * Returns the region of the glyph of the locator applied the features, whose width is
+   * the advance width of the glyph.
+   *
+   * @param locator locator applied the features
+   * @return the region of the glyph
+   */
+  Region makeRegion(Locator locator) {
+    return locator.getGlyphRegion(slant, gap);
+  }
 
-    double regionWidth = maxX - locator.locatorRegion.getMinX();
+  /**
+   * Returns the transformation of unslanted contours of the locator to font units, slanting them.
+   */
+  private static AffineTransform2D makeGlyphTransform(Locator locator, Region region,
+                                                      double slant) {
+    return locator.getSlantTransform(slant).then(locator.locatorRegion.getTransform(region));
+  }
 
-    double regionGap = regionWidth * gap;
-    Region region = new Region(0,
-        regionWidth + regionGap,
-        locator.locatorRegion.getMinY(),
-        locator.locatorRegion.getMaxY());
+  private String makeFontData(char letter, Locator locator) {
+    applyFeatures(locator, weight, width, false);
+    Region region = makeRegion(locator);
+    AffineTransform2D transform = makeGlyphTransform(locator, region, slant);
 
     String data = letter + "; ";
-    data += (regionWidth + regionGap) + "; ";
+    data += region.getMaxX() + "; ";
 
-    ArrayList<ArrayList<BezierCurve>> contour = locator.getContour();
+    ArrayList<ArrayList<BezierCurve>> contour = mergeContours(locator.getContour());
+    int removed = contourCompactor.compact(contour);
+    removedPoints += removed;
+    Alert.log(this, String.format("%c: %d points removed", letter, removed));
     for (ArrayList<BezierCurve> stroke : contour) {
       for (int pointIndex = 0; pointIndex < stroke.size(); pointIndex++) {
-        BezierCurve curve = locator.locatorRegion.transformBezierCurve(
-            region, stroke.get(pointIndex));
+        BezierCurve curve = stroke.get(pointIndex);
+        curve.transform(transform);
 
         if (pointIndex == 0) {
           data += String.format("%.2f ", curve.getStartPoint().getX());
@@ -135,11 +392,596 @@ public class FontExporter extends AsyncTask<String, Double, File> {
     return data;
   }
 
+  /**
+   * Makes the outlines of the characters of the letter moved to the origin, with their offsets.
+   *
+   * <p>The data holds the advance width, the number of outlines, and the offsets followed by
+   * the outline of each character.
+   */
+  private byte[] makeCompositeData(Locator locator) throws IOException {
+    applyFeatures(locator, weight, width, false);
+    Region region = makeRegion(locator);
+    AffineTransform2D transform = makeGlyphTransform(locator, region, slant);
+
+    ArrayList<GlyphOutline> outlines = new ArrayList<>();
+    for (ArrayList<ArrayList<BezierCurve>> contours : locator.getCharacterContours()) {
+      ArrayList<ArrayList<BezierCurve>> contour = mergeContours(contours);
+      removedPoints += contourCompactor.compact(contour);
+
+      GlyphOutline.Builder builder = new GlyphOutline.Builder();
+      addContours(builder, transform, contour);
+      GlyphOutline outline = builder.build();
+      if (outline.getPointCount() > 0) {
+        outlines.add(outline);
+      }
+    }
+
+    ByteArrayOutputStream data = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(data);
+    out.writeInt((int) Math.round(region.getMaxX()));
+    out.writeInt(outlines.size());
+    for (GlyphOutline outline : outlines) {
+      int offsetX = outline.getMinX();
+      int offsetY = outline.getMinY();
+      out.writeInt(offsetX);
+      out.writeInt(offsetY);
+      outline.translate(-offsetX, -offsetY).writeTo(out);
+    }
+    out.close();
+    return data.toByteArray();
+  }
+
+  /**
+   * Returns the contours merged by the union if merging is on, or the given contours.
+   */
+  private ArrayList<ArrayList<BezierCurve>> mergeContours(
+      ArrayList<ArrayList<BezierCurve>> contours) {
+    return mergingContours ? contourUnion.union(contours) : contours;
+  }
+
+  /**
+   * Makes the outline of the letter with compacted contours, with its advance width.
+   */
+  private byte[] makeSimpleData(Locator locator) throws IOException {
+    applyFeatures(locator, weight, width, false);
+    Region region = makeRegion(locator);
+
+    ArrayList<ArrayList<BezierCurve>> contour = mergeContours(locator.getContour());
+    removedPoints += contourCompactor.compact(contour);
+    GlyphOutline.Builder builder = new GlyphOutline.Builder();
+    addContours(builder, makeGlyphTransform(locator, region, slant), contour);
+
+    ByteArrayOutputStream data = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(data);
+    out.writeInt((int) Math.round(region.getMaxX()));
+    builder.build().writeTo(out);
+    out.close();
+    return data.toByteArray();
+  }
+
+  /**
+   * Makes the outlines of the letter at the default instance and at each master, with their
+   * advance widths.
+   */
+  private byte[] makeVariableData(Locator locator) throws IOException {
+    ByteArrayOutputStream data = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(data);
+    writeVariableOutline(out, locator, weight, width, slant);
+    out.writeInt(masterControls.size());
+    for (double[] controls : masterControls) {
+      writeVariableOutline(out, locator, controls[WEIGHT_AXIS], controls[WIDTH_AXIS],
+          controls[SLANT_AXIS]);
+    }
+    out.close();
+    return data.toByteArray();
+  }
+
+  private void writeVariableOutline(DataOutputStream out, Locator locator, double weight,
+                                    double width, double slant) throws IOException {
+    applyFeatures(locator, weight, width, true);
+    Region region = locator.getGlyphRegion(slant, gap);
+    GlyphOutline.Builder builder = new GlyphOutline.Builder().setMergingPoints(false);
+    addContours(builder, makeGlyphTransform(locator, region, slant), locator.getContour());
+    out.writeInt((int) Math.round(region.getMaxX()));
+    builder.build().writeTo(out);
+  }
+
+  /**
+   * Adds the contours to the outline, transforming them in place.
+   */
+  private static void addContours(GlyphOutline.Builder builder, AffineTransform2D transform,
+                                  ArrayList<ArrayList<BezierCurve>> contours) {
+    for (ArrayList<BezierCurve> stroke : contours) {
+      for (BezierCurve curve : stroke) {
+        curve.transform(transform);
+      }
+      builder.addContour(stroke);
+    }
+  }
+
+  /**
+   * Adds a simple glyph of the letter from the data made by {@link #makeSimpleData(Locator)}.
+   */
+  private void addSimpleGlyph(char letter, byte[] data) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+    int advanceWidth = in.readInt();
+    int glyph = writer.addGlyph(GlyphOutline.readFrom(in), advanceWidth);
+    writer.mapCharacter(letter, glyph);
+  }
+
+  /**
+   * Adds a glyph of the letter varying over the masters from the data made by
+   * {@link #makeVariableData(Locator)}.
+   *
+   * @throws IOException if the outline at a master differs in structure from the default one
+   */
+  private void addVariableGlyph(char letter, byte[] data)
+      throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+    int advanceWidth = in.readInt();
+    GlyphOutline outline = GlyphOutline.readFrom(in);
+    int count = in.readInt();
+    GlyphOutline[] masterOutlines = new GlyphOutline[count];
+    int[] masterAdvanceWidths = new int[count];
+    for (int i = 0; i < count; i++) {
+      masterAdvanceWidths[i] = in.readInt();
+      masterOutlines[i] = GlyphOutline.readFrom(in);
+      if (!masterOutlines[i].isCompatible(outline)) {
+        double[] controls = masterControls.get(i);
+        throw new IOException(String.format(
+            "outline of %c at weight %s, width %s and slant %s is not compatible", letter,
+            controls[WEIGHT_AXIS], controls[WIDTH_AXIS], controls[SLANT_AXIS]));
+      }
+    }
+
+    int glyph = writer.addGlyph(outline, advanceWidth, masterOutlines, masterAdvanceWidths);
+    writer.mapCharacter(letter, glyph);
+  }
+
+  /**
+   * Adds the weight, width and slant axes ranging over every value of the features, and adds
+   * a master at each extreme differing from the current features, followed by a master at each
+   * corner of two such extremes. Strokes are sheared and scaled after they are drawn, so that
+   * the corners carry what changes jointly, such as a long joint of a bold stroke being slanted.
+   */
+  private void addVariationAxes() {
+    double[] defaults = {weight, width, slant};
+    for (int axis = 0; axis < AXIS_TAGS.length; axis++) {
+      double minValue = getAxisValue(axis, 0);
+      double maxValue = getAxisValue(axis, 1);
+      writer.addAxis(AXIS_TAGS[axis], Math.min(minValue, maxValue),
+          getAxisValue(axis, defaults[axis]), Math.max(minValue, maxValue), AXIS_NAMES[axis]);
+    }
+    double[][] slantMap = getSlantAxisMap(slant);
+    writer.setAxisMap(SLANT_AXIS, slantMap[0], slantMap[1]);
+
+    masterControls.clear();
+    for (int axis = 0; axis < AXIS_TAGS.length; axis++) {
+      for (int control = 0; control <= 1; control++) {
+        if (control != defaults[axis]) {
+          double[] controls = defaults.clone();
+          controls[axis] = control;
+          addMaster(defaults, controls);
+        }
+      }
+    }
+    for (int axis = 0; axis < AXIS_TAGS.length; axis++) {
+      for (int otherAxis = axis + 1; otherAxis < AXIS_TAGS.length; otherAxis++) {
+        for (int control = 0; control <= 1; control++) {
+          for (int otherControl = 0; otherControl <= 1; otherControl++) {
+            if (control != defaults[axis] && otherControl != defaults[otherAxis]) {
+              double[] controls = defaults.clone();
+              controls[axis] = control;
+              controls[otherAxis] = otherControl;
+              addMaster(defaults, controls);
+            }
+          }
+        }
+      }
+    }
+
+    addInstance("Regular", defaults);
+    String[] names = {"Light", "Bold"};
+    for (int i = 0; i < names.length; i++) {
+      if (defaults[WEIGHT_AXIS] != i) {
+        double[] controls = defaults.clone();
+        controls[WEIGHT_AXIS] = i;
+        addInstance(names[i], controls);
+      }
+    }
+    if (defaults[SLANT_AXIS] != 1) {
+      double[] controls = defaults.clone();
+      controls[SLANT_AXIS] = 1;
+      addInstance("Italic", controls);
+    }
+  }
+
+  private void addMaster(double[] defaults, double[] controls) {
+    double[] location = new double[controls.length];
+    for (int axis = 0; axis < controls.length; axis++) {
+      double value = getAxisValue(axis, controls[axis]);
+      double defaultValue = getAxisValue(axis, defaults[axis]);
+      location[axis] = value == defaultValue ? 0 : value < defaultValue ? -1 : 1;
+    }
+    writer.addMaster(location);
+    masterControls.add(controls);
+  }
+
+  private void addInstance(String name, double[] controls) {
+    double[] coordinates = new double[controls.length];
+    for (int axis = 0; axis < controls.length; axis++) {
+      coordinates[axis] = getAxisValue(axis, controls[axis]);
+    }
+    writer.addInstance(name, coordinates);
+  }
+
+  /**
+   * Returns the user value of the axis for the feature value, which is the weight class,
+   * the width in percent or the slant angle in counter-clockwise degrees.
+   */
+  private static double getAxisValue(int axis, double control) {
+    switch (axis) {
+      case WEIGHT_AXIS:
+        return WEIGHT_CLASS_MIN + (WEIGHT_CLASS_MAX - WEIGHT_CLASS_MIN) * control;
+      case WIDTH_AXIS:
+        return 100 * ((WIDTH_MAX - WIDTH_MIN) * control + WIDTH_MIN);
+      default:
+        return -90 * SLANT_MAX * control;
+    }
+  }
+
+  /**
+   * Returns the map of normalized values of the slant axis.
+   *
+   * <p>Letters are sheared by the tangent of the slant angle, which is not linear in
+   * the angle. The map makes the interpolated shear equal to the tangent at any angle, and
+   * advance widths, which are linear in the tangent, exact as well.
+   */
+  private static double[][] getSlantAxisMap(double slant) {
+    double[] from = new double[2 * SLANT_MAP_STEPS + 1];
+    double[] to = new double[2 * SLANT_MAP_STEPS + 1];
+    double tangent = getSlantTangent(slant);
+    for (int i = 0; i <= SLANT_MAP_STEPS; i++) {
+      double ratio = i / (double) SLANT_MAP_STEPS;
+      // Slant increases toward the negative end of the axis.
+      from[SLANT_MAP_STEPS - i] = -ratio;
+      to[SLANT_MAP_STEPS - i] = slant == 1 ? -ratio
+          : -(getSlantTangent(slant + (1 - slant) * ratio) - tangent)
+          / (getSlantTangent(1) - tangent);
+      from[SLANT_MAP_STEPS + i] = ratio;
+      to[SLANT_MAP_STEPS + i] = slant == 0 ? ratio
+          : (tangent - getSlantTangent(slant - slant * ratio)) / tangent;
+    }
+    return new double[][] {from, to};
+  }
+
+  private static double getSlantTangent(double slant) {
+    return Math.tan(slant * Math.PI / 2 * SLANT_MAX);
+  }
+
+  /**
+   * Adds a composite glyph of the letter from the data made by
+   * {@link #makeCompositeData(Locator)}.
+   *
+   * <p>Outlines are compared after rounding, thus a component is shared only by characters
+   * whose outlines are identical in font units. Components are placed by offsets without
+   * scaling, since the stroke weight would change if an outline were scaled.
+   */
+  private void addCompositeGlyph(char letter, byte[] data) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+    int advanceWidth = in.readInt();
+    int count = in.readInt();
+    int[] indices = new int[count];
+    int[] offsetsX = new int[count];
+    int[] offsetsY = new int[count];
+    for (int i = 0; i < count; i++) {
+      offsetsX[i] = in.readInt();
+      offsetsY[i] = in.readInt();
+      GlyphOutline component = GlyphOutline.readFrom(in);
+      Integer index = components.get(component);
+      if (index == null) {
+        index = writer.addGlyph(component, 0);
+        components.put(component, index);
+      }
+      indices[i] = index;
+    }
+
+    int glyph = writer.addCompositeGlyph(indices, offsetsX, offsetsY, advanceWidth);
+    writer.mapCharacter(letter, glyph);
+  }
+
+  /**
+   * Returns the glyph data of the letter, loading it from the glyph store if the inputs of
+   * the letter have not changed since the last export.
+   */
+  private byte[] getGlyphData(char letter) throws IOException {
+    Phase previous = progressMeter.begin(Phase.GENERATION);
+    String hash = getContentHash(letter);
+    byte[] data = loadGlyphData(hash);
+    if (data == null) {
+      data = makeGlyphData(hash, letter, new Locator(letter, false));
+    }
+    progressMeter.end(previous);
+    return data;
+  }
+
+  /**
+   * Returns the stored glyph data of the hash, or <code>null</code> if not stored.
+   *
+   * @param hash hash of the inputs of the glyph
+   * @return the glyph data, or <code>null</code> if not stored
+   * @throws IOException if an I/O error occurs
+   * @see #getContentHash(char)
+   */
+  byte[] loadGlyphData(String hash) throws IOException {
+    Phase previous = progressMeter.begin(Phase.IO);
+    byte[] data = glyphStore.load(hash);
+    progressMeter.end(previous);
+    return data;
+  }
+
+  /**
+   * Makes the glyph data of the letter by applying the features to the locator, and saves it
+   * to the glyph store.
+   *
+   * @param hash hash of the inputs of the glyph
+   * @param letter letter of the glyph
+   * @param locator locator of the letter, which may have been applied other features before
+   * @return the glyph data
+   * @throws IOException if an I/O error occurs
+   */
+  byte[] makeGlyphData(String hash, char letter, Locator locator) throws IOException {
+    byte[] data;
+    switch (outputType) {
+      case COMPOSITE:
+        data = makeCompositeData(locator);
+        break;
+      case VARIABLE:
+        data = makeVariableData(locator);
+        break;
+      default:
+        data = local ? makeSimpleData(locator) : makeFontData(letter, locator).getBytes(CHARSET);
+        break;
+    }
+    Phase previous = progressMeter.begin(Phase.IO);
+    glyphStore.save(hash, data);
+    progressMeter.end(previous);
+    return data;
+  }
+
+  /**
+   * Returns the hash of everything the glyph of the letter depends on: the skeleton data of its
+   * characters, its base locator data and the feature values.
+   *
+   * @param letter letter of the glyph
+   * @return the hash of the inputs of the glyph
+   * @throws IOException if an I/O error occurs
+   */
+  String getContentHash(char letter) throws IOException {
+    MessageDigest digest = newDigest();
+    digest.update(featureSnapshot.getBytes(CHARSET));
+    digest.update(String.valueOf(letter).getBytes(CHARSET));
+
+    ArrayList<HangulCharacter> characters = HangulDecomposer.decompose(letter);
+    for (HangulCharacter character : characters) {
+      String name = character.getClass().getSimpleName();
+      digest.update(getInputDigest(name, JsonLoader.getInstance().getCharData(name)));
+    }
+    if (characters.size() > 1) {
+      String key = characters.size() + characters.get(1).getClass().getSimpleName();
+      digest.update(getInputDigest(key, Locator.getBaseLocatorData(characters)));
+    }
+
+    StringBuilder hash = new StringBuilder();
+    for (byte value : digest.digest()) {
+      hash.append(String.format("%02x", value));
+    }
+    return hash.toString();
+  }
+
+  private byte[] getInputDigest(String key, JsonElement data) throws IOException {
+    byte[] inputDigest = inputDigests.get(key);
+    if (inputDigest == null) {
+      inputDigest = newDigest().digest(String.valueOf(data).getBytes(CHARSET));
+      inputDigests.put(key, inputDigest);
+    }
+    return inputDigest;
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance(DIGEST_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Returns every letter to export in order.
+   *
+   * @see HangulLetters#getLetters(ExportType, String)
+   */
+  ArrayList<Character> getLetters() {
+    return HangulLetters.getLetters(exportType, subsetText);
+  }
+
+  /**
+   * Opens the glyph store of the font, whose hashes depend on the features and the format.
+   */
+  private void openGlyphStore() throws IOException {
+    featureSnapshot = GLYPH_FORMAT_VERSION + "; " + outputType + "; " + local + "; " + curve
+        + "; " + roundness + "; " + weight + "; " + contrast + "; " + width + "; " + flattening
+        + "; " + arise + "; " + slant + "; " + gap + "; " + pen + "; " + offsetMethod + "; "
+        + mergingContours;
+    glyphStore = new GlyphStore(glyphStoreFile);
+  }
+
+  /**
+   * Opens the template store next to the skeleton data, so that locators of the export and
+   * of the UI after read located letters from it. The first export after the skeleton data
+   * changes builds the store again.
+   *
+   * <p>Letters are located as before if the store cannot be opened.
+   */
+  void openTemplateStore() {
+    File file = new File(
+        Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS)
+        + DEFAULT_FILE_PATH + TEMPLATE_STORE_NAME);
+    try {
+      TemplateStore.open(file);
+    } catch (IOException e) {
+      Alert.log(this, "Template store not opened: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Begins to write the font on the device, where glyphs are added by
+   * {@link #addGlyph(char, byte[])} and the font is written by {@link #finishLocalExport()}.
+   *
+   * @throws IOException if the glyph store cannot be opened
+   */
+  void beginLocalExport() throws IOException {
+    local = true;
+    openGlyphStore();
+    openTemplateStore();
+    Region origin = HangulCharacter.ORIGIN_REGION;
+    writer = new TrueTypeWriter(fontname,
+        (int) Math.round(origin.getMaxY() - origin.getMinY()),
+        (int) Math.round(origin.getMaxY()), (int) Math.round(origin.getMinY()));
+    if (outputType == OutputType.VARIABLE) {
+      addVariationAxes();
+    }
+  }
+
+  /**
+   * Adds the glyph of the letter to the font being written on the device.
+   *
+   * @param letter letter of the glyph
+   * @param data glyph data of the letter
+   * @throws IOException if the glyph data is corrupted
+   */
+  void addGlyph(char letter, byte[] data) throws IOException {
+    Phase previous = progressMeter.begin(Phase.SERIALIZATION);
+    switch (outputType) {
+      case COMPOSITE:
+        addCompositeGlyph(letter, data);
+        break;
+      case VARIABLE:
+        addVariableGlyph(letter, data);
+        break;
+      default:
+        addSimpleGlyph(letter, data);
+        break;
+    }
+    progressMeter.end(previous);
+    progressMeter.addGlyph(data.length);
+    letterCount++;
+  }
+
+  /**
+   * Writes the font on the device and keeps its glyphs in the glyph store.
+   *
+   * @return the font file
+   * @throws IOException if an I/O error occurs
+   */
+  File finishLocalExport() throws IOException {
+    switch (outputType) {
+      case COMPOSITE:
+        Alert.log(this, String.format("%d components shared by %d glyphs, %d points removed",
+            components.size(), letterCount, removedPoints));
+        break;
+      case VARIABLE:
+        Alert.log(this, String.format("%d glyphs over %d masters", letterCount,
+            masterControls.size()));
+        break;
+      default:
+        Alert.log(this, String.format("%d glyphs, %d points removed", letterCount,
+            removedPoints));
+        break;
+    }
+    logStrokeMemo();
+
+    Phase previous = progressMeter.begin(Phase.IO);
+    fontOutput = new FontFileOutput(fontFile);
+    FileChannel channel = fontOutput.getChannel();
+    writer.write(channel);
+    progressMeter.addFontBytes(channel.position());
+    fontOutput.commit();
+    commitGlyphStore();
+    progressMeter.end(previous);
+    return fontFile;
+  }
+
+  /**
+   * Replaces the glyph store by the glyphs of the export, after the font file is replaced.
+   *
+   * <p>The store only saves regenerating glyphs, so the export still succeeds with the previous
+   * store if the new one cannot be committed.
+   */
+  private void commitGlyphStore() {
+    try {
+      glyphStore.commit();
+    } catch (IOException e) {
+      glyphStore.abort();
+      Alert.log(this, "Glyph store not updated: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Discards the glyphs generated by the export and the partially written font, keeping
+   * the previous glyph store and font file.
+   */
+  void abortExport() {
+    if (glyphStore != null) {
+      glyphStore.abort();
+    }
+    if (fontOutput != null) {
+      fontOutput.abort();
+    }
+  }
+
+  private File exportLocally() throws IOException {
+    progressMeter.start();
+    beginLocalExport();
+    ArrayList<Character> letters = getLetters();
+    for (int i = 0; i < letters.size(); i++) {
+      char letter = letters.get(i);
+      checkCancelled();
+      if (CharacterLoader.getInstance().isDrawable(letter)) {
+        addGlyph(letter, getGlyphData(letter));
+      }
+      reportProgress(0.9 * (i + 1) / letters.size());
+    }
+    File file = finishLocalExport();
+    reportProgress(1.0);
+    return file;
+  }
+
+  /**
+   * Publishes the progress, unless the last one has been published too recently.
+   */
+  private void reportProgress(double fraction) {
+    ExportProgress progress = progressMeter.poll(fraction);
+    if (progress != null) {
+      publishProgress(progress);
+    }
+  }
+
+  private void logStrokeMemo() {
+    Alert.log(this, String.format("strokes reused: %d hits, %d misses (%.1f%%)",
+        strokeMemo.getHitCount(), strokeMemo.getMissCount(), strokeMemo.getHitRate() * 100));
+    Alert.log(this, String.format("glyphs reused: %d, regenerated: %d",
+        glyphStore.getHitCount(), glyphStore.getMissCount()));
+  }
+
   @Override
-  protected void onProgressUpdate(Double... values) {
+  protected void onProgressUpdate(ExportProgress... values) {
     super.onProgressUpdate(values);
     if (exportCallbacks != null) {
-      exportCallbacks.onProgress(values[0]);
+      exportCallbacks.onProgress(values[0].getFraction());
+      if (exportCallbacks instanceof ExportProgressCallbacks) {
+        ((ExportProgressCallbacks) exportCallbacks).onProgress(values[0]);
+      }
     }
   }
 
@@ -153,9 +995,41 @@ public class FontExporter extends AsyncTask<String, Double, File> {
 
   @Override
   protected File doInBackground(String... params) {
-    Socket socket;
     try {
-      socket = new Socket(IP, PORT);
+      if (outputType != OutputType.SIMPLE) {
+        return exportLocally();
+      }
+      return exportByServer();
+    } catch (IOException e) {
+      e.printStackTrace();
+      abortExport();
+    } catch (RuntimeException e) {
+      // Keeps the previous font and glyph store before the task fails.
+      abortExport();
+      throw e;
+    }
+    return null;
+  }
+
+  /**
+   * Sends the glyphs to the font server and downloads the font built by the server.
+   *
+   * <p>Glyphs are sent by another thread through a {@link GlyphQueue}, so that a slow server
+   * holds back the generation within the memory budget. The socket is closed and the thread
+   * ends however the export ends.
+   */
+  private File exportByServer() throws IOException {
+    progressMeter.start();
+    Phase previous = progressMeter.begin(Phase.IO);
+    openGlyphStore();
+    openTemplateStore();
+
+    Socket socket = new Socket();
+    GlyphQueue queue = new GlyphQueue(getMemoryBudget());
+    Thread sender = null;
+    try {
+      socket.connect(getServerAddress(), SERVER_TIMEOUT_MILLIS);
+      socket.setSoTimeout(CANCEL_CHECK_INTERVAL_MILLIS);
       BufferedWriter networkWriter = new BufferedWriter(
           new OutputStreamWriter(socket.getOutputStream()));
       PrintWriter out = new PrintWriter(networkWriter, true);
@@ -165,73 +1039,153 @@ public class FontExporter extends AsyncTask<String, Double, File> {
 //      out.println("가 ; 1040 ; 256 0, 512 512 512 0, 256 1024 512 1024, 0 512 0 1024, 256 0 0" +
 //          "0 ; 768 0, 1024 512 1024 0, 768 1024 1024 1024, 512 512 512 1024, 768 0 512 0");
 
-      int totalLength = HANGUL_COMPATIBILITY_JAMO_END - HANGUL_COMPATIBILITY_JAMO_START;
-      int progressCount = 0;
-      switch (exportType) {
-        case ALL:
-          // send UNICODE Syllables data
-          totalLength += HANGUL_SYLLABLES_END - HANGUL_SYLLABLES_START;
-          for (int i = HANGUL_SYLLABLES_START; i < HANGUL_SYLLABLES_END; i++) {
-            progressCount++;
-            if (CharacterLoader.getInstance().isDrawable((char)i)) {
-              out.println(makeFontData((char)i));
-            }
-            publishProgress(0.9 * progressCount / totalLength);
-          }
-          break;
-        case PARTIAL:
-          // send KS5601 Sysllables data
-          totalLength += KS5601.length;
-          for (char letter : KS5601) {
-            progressCount++;
-            if (CharacterLoader.getInstance().isDrawable(letter)) {
-              out.println(makeFontData(letter));
-            }
-            publishProgress(0.9 * progressCount / totalLength);
-          }
-          break;
-        default:
-          break;
-      }
-
-      // send Compatibility jamo data
-      for (int i = HANGUL_COMPATIBILITY_JAMO_START; i < HANGUL_COMPATIBILITY_JAMO_END; i++) {
-        progressCount++;
-        if (CharacterLoader.getInstance().isDrawable((char)i)) {
-          out.println(makeFontData((char)i));
+      sender = startSender(queue, out);
+      ArrayList<Character> letters = getLetters();
+      for (int i = 0; i < letters.size(); i++) {
+        checkCancelled();
+        char letter = letters.get(i);
+        if (CharacterLoader.getInstance().isDrawable(letter)) {
+          byte[] data = getGlyphData(letter);
+          queue.put(data);
+          progressMeter.addGlyph(data.length);
         }
-        publishProgress(0.9 * progressCount / totalLength);
+        reportProgress(0.9 * (i + 1) / letters.size());
+      }
+      queue.finish();
+      try {
+        sender.join();
+      } catch (InterruptedException e) {
+        throw new InterruptedIOException("Export cancelled");
       }
+      queue.checkState();
 
       out.println("$$");
+      if (out.checkError()) {
+        throw new IOException("Cannot send glyphs to the font server");
+      }
+      Alert.log(this, String.format("%d points removed in total", removedPoints));
+      logStrokeMemo();
 
-      byte[] bytes = new byte[1024];
+      byte[] bytes = new byte[DOWNLOAD_CHUNK_SIZE];
 
       InputStream inputStream = socket.getInputStream();
-      inputStream.read(bytes, 0, 8);
+      int headerLength = 0;
+      while (headerLength < 8) {
+        int readbyte = readFromServer(inputStream, bytes, headerLength, 8 - headerLength);
+        if (readbyte < 0) {
+          throw new IOException("Font server closed the connection");
+        }
+        headerLength += readbyte;
+      }
       ByteBuffer buffer = ByteBuffer.allocate(8);
       buffer.put(bytes, 0, 8);
       buffer.flip();
       long fileLength = buffer.getLong();
 
-      FileOutputStream fileOutputStream = new FileOutputStream(fontFile);
+      fontOutput = new FontFileOutput(fontFile);
       int readbyte;
       int totalReadByte = 0;
 
-      while ((readbyte = inputStream.read(bytes)) > 0) {
+      while ((readbyte = readFromServer(inputStream, bytes, 0, bytes.length)) > 0) {
         totalReadByte += readbyte;
-        publishProgress(0.9 + 0.1 * (totalReadByte / (double)fileLength));
-        fileOutputStream.write(bytes, 0, readbyte);
+        progressMeter.addFontBytes(readbyte);
+        reportProgress(0.9 + 0.1 * (totalReadByte / (double)fileLength));
+        fontOutput.write(bytes, 0, readbyte);
       }
-
-      fileOutputStream.close();
-      inputStream.close();
+      fontOutput.commit();
+      commitGlyphStore();
+    } finally {
+      queue.abort();
       socket.close();
-      return fontFile;
-    } catch (IOException e) {
-      e.printStackTrace();
+      if (sender != null) {
+        sender.interrupt();
+      }
+    }
+    progressMeter.end(previous);
+    reportProgress(1.0);
+    return fontFile;
+  }
+
+  /**
+   * Returns the address of the font server, which is the default server unless
+   * {@value #SERVER_PROPERTY} is set.
+   */
+  private static InetSocketAddress getServerAddress() throws IOException {
+    String address = System.getProperty(SERVER_PROPERTY);
+    if (address == null) {
+      return new InetSocketAddress(IP, PORT);
+    }
+    int separator = address.lastIndexOf(':');
+    try {
+      return new InetSocketAddress(address.substring(0, separator),
+          Integer.parseInt(address.substring(separator + 1)));
+    } catch (RuntimeException e) {
+      throw new IOException("Invalid font server address: " + address, e);
+    }
+  }
+
+  /**
+   * Starts a thread sending the glyph data of the queue to the font server, a line per glyph.
+   */
+  private Thread startSender(final GlyphQueue queue, final PrintWriter out) {
+    Thread sender = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          byte[] data;
+          while ((data = queue.take()) != null) {
+            out.println(new String(data, CHARSET));
+            if (out.checkError()) {
+              throw new IOException("Cannot send glyphs to the font server");
+            }
+          }
+        } catch (IOException e) {
+          queue.fail(e);
+        } catch (InterruptedException e) {
+          queue.abort();
+        }
+      }
+    }, fontname + " sender");
+    sender.start();
+    return sender;
+  }
+
+  /**
+   * Reads from the font server like {@link InputStream#read(byte[], int, int)}, checking
+   * cancellation while waiting, and fails if the server does not respond in time.
+   */
+  private int readFromServer(InputStream in, byte[] bytes, int offset, int length)
+      throws IOException {
+    long waited = 0;
+    while (true) {
+      checkCancelled();
+      try {
+        return in.read(bytes, offset, length);
+      } catch (SocketTimeoutException e) {
+        waited += CANCEL_CHECK_INTERVAL_MILLIS;
+        if (waited >= SERVER_TIMEOUT_MILLIS) {
+          throw e;
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the maximum number of bytes of glyph data held in memory waiting to be written,
+   * which is a fraction of the heap but at most {@value #MAX_QUEUED_BYTES} bytes.
+   */
+  private static long getMemoryBudget() {
+    return Math.max(1, Math.min(MAX_QUEUED_BYTES,
+        Runtime.getRuntime().maxMemory() / QUEUED_HEAP_FRACTION));
+  }
+
+  /**
+   * Throws an exception to end the export if it is cancelled, which is checked between glyphs.
+   */
+  private void checkCancelled() throws InterruptedIOException {
+    if (isCancelled()) {
+      throw new InterruptedIOException("Export cancelled");
     }
-    return null;
   }
 
   /**
@@ -253,44 +1207,25 @@ public class FontExporter extends AsyncTask<String, Double, File> {
     void onEnd(File file);
   }
 
-  public static final char[] KS5601 = ("가각간갇갈갉갊감갑값갓갔강갖갗같갚갛개객갠갤갬갭갯갰갱갸갹갼걀걋걍걔걘걜거"
-      + "걱건걷걸걺검겁것겄겅겆겉겊겋게겐겔겜겝겟겠겡겨격겪견겯결겸겹겻겼경곁계곈곌곕곗고곡곤곧골곪곬곯곰곱곳공곶과곽관괄괆괌괍괏"
-      + "광괘괜괠괩괬괭괴괵괸괼굄굅굇굉교굔굘굡굣구국군굳굴굵굶굻굼굽굿궁궂궈궉권궐궜궝궤궷귀귁귄귈귐귑귓규균귤그극근귿글긁금급긋"
-      + "긍긔기긱긴긷길긺김깁깃깅깆깊까깍깎깐깔깖깜깝깟깠깡깥깨깩깬깰깸깹깻깼깽꺄꺅꺌꺼꺽꺾껀껄껌껍껏껐껑께껙껜껨껫껭껴껸껼꼇꼈꼍"
-      + "꼐꼬꼭꼰꼲꼴꼼꼽꼿꽁꽂꽃꽈꽉꽐꽜꽝꽤꽥꽹꾀꾄꾈꾐꾑꾕꾜꾸꾹꾼꿀꿇꿈꿉꿋꿍꿎꿔꿜꿨꿩꿰꿱꿴꿸뀀뀁뀄뀌뀐뀔뀜뀝뀨끄끅끈끊끌끎"
-      + "끓끔끕끗끙끝끼끽낀낄낌낍낏낑나낙낚난낟날낡낢남납낫났낭낮낯낱낳내낵낸낼냄냅냇냈냉냐냑냔냘냠냥너넉넋넌널넒넓넘넙넛넜넝넣네"
-      + "넥넨넬넴넵넷넸넹녀녁년녈념녑녔녕녘녜녠노녹논놀놂놈놉놋농높놓놔놘놜놨뇌뇐뇔뇜뇝뇟뇨뇩뇬뇰뇹뇻뇽누눅눈눋눌눔눕눗눙눠눴눼뉘"
-      + "뉜뉠뉨뉩뉴뉵뉼늄늅늉느늑는늘늙늚늠늡늣능늦늪늬늰늴니닉닌닐닒님닙닛닝닢다닥닦단닫달닭닮닯닳담답닷닸당닺닻닿대댁댄댈댐댑댓"
-      + "댔댕댜더덕덖던덛덜덞덟덤덥덧덩덫덮데덱덴델뎀뎁뎃뎄뎅뎌뎐뎔뎠뎡뎨뎬도독돈돋돌돎돐돔돕돗동돛돝돠돤돨돼됐되된될됨됩됫됴두둑"
-      + "둔둘둠둡둣둥둬뒀뒈뒝뒤뒨뒬뒵뒷뒹듀듄듈듐듕드득든듣들듦듬듭듯등듸디딕딘딛딜딤딥딧딨딩딪따딱딴딸땀땁땃땄땅땋때땍땐땔땜땝땟"
-      + "땠땡떠떡떤떨떪떫떰떱떳떴떵떻떼떽뗀뗄뗌뗍뗏뗐뗑뗘뗬또똑똔똘똥똬똴뙈뙤뙨뚜뚝뚠뚤뚫뚬뚱뛔뛰뛴뛸뜀뜁뜅뜨뜩뜬뜯뜰뜸뜹뜻띄띈띌"
-      + "띔띕띠띤띨띰띱띳띵라락란랄람랍랏랐랑랒랖랗래랙랜랠램랩랫랬랭랴략랸럇량러럭런럴럼럽럿렀렁렇레렉렌렐렘렙렛렝려력련렬렴렵렷"
-      + "렸령례롄롑롓로록론롤롬롭롯롱롸롼뢍뢨뢰뢴뢸룀룁룃룅료룐룔룝룟룡루룩룬룰룸룹룻룽뤄뤘뤠뤼뤽륀륄륌륏륑류륙륜률륨륩륫륭르륵른"
-      + "를름릅릇릉릊릍릎리릭린릴림립릿링마막만많맏말맑맒맘맙맛망맞맡맣매맥맨맬맴맵맷맸맹맺먀먁먈먕머먹먼멀멂멈멉멋멍멎멓메멕멘멜"
-      + "멤멥멧멨멩며멱면멸몃몄명몇몌모목몫몬몰몲몸몹못몽뫄뫈뫘뫙뫼묀묄묍묏묑묘묜묠묩묫무묵묶문묻물묽묾뭄뭅뭇뭉뭍뭏뭐뭔뭘뭡뭣뭬뮈"
-      + "뮌뮐뮤뮨뮬뮴뮷므믄믈믐믓미믹민믿밀밂밈밉밋밌밍및밑바박밖밗반받발밝밞밟밤밥밧방밭배백밴밸뱀뱁뱃뱄뱅뱉뱌뱍뱐뱝버벅번벋벌벎"
-      + "범법벗벙벚베벡벤벧벨벰벱벳벴벵벼벽변별볍볏볐병볕볘볜보복볶본볼봄봅봇봉봐봔봤봬뵀뵈뵉뵌뵐뵘뵙뵤뵨부북분붇불붉붊붐붑붓붕붙"
-      + "붚붜붤붰붸뷔뷕뷘뷜뷩뷰뷴뷸븀븃븅브븍븐블븜븝븟비빅빈빌빎빔빕빗빙빚빛빠빡빤빨빪빰빱빳빴빵빻빼빽뺀뺄뺌뺍뺏뺐뺑뺘뺙뺨뻐뻑뻔"
-      + "뻗뻘뻠뻣뻤뻥뻬뼁뼈뼉뼘뼙뼛뼜뼝뽀뽁뽄뽈뽐뽑뽕뾔뾰뿅뿌뿍뿐뿔뿜뿟뿡쀼쁑쁘쁜쁠쁨쁩삐삑삔삘삠삡삣삥사삭삯산삳살삵삶삼삽삿샀상"
-      + "샅새색샌샐샘샙샛샜생샤샥샨샬샴샵샷샹섀섄섈섐섕서석섞섟선섣설섦섧섬섭섯섰성섶세섹센셀셈셉셋셌셍셔셕션셜셤셥셧셨셩셰셴셸솅"
-      + "소속솎손솔솖솜솝솟송솥솨솩솬솰솽쇄쇈쇌쇔쇗쇘쇠쇤쇨쇰쇱쇳쇼쇽숀숄숌숍숏숑수숙순숟술숨숩숫숭숯숱숲숴쉈쉐쉑쉔쉘쉠쉥쉬쉭쉰쉴"
-      + "쉼쉽쉿슁슈슉슐슘슛슝스슥슨슬슭슴습슷승시식신싣실싫심십싯싱싶싸싹싻싼쌀쌈쌉쌌쌍쌓쌔쌕쌘쌜쌤쌥쌨쌩썅써썩썬썰썲썸썹썼썽쎄쎈"
-      + "쎌쏀쏘쏙쏜쏟쏠쏢쏨쏩쏭쏴쏵쏸쐈쐐쐤쐬쐰쐴쐼쐽쑈쑤쑥쑨쑬쑴쑵쑹쒀쒔쒜쒸쒼쓩쓰쓱쓴쓸쓺쓿씀씁씌씐씔씜씨씩씬씰씸씹씻씽아악안앉"
-      + "않알앍앎앓암압앗았앙앝앞애액앤앨앰앱앳앴앵야약얀얄얇얌얍얏양얕얗얘얜얠얩어억언얹얻얼얽얾엄업없엇었엉엊엌엎에엑엔엘엠엡엣"
-      + "엥여역엮연열엶엷염엽엾엿였영옅옆옇예옌옐옘옙옛옜오옥온올옭옮옰옳옴옵옷옹옻와왁완왈왐왑왓왔왕왜왝왠왬왯왱외왹왼욀욈욉욋욍"
-      + "요욕욘욜욤욥욧용우욱운울욹욺움웁웃웅워웍원월웜웝웠웡웨웩웬웰웸웹웽위윅윈윌윔윕윗윙유육윤율윰윱윳융윷으윽은을읊음읍읏응읒"
-      + "읓읔읕읖읗의읜읠읨읫이익인일읽읾잃임입잇있잉잊잎자작잔잖잗잘잚잠잡잣잤장잦재잭잰잴잼잽잿쟀쟁쟈쟉쟌쟎쟐쟘쟝쟤쟨쟬저적전절"
-      + "젊점접젓정젖제젝젠젤젬젭젯젱져젼졀졈졉졌졍졔조족존졸졺좀좁좃종좆좇좋좌좍좔좝좟좡좨좼좽죄죈죌죔죕죗죙죠죡죤죵주죽준줄줅줆"
-      + "줌줍줏중줘줬줴쥐쥑쥔쥘쥠쥡쥣쥬쥰쥴쥼즈즉즌즐즘즙즛증지직진짇질짊짐집짓징짖짙짚짜짝짠짢짤짧짬짭짯짰짱째짹짼쨀쨈쨉쨋쨌쨍쨔"
-      + "쨘쨩쩌쩍쩐쩔쩜쩝쩟쩠쩡쩨쩽쪄쪘쪼쪽쫀쫄쫌쫍쫏쫑쫓쫘쫙쫠쫬쫴쬈쬐쬔쬘쬠쬡쭁쭈쭉쭌쭐쭘쭙쭝쭤쭸쭹쮜쮸쯔쯤쯧쯩찌찍찐찔찜찝찡찢"
-      + "찧차착찬찮찰참찹찻찼창찾채책챈챌챔챕챗챘챙챠챤챦챨챰챵처척천철첨첩첫첬청체첵첸첼쳄쳅쳇쳉쳐쳔쳤쳬쳰촁초촉촌촐촘촙촛총촤촨"
-      + "촬촹최쵠쵤쵬쵭쵯쵱쵸춈추축춘출춤춥춧충춰췄췌췐취췬췰췸췹췻췽츄츈츌츔츙츠측츤츨츰츱츳층치칙친칟칠칡침칩칫칭카칵칸칼캄캅캇"
-      + "캉캐캑캔캘캠캡캣캤캥캬캭컁커컥컨컫컬컴컵컷컸컹케켁켄켈켐켑켓켕켜켠켤켬켭켯켰켱켸코콕콘콜콤콥콧콩콰콱콴콸쾀쾅쾌쾡쾨쾰쿄쿠"
-      + "쿡쿤쿨쿰쿱쿳쿵쿼퀀퀄퀑퀘퀭퀴퀵퀸퀼큄큅큇큉큐큔큘큠크큭큰클큼큽킁키킥킨킬킴킵킷킹타탁탄탈탉탐탑탓탔탕태택탠탤탬탭탯탰탱탸"
-      + "턍터턱턴털턺텀텁텃텄텅테텍텐텔템텝텟텡텨텬텼톄톈토톡톤톨톰톱톳통톺톼퇀퇘퇴퇸툇툉툐투툭툰툴툼툽툿퉁퉈퉜퉤튀튁튄튈튐튑튕튜"
-      + "튠튤튬튱트특튼튿틀틂틈틉틋틔틘틜틤틥티틱틴틸팀팁팃팅파팍팎판팔팖팜팝팟팠팡팥패팩팬팰팸팹팻팼팽퍄퍅퍼퍽펀펄펌펍펏펐펑페펙"
-      + "펜펠펨펩펫펭펴편펼폄폅폈평폐폘폡폣포폭폰폴폼폽폿퐁퐈퐝푀푄표푠푤푭푯푸푹푼푿풀풂품풉풋풍풔풩퓌퓐퓔퓜퓟퓨퓬퓰퓸퓻퓽프픈플"
-      + "픔픕픗피픽핀필핌핍핏핑하학한할핥함합핫항해핵핸핼햄햅햇했행햐향허헉헌헐헒험헙헛헝헤헥헨헬헴헵헷헹혀혁현혈혐협혓혔형혜혠혤"
-      + "혭호혹혼홀홅홈홉홋홍홑화확환활홧황홰홱홴횃횅회획횐횔횝횟횡효횬횰횹횻후훅훈훌훑훔훗훙훠훤훨훰훵훼훽휀휄휑휘휙휜휠휨휩휫휭"
-      + "휴휵휸휼흄흇흉흐흑흔흖흗흘흙흠흡흣흥흩희흰흴흼흽힁히힉힌힐힘힙힛힝").toCharArray();
+  /**
+   * Interface for getting detailed reports of exporting progress.
+   *
+   * <p>Reports are throttled to at most one per
+   * {@value ProgressMeter#DEFAULT_INTERVAL_MILLIS} milliseconds, each following
+   * {@link #onProgress(double)} with the same fraction.
+   */
+  public interface ExportProgressCallbacks extends ExportCallbacks {
+    /**
+     * Callback during exporting.
+     *
+     * @param progress progress ahead of exporting with its throughput, remaining time, bytes
+     *     produced and time split
+     */
+    void onProgress(ExportProgress progress);
+  }
+
+  /**
+   * Hangul syllables of KS X 1001, which are the syllables of a partial export.
+   */
+  public static final char[] KS5601 = HangulLetters.KS5601;
 }
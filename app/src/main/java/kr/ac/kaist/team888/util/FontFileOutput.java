@@ -0,0 +1,125 @@
+package kr.ac.kaist.team888.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Output of a font file or another exported file, which is written to a temporary file next to
+ * it and moved into place only when complete.
+ *
+ * <p>The font file is replaced by renaming, thus it is either the previous font or the complete
+ * new one, even if the export fails or the process dies in the middle of writing. Bytes are
+ * written to a {@link FileChannel} through a large direct buffer.
+ */
+public class FontFileOutput {
+  private static final String TEMP_SUFFIX = ".tmp";
+  private static final int BUFFER_SIZE = 1 << 18;
+
+  private final File file;
+  private final File tempFile;
+  private FileOutputStream stream;
+  private FileChannel channel;
+  private ByteBuffer buffer;
+
+  /**
+   * Creates the temporary file of the font file.
+   *
+   * @param file font file to write
+   * @throws IOException if the temporary file cannot be created
+   */
+  public FontFileOutput(File file) throws IOException {
+    this.file = file;
+    tempFile = new File(file.getPath() + TEMP_SUFFIX);
+    File directory = file.getAbsoluteFile().getParentFile();
+    if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Cannot create " + directory);
+    }
+    stream = new FileOutputStream(tempFile);
+    channel = stream.getChannel();
+  }
+
+  /**
+   * Returns the channel of the temporary file, to be written after the buffered bytes.
+   *
+   * @return the channel of the temporary file
+   * @throws IOException if an I/O error occurs writing the buffered bytes
+   */
+  public FileChannel getChannel() throws IOException {
+    flush();
+    return channel;
+  }
+
+  /**
+   * Writes the bytes through the buffer.
+   *
+   * @param data bytes to write
+   * @param offset offset of the bytes in <code>data</code>
+   * @param length number of bytes to write
+   * @throws IOException if an I/O error occurs
+   */
+  public void write(byte[] data, int offset, int length) throws IOException {
+    if (buffer == null) {
+      buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+    while (length > 0) {
+      if (!buffer.hasRemaining()) {
+        flush();
+      }
+      int count = Math.min(length, buffer.remaining());
+      buffer.put(data, offset, count);
+      offset += count;
+      length -= count;
+    }
+  }
+
+  /**
+   * Syncs the temporary file to the storage and moves it into place of the font file.
+   *
+   * <p>The font file is replaced by a single rename, which is atomic on Android. If the rename
+   * fails, the temporary file is deleted and the previous font file is kept, rather than
+   * deleting the font file first and leaving no font if the second rename fails too.
+   *
+   * @throws IOException if an I/O error occurs, or if the font file cannot be replaced
+   */
+  public void commit() throws IOException {
+    flush();
+    channel.force(true);
+    stream.close();
+    stream = null;
+    if (!tempFile.renameTo(file)) {
+      abort();
+      throw new IOException("Cannot replace " + file);
+    }
+  }
+
+  /**
+   * Deletes the temporary file, keeping the previous font file.
+   */
+  public void abort() {
+    try {
+      if (stream != null) {
+        stream.close();
+      }
+    } catch (IOException e) {
+      Alert.log(this, e.getMessage());
+    }
+    stream = null;
+    if (tempFile.exists() && !tempFile.delete()) {
+      Alert.log(this, "Cannot delete " + tempFile);
+    }
+  }
+
+  private void flush() throws IOException {
+    if (buffer == null || buffer.position() == 0) {
+      return;
+    }
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+}
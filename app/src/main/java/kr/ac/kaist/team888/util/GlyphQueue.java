@@ -0,0 +1,132 @@
+package kr.ac.kaist.team888.util;
+
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+
+/**
+ * Queue of glyph data between the thread generating glyphs and the thread writing them out,
+ * bounded by the total size of the queued data.
+ *
+ * <p>{@link #put(byte[])} blocks while the queued data would exceed the memory budget, so that
+ * a slow writer holds back the generation instead of letting the queue grow without bound.
+ * A single glyph larger than the budget is still accepted into an empty queue.
+ *
+ * <p>A failure of the writer is passed to the generating thread by {@link #fail(IOException)},
+ * and thrown by the next {@link #put(byte[])} or {@link #checkState()}. {@link #abort()}
+ * releases both threads, discarding the queued data.
+ */
+class GlyphQueue {
+  private final long budget;
+  private final ArrayDeque<byte[]> entries = new ArrayDeque<>();
+  private long size;
+  private boolean finished;
+  private boolean aborted;
+  private IOException failure;
+
+  /**
+   * Creates a new queue holding at most the given number of bytes.
+   *
+   * @param budget maximum total size of the queued data in bytes
+   * @throws NotStrictlyPositiveException if <code>budget</code> is not positive
+   */
+  GlyphQueue(long budget) throws NotStrictlyPositiveException {
+    if (budget <= 0) {
+      throw new NotStrictlyPositiveException(budget);
+    }
+    this.budget = budget;
+  }
+
+  /**
+   * Appends the glyph data, waiting while the queue is over the budget.
+   *
+   * @param data glyph data
+   * @throws IOException if the writer has failed
+   * @throws InterruptedIOException if the thread is interrupted or the queue is aborted
+   */
+  synchronized void put(byte[] data) throws IOException {
+    while (!entries.isEmpty() && size + data.length > budget && failure == null && !aborted) {
+      waitInterruptibly();
+    }
+    checkState();
+    entries.addLast(data);
+    size += data.length;
+    notifyAll();
+  }
+
+  /**
+   * Marks that no more glyph data will be put, so that {@link #take()} returns
+   * <code>null</code> once the queue is drained.
+   */
+  synchronized void finish() {
+    finished = true;
+    notifyAll();
+  }
+
+  /**
+   * Throws the failure of the writer if any.
+   *
+   * @throws IOException if the writer has failed
+   * @throws InterruptedIOException if the queue is aborted
+   */
+  synchronized void checkState() throws IOException {
+    if (failure != null) {
+      throw failure;
+    }
+    if (aborted) {
+      throw new InterruptedIOException("Glyph queue aborted");
+    }
+  }
+
+  /**
+   * Removes the first glyph data, waiting while the queue is empty.
+   *
+   * @return the glyph data, or <code>null</code> if all data has been taken after
+   *     {@link #finish()} or the queue is aborted
+   * @throws InterruptedException if the thread is interrupted
+   */
+  synchronized byte[] take() throws InterruptedException {
+    while (entries.isEmpty() && !finished && !aborted) {
+      wait();
+    }
+    if (aborted || entries.isEmpty()) {
+      return null;
+    }
+    byte[] data = entries.removeFirst();
+    size -= data.length;
+    notifyAll();
+    return data;
+  }
+
+  /**
+   * Passes the failure of the writer to the generating thread.
+   *
+   * @param failure failure of the writer
+   */
+  synchronized void fail(IOException failure) {
+    if (this.failure == null) {
+      this.failure = failure;
+    }
+    notifyAll();
+  }
+
+  /**
+   * Discards the queued data and releases the waiting threads.
+   */
+  synchronized void abort() {
+    aborted = true;
+    entries.clear();
+    size = 0;
+    notifyAll();
+  }
+
+  private void waitInterruptibly() throws InterruptedIOException {
+    try {
+      wait();
+    } catch (InterruptedException e) {
+      throw new InterruptedIOException("Interrupted while queueing glyphs");
+    }
+  }
+}
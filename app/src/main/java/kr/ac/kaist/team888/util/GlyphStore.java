@@ -0,0 +1,214 @@
+package kr.ac.kaist.team888.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Persistent store of glyph artifacts keyed by the hash of their inputs.
+ *
+ * <p>Artifacts are kept in a single pack file, which holds the artifacts followed by an index of
+ * their hashes and positions. An export opens the pack written by the previous export,
+ * loads the artifacts whose hashes are unchanged and saves the regenerated ones. Every artifact
+ * loaded or saved is written to a new pack, which replaces the previous one on
+ * {@link #commit()}. Thus the pack holds exactly the glyphs of the last export, and an export
+ * failed in the middle leaves the previous pack as it is.
+ *
+ * <p>Only the index is kept in memory.
+ */
+public class GlyphStore {
+  private static final int MAGIC = 0x4D4C4647;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 8;
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  private final File file;
+  private final File tempFile;
+  private final HashMap<String, long[]> index = new HashMap<>();
+  private final HashMap<String, long[]> newIndex = new HashMap<>();
+  private final HashSet<String> written = new HashSet<>();
+  private RandomAccessFile input;
+  private FileOutputStream fileOutput;
+  private DataOutputStream output;
+  private long outputSize;
+  private int hitCount;
+  private int missCount;
+
+  /**
+   * Opens the store of the pack file, reading the index of the previous pack if any.
+   *
+   * <p>A missing or corrupted pack is treated as an empty one.
+   *
+   * @param file pack file of the store
+   * @throws IOException if the new pack cannot be created
+   */
+  public GlyphStore(File file) throws IOException {
+    this.file = file;
+    tempFile = new File(file.getPath() + TEMP_SUFFIX);
+    if (file.isFile()) {
+      try {
+        input = new RandomAccessFile(file, "r");
+        readIndex();
+      } catch (IOException e) {
+        Alert.log(this, e.getMessage());
+        index.clear();
+        closeInput();
+      }
+    }
+
+    File directory = file.getAbsoluteFile().getParentFile();
+    if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Cannot create " + directory);
+    }
+    fileOutput = new FileOutputStream(tempFile);
+    output = new DataOutputStream(new BufferedOutputStream(fileOutput));
+    output.writeInt(MAGIC);
+    output.writeInt(VERSION);
+    outputSize = HEADER_SIZE;
+  }
+
+  /**
+   * Returns the artifact of the hash, or <code>null</code> if the previous pack does not have it.
+   *
+   * <p>A found artifact is kept in the new pack.
+   *
+   * @param hash hash of the inputs of the glyph
+   * @return the artifact, or <code>null</code> if not found
+   * @throws IOException if an I/O error occurs
+   */
+  public byte[] load(String hash) throws IOException {
+    long[] position = index.get(hash);
+    if (position == null) {
+      missCount++;
+      return null;
+    }
+    byte[] artifact = new byte[(int) position[1]];
+    input.seek(position[0]);
+    input.readFully(artifact);
+    hitCount++;
+    save(hash, artifact);
+    return artifact;
+  }
+
+  /**
+   * Saves the artifact of the hash into the new pack.
+   *
+   * @param hash hash of the inputs of the glyph
+   * @param artifact the artifact
+   * @throws IOException if an I/O error occurs
+   */
+  public void save(String hash, byte[] artifact) throws IOException {
+    if (!written.add(hash)) {
+      return;
+    }
+    newIndex.put(hash, new long[] {outputSize, artifact.length});
+    output.write(artifact);
+    outputSize += artifact.length;
+  }
+
+  /**
+   * Writes the index of the new pack and replaces the previous pack by it.
+   *
+   * <p>The new pack is synced to the storage and replaces the previous one by a single rename,
+   * as a font file is by {@link FontFileOutput}. If the rename fails, the new pack is deleted
+   * and the previous one is kept.
+   *
+   * @throws IOException if an I/O error occurs, or if the previous pack cannot be replaced
+   */
+  public void commit() throws IOException {
+    long indexPosition = outputSize;
+    output.writeInt(newIndex.size());
+    for (String hash : newIndex.keySet()) {
+      long[] position = newIndex.get(hash);
+      output.writeUTF(hash);
+      output.writeLong(position[0]);
+      output.writeInt((int) position[1]);
+    }
+    output.writeLong(indexPosition);
+    output.flush();
+    fileOutput.getFD().sync();
+    output.close();
+    output = null;
+    closeInput();
+    if (!tempFile.renameTo(file)) {
+      abort();
+      throw new IOException("Cannot replace " + file);
+    }
+  }
+
+  /**
+   * Discards the new pack, keeping the previous one.
+   */
+  public void abort() {
+    try {
+      if (output != null) {
+        output.close();
+      }
+    } catch (IOException e) {
+      Alert.log(this, e.getMessage());
+    }
+    output = null;
+    closeInput();
+    if (tempFile.exists() && !tempFile.delete()) {
+      Alert.log(this, "Cannot delete " + tempFile);
+    }
+  }
+
+  /**
+   * Returns the number of artifacts loaded from the previous pack.
+   *
+   * @return the number of hits
+   */
+  public int getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Returns the number of artifacts not found in the previous pack.
+   *
+   * @return the number of misses
+   */
+  public int getMissCount() {
+    return missCount;
+  }
+
+  private void readIndex() throws IOException {
+    if (input.length() < HEADER_SIZE + 12 || input.readInt() != MAGIC
+        || input.readInt() != VERSION) {
+      throw new IOException("Invalid glyph store " + file);
+    }
+    input.seek(input.length() - 8);
+    long indexPosition = input.readLong();
+    if (indexPosition < HEADER_SIZE || indexPosition > input.length() - 12) {
+      throw new IOException("Invalid glyph store " + file);
+    }
+    input.seek(indexPosition);
+    int count = input.readInt();
+    for (int i = 0; i < count; i++) {
+      String hash = input.readUTF();
+      long position = input.readLong();
+      int length = input.readInt();
+      if (position < HEADER_SIZE || length < 0 || position + length > indexPosition) {
+        throw new IOException("Invalid glyph store " + file);
+      }
+      index.put(hash, new long[] {position, length});
+    }
+  }
+
+  private void closeInput() {
+    if (input == null) {
+      return;
+    }
+    try {
+      input.close();
+    } catch (IOException e) {
+      Alert.log(this, e.getMessage());
+    }
+    input = null;
+  }
+}
@@ -20,6 +20,11 @@ import java.io.IOException;
 public class JsonLoader {
   // full path: /storage/emulated/0/Download/MyLittleFont/DefaultData.json
   private static final String DEFAULT_FILE_PATH = "/MyLittleFont/DefaultSkeleton.json";
+  /**
+   * A system property giving the path of the skeleton file, read instead of the default file
+   * when the data is used outside of Android, such as by a glyph daemon.
+   */
+  public static final String PATH_PROPERTY = "mylittlefont.skeleton";
   private static final String CHARACTERS_KEY = "characters";
   private static final String LOCATOR_KEY = "locator";
 
@@ -28,8 +33,11 @@ public class JsonLoader {
   private Gson gson;
 
   private JsonLoader() {
-    path = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS)
-        + DEFAULT_FILE_PATH;
+    path = System.getProperty(PATH_PROPERTY);
+    if (path == null) {
+      path = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS)
+          + DEFAULT_FILE_PATH;
+    }
     gson = new Gson();
     loadFile();
   }
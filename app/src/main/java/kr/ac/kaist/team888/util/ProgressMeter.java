@@ -0,0 +1,137 @@
+package kr.ac.kaist.team888.util;
+
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+
+/**
+ * Meter of an export, which splits the elapsed time across phases and throttles the progress
+ * reported to the UI thread.
+ *
+ * <p>The time between {@link #begin(Phase)} and {@link #end(Phase)} is charged to the phase.
+ * Phases nest, so that an I/O inside serialization is charged to I/O only. A snapshot is made
+ * by {@link #poll(double)} at most once per interval, except the last one.
+ *
+ * <p>A meter is not thread-safe.
+ */
+class ProgressMeter {
+  /**
+   * A default minimum interval between reports.
+   */
+  static final long DEFAULT_INTERVAL_MILLIS = 100;
+
+  /**
+   * Phases of an export the time is split into.
+   */
+  enum Phase {
+    GENERATION,
+    SERIALIZATION,
+    IO
+  }
+
+  private final long intervalNanos;
+  private final long[] phaseNanos = new long[Phase.values().length];
+  private long startTime = -1;
+  private long lastTime;
+  private long lastReportTime;
+  private Phase phase;
+  private int glyphCount;
+  private long glyphBytes;
+  private long fontBytes;
+
+  /**
+   * Creates a new meter reporting at most once per default interval.
+   */
+  ProgressMeter() {
+    this(DEFAULT_INTERVAL_MILLIS);
+  }
+
+  /**
+   * Creates a new meter reporting at most once per given interval.
+   *
+   * @param intervalMillis minimum interval between reports in milliseconds
+   * @throws NotStrictlyPositiveException if <code>intervalMillis</code> is not positive
+   */
+  ProgressMeter(long intervalMillis) throws NotStrictlyPositiveException {
+    if (intervalMillis <= 0) {
+      throw new NotStrictlyPositiveException(intervalMillis);
+    }
+    intervalNanos = intervalMillis * 1000000;
+  }
+
+  /**
+   * Starts measuring, unless already started.
+   */
+  void start() {
+    if (startTime < 0) {
+      startTime = System.nanoTime();
+      lastTime = startTime;
+      lastReportTime = startTime;
+    }
+  }
+
+  /**
+   * Begins the phase, charging the time so far to the current phase.
+   *
+   * @param phase phase to begin
+   * @return the current phase to be passed to {@link #end(Phase)}
+   */
+  Phase begin(Phase phase) {
+    Phase previous = this.phase;
+    charge();
+    this.phase = phase;
+    return previous;
+  }
+
+  /**
+   * Ends the current phase, returning to the previous phase.
+   *
+   * @param previous phase returned by {@link #begin(Phase)}
+   */
+  void end(Phase previous) {
+    charge();
+    phase = previous;
+  }
+
+  /**
+   * Counts a glyph added to a font.
+   *
+   * @param bytes size of the glyph data
+   */
+  void addGlyph(int bytes) {
+    glyphCount++;
+    glyphBytes += bytes;
+  }
+
+  /**
+   * Counts bytes of a font written or downloaded.
+   *
+   * @param bytes number of bytes
+   */
+  void addFontBytes(long bytes) {
+    fontBytes += bytes;
+  }
+
+  /**
+   * Returns a snapshot if the interval has passed since the last one or the export is done.
+   *
+   * @param fraction fraction of the export done
+   * @return the snapshot, or <code>null</code> if it is too early to report
+   */
+  ExportProgress poll(double fraction) {
+    charge();
+    if (fraction < 1 && lastTime - lastReportTime < intervalNanos) {
+      return null;
+    }
+    lastReportTime = lastTime;
+    return new ExportProgress(fraction, glyphCount, glyphBytes, fontBytes, lastTime - startTime,
+        phaseNanos[Phase.GENERATION.ordinal()], phaseNanos[Phase.SERIALIZATION.ordinal()],
+        phaseNanos[Phase.IO.ordinal()]);
+  }
+
+  private void charge() {
+    long now = System.nanoTime();
+    if (phase != null) {
+      phaseNanos[phase.ordinal()] += now - lastTime;
+    }
+    lastTime = now;
+  }
+}
@@ -0,0 +1,209 @@
+package kr.ac.kaist.team888.util;
+
+import android.os.AsyncTask;
+import android.os.Environment;
+
+import kr.ac.kaist.team888.font.SvgWriter;
+import kr.ac.kaist.team888.font.SvgWriter.Layout;
+import kr.ac.kaist.team888.hangulcharacter.CharacterLoader;
+import kr.ac.kaist.team888.hangulcharacter.HangulCharacter;
+import kr.ac.kaist.team888.locator.Locator;
+import kr.ac.kaist.team888.region.Region;
+import kr.ac.kaist.team888.util.FontExporter.ExportCallbacks;
+import kr.ac.kaist.team888.util.FontExporter.ExportProgressCallbacks;
+import kr.ac.kaist.team888.util.FontExporter.ExportType;
+import kr.ac.kaist.team888.util.FontExporter.OutputType;
+import kr.ac.kaist.team888.util.ProgressMeter.Phase;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.InterruptedIOException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports the outlines of the current features as an SVG document, either an SVG font or
+ * a sheet of paths for vector drawing tools.
+ *
+ * <p>Letters are built one after another and each is written as soon as it is built, from
+ * the contours of its {@link Locator} without merging, thus memory stays constant however many
+ * letters are exported, including every Hangul syllable in a single pass. The document may be
+ * compressed by gzip into an <code>.svgz</code> file.
+ *
+ * <p>The export can be cancelled by {@link #cancel(boolean)}, which is checked between letters.
+ * A cancelled or failed export keeps the previous file.
+ */
+public class SvgExporter extends AsyncTask<String, ExportProgress, File> {
+  private static final String DEFAULT_FILE_PATH = "/MyLittleFont/";
+  private static final String EXTENSION = ".svg";
+  private static final String COMPRESSED_EXTENSION = ".svgz";
+  private static final String CHARSET = "UTF-8";
+  private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+  private final Layout layout;
+  private final boolean compressed;
+  private final String name;
+  private final FontExporter source;
+  private final File file;
+  private ExportCallbacks exportCallbacks;
+  private FontFileOutput output;
+  private ProgressMeter progressMeter = new ProgressMeter();
+
+  /**
+   * Class for export SVG font of the current features.
+   *
+   * @param exportType export type
+   * @param name name of the font
+   * @param exportCallbacks call backs on async task
+   */
+  public SvgExporter(ExportType exportType, String name, ExportCallbacks exportCallbacks) {
+    this(exportType, name, exportCallbacks, Layout.FONT, false);
+  }
+
+  /**
+   * Class for export SVG document of the current features.
+   *
+   * @param exportType export type
+   * @param name name of the font
+   * @param exportCallbacks call backs on async task
+   * @param layout layout of the glyphs in the document
+   * @param compressed whether to compress the document by gzip
+   */
+  public SvgExporter(ExportType exportType, String name, ExportCallbacks exportCallbacks,
+                     Layout layout, boolean compressed) {
+    this.layout = layout;
+    this.compressed = compressed;
+    this.name = name;
+    this.exportCallbacks = exportCallbacks;
+    source = new FontExporter(FeatureController.getInstance().getFeatures(),
+        FeatureController.getInstance().getGap(), exportType, name, null, OutputType.SIMPLE);
+    file = new File(Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS)
+        + DEFAULT_FILE_PATH + name + (compressed ? COMPRESSED_EXTENSION : EXTENSION));
+  }
+
+  /**
+   * Class for export SVG document of the current features, containing only the letters of
+   * the given text.
+   *
+   * @param subsetText text whose letters are exported
+   * @param name name of the font
+   * @param exportCallbacks call backs on async task
+   * @param layout layout of the glyphs in the document
+   * @param compressed whether to compress the document by gzip
+   */
+  public SvgExporter(String subsetText, String name, ExportCallbacks exportCallbacks,
+                     Layout layout, boolean compressed) {
+    this(ExportType.SUBSET, name, exportCallbacks, layout, compressed);
+    source.setSubsetText(subsetText);
+  }
+
+  @Override
+  protected void onProgressUpdate(ExportProgress... values) {
+    super.onProgressUpdate(values);
+    if (exportCallbacks != null) {
+      exportCallbacks.onProgress(values[0].getFraction());
+      if (exportCallbacks instanceof ExportProgressCallbacks) {
+        ((ExportProgressCallbacks) exportCallbacks).onProgress(values[0]);
+      }
+    }
+  }
+
+  @Override
+  protected void onPostExecute(File file) {
+    super.onPostExecute(file);
+    if (exportCallbacks != null) {
+      exportCallbacks.onEnd(file);
+    }
+  }
+
+  @Override
+  protected File doInBackground(String... params) {
+    try {
+      return export();
+    } catch (IOException e) {
+      e.printStackTrace();
+      if (output != null) {
+        output.abort();
+      }
+    }
+    return null;
+  }
+
+  private File export() throws IOException {
+    progressMeter.start();
+    source.openTemplateStore();
+    ArrayList<Character> letters = new ArrayList<>();
+    for (char letter : source.getLetters()) {
+      if (CharacterLoader.getInstance().isDrawable(letter)) {
+        letters.add(letter);
+      }
+    }
+
+    output = new FontFileOutput(file);
+    OutputStream stream = Channels.newOutputStream(output.getChannel());
+    GZIPOutputStream gzipStream = null;
+    if (compressed) {
+      gzipStream = new GZIPOutputStream(stream, WRITE_BUFFER_SIZE);
+      stream = gzipStream;
+    }
+    BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(stream, CHARSET),
+        WRITE_BUFFER_SIZE);
+    Region origin = HangulCharacter.ORIGIN_REGION;
+    SvgWriter svgWriter = new SvgWriter(writer, layout, name,
+        (int) Math.round(origin.getMaxY() - origin.getMinY()),
+        (int) Math.round(origin.getMaxY()), (int) Math.round(origin.getMinY()), letters.size(),
+        SvgWriter.DEFAULT_DECIMALS);
+
+    for (int i = 0; i < letters.size(); i++) {
+      checkCancelled();
+      char letter = letters.get(i);
+      Phase previous = progressMeter.begin(Phase.GENERATION);
+      Locator locator = source.applyFeatures(new Locator(letter, false));
+      Region region = source.makeRegion(locator);
+      progressMeter.begin(Phase.SERIALIZATION);
+      // The glyph region stretches the locator region horizontally, keeping y.
+      Region locatorRegion = locator.locatorRegion;
+      double scaleX = (region.getMaxX() - region.getMinX())
+          / (locatorRegion.getMaxX() - locatorRegion.getMinX());
+      svgWriter.setTransform(scaleX, 1, region.getMinX() - locatorRegion.getMinX() * scaleX, 0);
+      int length = svgWriter.addGlyph(letter, locator.getContour(), region.getMaxX());
+      progressMeter.end(previous);
+      progressMeter.addGlyph(length);
+      reportProgress(0.95 * (i + 1) / letters.size());
+    }
+
+    Phase previous = progressMeter.begin(Phase.IO);
+    svgWriter.finish();
+    if (gzipStream != null) {
+      gzipStream.finish();
+    }
+    progressMeter.addFontBytes(output.getChannel().position());
+    output.commit();
+    progressMeter.end(previous);
+    reportProgress(1.0);
+    return file;
+  }
+
+  /**
+   * Publishes the progress, unless the last one has been published too recently.
+   */
+  private void reportProgress(double fraction) {
+    ExportProgress progress = progressMeter.poll(fraction);
+    if (progress != null) {
+      publishProgress(progress);
+    }
+  }
+
+  /**
+   * Throws an exception to end the export if it is cancelled, which is checked between letters.
+   */
+  private void checkCancelled() throws InterruptedIOException {
+    if (isCancelled()) {
+      throw new InterruptedIOException("Export cancelled");
+    }
+  }
+}
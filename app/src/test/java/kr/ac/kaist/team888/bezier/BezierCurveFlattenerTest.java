@@ -0,0 +1,150 @@
+package kr.ac.kaist.team888.bezier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+import org.apache.commons.math3.exception.OutOfRangeException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class BezierCurveFlattenerTest {
+  private static final int SAMPLES = 1000;
+  private static final double EPSILON = 1E-9;
+
+  private static final BezierCurve QUADRATIC = new BezierCurve(new double[][] {
+      {0, 0}, {50, 120}, {100, 0}});
+  private static final BezierCurve CUBIC = new BezierCurve(new double[][] {
+      {0, 0}, {0, 100}, {100, 100}, {100, 0}});
+  private static final BezierCurve S_CUBIC = new BezierCurve(new double[][] {
+      {0, 0}, {200, 100}, {-100, 100}, {100, 0}});
+
+  @Test
+  public void testLineEmitsEndPoint() {
+    PolylineBuffer buffer = new PolylineBuffer();
+    buffer.beginContour();
+    buffer.addPoint(1, 2);
+    new BezierCurveFlattener().flatten(new BezierCurve(new double[][] {{1, 2}, {30, 40}}),
+        buffer);
+    buffer.endContour();
+
+    assertEquals(2, buffer.getPointCount());
+    assertEquals(30, buffer.getX(1), 0);
+    assertEquals(40, buffer.getY(1), 0);
+  }
+
+  @Test
+  public void testCurvesWithinTolerance() {
+    for (double tolerance : new double[] {1, .25, .01}) {
+      BezierCurveFlattener flattener = new BezierCurveFlattener(tolerance);
+      for (BezierCurve curve : Arrays.asList(QUADRATIC, CUBIC, S_CUBIC)) {
+        PolylineBuffer buffer = flatten(flattener, curve);
+        assertEquals(curve.getX(curve.getOrder()), buffer.getX(buffer.getPointCount() - 1), 0);
+        assertEquals(curve.getY(curve.getOrder()), buffer.getY(buffer.getPointCount() - 1), 0);
+        for (int i = 0; i <= SAMPLES; i++) {
+          double[] point = curve.value(i / (double) SAMPLES);
+          assertTrue(distance(buffer, point[0], point[1]) <= tolerance + EPSILON);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testFinerToleranceEmitsMorePoints() {
+    for (BezierCurve curve : Arrays.asList(QUADRATIC, CUBIC, S_CUBIC)) {
+      int coarse = flatten(new BezierCurveFlattener(1), curve).getPointCount();
+      int fine = flatten(new BezierCurveFlattener(.01), curve).getPointCount();
+      assertTrue(fine > coarse);
+    }
+  }
+
+  @Test
+  public void testFlattenContourOmitsClosingPoint() {
+    ArrayList<BezierCurve> contour = new ArrayList<>();
+    contour.add(new BezierCurve(new double[][] {{0, 0}, {100, 0}}));
+    contour.add(new BezierCurve(new double[][] {{100, 0}, {100, 100}}));
+    contour.add(new BezierCurve(new double[][] {{100, 100}, {0, 0}}));
+    PolylineBuffer buffer = new PolylineBuffer();
+
+    int count = new BezierCurveFlattener().flattenContour(contour, buffer);
+
+    assertEquals(3, count);
+    assertEquals(1, buffer.getContourCount());
+    assertEquals(3, buffer.getContourPointCount(0));
+  }
+
+  @Test
+  public void testArraysMatchCurves() {
+    BezierCurveFlattener flattener = new BezierCurveFlattener();
+    for (BezierCurve curve : Arrays.asList(QUADRATIC, CUBIC, S_CUBIC)) {
+      int order = curve.getOrder();
+      double[] xs = new double[order + 1];
+      double[] ys = new double[order + 1];
+      for (int i = 0; i <= order; i++) {
+        xs[i] = curve.getX(i);
+        ys[i] = curve.getY(i);
+      }
+      PolylineBuffer buffer = new PolylineBuffer();
+      buffer.beginContour();
+      buffer.addPoint(xs[0], ys[0]);
+      flattener.flatten(order, xs, ys, buffer);
+      buffer.endContour();
+
+      PolylineBuffer expected = flatten(flattener, curve);
+      assertEquals(expected.getPointCount(), buffer.getPointCount());
+      assertTrue(Arrays.equals(
+          Arrays.copyOf(expected.getCoordinates(), 2 * expected.getPointCount()),
+          Arrays.copyOf(buffer.getCoordinates(), 2 * buffer.getPointCount())));
+    }
+  }
+
+  @Test
+  public void testIsFlat() {
+    BezierCurveFlattener flattener = new BezierCurveFlattener(1);
+    assertTrue(flattener.isFlat(2, new double[] {0, 50, 100}, new double[] {0, .5, 0}));
+    assertFalse(flattener.isFlat(2, new double[] {0, 50, 100}, new double[] {0, 2, 0}));
+    assertTrue(flattener.isFlat(1, new double[] {0, 100}, new double[] {0, 100}));
+  }
+
+  @Test(expected = NotStrictlyPositiveException.class)
+  public void testNonPositiveTolerance() {
+    new BezierCurveFlattener(0);
+  }
+
+  @Test(expected = OutOfRangeException.class)
+  public void testUnsupportedOrder() {
+    BezierCurve quartic = new BezierCurve(new double[][] {
+        {0, 0}, {10, 10}, {20, 0}, {30, 10}, {40, 0}});
+    flatten(new BezierCurveFlattener(), quartic);
+  }
+
+  private static PolylineBuffer flatten(BezierCurveFlattener flattener, BezierCurve curve) {
+    PolylineBuffer buffer = new PolylineBuffer();
+    buffer.beginContour();
+    buffer.addPoint(curve.getX(0), curve.getY(0));
+    flattener.flatten(curve, buffer);
+    buffer.endContour();
+    return buffer;
+  }
+
+  /**
+   * Returns the distance from the point to the open polyline of the buffer.
+   */
+  private static double distance(PolylineBuffer buffer, double x, double y) {
+    double min = Double.POSITIVE_INFINITY;
+    for (int i = 1; i < buffer.getPointCount(); i++) {
+      double x0 = buffer.getX(i - 1);
+      double y0 = buffer.getY(i - 1);
+      double dx = buffer.getX(i) - x0;
+      double dy = buffer.getY(i) - y0;
+      double squaredLength = dx * dx + dy * dy;
+      double ratio = squaredLength == 0 ? 0
+          : Math.max(0, Math.min(1, ((x - x0) * dx + (y - y0) * dy) / squaredLength));
+      min = Math.min(min, Math.hypot(x - (x0 + ratio * dx), y - (y0 + ratio * dy)));
+    }
+    return min;
+  }
+}
@@ -0,0 +1,211 @@
+package kr.ac.kaist.team888.bezier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+public class ContourUnionTest {
+  private static final double GRID_STEP = 1.7;
+  private static final double FLATNESS = 1E-3;
+  // Samples closer than this to an input edge are skipped, as they are on the boundary.
+  private static final double BOUNDARY_DISTANCE = .05;
+  // Control distance of a cubic arc approximating a quarter of a circle.
+  private static final double KAPPA = .5522847498;
+
+  @Test
+  public void testOverlappingSquaresMergeIntoOne() {
+    ArrayList<ArrayList<BezierCurve>> contours = new ArrayList<>();
+    contours.add(rectangle(0, 0, 60, 60));
+    contours.add(rectangle(30, 30, 90, 90));
+
+    ArrayList<ArrayList<BezierCurve>> union = new ContourUnion().union(contours);
+
+    assertEquals(1, union.size());
+    assertEquals(8, union.get(0).size());
+    assertSameFill(contours, union);
+  }
+
+  @Test
+  public void testDisjointContoursAreKept() {
+    ArrayList<ArrayList<BezierCurve>> contours = new ArrayList<>();
+    contours.add(rectangle(0, 0, 20, 20));
+    contours.add(rectangle(40, 0, 60, 20));
+
+    ArrayList<ArrayList<BezierCurve>> union = new ContourUnion().union(contours);
+
+    assertEquals(2, union.size());
+    assertSameFill(contours, union);
+  }
+
+  @Test
+  public void testContainedContourIsRemoved() {
+    ArrayList<ArrayList<BezierCurve>> contours = new ArrayList<>();
+    contours.add(rectangle(0, 0, 100, 100));
+    contours.add(circle(50, 50, 20));
+
+    ArrayList<ArrayList<BezierCurve>> union = new ContourUnion().union(contours);
+
+    assertEquals(1, union.size());
+    assertEquals(4, union.get(0).size());
+    assertSameFill(contours, union);
+  }
+
+  @Test
+  public void testCrossingCurvesKeepTheirShape() {
+    ArrayList<ArrayList<BezierCurve>> contours = new ArrayList<>();
+    contours.add(circle(40, 50, 30));
+    contours.add(circle(75, 55, 25));
+    contours.add(rectangle(10, 40, 110, 48));
+
+    ArrayList<ArrayList<BezierCurve>> union = new ContourUnion().union(contours);
+
+    assertEquals(1, union.size());
+    for (BezierCurve curve : union.get(0)) {
+      assertTrue(curve.getOrder() <= 3);
+    }
+    assertSameFill(contours, union);
+  }
+
+  @Test
+  public void testStrokedCrossMatchesStrokes() {
+    ArrayList<BezierCurve> horizontal = new ArrayList<>();
+    horizontal.add(new BezierCurve(new double[][] {{0, 50}, {50, 70}, {100, 50}}));
+    ArrayList<BezierCurve> vertical = new ArrayList<>();
+    vertical.add(new BezierCurve(new double[][] {{50, 0}, {40, 50}, {50, 100}}));
+    ContourBuffer buffer = new ContourBuffer();
+    BezierCurveUtils.stroke(horizontal, 8, .5, 1, buffer);
+    BezierCurveUtils.stroke(vertical, 8, .5, 1, buffer);
+    ArrayList<ArrayList<BezierCurve>> contours = buffer.toBezierCurves();
+
+    ArrayList<ArrayList<BezierCurve>> union = new ContourUnion().union(contours);
+
+    assertEquals(1, union.size());
+    assertSameFill(contours, union);
+  }
+
+  @Test
+  public void testEmptyInput() {
+    ArrayList<ArrayList<BezierCurve>> contours = new ArrayList<>();
+    ArrayList<ArrayList<BezierCurve>> union = new ContourUnion().union(contours);
+    assertTrue(union == contours || union.isEmpty());
+  }
+
+  @Test
+  public void testSingleContourKeepsItsShape() {
+    ArrayList<ArrayList<BezierCurve>> contours = new ArrayList<>();
+    contours.add(circle(0, 0, 10));
+    ArrayList<ArrayList<BezierCurve>> union = new ContourUnion().union(contours);
+    assertEquals(1, union.size());
+    assertSameFill(contours, union);
+  }
+
+  /**
+   * Asserts that both sets of contours fill the same area under the nonzero winding rule
+   * at samples of a grid over their bounds, apart from samples on the boundary.
+   */
+  private static void assertSameFill(ArrayList<ArrayList<BezierCurve>> expected,
+                                     ArrayList<ArrayList<BezierCurve>> actual) {
+    PolylineBuffer expectedPolylines = new PolylineBuffer();
+    new BezierCurveFlattener(FLATNESS).flatten(expected, expectedPolylines);
+    PolylineBuffer actualPolylines = new PolylineBuffer();
+    new BezierCurveFlattener(FLATNESS).flatten(actual, actualPolylines);
+
+    double minX = Double.POSITIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < expectedPolylines.getPointCount(); i++) {
+      minX = Math.min(minX, expectedPolylines.getX(i));
+      minY = Math.min(minY, expectedPolylines.getY(i));
+      maxX = Math.max(maxX, expectedPolylines.getX(i));
+      maxY = Math.max(maxY, expectedPolylines.getY(i));
+    }
+    int filled = 0;
+    for (double y = minY - GRID_STEP; y <= maxY + GRID_STEP; y += GRID_STEP) {
+      for (double x = minX - GRID_STEP; x <= maxX + GRID_STEP; x += GRID_STEP) {
+        if (distance(expectedPolylines, x, y) < BOUNDARY_DISTANCE) {
+          continue;
+        }
+        boolean isFilled = winding(expectedPolylines, x, y) != 0;
+        assertEquals("at " + x + ", " + y, isFilled, winding(actualPolylines, x, y) != 0);
+        if (isFilled) {
+          filled++;
+        }
+      }
+    }
+    assertTrue(filled > 0);
+  }
+
+  private static int winding(PolylineBuffer polylines, double x, double y) {
+    int winding = 0;
+    for (int contour = 0; contour < polylines.getContourCount(); contour++) {
+      int start = polylines.getContourStart(contour);
+      int end = polylines.getContourEnd(contour);
+      for (int i = start; i < end; i++) {
+        int next = i + 1 == end ? start : i + 1;
+        double y0 = polylines.getY(i);
+        double y1 = polylines.getY(next);
+        if ((y0 <= y) == (y1 <= y)) {
+          continue;
+        }
+        double crossingX = polylines.getX(i)
+            + (y - y0) / (y1 - y0) * (polylines.getX(next) - polylines.getX(i));
+        if (crossingX > x) {
+          winding += y1 > y0 ? 1 : -1;
+        }
+      }
+    }
+    return winding;
+  }
+
+  private static double distance(PolylineBuffer polylines, double x, double y) {
+    double min = Double.POSITIVE_INFINITY;
+    for (int contour = 0; contour < polylines.getContourCount(); contour++) {
+      int start = polylines.getContourStart(contour);
+      int end = polylines.getContourEnd(contour);
+      for (int i = start; i < end; i++) {
+        int next = i + 1 == end ? start : i + 1;
+        double x0 = polylines.getX(i);
+        double y0 = polylines.getY(i);
+        double dx = polylines.getX(next) - x0;
+        double dy = polylines.getY(next) - y0;
+        double squaredLength = dx * dx + dy * dy;
+        double ratio = squaredLength == 0 ? 0
+            : Math.max(0, Math.min(1, ((x - x0) * dx + (y - y0) * dy) / squaredLength));
+        min = Math.min(min, Math.hypot(x - (x0 + ratio * dx), y - (y0 + ratio * dy)));
+      }
+    }
+    return min;
+  }
+
+  private static ArrayList<BezierCurve> rectangle(double minX, double minY,
+                                                  double maxX, double maxY) {
+    ArrayList<BezierCurve> contour = new ArrayList<>();
+    contour.add(new BezierCurve(new double[][] {{minX, minY}, {maxX, minY}}));
+    contour.add(new BezierCurve(new double[][] {{maxX, minY}, {maxX, maxY}}));
+    contour.add(new BezierCurve(new double[][] {{maxX, maxY}, {minX, maxY}}));
+    contour.add(new BezierCurve(new double[][] {{minX, maxY}, {minX, minY}}));
+    return contour;
+  }
+
+  private static ArrayList<BezierCurve> circle(double centerX, double centerY, double radius) {
+    double control = KAPPA * radius;
+    ArrayList<BezierCurve> contour = new ArrayList<>();
+    contour.add(new BezierCurve(new double[][] {
+        {centerX + radius, centerY}, {centerX + radius, centerY + control},
+        {centerX + control, centerY + radius}, {centerX, centerY + radius}}));
+    contour.add(new BezierCurve(new double[][] {
+        {centerX, centerY + radius}, {centerX - control, centerY + radius},
+        {centerX - radius, centerY + control}, {centerX - radius, centerY}}));
+    contour.add(new BezierCurve(new double[][] {
+        {centerX - radius, centerY}, {centerX - radius, centerY - control},
+        {centerX - control, centerY - radius}, {centerX, centerY - radius}}));
+    contour.add(new BezierCurve(new double[][] {
+        {centerX, centerY - radius}, {centerX + control, centerY - radius},
+        {centerX + radius, centerY - control}, {centerX + radius, centerY}}));
+    return contour;
+  }
+}
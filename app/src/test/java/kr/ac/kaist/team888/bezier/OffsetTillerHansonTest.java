@@ -0,0 +1,178 @@
+package kr.ac.kaist.team888.bezier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+public class OffsetTillerHansonTest {
+  private static final double DELTA = 12;
+  private static final double ROUNDNESS = .5;
+  private static final double CONTRAST = 1;
+  private static final double EPSILON = 1E-9;
+  // Segments of a round cap: a line, a quadratic curve, a line, a quadratic curve and a line.
+  private static final int ROUND_CAP_SEGMENTS = 5;
+
+  @Test
+  public void testSidesMatchOffsetCurves() {
+    BezierCurve curve = new BezierCurve(new double[][] {
+        {0, 0}, {30, 80}, {120, 90}, {160, 20}});
+    ArrayList<BezierCurve> curves = new ArrayList<>();
+    curves.add(curve);
+
+    for (PenType pen : PenType.values()) {
+      ContourBuffer contour = new ContourBuffer();
+      OffsetTillerHanson.stroke(curves, DELTA, ROUNDNESS, CONTRAST, pen.getPen(), contour);
+
+      assertEquals(1, contour.getContourCount());
+      assertEquals(2 + 2 * ROUND_CAP_SEGMENTS, contour.getSegmentCount());
+      assertSegment(OffsetTillerHanson.offset(curve, DELTA, CONTRAST, pen.getPen()),
+          contour.toBezierCurve(0));
+      assertSegment(OffsetTillerHanson.offset(curve, -DELTA, CONTRAST, pen.getPen()).reverse(),
+          contour.toBezierCurve(1 + ROUND_CAP_SEGMENTS));
+    }
+  }
+
+  @Test
+  public void testCornerJoinsOffsetCurves() {
+    BezierCurve first = new BezierCurve(new double[][] {{0, 0}, {100, 0}});
+    BezierCurve second = new BezierCurve(new double[][] {{100, 0}, {100, 60}, {40, 100}});
+    ArrayList<BezierCurve> curves = new ArrayList<>();
+    curves.add(first);
+    curves.add(second);
+    PenModel pen = PenType.Ellipse.getPen();
+
+    ContourBuffer contour = new ContourBuffer();
+    OffsetTillerHanson.stroke(curves, DELTA, ROUNDNESS, CONTRAST, pen, contour);
+    ArrayList<BezierCurve> segments = contour.toBezierCurves(0);
+
+    // The upper side of the second curve is the first quadratic one, after the joint lines.
+    int secondUpper = 1;
+    while (segments.get(secondUpper).getOrder() != 2) {
+      secondUpper++;
+    }
+    assertSegment(OffsetTillerHanson.offset(first, DELTA, CONTRAST, pen), segments.get(0));
+    assertSegment(OffsetTillerHanson.offset(second, DELTA, CONTRAST, pen),
+        segments.get(secondUpper));
+    assertContinuous(segments);
+  }
+
+  @Test
+  public void testListMatchesBuffer() {
+    ArrayList<BezierCurve> curves = new ArrayList<>();
+    curves.add(new BezierCurve(new double[][] {{0, 0}, {60, 40}, {100, 0}}));
+    curves.add(new BezierCurve(new double[][] {{100, 0}, {160, 0}}));
+
+    for (BezierCurveOffsetMethodType offsetMethod : BezierCurveOffsetMethodType.values()) {
+      ArrayList<BezierCurve> expected = BezierCurveUtils.stroke(curves, offsetMethod, DELTA,
+          ROUNDNESS, CONTRAST);
+      ContourBuffer contour = new ContourBuffer();
+      BezierCurveUtils.stroke(curves, offsetMethod, DELTA, ROUNDNESS, CONTRAST,
+          PenType.Ellipse.getPen(), contour);
+      ArrayList<BezierCurve> actual = contour.toBezierCurves(0);
+
+      assertEquals(expected.size(), actual.size());
+      for (int i = 0; i < expected.size(); i++) {
+        assertSegment(expected.get(i), actual.get(i));
+      }
+      assertContinuous(actual);
+    }
+  }
+
+  @Test
+  public void testClosedSkeletonMakesClosedContour() {
+    ArrayList<BezierCurve> curves = new ArrayList<>();
+    curves.add(new BezierCurve(new double[][] {{0, 0}, {100, 0}, {100, 100}}));
+    curves.add(new BezierCurve(new double[][] {{100, 100}, {0, 100}, {0, 0}}));
+
+    ContourBuffer contour = new ContourBuffer();
+    OffsetTillerHanson.stroke(curves, DELTA, ROUNDNESS, CONTRAST, PenType.Ellipse.getPen(),
+        contour);
+
+    assertEquals(1, contour.getContourCount());
+    assertContinuous(contour.toBezierCurves(0));
+  }
+
+  @Test
+  public void testFixedTopologyKeepsSegments() {
+    ArrayList<BezierCurve> curves = makeJointChain();
+    curves.get(1).setOffsetMethod(BezierCurveOffsetMethodType.Adaptive);
+    PenModel pen = PenType.Ellipse.getPen();
+
+    for (BezierCurveOffsetMethodType offsetMethod : BezierCurveOffsetMethodType.values()) {
+      ArrayList<BezierCurve> reference = null;
+      for (double delta : new double[] {2, DELTA, 30}) {
+        ContourBuffer contour = new ContourBuffer();
+        BezierCurveUtils.stroke(curves, offsetMethod, delta, ROUNDNESS, CONTRAST, pen, true,
+            contour);
+        ArrayList<BezierCurve> segments = contour.toBezierCurves(0);
+        if (reference == null) {
+          reference = segments;
+        }
+        assertEquals(reference.size(), segments.size());
+        for (int i = 0; i < segments.size(); i++) {
+          assertEquals(reference.get(i).getOrder(), segments.get(i).getOrder());
+        }
+        assertContinuous(segments);
+      }
+    }
+  }
+
+  @Test
+  public void testFixedTopologyOnlyAddsCollapsedLines() {
+    ArrayList<BezierCurve> curves = makeJointChain();
+    PenModel pen = PenType.Ellipse.getPen();
+    ContourBuffer contour = new ContourBuffer();
+    BezierCurveUtils.stroke(curves, BezierCurveOffsetMethodType.TillerHanson, DELTA, ROUNDNESS,
+        CONTRAST, pen, true, contour);
+    ArrayList<BezierCurve> fixed = contour.toBezierCurves(0);
+    contour = new ContourBuffer();
+    OffsetTillerHanson.stroke(curves, DELTA, ROUNDNESS, CONTRAST, pen, contour);
+    ArrayList<BezierCurve> expected = contour.toBezierCurves(0);
+
+    assertTrue(fixed.size() > expected.size());
+    int index = 0;
+    for (BezierCurve segment : fixed) {
+      if (segment.getOrder() == 1 && segment.getX(0) == segment.getX(1)
+          && segment.getY(0) == segment.getY(1)) {
+        continue;
+      }
+      assertSegment(expected.get(index++), segment);
+    }
+    assertEquals(expected.size(), index);
+  }
+
+  /**
+   * Returns a chain of a line, a curve joining it smoothly, and a line making a corner.
+   */
+  private static ArrayList<BezierCurve> makeJointChain() {
+    ArrayList<BezierCurve> curves = new ArrayList<>();
+    curves.add(new BezierCurve(new double[][] {{0, 0}, {50, 0}}));
+    curves.add(new BezierCurve(new double[][] {{50, 0}, {100, 0}, {100, 50}}));
+    curves.add(new BezierCurve(new double[][] {{100, 50}, {40, 90}}));
+    return curves;
+  }
+
+  private static void assertSegment(BezierCurve expected, BezierCurve actual) {
+    assertEquals(expected.getOrder(), actual.getOrder());
+    for (int i = 0; i <= expected.getOrder(); i++) {
+      assertEquals(expected.getX(i), actual.getX(i), EPSILON);
+      assertEquals(expected.getY(i), actual.getY(i), EPSILON);
+    }
+  }
+
+  /**
+   * Asserts that each segment starts where the previous one ends, and the last one ends where
+   * the first one starts.
+   */
+  private static void assertContinuous(ArrayList<BezierCurve> segments) {
+    for (int i = 0; i < segments.size(); i++) {
+      BezierCurve segment = segments.get(i);
+      BezierCurve next = segments.get((i + 1) % segments.size());
+      assertEquals(segment.getX(segment.getOrder()), next.getX(0), EPSILON);
+      assertEquals(segment.getY(segment.getOrder()), next.getY(0), EPSILON);
+    }
+  }
+}
@@ -0,0 +1,134 @@
+package kr.ac.kaist.team888.bezier;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+import org.apache.commons.math3.geometry.euclidean.twod.Vector2D;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+public class StrokeMemoTest {
+  private static final double DELTA = 10;
+  private static final double ROUNDNESS = .5;
+  private static final double CONTRAST = 1.2;
+
+  @Test
+  public void testHitMatchesMiss() {
+    ArrayList<BezierCurve> curves = makeCurves(0);
+    StrokeMemo memo = new StrokeMemo();
+    for (BezierCurveOffsetMethodType offsetMethod : BezierCurveOffsetMethodType.values()) {
+      for (PenType pen : PenType.values()) {
+        ContourBuffer expected = new ContourBuffer();
+        expected.addLine(1, 2, 3, 4);
+        BezierCurveUtils.stroke(curves, offsetMethod, DELTA, ROUNDNESS, CONTRAST, pen.getPen(),
+            expected);
+
+        int misses = memo.getMissCount();
+        ContourBuffer miss = new ContourBuffer();
+        miss.addLine(1, 2, 3, 4);
+        memo.stroke(curves, offsetMethod, DELTA, ROUNDNESS, CONTRAST, pen.getPen(), miss);
+        assertEquals(misses + 1, memo.getMissCount());
+
+        int hits = memo.getHitCount();
+        ContourBuffer hit = new ContourBuffer();
+        hit.addLine(1, 2, 3, 4);
+        memo.stroke(makeCurves(0), offsetMethod, DELTA, ROUNDNESS, CONTRAST, pen.getPen(), hit);
+        assertEquals(hits + 1, memo.getHitCount());
+
+        assertIdentical(expected, miss);
+        assertIdentical(expected, hit);
+      }
+    }
+  }
+
+  @Test
+  public void testEveryInputIsKeyed() {
+    StrokeMemo memo = new StrokeMemo();
+    PenModel pen = PenType.Ellipse.getPen();
+    BezierCurveOffsetMethodType method = BezierCurveOffsetMethodType.TillerHanson;
+    memo.stroke(makeCurves(0), method, DELTA, ROUNDNESS, CONTRAST, pen, new ContourBuffer());
+
+    memo.stroke(makeCurves(1), method, DELTA, ROUNDNESS, CONTRAST, pen, new ContourBuffer());
+    memo.stroke(makeCurves(0), BezierCurveOffsetMethodType.Adaptive, DELTA, ROUNDNESS, CONTRAST,
+        pen, new ContourBuffer());
+    memo.stroke(makeCurves(0), method, DELTA + 1, ROUNDNESS, CONTRAST, pen, new ContourBuffer());
+    memo.stroke(makeCurves(0), method, DELTA, ROUNDNESS + .1, CONTRAST, pen, new ContourBuffer());
+    memo.stroke(makeCurves(0), method, DELTA, ROUNDNESS, CONTRAST + .1, pen, new ContourBuffer());
+    memo.stroke(makeCurves(0), method, DELTA, ROUNDNESS, CONTRAST, PenType.values()[1].getPen(),
+        new ContourBuffer());
+    memo.stroke(makeCurves(0), method, DELTA, ROUNDNESS, CONTRAST, pen, true,
+        new ContourBuffer());
+    ArrayList<BezierCurve> curves = makeCurves(0);
+    curves.get(0).setOffsetVector(new Vector2D(1, 2));
+    memo.stroke(curves, method, DELTA, ROUNDNESS, CONTRAST, pen, new ContourBuffer());
+    curves = makeCurves(0);
+    curves.get(1).setCutoffEndVector(new Vector2D(1, 0));
+    memo.stroke(curves, method, DELTA, ROUNDNESS, CONTRAST, pen, new ContourBuffer());
+    curves = makeCurves(0);
+    curves.get(1).setOffsetMethod(BezierCurveOffsetMethodType.Adaptive);
+    memo.stroke(curves, method, DELTA, ROUNDNESS, CONTRAST, pen, new ContourBuffer());
+
+    assertEquals(0, memo.getHitCount());
+    assertEquals(11, memo.getMissCount());
+    assertEquals(11, memo.size());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedIsDiscarded() {
+    StrokeMemo memo = new StrokeMemo(2);
+    PenModel pen = PenType.Ellipse.getPen();
+    BezierCurveOffsetMethodType method = BezierCurveOffsetMethodType.TillerHanson;
+    memo.stroke(makeCurves(0), method, DELTA, ROUNDNESS, CONTRAST, pen, new ContourBuffer());
+    memo.stroke(makeCurves(1), method, DELTA, ROUNDNESS, CONTRAST, pen, new ContourBuffer());
+    memo.stroke(makeCurves(0), method, DELTA, ROUNDNESS, CONTRAST, pen, new ContourBuffer());
+    memo.stroke(makeCurves(2), method, DELTA, ROUNDNESS, CONTRAST, pen, new ContourBuffer());
+    assertEquals(2, memo.size());
+    assertEquals(1, memo.getHitCount());
+
+    memo.stroke(makeCurves(0), method, DELTA, ROUNDNESS, CONTRAST, pen, new ContourBuffer());
+    assertEquals(2, memo.getHitCount());
+    memo.stroke(makeCurves(1), method, DELTA, ROUNDNESS, CONTRAST, pen, new ContourBuffer());
+    assertEquals(2, memo.getHitCount());
+    assertEquals(4, memo.getMissCount());
+    assertEquals(2 / 6.0, memo.getHitRate(), 0);
+
+    memo.clear();
+    assertEquals(0, memo.size());
+    assertEquals(0, memo.getHitRate(), 0);
+  }
+
+  @Test(expected = NotStrictlyPositiveException.class)
+  public void testNonPositiveCapacity() {
+    new StrokeMemo(0);
+  }
+
+  private static ArrayList<BezierCurve> makeCurves(double shift) {
+    ArrayList<BezierCurve> curves = new ArrayList<>();
+    curves.add(new BezierCurve(new double[][] {{shift, 0}, {60, 10}, {100, 70}}));
+    curves.add(new BezierCurve(new double[][] {{100, 70}, {140, 40}}));
+    return curves;
+  }
+
+  private static void assertIdentical(ContourBuffer expected, ContourBuffer actual) {
+    assertEquals(expected.getContourCount(), actual.getContourCount());
+    assertEquals(expected.getSegmentCount(), actual.getSegmentCount());
+    assertEquals(expected.getPointCount(), actual.getPointCount());
+    for (int contour = 0; contour < expected.getContourCount(); contour++) {
+      assertEquals(expected.getContourStart(contour), actual.getContourStart(contour));
+      assertEquals(expected.getContourEnd(contour), actual.getContourEnd(contour));
+    }
+    for (int segment = 0; segment < expected.getSegmentCount(); segment++) {
+      assertEquals(expected.getOrder(segment), actual.getOrder(segment));
+      assertEquals(expected.getOffsetVector(segment), actual.getOffsetVector(segment));
+      assertEquals(expected.getEndOffsetVector(segment), actual.getEndOffsetVector(segment));
+      for (int i = 0; i <= expected.getOrder(segment); i++) {
+        // Compare bits, so that even the sign of zeros must match.
+        assertEquals(Double.doubleToRawLongBits(expected.getX(segment, i)),
+            Double.doubleToRawLongBits(actual.getX(segment, i)));
+        assertEquals(Double.doubleToRawLongBits(expected.getY(segment, i)),
+            Double.doubleToRawLongBits(actual.getY(segment, i)));
+      }
+    }
+  }
+}
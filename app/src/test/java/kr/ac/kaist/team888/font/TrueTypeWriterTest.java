@@ -0,0 +1,337 @@
+package kr.ac.kaist.team888.font;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import kr.ac.kaist.team888.bezier.BezierCurve;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+public class TrueTypeWriterTest {
+  private static final long CHECKSUM_MAGIC = 0xB1B0AFBAL;
+  private static final int UNITS_PER_EM = 1000;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testTableChecksums() throws IOException {
+    ByteBuffer font = ByteBuffer.wrap(write(makeWriter()));
+    HashMap<String, int[]> tables = readDirectory(font);
+
+    for (String tag : new String[] {
+        "OS/2", "cmap", "glyf", "head", "hhea", "hmtx", "loca", "maxp", "name", "post"}) {
+      assertTrue(tag, tables.containsKey(tag));
+    }
+    for (String tag : tables.keySet()) {
+      int[] table = tables.get(tag);
+      assertEquals(0, table[1] & 3);
+      long checksum = checksum(font, table[1], table[2]);
+      if (tag.equals("head")) {
+        // The checksum adjustment is taken as zero.
+        checksum = (checksum - (font.getInt(table[1] + 8) & 0xFFFFFFFFL)) & 0xFFFFFFFFL;
+      }
+      assertEquals(tag, table[0] & 0xFFFFFFFFL, checksum);
+    }
+    assertEquals(CHECKSUM_MAGIC, checksum(font, 0, font.capacity()));
+  }
+
+  @Test
+  public void testChannelMatchesStream() throws IOException {
+    TrueTypeWriter writer = makeWriter();
+    byte[] expected = write(writer);
+
+    File file = folder.newFile();
+    RandomAccessFile output = new RandomAccessFile(file, "rw");
+    try {
+      FileChannel channel = output.getChannel();
+      channel.position(3);
+      writer.write(channel);
+      assertEquals(3 + expected.length, channel.position());
+      byte[] actual = new byte[expected.length];
+      output.seek(3);
+      output.readFully(actual);
+      assertArrayEquals(expected, actual);
+    } finally {
+      output.close();
+    }
+  }
+
+  @Test
+  public void testCmapMapsCharacters() throws IOException {
+    TrueTypeWriter writer = new TrueTypeWriter("Test", UNITS_PER_EM, 800, -200);
+    HashMap<Integer, Integer> expected = new HashMap<>();
+    // Consecutive glyphs of consecutive letters, which make a segment with a delta.
+    for (int codePoint = 0xAC00; codePoint < 0xAC10; codePoint++) {
+      int glyph = writer.addGlyph(square(codePoint - 0xAC00), UNITS_PER_EM);
+      writer.mapCharacter(codePoint, glyph);
+      expected.put(codePoint, glyph);
+    }
+    // Glyphs out of order, which make a segment with glyph indices.
+    int first = writer.addGlyph(square(1), UNITS_PER_EM);
+    int second = writer.addGlyph(square(2), UNITS_PER_EM);
+    writer.mapCharacter(0x41, second);
+    writer.mapCharacter(0x42, first);
+    writer.mapCharacter(0x43, second);
+    expected.put(0x41, second);
+    expected.put(0x42, first);
+    expected.put(0x43, second);
+
+    ByteBuffer font = ByteBuffer.wrap(write(writer));
+    int cmap = readDirectory(font).get("cmap")[1];
+    assertEquals(2, font.getShort(cmap + 2));
+    int subtable = cmap + font.getInt(cmap + 8);
+    assertEquals(4, font.getShort(subtable));
+
+    for (int codePoint : expected.keySet()) {
+      assertEquals(expected.get(codePoint).intValue(), lookUp(font, subtable, codePoint));
+    }
+    assertEquals(0, lookUp(font, subtable, 0x40));
+    assertEquals(0, lookUp(font, subtable, 0xAC10));
+    assertEquals(0, lookUp(font, subtable, 0xD7A3));
+  }
+
+  @Test
+  public void testGlyphCount() throws IOException {
+    TrueTypeWriter writer = makeWriter();
+    ByteBuffer font = ByteBuffer.wrap(write(writer));
+    HashMap<String, int[]> tables = readDirectory(font);
+
+    assertEquals(writer.getGlyphCount(), font.getShort(tables.get("maxp")[1] + 4));
+    assertEquals((writer.getGlyphCount() + 1) * 4, tables.get("loca")[2]);
+    assertEquals(writer.getGlyphCount(), font.getShort(tables.get("hhea")[1] + 34));
+  }
+
+  @Test
+  public void testGvarReproducesMasters() throws IOException {
+    TrueTypeWriter writer = new TrueTypeWriter("Test", UNITS_PER_EM, 800, -200);
+    writer.addAxis("wght", 100, 400, 900, "Weight");
+    writer.addAxis("wdth", 50, 100, 200, "Width");
+    double[][] masters = {{1, 0}, {0, 1}, {1, 1}, {-.5, 0}};
+    for (double[] master : masters) {
+      writer.addMaster(master);
+    }
+    GlyphOutline outline = rectangle(100, 100);
+    GlyphOutline[] masterOutlines = {
+        rectangle(150, 110), rectangle(300, 100), rectangle(380, 125), rectangle(100, 100)};
+    int[] masterAdvanceWidths = {1100, 1500, 1700, 1000};
+    int glyph = writer.addGlyph(outline, UNITS_PER_EM, masterOutlines, masterAdvanceWidths);
+    int plain = writer.addGlyph(outline, UNITS_PER_EM);
+
+    ByteBuffer font = ByteBuffer.wrap(write(writer));
+    HashMap<String, int[]> tables = readDirectory(font);
+    assertTrue(tables.containsKey("avar"));
+    assertTrue(tables.containsKey("fvar"));
+    int gvar = tables.get("gvar")[1];
+    assertEquals(2, font.getShort(gvar + 4));
+    assertEquals(masters.length, font.getShort(gvar + 6));
+    int sharedTuples = gvar + font.getInt(gvar + 8);
+    for (int i = 0; i < masters.length; i++) {
+      for (int axis = 0; axis < 2; axis++) {
+        assertEquals(masters[i][axis] * 0x4000, font.getShort(sharedTuples + (i * 2 + axis) * 2),
+            0);
+      }
+    }
+    assertEquals(writer.getGlyphCount(), font.getShort(gvar + 12));
+    assertEquals(1, font.getShort(gvar + 14));
+    int dataArray = gvar + font.getInt(gvar + 16);
+    int dataStart = dataArray + font.getInt(gvar + 20 + glyph * 4);
+    int dataEnd = dataArray + font.getInt(gvar + 20 + (glyph + 1) * 4);
+    assertEquals(font.getInt(gvar + 20 + plain * 4), font.getInt(gvar + 20 + (plain + 1) * 4));
+
+    // Decode the variations of the glyph into deltas of each shared tuple.
+    int pointCount = outline.getPointCount() + 4;
+    int tupleCount = font.getShort(dataStart) & 0x0FFF;
+    // The last master equals the default, thus it has no variation.
+    assertEquals(3, tupleCount);
+    int data = dataStart + (font.getShort(dataStart + 2) & 0xFFFF);
+    assertEquals(0, font.get(data++));
+    int[] tupleIndices = new int[tupleCount];
+    int[][] deltasX = new int[tupleCount][pointCount];
+    int[][] deltasY = new int[tupleCount][pointCount];
+    for (int tuple = 0; tuple < tupleCount; tuple++) {
+      int header = dataStart + 4 + tuple * 4;
+      tupleIndices[tuple] = font.getShort(header + 2);
+      int end = data + (font.getShort(header) & 0xFFFF);
+      data = readDeltas(font, data, deltasX[tuple]);
+      data = readDeltas(font, data, deltasY[tuple]);
+      assertEquals(end, data);
+    }
+    assertTrue(data <= dataEnd);
+
+    // Interpolate the outline at each master from the default one and every tuple.
+    for (int master = 0; master < masters.length; master++) {
+      for (int i = 0; i < pointCount; i++) {
+        double x = i < outline.getPointCount() ? outline.getX(i) : i == pointCount - 3
+            ? UNITS_PER_EM : 0;
+        double y = i < outline.getPointCount() ? outline.getY(i) : 0;
+        for (int tuple = 0; tuple < tupleCount; tuple++) {
+          double scalar = getScalar(masters[tupleIndices[tuple]], masters[master]);
+          x += scalar * deltasX[tuple][i];
+          y += scalar * deltasY[tuple][i];
+        }
+        if (i < outline.getPointCount()) {
+          assertEquals(masterOutlines[master].getX(i), x, 0);
+          assertEquals(masterOutlines[master].getY(i), y, 0);
+        } else if (i == pointCount - 3) {
+          assertEquals(masterAdvanceWidths[master], x, 0);
+        }
+      }
+    }
+  }
+
+  static TrueTypeWriter makeWriter() {
+    TrueTypeWriter writer = new TrueTypeWriter("Test", UNITS_PER_EM, 800, -200);
+    int glyph = writer.addGlyph(square(0), UNITS_PER_EM);
+    writer.mapCharacter(0xAC00, glyph);
+    int component = writer.addGlyph(square(3), UNITS_PER_EM);
+    writer.mapCharacter(0xAC01, writer.addCompositeGlyph(new int[] {glyph, component},
+        new int[] {0, 400}, new int[] {0, -300}, UNITS_PER_EM));
+    return writer;
+  }
+
+  /**
+   * Returns an outline of a square growing with the size.
+   */
+  static GlyphOutline square(int size) {
+    int max = 100 + 10 * size;
+    ArrayList<BezierCurve> contour = new ArrayList<>();
+    contour.add(new BezierCurve(new double[][] {{0, 0}, {max, 0}}));
+    contour.add(new BezierCurve(new double[][] {{max, 0}, {max, max}, {0, max}}));
+    contour.add(new BezierCurve(new double[][] {{0, max}, {0, 0}}));
+    return new GlyphOutline.Builder().setMergingPoints(false).addContour(contour).build();
+  }
+
+  private static GlyphOutline rectangle(int maxX, int maxY) {
+    ArrayList<BezierCurve> contour = new ArrayList<>();
+    contour.add(new BezierCurve(new double[][] {{0, 0}, {maxX, 0}}));
+    contour.add(new BezierCurve(new double[][] {{maxX, 0}, {maxX, maxY}, {0, maxY}}));
+    contour.add(new BezierCurve(new double[][] {{0, maxY}, {0, 0}}));
+    return new GlyphOutline.Builder().setMergingPoints(false).addContour(contour).build();
+  }
+
+  static byte[] write(TrueTypeWriter writer) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writer.write(out);
+    return out.toByteArray();
+  }
+
+  /**
+   * Reads the table directory as the checksum, offset and length of each table by its tag.
+   */
+  static HashMap<String, int[]> readDirectory(ByteBuffer font) {
+    assertEquals(0x00010000, font.getInt(0));
+    int tableCount = font.getShort(4);
+    HashMap<String, int[]> tables = new HashMap<>();
+    String previous = "";
+    for (int i = 0; i < tableCount; i++) {
+      int record = 12 + i * 16;
+      byte[] tag = new byte[4];
+      for (int j = 0; j < 4; j++) {
+        tag[j] = font.get(record + j);
+      }
+      String name = new String(tag);
+      assertTrue(name.compareTo(previous) > 0);
+      previous = name;
+      tables.put(name, new int[] {
+          font.getInt(record + 4), font.getInt(record + 8), font.getInt(record + 12)});
+    }
+    return tables;
+  }
+
+  /**
+   * Returns the sum of the big-endian words of the range, padded with zeros.
+   */
+  private static long checksum(ByteBuffer font, int offset, int length) {
+    long sum = 0;
+    for (int i = 0; i < length; i += 4) {
+      long word = 0;
+      for (int j = 0; j < 4; j++) {
+        int index = offset + i + j;
+        word = word << 8 | (i + j < length ? font.get(index) & 0xFF : 0);
+      }
+      sum += word;
+    }
+    return sum & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Reads packed deltas into the array, and returns the position after them.
+   */
+  private static int readDeltas(ByteBuffer font, int position, int[] deltas) {
+    int i = 0;
+    while (i < deltas.length) {
+      int control = font.get(position++) & 0xFF;
+      int count = (control & 0x3F) + 1;
+      for (int j = 0; j < count; j++, i++) {
+        if ((control & 0x80) != 0) {
+          deltas[i] = 0;
+        } else if ((control & 0x40) != 0) {
+          deltas[i] = font.getShort(position);
+          position += 2;
+        } else {
+          deltas[i] = font.get(position++);
+        }
+      }
+    }
+    return position;
+  }
+
+  /**
+   * Returns how much the tuple at the peak applies at the location.
+   */
+  private static double getScalar(double[] peak, double[] location) {
+    double scalar = 1;
+    for (int axis = 0; axis < peak.length; axis++) {
+      if (peak[axis] == 0) {
+        continue;
+      }
+      if (location[axis] * peak[axis] <= 0 || Math.abs(location[axis]) > Math.abs(peak[axis])) {
+        return 0;
+      }
+      scalar *= location[axis] / peak[axis];
+    }
+    return scalar;
+  }
+
+  /**
+   * Looks up the glyph of the code point in a cmap subtable of format 4.
+   */
+  private static int lookUp(ByteBuffer font, int subtable, int codePoint) {
+    int segCount = (font.getShort(subtable + 6) & 0xFFFF) / 2;
+    int endCodes = subtable + 14;
+    int startCodes = endCodes + segCount * 2 + 2;
+    int deltas = startCodes + segCount * 2;
+    int rangeOffsets = deltas + segCount * 2;
+    for (int i = 0; i < segCount; i++) {
+      if (codePoint > (font.getShort(endCodes + i * 2) & 0xFFFF)) {
+        continue;
+      }
+      int start = font.getShort(startCodes + i * 2) & 0xFFFF;
+      if (codePoint < start) {
+        return 0;
+      }
+      int delta = font.getShort(deltas + i * 2);
+      int rangeOffset = font.getShort(rangeOffsets + i * 2) & 0xFFFF;
+      if (rangeOffset == 0) {
+        return (codePoint + delta) & 0xFFFF;
+      }
+      int glyph = font.getShort(rangeOffsets + i * 2 + rangeOffset + (codePoint - start) * 2)
+          & 0xFFFF;
+      return glyph == 0 ? 0 : (glyph + delta) & 0xFFFF;
+    }
+    return 0;
+  }
+}
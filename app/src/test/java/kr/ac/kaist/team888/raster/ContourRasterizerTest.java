@@ -0,0 +1,224 @@
+package kr.ac.kaist.team888.raster;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import kr.ac.kaist.team888.bezier.BezierCurve;
+import kr.ac.kaist.team888.bezier.ContourBuffer;
+
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+public class ContourRasterizerTest {
+  private static final int SIZE = 20;
+  // Control distance of a cubic arc approximating a quarter of a circle.
+  private static final double KAPPA = .5522847498;
+
+  @Test
+  public void testAlignedSquareIsSolid() {
+    ContourRasterizer rasterizer = new ContourRasterizer(SIZE, SIZE);
+    addRectangle(rasterizer, 5, 5, 15, 15);
+    byte[] alpha = new byte[SIZE * SIZE];
+    rasterizer.render(alpha);
+
+    for (int row = 0; row < SIZE; row++) {
+      for (int column = 0; column < SIZE; column++) {
+        boolean inside = row >= 5 && row < 15 && column >= 5 && column < 15;
+        assertEquals(inside ? 255 : 0, getCoverage(alpha, row * SIZE + column));
+      }
+    }
+  }
+
+  @Test
+  public void testPartialPixelsAreAntiAliased() {
+    ContourRasterizer rasterizer = new ContourRasterizer(SIZE, SIZE);
+    addRectangle(rasterizer, 5, 5.5, 14.5, 15);
+    byte[] alpha = new byte[SIZE * SIZE];
+    rasterizer.render(alpha);
+
+    assertEquals(128, getCoverage(alpha, 5 * SIZE + 10));
+    assertEquals(255, getCoverage(alpha, 6 * SIZE + 10));
+    assertEquals(128, getCoverage(alpha, 10 * SIZE + 14));
+    assertEquals(64, getCoverage(alpha, 5 * SIZE + 14));
+  }
+
+  @Test
+  public void testCircleCoversItsArea() {
+    int size = 100;
+    double radius = 40;
+    ContourRasterizer rasterizer = new ContourRasterizer(size, size);
+    rasterizer.setTransform(1, 0, size);
+    rasterizer.addContours(makeContours(circle(50, 50, radius)));
+    byte[] alpha = new byte[size * size];
+    rasterizer.render(alpha);
+
+    double area = 0;
+    for (int i = 0; i < alpha.length; i++) {
+      area += getCoverage(alpha, i) / 255.;
+    }
+    // The cubic arcs are off the circle by less than 3E-4 of its radius.
+    assertEquals(Math.PI * radius * radius, area, 1E-3 * area);
+  }
+
+  @Test
+  public void testNonZeroWindingRule() {
+    ContourRasterizer rasterizer = new ContourRasterizer(SIZE, SIZE);
+    addRectangle(rasterizer, 2, 2, 12, 12);
+    addRectangle(rasterizer, 6, 6, 18, 18);
+    // A reversed rectangle cuts a hole out of the first one.
+    addReversedRectangle(rasterizer, 3, 3, 5, 5);
+    byte[] alpha = new byte[SIZE * SIZE];
+    rasterizer.render(alpha);
+
+    assertEquals(255, getCoverage(alpha, 8 * SIZE + 8));
+    assertEquals(255, getCoverage(alpha, 15 * SIZE + 15));
+    assertEquals(0, getCoverage(alpha, 4 * SIZE + 4));
+    assertEquals(255, getCoverage(alpha, 2 * SIZE + 2));
+    assertEquals(0, getCoverage(alpha, 15 * SIZE + 3));
+  }
+
+  @Test
+  public void testContoursOutsideAreClipped() {
+    ContourRasterizer rasterizer = new ContourRasterizer(SIZE, SIZE);
+    addRectangle(rasterizer, -10, -10, 5, 5);
+    addRectangle(rasterizer, 15, 15, 30, 30);
+    byte[] alpha = new byte[SIZE * SIZE];
+    rasterizer.render(alpha);
+
+    for (int row = 0; row < SIZE; row++) {
+      for (int column = 0; column < SIZE; column++) {
+        boolean inside = (row < 5 && column < 5) || (row >= 15 && column >= 15);
+        assertEquals(inside ? 255 : 0, getCoverage(alpha, row * SIZE + column));
+      }
+    }
+  }
+
+  @Test
+  public void testRenderClears() {
+    ContourRasterizer rasterizer = new ContourRasterizer(SIZE, SIZE);
+    addRectangle(rasterizer, 3.3, 4.1, 17.6, 12.8);
+    byte[] alpha = new byte[SIZE * SIZE];
+    rasterizer.render(alpha);
+    rasterizer.render(alpha);
+    assertArrayEquals(new byte[SIZE * SIZE], alpha);
+
+    rasterizer.addLine(0, 0, 1, 1);
+    rasterizer.reset(SIZE / 2, SIZE);
+    byte[] smaller = new byte[SIZE / 2 * SIZE];
+    rasterizer.render(smaller);
+    assertArrayEquals(new byte[SIZE / 2 * SIZE], smaller);
+  }
+
+  @Test
+  public void testRenderWithOffsetAndStride() {
+    ContourRasterizer rasterizer = new ContourRasterizer(4, 3);
+    addRectangle(rasterizer, 0, 0, 4, 3);
+    byte[] alpha = new byte[2 + 2 * 6 + 4 + 1];
+    rasterizer.render(alpha, 2, 6);
+
+    for (int i = 0; i < alpha.length; i++) {
+      int column = i - 2 < 0 ? -1 : (i - 2) % 6;
+      boolean inside = i >= 2 && i < alpha.length - 1 && column < 4;
+      assertEquals(inside ? 255 : 0, getCoverage(alpha, i));
+    }
+  }
+
+  @Test
+  public void testBufferMatchesList() {
+    ArrayList<BezierCurve> circle = circle(30, 25, 17);
+    ArrayList<BezierCurve> square = new ArrayList<>();
+    square.add(new BezierCurve(new double[][] {{5, 5}, {45, 8}}));
+    square.add(new BezierCurve(new double[][] {{45, 8}, {40, 45}, {5, 40}}));
+    square.add(new BezierCurve(new double[][] {{5, 40}, {5, 5}}));
+    ArrayList<ArrayList<BezierCurve>> contours = makeContours(circle);
+    contours.add(square);
+    ContourBuffer buffer = new ContourBuffer();
+    for (ArrayList<BezierCurve> contour : contours) {
+      buffer.addContour(contour);
+    }
+
+    ContourRasterizer rasterizer = new ContourRasterizer(40, 30);
+    rasterizer.setTransform(.7, .8, 2, 35);
+    rasterizer.addContours(contours);
+    byte[] expected = new byte[40 * 30];
+    rasterizer.render(expected);
+    rasterizer.addContours(buffer);
+    byte[] actual = new byte[40 * 30];
+    rasterizer.render(actual);
+
+    assertArrayEquals(expected, actual);
+  }
+
+  @Test(expected = DimensionMismatchException.class)
+  public void testSmallBuffer() {
+    new ContourRasterizer(SIZE, SIZE).render(new byte[SIZE * SIZE - 1]);
+  }
+
+  @Test(expected = DimensionMismatchException.class)
+  public void testSmallRowStride() {
+    new ContourRasterizer(SIZE, SIZE).render(new byte[SIZE * SIZE * 2], 0, SIZE - 1);
+  }
+
+  @Test(expected = NotStrictlyPositiveException.class)
+  public void testNonPositiveSize() {
+    new ContourRasterizer(SIZE, 0);
+  }
+
+  @Test(expected = NotStrictlyPositiveException.class)
+  public void testNonPositiveScale() {
+    new ContourRasterizer(SIZE, SIZE).setTransform(0, 0, 0);
+  }
+
+  private static int getCoverage(byte[] alpha, int index) {
+    return alpha[index] & 0xFF;
+  }
+
+  /**
+   * Adds a rectangle given in pixels, clockwise on the screen.
+   */
+  private static void addRectangle(ContourRasterizer rasterizer, double minX, double minY,
+                                   double maxX, double maxY) {
+    rasterizer.addLine(minX, minY, maxX, minY);
+    rasterizer.addLine(maxX, minY, maxX, maxY);
+    rasterizer.addLine(maxX, maxY, minX, maxY);
+    rasterizer.addLine(minX, maxY, minX, minY);
+  }
+
+  /**
+   * Adds a rectangle given in pixels, counterclockwise on the screen.
+   */
+  private static void addReversedRectangle(ContourRasterizer rasterizer, double minX,
+                                           double minY, double maxX, double maxY) {
+    rasterizer.addLine(minX, minY, minX, maxY);
+    rasterizer.addLine(minX, maxY, maxX, maxY);
+    rasterizer.addLine(maxX, maxY, maxX, minY);
+    rasterizer.addLine(maxX, minY, minX, minY);
+  }
+
+  private static ArrayList<ArrayList<BezierCurve>> makeContours(ArrayList<BezierCurve> contour) {
+    ArrayList<ArrayList<BezierCurve>> contours = new ArrayList<>();
+    contours.add(contour);
+    return contours;
+  }
+
+  private static ArrayList<BezierCurve> circle(double centerX, double centerY, double radius) {
+    double control = KAPPA * radius;
+    ArrayList<BezierCurve> contour = new ArrayList<>();
+    contour.add(new BezierCurve(new double[][] {
+        {centerX + radius, centerY}, {centerX + radius, centerY + control},
+        {centerX + control, centerY + radius}, {centerX, centerY + radius}}));
+    contour.add(new BezierCurve(new double[][] {
+        {centerX, centerY + radius}, {centerX - control, centerY + radius},
+        {centerX - radius, centerY + control}, {centerX - radius, centerY}}));
+    contour.add(new BezierCurve(new double[][] {
+        {centerX - radius, centerY}, {centerX - radius, centerY - control},
+        {centerX - control, centerY - radius}, {centerX, centerY - radius}}));
+    contour.add(new BezierCurve(new double[][] {
+        {centerX, centerY - radius}, {centerX + control, centerY - radius},
+        {centerX + radius, centerY - control}, {centerX + radius, centerY}}));
+    return contour;
+  }
+}
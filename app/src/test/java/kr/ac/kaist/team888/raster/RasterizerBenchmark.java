@@ -0,0 +1,131 @@
+package kr.ac.kaist.team888.raster;
+
+import kr.ac.kaist.team888.bezier.BezierCurve;
+import kr.ac.kaist.team888.bezier.ContourBuffer;
+import kr.ac.kaist.team888.bezier.StrokeMemo;
+import kr.ac.kaist.team888.daemon.FeatureSnapshot;
+import kr.ac.kaist.team888.daemon.GlyphGenerator;
+import kr.ac.kaist.team888.hangulcharacter.CharacterLoader;
+import kr.ac.kaist.team888.hangulcharacter.HangulCharacter;
+import kr.ac.kaist.team888.mylittlefont.FontItem;
+import kr.ac.kaist.team888.region.Region;
+import kr.ac.kaist.team888.util.FeatureController;
+import kr.ac.kaist.team888.util.FontExporter.ExportType;
+import kr.ac.kaist.team888.util.HangulLetters;
+import kr.ac.kaist.team888.util.JsonLoader;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * Benchmark of the rasterizer in glyphs per second at the pixel sizes of an atlas.
+ *
+ * <p>Glyphs of the default features are generated once, and then rasterized as an atlas
+ * exporter does, to bitmaps just large enough for each of them. The best of several rounds is
+ * printed for each size. It runs on the JVM with
+ * <code>RasterizerBenchmark &lt;skeleton json&gt; [letter step]</code>, where every
+ * <code>step</code>-th drawable letter of a full export is taken.
+ */
+public class RasterizerBenchmark {
+  private static final int[] PIXEL_SIZES = {16, 32, 64, 128};
+  private static final int ROUNDS = 5;
+  private static final int DEFAULT_LETTER_STEP = 16;
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args path of the skeleton data and an optional step between letters
+   */
+  public static void main(String[] args) {
+    if (args.length < 1) {
+      System.err.println("Usage: RasterizerBenchmark <skeleton json> [letter step]");
+      System.exit(1);
+    }
+    System.setProperty(JsonLoader.PATH_PROPERTY, args[0]);
+    int step = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_LETTER_STEP;
+
+    GlyphGenerator generator = new GlyphGenerator(new StrokeMemo());
+    FeatureSnapshot features = new FeatureSnapshot(FontItem.DEFAULT_CONTROLS,
+        FeatureController.getInstance().getGap());
+    ArrayList<Character> letters = new ArrayList<>();
+    for (char letter : HangulLetters.getLetters(ExportType.ALL, null)) {
+      if (CharacterLoader.getInstance().isDrawable(letter)) {
+        letters.add(letter);
+      }
+    }
+    ArrayList<ContourBuffer> glyphs = new ArrayList<>();
+    for (int i = 0; i < letters.size(); i += step) {
+      ContourBuffer contours = new ContourBuffer();
+      for (ArrayList<BezierCurve> contour : generator.generateContours(features,
+          letters.get(i))) {
+        contours.addContour(contour);
+      }
+      glyphs.add(contours);
+    }
+    Region origin = HangulCharacter.ORIGIN_REGION;
+    double unitsPerEm = origin.getMaxY() - origin.getMinY();
+
+    System.out.println(String.format(Locale.US, "%d glyphs, %d segments on average",
+        glyphs.size(), countSegments(glyphs) / glyphs.size()));
+    ContourRasterizer rasterizer = new ContourRasterizer(1, 1);
+    byte[] alpha = new byte[0];
+    for (int pixelSize : PIXEL_SIZES) {
+      double scale = pixelSize / unitsPerEm;
+      long best = Long.MAX_VALUE;
+      long coverage = 0;
+      for (int round = 0; round < ROUNDS; round++) {
+        coverage = 0;
+        long start = System.nanoTime();
+        for (ContourBuffer contours : glyphs) {
+          double[] bounds = getBounds(contours);
+          int left = (int) Math.floor(bounds[0] * scale);
+          int top = (int) Math.floor(-bounds[3] * scale);
+          int width = (int) Math.ceil(bounds[2] * scale) - left;
+          int height = (int) Math.ceil(-bounds[1] * scale) - top;
+          if (width <= 0 || height <= 0) {
+            continue;
+          }
+          if (alpha.length < width * height) {
+            alpha = new byte[width * height];
+          }
+          rasterizer.reset(width, height);
+          rasterizer.setTransform(scale, -left, -top);
+          rasterizer.addContours(contours);
+          rasterizer.render(alpha);
+          // Uses the pixels so that rendering cannot be optimized away.
+          for (int i = 0; i < width * height; i++) {
+            coverage += alpha[i] & 0xFF;
+          }
+        }
+        best = Math.min(best, System.nanoTime() - start);
+      }
+      System.out.println(String.format(Locale.US, "%4d px: %10.0f glyphs/s (coverage %d)",
+          pixelSize, glyphs.size() * 1E9 / best, coverage));
+    }
+  }
+
+  /**
+   * Returns the bounds of the control points as minimum x, minimum y, maximum x and maximum y.
+   */
+  private static double[] getBounds(ContourBuffer contours) {
+    double[] bounds = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+        Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+    for (int segment = 0; segment < contours.getSegmentCount(); segment++) {
+      for (int k = 0; k <= contours.getOrder(segment); k++) {
+        bounds[0] = Math.min(bounds[0], contours.getX(segment, k));
+        bounds[1] = Math.min(bounds[1], contours.getY(segment, k));
+        bounds[2] = Math.max(bounds[2], contours.getX(segment, k));
+        bounds[3] = Math.max(bounds[3], contours.getY(segment, k));
+      }
+    }
+    return bounds;
+  }
+
+  private static int countSegments(ArrayList<ContourBuffer> glyphs) {
+    int count = 0;
+    for (ContourBuffer contours : glyphs) {
+      count += contours.getSegmentCount();
+    }
+    return count;
+  }
+}